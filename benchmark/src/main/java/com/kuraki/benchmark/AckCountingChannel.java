@@ -0,0 +1,44 @@
+package com.kuraki.benchmark;
+
+import com.rabbitmq.client.Channel;
+
+import java.lang.reflect.Proxy;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 代替 acknowledgeMode=MANUAL 时消息头中的 Rabbit Channel，只统计 basicAck/basicNack 的次数
+ */
+class AckCountingChannel {
+
+    private final AtomicLong acknowledged = new AtomicLong();
+
+    private final Channel channel = (Channel) Proxy.newProxyInstance(Channel.class.getClassLoader(),
+            new Class<?>[]{Channel.class}, (proxy, method, args) -> {
+                if ("basicAck".equals(method.getName()) || "basicNack".equals(method.getName())) {
+                    acknowledged.incrementAndGet();
+                }
+                return null;
+            });
+
+    Channel channel() {
+        return channel;
+    }
+
+    long acknowledged() {
+        return acknowledged.get();
+    }
+
+    void increment() {
+        acknowledged.incrementAndGet();
+    }
+
+    /**
+     * 等待确认数达到 target
+     */
+    void await(long target) {
+        while (acknowledged.get() < target) {
+            LockSupport.parkNanos(10_000);
+        }
+    }
+}
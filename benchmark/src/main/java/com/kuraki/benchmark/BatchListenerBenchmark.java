@@ -0,0 +1,125 @@
+package com.kuraki.benchmark;
+
+import com.kuraki.stream.BatchListener;
+import com.kuraki.stream.BatchMessageHandler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.amqp.support.AmqpHeaders;
+import org.springframework.integration.channel.DirectChannel;
+import org.springframework.integration.channel.QueueChannel;
+import org.springframework.integration.support.MessageBuilder;
+import org.springframework.messaging.Message;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * stream-hello / stream-consumer 批量消费的吞吐（消息/秒）。binder 用内存通道代替，做法与 test binder 相同：
+ * 输入是 DirectChannel，回复收集到 QueueChannel。消息带 amqp_channel、amqp_deliveryTag 头，
+ * 与 acknowledgeMode=MANUAL 时 Rabbit binder 投递的消息一致，channel 只统计 ack。
+ * perMessage 是逐条调用监听器并 ack 的 @StreamListener 方式，batched 经 BatchMessageHandler 攒批。
+ * 每次调用监听器有 callCostMicros 的固定开销（一次数据库或远程调用），每条消息另有 1µs 的处理开销。
+ * 每次调用投递 MESSAGES 条消息并等待全部 ack
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BatchListenerBenchmark {
+
+    private static final int MESSAGES = 1000;
+
+    @Param({"10", "100"})
+    private int batchSize;
+
+    @Param({"0", "200"})
+    private long callCostMicros;
+
+    private final AckCountingChannel channel = new AckCountingChannel();
+
+    private final QueueChannel replies = new QueueChannel();
+
+    private DirectChannel perMessageInput;
+
+    private DirectChannel batchedInput;
+
+    private BatchMessageHandler<String> handler;
+
+    private long deliveryTag;
+
+    @Setup
+    public void setUp() {
+        BatchListener<String> listener = this::onBatch;
+        perMessageInput = new DirectChannel();
+        perMessageInput.subscribe(message -> {
+            List<?> result = listener.onBatch(Collections.singletonList((String) message.getPayload()));
+            replies.send(MessageBuilder.withPayload(result.get(0)).build());
+            channel.increment();
+        });
+        handler = new BatchMessageHandler<>(listener, replies, batchSize, 10, 1);
+        batchedInput = new DirectChannel();
+        batchedInput.subscribe(handler);
+    }
+
+    @TearDown
+    public void tearDown() {
+        handler.destroy();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MESSAGES)
+    public long perMessage() {
+        return deliver(perMessageInput);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MESSAGES)
+    public long batched() {
+        return deliver(batchedInput);
+    }
+
+    private long deliver(DirectChannel input) {
+        long target = channel.acknowledged() + MESSAGES;
+        for (int i = 0; i < MESSAGES; i++) {
+            input.send(MessageBuilder.withPayload("hello " + i)
+                    .setHeader(AmqpHeaders.CHANNEL, channel.channel())
+                    .setHeader(AmqpHeaders.DELIVERY_TAG, ++deliveryTag)
+                    .build());
+        }
+        channel.await(target);
+        replies.clear();
+        return target;
+    }
+
+    private List<String> onBatch(List<String> payloads) {
+        spin(callCostMicros + payloads.size());
+        List<String> results = new ArrayList<>(payloads.size());
+        for (String payload : payloads) {
+            results.add(payload.toUpperCase());
+        }
+        return results;
+    }
+
+    private static void spin(long micros) {
+        long start = System.nanoTime();
+        long nanos = TimeUnit.MICROSECONDS.toNanos(micros);
+        while (System.nanoTime() - start < nanos) {
+            // 忙等，模拟固定开销
+        }
+    }
+}
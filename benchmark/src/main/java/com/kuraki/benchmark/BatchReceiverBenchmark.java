@@ -0,0 +1,112 @@
+package com.kuraki.benchmark;
+
+import com.kuraki.bus.rabbitmq.BatchReceiver;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * rabbitmq-hello 的 BatchReceiver，消费容器用直接调用 onMessage 代替，channel 只统计确认。
+ * 每次 process 有 200µs 的固定开销（一次批量写库），每条消息另有 1µs。
+ * throughput 由一个消费线程连续投递 MESSAGES 条消息并等待全部确认（消息/秒）；
+ * latency 由 CALLERS 个线程各自投递一条并等待它被确认，相当于 prefetch=CALLERS 时每条消息从投递到确认的耗时分布，
+ * batchSize 大于同时在途的消息数时每批都要等满 batchTimeoutMs
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BatchReceiverBenchmark {
+
+    private static final int MESSAGES = 1000;
+
+    private static final int CALLERS = 16;
+
+    private static final byte[] BODY = "hello".getBytes(StandardCharsets.UTF_8);
+
+    @Param({"1", "10", "100"})
+    private int batchSize;
+
+    @Param({"10"})
+    private long batchTimeoutMs;
+
+    private BatchReceiver receiver;
+
+    @Setup
+    public void setUp() {
+        receiver = new BatchReceiver(1024, batchSize, batchTimeoutMs) {
+            @Override
+            protected void process(List<String> hellos) {
+                spin(200 + hellos.size());
+            }
+        };
+    }
+
+    @TearDown
+    public void tearDown() {
+        receiver.destroy();
+    }
+
+    @State(Scope.Thread)
+    public static class Consumer {
+
+        private final AckCountingChannel channel = new AckCountingChannel();
+
+        private long deliveryTag;
+
+        Message next() {
+            MessageProperties properties = new MessageProperties();
+            properties.setDeliveryTag(++deliveryTag);
+            return new Message(BODY, properties);
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @OperationsPerInvocation(MESSAGES)
+    public long throughput(Consumer consumer) throws Exception {
+        long target = consumer.channel.acknowledged() + MESSAGES;
+        for (int i = 0; i < MESSAGES; i++) {
+            receiver.onMessage(consumer.next(), consumer.channel.channel());
+        }
+        consumer.channel.await(target);
+        return target;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @Threads(CALLERS)
+    public long latency(Consumer consumer) throws Exception {
+        long target = consumer.channel.acknowledged() + 1;
+        receiver.onMessage(consumer.next(), consumer.channel.channel());
+        consumer.channel.await(target);
+        return target;
+    }
+
+    private static void spin(long micros) {
+        long start = System.nanoTime();
+        long nanos = TimeUnit.MICROSECONDS.toNanos(micros);
+        while (System.nanoTime() - start < nanos) {
+            // 忙等，模拟固定开销
+        }
+    }
+}
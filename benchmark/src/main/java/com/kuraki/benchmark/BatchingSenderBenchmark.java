@@ -0,0 +1,66 @@
+package com.kuraki.benchmark;
+
+import com.kuraki.bus.rabbitmq.BatchingSender;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * rabbitmq-hello 的 BatchingSender 发送吞吐（消息/秒），broker 由 StubBrokerTemplate 代替：
+ * 每次发送 20µs，确认往返 500µs。batchSize=1、maxOutstandingConfirms=1 相当于逐条发送并同步等待确认。
+ * 每次调用发送 MESSAGES 条消息并等待全部确认
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BatchingSenderBenchmark {
+
+    private static final int MESSAGES = 1000;
+
+    @Param({"1", "10", "100"})
+    private int batchSize;
+
+    @Param({"1", "64"})
+    private int maxOutstandingConfirms;
+
+    private StubBrokerTemplate broker;
+
+    private BatchingSender sender;
+
+    @Setup
+    public void setUp() {
+        broker = new StubBrokerTemplate(20, 500);
+        // 只由条数触发发送，定时 flush 不参与
+        sender = new BatchingSender(broker, "hello", batchSize, 1 << 20, 60000, maxOutstandingConfirms, 5000, 3);
+    }
+
+    @TearDown
+    public void tearDown() {
+        broker.stop();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MESSAGES)
+    public boolean send() throws InterruptedException {
+        for (int i = 0; i < MESSAGES; i++) {
+            sender.send("hello " + i);
+        }
+        sender.flush();
+        return sender.awaitConfirms(10, TimeUnit.SECONDS);
+    }
+}
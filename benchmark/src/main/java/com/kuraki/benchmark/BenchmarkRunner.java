@@ -0,0 +1,108 @@
+package com.kuraki.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 运行基准测试，结果写入 benchmark.result（默认 target/jmh-result.json）。
+ * 存在 benchmark.baseline（默认 baseline.json，可由上一次的结果复制而来）时逐项对比，
+ * 写出 jmh-regression.csv；变差超过 benchmark.threshold 百分比（默认 10）的记为回归，
+ * benchmark.failOnRegression=true 时有回归则以非 0 退出。
+ * 其余参数与 JMH 命令行相同，如 java -jar benchmarks.jar Hystrix -f 2
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws Exception {
+        File result = new File(System.getProperty("benchmark.result", "target/jmh-result.json"));
+        File baseline = new File(System.getProperty("benchmark.baseline", "baseline.json"));
+        double threshold = Double.parseDouble(System.getProperty("benchmark.threshold", "10"));
+        File parent = result.getAbsoluteFile().getParentFile();
+        if (!parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("Could not create " + parent);
+        }
+
+        Options options = new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .resultFormat(ResultFormatType.JSON)
+                .result(result.getPath())
+                .build();
+        new Runner(options).run();
+
+        if (!baseline.isFile()) {
+            System.out.println("No baseline at " + baseline + ", skipping regression check");
+            return;
+        }
+        File report = new File(parent, "jmh-regression.csv");
+        int regressions = compare(baseline, result, report, threshold);
+        System.out.println(regressions + " regression(s), report written to " + report);
+        if (regressions > 0 && Boolean.getBoolean("benchmark.failOnRegression")) {
+            System.exit(1);
+        }
+    }
+
+    static int compare(File baselineFile, File resultFile, File report, double threshold) throws IOException {
+        ObjectMapper mapper = new ObjectMapper();
+        Map<String, JsonNode> baseline = index(mapper.readTree(baselineFile));
+        Map<String, JsonNode> current = index(mapper.readTree(resultFile));
+        int regressions = 0;
+        try (PrintWriter out = new PrintWriter(report, StandardCharsets.UTF_8.name())) {
+            out.println("benchmark,mode,unit,baseline,current,change_percent,regression");
+            for (Map.Entry<String, JsonNode> entry : current.entrySet()) {
+                JsonNode now = entry.getValue();
+                JsonNode before = baseline.get(entry.getKey());
+                String mode = now.path("mode").asText();
+                String unit = now.path("primaryMetric").path("scoreUnit").asText();
+                double score = now.path("primaryMetric").path("score").asDouble();
+                if (before == null) {
+                    out.printf("%s,%s,%s,,%.3f,,%n", entry.getKey(), mode, unit, score);
+                    continue;
+                }
+                double previous = before.path("primaryMetric").path("score").asDouble();
+                double change = previous == 0 ? 0 : (score - previous) / previous * 100;
+                // 吞吐越大越好，其余模式（耗时）越小越好
+                boolean regression = "thrpt".equals(mode) ? change < -threshold : change > threshold;
+                if (regression) {
+                    regressions++;
+                }
+                out.printf("%s,%s,%s,%.3f,%.3f,%.1f,%s%n", entry.getKey(), mode, unit, previous, score, change, regression);
+            }
+        }
+        return regressions;
+    }
+
+    private static Map<String, JsonNode> index(JsonNode results) {
+        Map<String, JsonNode> byKey = new LinkedHashMap<>();
+        for (JsonNode result : results) {
+            StringBuilder key = new StringBuilder(result.path("benchmark").asText());
+            JsonNode params = result.get("params");
+            if (params != null) {
+                // 参数之间用分号，避免与 csv 的逗号冲突
+                key.append('[');
+                Iterator<Map.Entry<String, JsonNode>> fields = params.fields();
+                while (fields.hasNext()) {
+                    Map.Entry<String, JsonNode> field = fields.next();
+                    key.append(field.getKey()).append('=').append(field.getValue().asText());
+                    if (fields.hasNext()) {
+                        key.append(';');
+                    }
+                }
+                key.append(']');
+            }
+            byKey.put(key + ":" + result.path("mode").asText(), result);
+        }
+        return byKey;
+    }
+}
@@ -0,0 +1,98 @@
+package com.kuraki.benchmark;
+
+import com.kuraki.feign.dto.User;
+import feign.RequestTemplate;
+import feign.Response;
+import feign.codec.Decoder;
+import feign.codec.Encoder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.beans.factory.ObjectFactory;
+import org.springframework.boot.autoconfigure.web.HttpMessageConverters;
+import org.springframework.cloud.netflix.feign.support.ResponseEntityDecoder;
+import org.springframework.cloud.netflix.feign.support.SpringDecoder;
+import org.springframework.cloud.netflix.feign.support.SpringEncoder;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * feign-consumer 默认的 SpringEncoder / SpringDecoder 对 User DTO 的编解码，
+ * 分别覆盖 hello-service-api 的 com.kuraki.feign.dto.User 和 feign-consumer 的 com.kuraki.entity.User
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FeignCodecBenchmark {
+
+    private static final Map<String, Collection<String>> JSON_HEADERS =
+            Collections.singletonMap("Content-Type", Collections.singletonList("application/json;charset=UTF-8"));
+
+    private Encoder encoder;
+
+    private Decoder decoder;
+
+    private User dto;
+
+    private com.kuraki.entity.User entity;
+
+    private byte[] body;
+
+    @Setup
+    public void setUp() {
+        // 与容器中一样只构造一次 HttpMessageConverters，否则测到的是 ObjectMapper 的初始化
+        HttpMessageConverters messageConverters = new HttpMessageConverters(new MappingJackson2HttpMessageConverter());
+        ObjectFactory<HttpMessageConverters> converters = () -> messageConverters;
+        encoder = new SpringEncoder(converters);
+        decoder = new ResponseEntityDecoder(new SpringDecoder(converters));
+        dto = new User("kuraki", 30);
+        entity = new com.kuraki.entity.User("kuraki", 30);
+        body = "{\"name\":\"kuraki\",\"age\":30}".getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public byte[] encodeDto() {
+        return encode(dto, User.class);
+    }
+
+    @Benchmark
+    public byte[] encodeEntity() {
+        return encode(entity, com.kuraki.entity.User.class);
+    }
+
+    @Benchmark
+    public Object decodeDto() throws Exception {
+        return decoder.decode(response(), User.class);
+    }
+
+    @Benchmark
+    public Object decodeEntity() throws Exception {
+        return decoder.decode(response(), com.kuraki.entity.User.class);
+    }
+
+    private byte[] encode(Object value, Class<?> type) {
+        RequestTemplate template = new RequestTemplate();
+        template.header("Content-Type", "application/json");
+        encoder.encode(value, type, template);
+        return template.body();
+    }
+
+    private Response response() {
+        return Response.create(200, "OK", JSON_HEADERS, body);
+    }
+}
@@ -0,0 +1,77 @@
+package com.kuraki.benchmark;
+
+import com.kuraki.hystrix.HdrLatencyMetrics;
+import com.netflix.hystrix.strategy.properties.HystrixProperty;
+import com.netflix.hystrix.util.HystrixRollingPercentile;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * hystrix-consumer 中 HdrMetricsPublisher 每次 command 完成时的记录开销，
+ * 对比 Hystrix 自带的 HystrixRollingPercentile（每次 addValue 都分配可变参数数组）。
+ * 多线程版本模拟多个 command 线程同时完成。可加 -prof gc 查看每次记录的分配量
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HdrRecordingBenchmark {
+
+    // 与 hystrix.hdr 的默认配置相同：10 个 1 秒的窗口
+    private final HdrLatencyMetrics hdr = new HdrLatencyMetrics(10);
+
+    // 与 Hystrix 的默认配置相同：60 秒 6 个桶，每个桶 100 个值
+    private final HystrixRollingPercentile rolling = new HystrixRollingPercentile(60000, 6, 100,
+            HystrixProperty.Factory.asProperty(true));
+
+    @Benchmark
+    public void hdrRecord() {
+        long latency = latency();
+        hdr.record(latency, latency + 1);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void hdrRecordContended() {
+        long latency = latency();
+        hdr.record(latency, latency + 1);
+    }
+
+    @Benchmark
+    public void hystrixRecord() {
+        rolling.addValue((int) latency());
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void hystrixRecordContended() {
+        rolling.addValue((int) latency());
+    }
+
+    /**
+     * 读取时要先并入 Recorder 中的新值，/metrics 和 stream 每次采样都会调用
+     */
+    @Benchmark
+    public long hdrReadP999() {
+        long latency = latency();
+        hdr.record(latency, latency + 1);
+        return hdr.executionPercentile(99.9);
+    }
+
+    private static long latency() {
+        return ThreadLocalRandom.current().nextInt(1, 200);
+    }
+}
@@ -0,0 +1,104 @@
+package com.kuraki.benchmark;
+
+import com.didispace.controller.HelloController;
+import com.didispace.controller.HelloFastPathFilter;
+import com.didispace.controller.RefactorHelloController;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.StringHttpMessageConverter;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+/**
+ * spring-boot-hello 每秒处理的请求数：经过 DispatcherServlet 的 Controller 与 HelloFastPathFilter 快速路径。
+ * 两组都通过 MockMvc 发请求，MockMvc 自身的开销相同
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HelloFastPathBenchmark {
+
+    @Param({"/hello", "/hello1", "/hello2", "/refactor/hello4", "/refactor/hello5"})
+    private String path;
+
+    private MockMvc mvc;
+
+    private MockMvc fastMvc;
+
+    private RequestBuilder request;
+
+    @Setup
+    public void setUp() {
+        HelloController controller = new HelloController();
+        ReflectionTestUtils.setField(controller, "client", new LocalDiscoveryClient());
+        // 与 Spring Boot 自动配置的消息转换器一致
+        HttpMessageConverter<?>[] converters = {
+                new StringHttpMessageConverter(StandardCharsets.UTF_8), new MappingJackson2HttpMessageConverter()};
+        RefactorHelloController refactorController = new RefactorHelloController();
+        mvc = MockMvcBuilders.standaloneSetup(controller, refactorController).setMessageConverters(converters).build();
+        fastMvc = MockMvcBuilders.standaloneSetup(controller, refactorController).setMessageConverters(converters)
+                .addFilters(new HelloFastPathFilter(controller)).build();
+        request = get(path).param("name", "didi").header("name", "didi").header("age", "30");
+    }
+
+    @Benchmark
+    public String controller() throws Exception {
+        return mvc.perform(request).andReturn().getResponse().getContentAsString();
+    }
+
+    @Benchmark
+    public String fastPath() throws Exception {
+        return fastMvc.perform(request).andReturn().getResponse().getContentAsString();
+    }
+
+    static class LocalDiscoveryClient implements DiscoveryClient {
+
+        private final ServiceInstance local = new DefaultServiceInstance("hello-service", "localhost", 8081, false);
+
+        @Override
+        public String description() {
+            return "local";
+        }
+
+        @Override
+        public ServiceInstance getLocalServiceInstance() {
+            return local;
+        }
+
+        @Override
+        public List<ServiceInstance> getInstances(String serviceId) {
+            return Collections.singletonList(local);
+        }
+
+        @Override
+        public List<String> getServices() {
+            return Collections.singletonList(local.getServiceId());
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.kuraki.benchmark;
+
+import com.kuraki.bean.User;
+import com.kuraki.bean.UserCommand;
+import com.kuraki.bean.UserGetCommand;
+import com.netflix.hystrix.Hystrix;
+import com.netflix.hystrix.HystrixCommand;
+import com.netflix.hystrix.HystrixCommandGroupKey;
+import com.netflix.hystrix.HystrixCommandKey;
+import com.netflix.hystrix.HystrixCommandProperties;
+import com.netflix.hystrix.HystrixThreadPoolKey;
+import com.netflix.hystrix.strategy.concurrency.HystrixRequestContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * UserCommand / UserGetCommand 的执行开销，baseline 为不经过 Hystrix 直接调用。
+ * 每次执行都新建 HystrixRequestContext，与一次 web 请求的生命周期一致
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HystrixCommandBenchmark {
+
+    private final RestTemplate restTemplate = new StubRestTemplate();
+
+    private HystrixCommand.Setter threadIsolated;
+
+    private HystrixCommand.Setter semaphoreIsolated;
+
+    @Setup
+    public void setUp() {
+        threadIsolated = HystrixCommand.Setter.withGroupKey(HystrixCommandGroupKey.Factory.asKey("CommandGroupKey"))
+                .andCommandKey(HystrixCommandKey.Factory.asKey("CommandKey"))
+                .andThreadPoolKey(HystrixThreadPoolKey.Factory.asKey("ThreadPoolKey"));
+        semaphoreIsolated = HystrixCommand.Setter.withGroupKey(HystrixCommandGroupKey.Factory.asKey("CommandGroupKey"))
+                .andCommandKey(HystrixCommandKey.Factory.asKey("SemaphoreCommandKey"))
+                .andCommandPropertiesDefaults(HystrixCommandProperties.Setter()
+                        .withExecutionIsolationStrategy(HystrixCommandProperties.ExecutionIsolationStrategy.SEMAPHORE)
+                        .withExecutionIsolationSemaphoreMaxConcurrentRequests(Integer.MAX_VALUE));
+    }
+
+    @TearDown
+    public void tearDown() {
+        Hystrix.reset();
+    }
+
+    @Benchmark
+    public User baseline() {
+        return restTemplate.getForObject("http://user-service/users/{1}", User.class, 1L);
+    }
+
+    @Benchmark
+    public User userCommandThread() {
+        HystrixRequestContext context = HystrixRequestContext.initializeContext();
+        try {
+            return new UserCommand(threadIsolated, restTemplate, 1L).execute();
+        } finally {
+            context.shutdown();
+        }
+    }
+
+    @Benchmark
+    public User userCommandSemaphore() {
+        HystrixRequestContext context = HystrixRequestContext.initializeContext();
+        try {
+            return new UserCommand(semaphoreIsolated, restTemplate, 1L).execute();
+        } finally {
+            context.shutdown();
+        }
+    }
+
+    /**
+     * 同一请求内第二次执行命中请求缓存
+     */
+    @Benchmark
+    public User userCommandCacheHit() {
+        HystrixRequestContext context = HystrixRequestContext.initializeContext();
+        try {
+            new UserCommand(semaphoreIsolated, restTemplate, 1L).execute();
+            return new UserCommand(semaphoreIsolated, restTemplate, 1L).execute();
+        } finally {
+            context.shutdown();
+        }
+    }
+
+    /**
+     * 读取后清理缓存，对应 UserPostCommand 写入后的刷新
+     */
+    @Benchmark
+    public User userGetCommandWithFlush() {
+        HystrixRequestContext context = HystrixRequestContext.initializeContext();
+        try {
+            User user = new UserGetCommand(restTemplate, 1L).execute();
+            UserGetCommand.flushCache(1L);
+            return user;
+        } finally {
+            context.shutdown();
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.kuraki.benchmark;
+
+import com.kuraki.stream.KeyedLanes;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.amqp.support.AmqpHeaders;
+import org.springframework.integration.support.MessageBuilder;
+import org.springframework.messaging.Message;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * stream-consumer 的吞吐（消息/秒）随 app1.lanes.count 的变化。消息带 amqp_channel、amqp_deliveryTag 头，
+ * 与 acknowledgeMode=MANUAL 时 binder 投递的一致，分区 key 在 KEYS 个值之间轮换。
+ * 每条消息的处理等待 costMicros，代表一次下游调用（不占 CPU），lane 之间的并行就是并行等待这部分时间；
+ * CPU 密集的处理在 lane 数超过核数后不会再提升。每次调用投递 MESSAGES 条消息并等待全部 ack
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class KeyedLanesBenchmark {
+
+    private static final int MESSAGES = 400;
+
+    private static final int KEYS = 64;
+
+    @Param({"1", "2", "4", "8"})
+    private int lanes;
+
+    @Param({"500"})
+    private long costMicros;
+
+    private final AckCountingChannel channel = new AckCountingChannel();
+
+    private KeyedLanes keyedLanes;
+
+    private long deliveryTag;
+
+    private Runnable task;
+
+    @Setup
+    public void setUp() {
+        keyedLanes = new KeyedLanes(lanes, 1024, "partitionKey");
+        long nanos = TimeUnit.MICROSECONDS.toNanos(costMicros);
+        task = () -> LockSupport.parkNanos(nanos);
+    }
+
+    @TearDown
+    public void tearDown() {
+        keyedLanes.destroy();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MESSAGES)
+    public long submit() throws InterruptedException {
+        long target = channel.acknowledged() + MESSAGES;
+        for (int i = 0; i < MESSAGES; i++) {
+            Message<String> message = MessageBuilder.withPayload("hello " + i)
+                    .setHeader("partitionKey", "user-" + i % KEYS)
+                    .setHeader(AmqpHeaders.CHANNEL, channel.channel())
+                    .setHeader(AmqpHeaders.DELIVERY_TAG, ++deliveryTag)
+                    .build();
+            keyedLanes.submit(message, task);
+        }
+        channel.await(target);
+        return target;
+    }
+}
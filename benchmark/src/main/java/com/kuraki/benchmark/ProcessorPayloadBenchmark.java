@@ -0,0 +1,83 @@
+package com.kuraki.benchmark;
+
+import com.kuraki.config.App1;
+import com.kuraki.stream.TracingChannelInterceptor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.integration.support.MessageBuilder;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * stream-consumer 处理器（App1）每条消息的开销，配合 -prof gc 看 gc.alloc.rate.norm（每条消息分配的字节数）。
+ * objectText 是原来的 receiveFromInput(Object payload)：binder 按 text/plain 把 byte[] 解码成 String，
+ * 拼接前缀后再编码回 byte[]；bytesText、bytesJson 是 App1.reply 直接在 byte[] 上拼接前缀或原样转发
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProcessorPayloadBenchmark {
+
+    private static final String PREFIX = "From Input Channel Return - ";
+
+    @Param({"256", "4096"})
+    private int payloadSize;
+
+    private Message<byte[]> text;
+
+    private Message<byte[]> json;
+
+    @Setup
+    public void setUp() {
+        char[] chars = new char[payloadSize];
+        Arrays.fill(chars, 'a');
+        byte[] body = new String(chars).getBytes(StandardCharsets.UTF_8);
+        text = message(body, "text/plain");
+        json = message(body, "application/json");
+    }
+
+    @Benchmark
+    public Message<?> objectText() {
+        // binder 的 String 转换、方法体里的拼接、输出时的编码
+        Object payload = new String(text.getPayload(), StandardCharsets.UTF_8);
+        String reply = PREFIX + payload;
+        return MessageBuilder.withPayload(reply.getBytes(StandardCharsets.UTF_8))
+                .setHeader(MessageHeaders.CONTENT_TYPE, "text/plain")
+                .setHeader(TracingChannelInterceptor.ORIGIN_SENT_AT,
+                        text.getHeaders().get(TracingChannelInterceptor.ORIGIN_SENT_AT))
+                .build();
+    }
+
+    @Benchmark
+    public Message<byte[]> bytesText() {
+        return App1.reply(text);
+    }
+
+    @Benchmark
+    public Message<byte[]> bytesJson() {
+        return App1.reply(json);
+    }
+
+    private static Message<byte[]> message(byte[] body, String contentType) {
+        return MessageBuilder.withPayload(body)
+                .setHeader(MessageHeaders.CONTENT_TYPE, contentType)
+                .setHeader(TracingChannelInterceptor.ORIGIN_SENT_AT, System.currentTimeMillis())
+                .build();
+    }
+}
@@ -0,0 +1,149 @@
+package com.kuraki.benchmark;
+
+import com.kuraki.zuul.config.RoutePoolWarmer;
+import com.netflix.client.config.CommonClientConfigKey;
+import com.netflix.client.config.DefaultClientConfigImpl;
+import com.netflix.http4.NFHttpClientFactory;
+import com.netflix.niws.client.http.RestClient;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * api-gateway 的 RoutePoolWarmer：并发 connections 个请求的一轮耗时，
+ * cold 每轮之前清空连接池，每个请求都要新建连接；warm 复用上一轮留下的连接。
+ * 两者之差即预热为第一批请求节省的建连耗时。上游在本机，不含网络延迟，跨机房时差距更大
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RoutePoolWarmUpBenchmark {
+
+    private static final String CLIENT = "route-pool-benchmark";
+
+    private static final byte[] RESPONSE = ("HTTP/1.1 200 OK\r\nContent-Type: text/plain\r\nContent-Length: 11\r\n\r\n"
+            + "Hello World").getBytes(StandardCharsets.US_ASCII);
+
+    @Param({"1", "8"})
+    private int connections;
+
+    // route-pool 的 stale-check，打开时复用连接前要先阻塞检查约 1ms
+    @Param({"true", "false"})
+    private boolean staleCheck;
+
+    private ServerSocket server;
+
+    private ExecutorService handlers;
+
+    private RestClient client;
+
+    private ExecutorService executor;
+
+    private URI uri;
+
+    @Setup
+    public void setUp() throws Exception {
+        server = new ServerSocket(0, 128, InetAddress.getLoopbackAddress());
+        handlers = Executors.newCachedThreadPool();
+        handlers.execute(this::accept);
+        uri = URI.create("http://127.0.0.1:" + server.getLocalPort() + "/hello");
+
+        // 与 RoutePoolConfigurer 写入的 ribbon 配置相同
+        DefaultClientConfigImpl config = DefaultClientConfigImpl.getClientConfigWithDefaultValues(CLIENT);
+        config.setProperty(CommonClientConfigKey.EnableConnectionPool, true);
+        config.setProperty(CommonClientConfigKey.MaxTotalHttpConnections, 200);
+        config.setProperty(CommonClientConfigKey.MaxHttpConnectionsPerHost, 100);
+        config.setProperty(CommonClientConfigKey.StaleCheckingEnabled, staleCheck);
+        client = new RestClient(config);
+        executor = Executors.newFixedThreadPool(connections);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        executor.shutdownNow();
+        NFHttpClientFactory.shutdownNFHttpClient(CLIENT);
+        server.close();
+        handlers.shutdownNow();
+    }
+
+    @Benchmark
+    public long cold(Evicted evicted) throws Exception {
+        return RoutePoolWarmer.round(executor, client, uri, connections);
+    }
+
+    @Benchmark
+    public long warm() throws Exception {
+        return RoutePoolWarmer.round(executor, client, uri, connections);
+    }
+
+    /**
+     * 最简单的 HTTP/1.1 keep-alive 上游：com.sun.net.httpserver 每个请求本身就有毫秒级的调度开销，会掩盖建连的差别
+     */
+    private void accept() {
+        while (!server.isClosed()) {
+            try {
+                Socket socket = server.accept();
+                socket.setTcpNoDelay(true);
+                handlers.execute(() -> serve(socket));
+            } catch (IOException e) {
+                return;
+            }
+        }
+    }
+
+    private static void serve(Socket socket) {
+        try (Socket s = socket) {
+            BufferedReader in = new BufferedReader(new InputStreamReader(s.getInputStream(), StandardCharsets.US_ASCII));
+            OutputStream out = s.getOutputStream();
+            String line;
+            while ((line = in.readLine()) != null) {
+                // 预热请求都是 GET，读到请求头结束的空行即可响应
+                if (line.isEmpty()) {
+                    out.write(RESPONSE);
+                    out.flush();
+                }
+            }
+        } catch (IOException e) {
+            // 客户端关闭连接
+        }
+    }
+
+    /**
+     * 每次调用前关闭连接池中的空闲连接，不计入测量时间
+     */
+    @State(Scope.Benchmark)
+    public static class Evicted {
+
+        @Setup(Level.Invocation)
+        public void evict(RoutePoolWarmUpBenchmark benchmark) {
+            NFHttpClientFactory.getNamedNFHttpClient(CLIENT).getConnectionManager()
+                    .closeIdleConnections(0, TimeUnit.MILLISECONDS);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.kuraki.benchmark;
+
+import com.kuraki.rabbit.SinkReceiver;
+import com.kuraki.stream.LatencyHistogram;
+import com.kuraki.stream.TracingChannelInterceptor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.integration.channel.DirectChannel;
+import org.springframework.integration.support.MessageBuilder;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.MessageHandlingException;
+import org.springframework.messaging.handler.annotation.support.DefaultMessageHandlerMethodFactory;
+import org.springframework.messaging.handler.invocation.InvocableHandlerMethod;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * stream-hello 的 @StreamListener 分发：消息经 DirectChannel 交给 InvocableHandlerMethod 调用 SinkReceiver，
+ * 与 StreamListener 注解处理器生成的调用链一致，不经过 binder。traced 在通道上加了 TracingChannelInterceptor
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StreamDispatchBenchmark {
+
+    private DirectChannel plain;
+
+    private DirectChannel traced;
+
+    private Message<String> message;
+
+    @Setup
+    public void setUp() throws Exception {
+        DefaultMessageHandlerMethodFactory factory = new DefaultMessageHandlerMethodFactory();
+        factory.afterPropertiesSet();
+        InvocableHandlerMethod method = factory.createInvocableHandlerMethod(new SinkReceiver(),
+                SinkReceiver.class.getMethod("receiver", Message.class));
+        MessageHandler handler = m -> {
+            try {
+                method.invoke(m);
+            } catch (Exception e) {
+                throw new MessageHandlingException(m, e);
+            }
+        };
+        plain = new DirectChannel();
+        plain.subscribe(handler);
+        traced = new DirectChannel();
+        traced.addInterceptor(new TracingChannelInterceptor(new LatencyHistogram(), new LatencyHistogram(), false));
+        traced.subscribe(handler);
+        long now = System.currentTimeMillis();
+        message = MessageBuilder.withPayload("hello")
+                .setHeader(TracingChannelInterceptor.HOP_SENT_AT, now)
+                .setHeader(TracingChannelInterceptor.ORIGIN_SENT_AT, now)
+                .build();
+    }
+
+    @Benchmark
+    public boolean dispatch() {
+        return plain.send(message);
+    }
+
+    @Benchmark
+    public boolean dispatchTraced() {
+        return traced.send(message);
+    }
+}
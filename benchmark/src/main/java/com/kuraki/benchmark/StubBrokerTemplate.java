@@ -0,0 +1,89 @@
+package com.kuraki.benchmark;
+
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.rabbit.support.CorrelationData;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 代替 broker 的 RabbitTemplate，不建立连接：每次发送在调用线程中消耗 publishNanos（写帧），
+ * 由单独的 broker 线程按发送顺序在 confirmNanos 之后回调 publisher confirm，与 broker 按序确认一致
+ */
+public class StubBrokerTemplate extends RabbitTemplate {
+
+    private final long publishNanos;
+
+    private final long confirmNanos;
+
+    private final BlockingQueue<Object[]> inFlight = new LinkedBlockingQueue<>();
+
+    private final AtomicLong published = new AtomicLong();
+
+    private final AtomicLong bytes = new AtomicLong();
+
+    private volatile ConfirmCallback confirmCallback;
+
+    private final Thread broker;
+
+    public StubBrokerTemplate(long publishMicros, long confirmMicros) {
+        this.publishNanos = TimeUnit.MICROSECONDS.toNanos(publishMicros);
+        this.confirmNanos = TimeUnit.MICROSECONDS.toNanos(confirmMicros);
+        broker = new Thread(this::confirmLoop, "stub-broker");
+        broker.setDaemon(true);
+        broker.start();
+    }
+
+    @Override
+    public void setConfirmCallback(ConfirmCallback confirmCallback) {
+        this.confirmCallback = confirmCallback;
+    }
+
+    @Override
+    public void send(String exchange, String routingKey, Message message, CorrelationData correlationData) {
+        long start = System.nanoTime();
+        while (System.nanoTime() - start < publishNanos) {
+            // 忙等，模拟写出一帧的开销
+        }
+        published.incrementAndGet();
+        bytes.addAndGet(message.getBody().length);
+        inFlight.add(new Object[]{System.nanoTime() + confirmNanos, correlationData});
+    }
+
+    /**
+     * 收到的 AMQP 消息数（批量时一批算一条）
+     */
+    public long getPublished() {
+        return published.get();
+    }
+
+    public long getBytes() {
+        return bytes.get();
+    }
+
+    public void stop() {
+        broker.interrupt();
+    }
+
+    private void confirmLoop() {
+        try {
+            while (true) {
+                Object[] publish = inFlight.take();
+                long wait = (Long) publish[0] - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+                ConfirmCallback callback = confirmCallback;
+                if (callback != null) {
+                    callback.confirm((CorrelationData) publish[1], true, null);
+                }
+            }
+        } catch (InterruptedException e) {
+            // 停止
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.kuraki.benchmark;
+
+import com.kuraki.bean.User;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 不发请求的 RestTemplate，按 id 直接构造 User，只测调用方自身的开销。
+ * List 请求按逗号拆分 id（对应 UserService.findAll），并统计批次数和 id 数
+ */
+public class StubRestTemplate extends RestTemplate {
+
+    private final AtomicLong batches = new AtomicLong();
+
+    private final AtomicLong batchedIds = new AtomicLong();
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T getForObject(String url, Class<T> responseType, Object... uriVariables) {
+        if (List.class.isAssignableFrom(responseType)) {
+            String[] ids = String.valueOf(uriVariables[0]).split(",");
+            List<User> users = new ArrayList<>(ids.length);
+            for (String id : ids) {
+                users.add(user(Long.valueOf(id)));
+            }
+            batches.incrementAndGet();
+            batchedIds.addAndGet(ids.length);
+            return (T) users;
+        }
+        return responseType.cast(user(Long.valueOf(String.valueOf(uriVariables[0]))));
+    }
+
+    public double averageBatchSize() {
+        long count = batches.get();
+        return count == 0 ? 0 : (double) batchedIds.get() / count;
+    }
+
+    public void reset() {
+        batches.set(0);
+        batchedIds.set(0);
+    }
+
+    private static User user(Long id) {
+        User user = new User();
+        user.setId(id);
+        user.setName("user" + id);
+        user.setAge(20);
+        return user;
+    }
+}
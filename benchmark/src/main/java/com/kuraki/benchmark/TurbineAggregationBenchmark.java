@@ -0,0 +1,178 @@
+package com.kuraki.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.kuraki.turbine.IncrementalAggregator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * springcloud-turbine 聚合一个周期的开销：instances 个实例各上报 commands 个 command 的 hystrix.stream data。
+ * fullMerge 与默认的 Turbine 一样，每个周期把所有实例的最新快照解析成树后重新合并、序列化；
+ * incremental 用 IncrementalAggregator 流式解析差值，只输出有变化的 key。
+ * 每个周期只有计数和部分百分位变化，其余字段与上个周期相同。可加 -prof gc 对比分配量
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TurbineAggregationBenchmark {
+
+    private static final int TICKS = 16;
+
+    @Param({"200"})
+    private int instances;
+
+    @Param({"10"})
+    private int commands;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    // [周期][实例][command]
+    private String[][][] lines;
+
+    private int tick;
+
+    private IncrementalAggregator aggregator;
+
+    // command -> 各实例最近一次的快照
+    private Map<String, JsonNode[]> snapshots;
+
+    @Setup
+    public void setUp() throws IOException {
+        lines = new String[TICKS][instances][commands];
+        for (int t = 0; t < TICKS; t++) {
+            for (int i = 0; i < instances; i++) {
+                for (int c = 0; c < commands; c++) {
+                    lines[t][i][c] = command("command" + c, t, i);
+                }
+            }
+        }
+        aggregator = new IncrementalAggregator();
+        snapshots = new HashMap<>();
+        // 先跑一轮，两种方式都从稳定状态开始
+        incremental();
+        fullMerge();
+    }
+
+    @Benchmark
+    public int incremental() throws IOException {
+        String[][] current = next();
+        for (int i = 0; i < instances; i++) {
+            for (int c = 0; c < commands; c++) {
+                aggregator.accept(i, current[i][c]);
+            }
+        }
+        return aggregator.drainChanged().size();
+    }
+
+    @Benchmark
+    public int fullMerge() throws IOException {
+        String[][] current = next();
+        for (int i = 0; i < instances; i++) {
+            for (int c = 0; c < commands; c++) {
+                JsonNode node = mapper.readTree(current[i][c]);
+                snapshots.computeIfAbsent(node.get("name").asText(), k -> new JsonNode[instances])[i] = node;
+            }
+        }
+        int length = 0;
+        for (JsonNode[] hosts : snapshots.values()) {
+            ObjectNode merged = mapper.createObjectNode();
+            int reportingHosts = 0;
+            for (JsonNode host : hosts) {
+                if (host != null) {
+                    merge(merged, host);
+                    reportingHosts++;
+                }
+            }
+            merged.remove("currentTime");
+            merged.put("reportingHosts", reportingHosts);
+            length += mapper.writeValueAsString(merged).length();
+        }
+        return length;
+    }
+
+    private String[][] next() {
+        String[][] current = lines[tick];
+        tick = (tick + 1) % TICKS;
+        return current;
+    }
+
+    private static void merge(ObjectNode target, JsonNode source) {
+        Iterator<Map.Entry<String, JsonNode>> fields = source.fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            String name = field.getKey();
+            JsonNode value = field.getValue();
+            if (value.isObject()) {
+                JsonNode child = target.get(name);
+                merge(child instanceof ObjectNode ? (ObjectNode) child : target.putObject(name), value);
+            } else if (value.isNumber()) {
+                target.put(name, target.path(name).asLong() + value.asLong());
+            } else if (value.isBoolean()) {
+                target.put(name, target.path(name).asBoolean() || value.asBoolean());
+            } else {
+                target.set(name, value);
+            }
+        }
+    }
+
+    /**
+     * 与 HystrixMetricsStreamServlet 输出的 command 数据字段一致
+     */
+    private static String command(String name, int tick, int instance) {
+        int requests = 100 + tick * 10 + instance % 7;
+        int errors = tick % 4 == 0 ? 1 : 0;
+        return "{\"type\":\"HystrixCommand\",\"name\":\"" + name + "\",\"group\":\"UserService\","
+                + "\"currentTime\":" + (1500000000000L + tick * 500L)
+                + ",\"isCircuitBreakerOpen\":false,\"errorPercentage\":" + errors * 100 / requests
+                + ",\"errorCount\":" + errors + ",\"requestCount\":" + requests
+                + ",\"rollingCountBadRequests\":0,\"rollingCountCollapsedRequests\":0,\"rollingCountEmit\":0"
+                + ",\"rollingCountExceptionsThrown\":0,\"rollingCountFailure\":" + errors
+                + ",\"rollingCountFallbackEmit\":0,\"rollingCountFallbackFailure\":0"
+                + ",\"rollingCountFallbackMissing\":0,\"rollingCountFallbackRejection\":0"
+                + ",\"rollingCountFallbackSuccess\":" + errors + ",\"rollingCountResponsesFromCache\":0"
+                + ",\"rollingCountSemaphoreRejected\":0,\"rollingCountShortCircuited\":0"
+                + ",\"rollingCountSuccess\":" + (requests - errors) + ",\"rollingCountThreadPoolRejected\":0"
+                + ",\"rollingCountTimeout\":0,\"currentConcurrentExecutionCount\":" + tick % 3
+                + ",\"rollingMaxConcurrentExecutionRate\":3,\"latencyExecute_mean\":" + (12 + tick % 2)
+                + ",\"latencyExecute\":{\"0\":1,\"25\":5,\"50\":9,\"75\":14,\"90\":20,\"95\":26,\"99\":"
+                + (40 + tick % 5) + ",\"99.5\":48,\"100\":" + (60 + tick % 5) + "}"
+                + ",\"latencyTotal_mean\":" + (13 + tick % 2)
+                + ",\"latencyTotal\":{\"0\":1,\"25\":6,\"50\":10,\"75\":15,\"90\":21,\"95\":27,\"99\":"
+                + (42 + tick % 5) + ",\"99.5\":50,\"100\":" + (62 + tick % 5) + "}"
+                + ",\"propertyValue_circuitBreakerRequestVolumeThreshold\":20"
+                + ",\"propertyValue_circuitBreakerSleepWindowInMilliseconds\":5000"
+                + ",\"propertyValue_circuitBreakerErrorThresholdPercentage\":50"
+                + ",\"propertyValue_circuitBreakerForceOpen\":false,\"propertyValue_circuitBreakerForceClosed\":false"
+                + ",\"propertyValue_circuitBreakerEnabled\":true"
+                + ",\"propertyValue_executionIsolationStrategy\":\"THREAD\""
+                + ",\"propertyValue_executionIsolationThreadTimeoutInMilliseconds\":1000"
+                + ",\"propertyValue_executionTimeoutInMilliseconds\":1000"
+                + ",\"propertyValue_executionIsolationThreadInterruptOnTimeout\":true"
+                + ",\"propertyValue_executionIsolationThreadPoolKeyOverride\":null"
+                + ",\"propertyValue_executionIsolationSemaphoreMaxConcurrentRequests\":10"
+                + ",\"propertyValue_fallbackIsolationSemaphoreMaxConcurrentRequests\":10"
+                + ",\"propertyValue_metricsRollingStatisticalWindowInMilliseconds\":10000"
+                + ",\"propertyValue_requestCacheEnabled\":true,\"propertyValue_requestLogEnabled\":true"
+                + ",\"reportingHosts\":1,\"threadPool\":\"UserService\"}";
+    }
+}
@@ -0,0 +1,99 @@
+package com.kuraki.benchmark;
+
+import com.kuraki.bean.User;
+import com.kuraki.service.UserService;
+import com.netflix.hystrix.Hystrix;
+import com.netflix.hystrix.contrib.javanica.aop.aspectj.HystrixCommandAspect;
+import com.netflix.hystrix.strategy.concurrency.HystrixRequestContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.EnableAspectJAutoProxy;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * UserService.find 的请求合并。合并范围是 HystrixRequestContext，
+ * 所以所有线程共用一个上下文，模拟同一请求内的并发查询；每次 find 最多等待 100ms 的合并窗口。
+ * 结束时输出平均每批的 id 数
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(32)
+@Fork(1)
+public class UserCollapserBenchmark {
+
+    private AnnotationConfigApplicationContext applicationContext;
+
+    private UserService userService;
+
+    private StubRestTemplate restTemplate;
+
+    private HystrixRequestContext requestContext;
+
+    @Setup
+    public void setUp() {
+        applicationContext = new AnnotationConfigApplicationContext(CollapserConfig.class);
+        userService = applicationContext.getBean(UserService.class);
+        restTemplate = applicationContext.getBean(StubRestTemplate.class);
+        requestContext = HystrixRequestContext.initializeContext();
+    }
+
+    @TearDown
+    public void tearDown() {
+        System.out.printf("%nAverage ids per findAll batch: %.1f%n", restTemplate.averageBatchSize());
+        requestContext.shutdown();
+        applicationContext.close();
+        Hystrix.reset();
+    }
+
+    @State(Scope.Thread)
+    public static class Caller {
+
+        @Setup
+        public void join(UserCollapserBenchmark benchmark) {
+            HystrixRequestContext.setContextOnCurrentThread(benchmark.requestContext);
+        }
+    }
+
+    @Benchmark
+    public User find(Caller caller) {
+        return userService.find(ThreadLocalRandom.current().nextLong(1, 10000));
+    }
+
+    @Configuration
+    @EnableAspectJAutoProxy(proxyTargetClass = true)
+    public static class CollapserConfig {
+
+        @Bean
+        public HystrixCommandAspect hystrixCommandAspect() {
+            return new HystrixCommandAspect();
+        }
+
+        @Bean
+        public StubRestTemplate restTemplate() {
+            return new StubRestTemplate();
+        }
+
+        @Bean
+        public UserService userService() {
+            return new UserService();
+        }
+    }
+}
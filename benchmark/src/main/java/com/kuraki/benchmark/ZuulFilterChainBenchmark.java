@@ -0,0 +1,73 @@
+package com.kuraki.benchmark;
+
+import com.kuraki.zuul.config.DidiFilterProcessor;
+import com.kuraki.zuul.filter.AccessFilter;
+import com.netflix.zuul.FilterProcessor;
+import com.netflix.zuul.context.RequestContext;
+import com.netflix.zuul.exception.ZuulException;
+import com.netflix.zuul.filters.FilterRegistry;
+import com.netflix.zuul.monitoring.MonitoringHelper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.servlet.http.HttpServletRequest;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * api-gateway 的 pre 阶段：DidiFilterProcessor 执行 AccessFilter，分别测有无 accessToken 两种请求
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ZuulFilterChainBenchmark {
+
+    private MockHttpServletRequest withToken;
+
+    private MockHttpServletRequest withoutToken;
+
+    @Setup
+    public void setUp() {
+        // 与 ZuulConfiguration 相同，未接入监控时用空实现初始化 CounterFactory/TracerFactory
+        MonitoringHelper.initMocks();
+        FilterProcessor.setProcessor(new DidiFilterProcessor());
+        FilterRegistry.instance().put("accessFilter", new AccessFilter());
+        withToken = new MockHttpServletRequest("GET", "/api-a/hello");
+        withToken.setParameter("accessToken", "token");
+        withoutToken = new MockHttpServletRequest("GET", "/api-a/hello");
+    }
+
+    @Benchmark
+    public boolean preRouteWithToken() throws ZuulException {
+        return preRoute(withToken);
+    }
+
+    @Benchmark
+    public boolean preRouteWithoutToken() throws ZuulException {
+        return preRoute(withoutToken);
+    }
+
+    private boolean preRoute(HttpServletRequest request) throws ZuulException {
+        RequestContext context = RequestContext.getCurrentContext();
+        context.setRequest(request);
+        context.setResponse(new MockHttpServletResponse());
+        try {
+            FilterProcessor.getInstance().preRoute();
+            return context.sendZuulResponse();
+        } finally {
+            context.unset();
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.didispace.config;
+
+/**
+ * RocketMQHealthIndicator 使用的 broker 探测，容器中存在该类型的 bean 时替换默认的 NameServerBrokerClient
+ */
+public interface BrokerClient {
+
+    /**
+     * 探测一次 broker，返回错误码，0 表示正常。可以阻塞，由后台线程调用
+     */
+    int check() throws Exception;
+}
@@ -0,0 +1,20 @@
+package com.didispace.config;
+
+import com.didispace.controller.HelloController;
+import com.didispace.controller.HelloFastPathFilter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.embedded.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConditionalOnProperty(name = "hello.fast-path.enabled")
+public class HelloFastPathConfig {
+
+    @Bean
+    public FilterRegistrationBean helloFastPathFilter(HelloController helloController) {
+        FilterRegistrationBean registration = new FilterRegistrationBean(new HelloFastPathFilter(helloController));
+        registration.addUrlPatterns(HelloFastPathFilter.PATHS);
+        return registration;
+    }
+}
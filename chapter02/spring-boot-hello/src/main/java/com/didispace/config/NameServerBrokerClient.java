@@ -0,0 +1,45 @@
+package com.didispace.config;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+
+/**
+ * 通过 TCP 连接 NameServer 判断 RocketMQ 是否可用，不依赖 RocketMQ 客户端。
+ * 多个地址用分号分隔，任意一个连通即视为正常。
+ */
+public class NameServerBrokerClient implements BrokerClient {
+
+    public static final int UNREACHABLE = 1;
+
+    public static final int TIMEOUT = 2;
+
+    private final String[] addresses;
+
+    private final int timeoutMs;
+
+    public NameServerBrokerClient(String namesrvAddr, int timeoutMs) {
+        this.addresses = namesrvAddr.split(";");
+        this.timeoutMs = timeoutMs;
+    }
+
+    @Override
+    public int check() {
+        int errorCode = UNREACHABLE;
+        for (String address : addresses) {
+            int separator = address.lastIndexOf(':');
+            String host = address.substring(0, separator).trim();
+            int port = Integer.parseInt(address.substring(separator + 1).trim());
+            try (Socket socket = new Socket()) {
+                socket.connect(new InetSocketAddress(host, port), timeoutMs);
+                return 0;
+            } catch (SocketTimeoutException e) {
+                errorCode = TIMEOUT;
+            } catch (IOException e) {
+                // 尝试下一个地址
+            }
+        }
+        return errorCode;
+    }
+}
@@ -0,0 +1,23 @@
+package com.didispace.config;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class RocketMQHealthConfig {
+
+    @Autowired(required = false)
+    private BrokerClient brokerClient;
+
+    @Bean
+    public RocketMQHealthIndicator rocketMQHealthIndicator(
+            @Value("${rocketmq.namesrv-addr:localhost:9876}") String namesrvAddr,
+            @Value("${rocketmq.health.timeout-ms:3000}") int timeoutMs,
+            @Value("${rocketmq.health.interval-ms:10000}") long intervalMs,
+            @Value("${rocketmq.health.max-staleness-ms:30000}") long maxStalenessMs) {
+        BrokerClient client = brokerClient != null ? brokerClient : new NameServerBrokerClient(namesrvAddr, timeoutMs);
+        return new RocketMQHealthIndicator(client, intervalMs, maxStalenessMs);
+    }
+}
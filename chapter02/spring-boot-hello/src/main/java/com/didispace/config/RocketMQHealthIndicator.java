@@ -1,22 +1,101 @@
 package com.didispace.config;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.boot.actuate.health.Health;
 import org.springframework.boot.actuate.health.HealthIndicator;
-import org.springframework.stereotype.Component;
 
-@Component
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 后台线程按 intervalMs 探测 broker，health() 只读取最近一次结果，不会阻塞 /health。
+ * 还没有结果时返回 UNKNOWN；结果超过 maxStalenessMs 未更新（探测卡住）时返回 DOWN。
+ */
 public class RocketMQHealthIndicator implements HealthIndicator {
 
+    private static Logger logger = LoggerFactory.getLogger(RocketMQHealthIndicator.class);
+
+    public static final int CHECK_FAILED = -1;
+
+    private final BrokerClient brokerClient;
+
+    private final long intervalMs;
+
+    private final long maxStalenessMs;
+
+    private volatile Result result;
+
+    private ScheduledExecutorService scheduler;
+
+    public RocketMQHealthIndicator(BrokerClient brokerClient, long intervalMs, long maxStalenessMs) {
+        this.brokerClient = brokerClient;
+        this.intervalMs = intervalMs;
+        this.maxStalenessMs = maxStalenessMs;
+    }
+
+    @PostConstruct
+    public void start() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "rocketmq-health");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // 固定间隔，慢探测不会堆积
+        scheduler.scheduleWithFixedDelay(this::refresh, 0, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
     @Override
     public Health health() {
-        int errorCode = check();
-        if (errorCode != 0) {
-            return Health.down().withDetail("Error Code", errorCode).build();
+        Result last = result;
+        if (last == null) {
+            return Health.unknown().build();
+        }
+        long age = currentTimeMillis() - last.checkedAt;
+        if (age > maxStalenessMs) {
+            return Health.down().withDetail("Error Code", last.errorCode).withDetail("Stale", age).build();
+        }
+        if (last.errorCode != 0) {
+            return Health.down().withDetail("Error Code", last.errorCode).build();
         }
         return Health.up().build();
     }
 
-    private int check() {
-        return 1;
+    void refresh() {
+        int errorCode;
+        try {
+            errorCode = brokerClient.check();
+        } catch (Exception e) {
+            logger.warn("RocketMQ check failed: {}", e.getMessage());
+            errorCode = CHECK_FAILED;
+        }
+        result = new Result(errorCode, currentTimeMillis());
+    }
+
+    // 测试中覆盖，不用等待结果过期
+    long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    private static class Result {
+
+        private final int errorCode;
+
+        private final long checkedAt;
+
+        Result(int errorCode, long checkedAt) {
+            this.errorCode = errorCode;
+            this.checkedAt = checkedAt;
+        }
     }
 }
@@ -4,10 +4,13 @@ import com.didispace.entity.User;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cloud.client.ServiceInstance;
 import org.springframework.cloud.client.discovery.DiscoveryClient;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.concurrent.atomic.AtomicLong;
+
 @RestController
 public class HelloController {
 
@@ -16,13 +19,33 @@ public class HelloController {
     @Autowired
     private DiscoveryClient client;
 
+    // 每 N 次请求记录一次日志
+    @Value("${hello.log-sample-rate:1}")
+    private long logSampleRate = 1;
+
+    private final AtomicLong requests = new AtomicLong();
+
+    // 本地实例信息在运行期间不变，只查询一次
+    private volatile ServiceInstance instance;
+
     @RequestMapping("/hello")
     public String hello() {
-        ServiceInstance instance = client.getLocalServiceInstance();
-        logger.info("/hello, host:" + instance.getHost() + ", service_id:" + instance.getServiceId());
+        if (logger.isInfoEnabled() && (logSampleRate <= 1 || requests.incrementAndGet() % logSampleRate == 0)) {
+            ServiceInstance local = localInstance();
+            logger.info("/hello, host:{}, service_id:{}", local.getHost(), local.getServiceId());
+        }
         return "Hello World";
     }
 
+    private ServiceInstance localInstance() {
+        ServiceInstance local = instance;
+        if (local == null) {
+            local = client.getLocalServiceInstance();
+            instance = local;
+        }
+        return local;
+    }
+
     @RequestMapping(value = "/hello1", method = RequestMethod.GET)
     public String hello(@RequestParam String name) {
         return "Hello " + name;
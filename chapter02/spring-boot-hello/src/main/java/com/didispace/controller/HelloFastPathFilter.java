@@ -0,0 +1,171 @@
+package com.didispace.controller;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.util.StringUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 高 QPS 接口的快速路径，hello.fast-path.enabled=true 时启用：
+ * 不经过 DispatcherServlet 的反射参数绑定和消息转换，直接把响应写到输出流。
+ * 参数缺失或格式不对时交给原来的 Controller 处理，错误响应保持不变。
+ * Accept 首选的类型不是快速路径输出的类型时同样交给 DispatcherServlet，由它做内容协商（包括返回 406）。
+ */
+public class HelloFastPathFilter extends OncePerRequestFilter {
+
+    public static final String[] PATHS = {"/hello", "/hello1", "/hello2", "/refactor/hello4", "/refactor/hello5"};
+
+    private static final String TEXT = "text/plain;charset=UTF-8";
+
+    private static final String JSON = "application/json;charset=UTF-8";
+
+    private static final byte[] HELLO_WORLD = "Hello World".getBytes(StandardCharsets.UTF_8);
+
+    private static final byte[] HELLO = "Hello ".getBytes(StandardCharsets.UTF_8);
+
+    private static final byte[] NAME = "{\"name\":".getBytes(StandardCharsets.UTF_8);
+
+    private static final byte[] AGE = ",\"age\":".getBytes(StandardCharsets.UTF_8);
+
+    private final HelloController helloController;
+
+    public HelloFastPathFilter(HelloController helloController) {
+        this.helloController = helloController;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        if (!"GET".equals(request.getMethod()) || !handle(request, response)) {
+            chain.doFilter(request, response);
+        }
+    }
+
+    private boolean handle(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        switch (path) {
+            case "/hello":
+                if (!accepts(request, MediaType.TEXT_PLAIN)) {
+                    return false;
+                }
+                // 保留原来的日志
+                helloController.hello();
+                write(response, TEXT, HELLO_WORLD);
+                return true;
+            case "/hello1":
+            case "/refactor/hello4":
+                return accepts(request, MediaType.TEXT_PLAIN) && helloName(request.getParameter("name"), response);
+            case "/hello2":
+            case "/refactor/hello5":
+                return accepts(request, MediaType.APPLICATION_JSON)
+                        && user(request.getHeader("name"), request.getHeader("age"), response);
+            default:
+                return false;
+        }
+    }
+
+    private boolean helloName(String name, HttpServletResponse response) throws IOException {
+        if (name == null) {
+            return false;
+        }
+        byte[] value = name.getBytes(StandardCharsets.UTF_8);
+        response.setContentType(TEXT);
+        response.setContentLength(HELLO.length + value.length);
+        ServletOutputStream out = response.getOutputStream();
+        out.write(HELLO);
+        out.write(value);
+        return true;
+    }
+
+    private boolean user(String name, String age, HttpServletResponse response) throws IOException {
+        if (name == null || age == null || !isInteger(age.trim())) {
+            return false;
+        }
+        byte[] nameValue = quote(name);
+        byte[] ageValue = Integer.toString(Integer.parseInt(age.trim())).getBytes(StandardCharsets.US_ASCII);
+        response.setContentType(JSON);
+        response.setContentLength(NAME.length + nameValue.length + AGE.length + ageValue.length + 1);
+        ServletOutputStream out = response.getOutputStream();
+        out.write(NAME);
+        out.write(nameValue);
+        out.write(AGE);
+        out.write(ageValue);
+        out.write('}');
+        return true;
+    }
+
+    private void write(HttpServletResponse response, String contentType, byte[] body) throws IOException {
+        response.setContentType(contentType);
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+    }
+
+    /**
+     * 没有 Accept，或按具体程度和 q 值排序后的首选类型包含 produced 时，DispatcherServlet 也会选择 produced
+     */
+    private static boolean accepts(HttpServletRequest request, MediaType produced) {
+        String accept = request.getHeader(HttpHeaders.ACCEPT);
+        if (accept == null || "*/*".equals(accept)) {
+            return true;
+        }
+        List<MediaType> types;
+        try {
+            types = MediaType.parseMediaTypes(
+                    StringUtils.collectionToCommaDelimitedString(Collections.list(request.getHeaders(HttpHeaders.ACCEPT))));
+        } catch (InvalidMediaTypeException e) {
+            return false;
+        }
+        if (types.isEmpty()) {
+            return true;
+        }
+        MediaType.sortBySpecificityAndQuality(types);
+        MediaType preferred = types.get(0);
+        // 指定了其他字符集时输出的编码不同
+        return preferred.getQualityValue() > 0 && preferred.includes(produced)
+                && preferred.getParameter("charset") == null;
+    }
+
+    // 与 Integer 绑定一致：可选符号加数字，且不溢出
+    private static boolean isInteger(String value) {
+        if (value.isEmpty() || value.length() > 11) {
+            return false;
+        }
+        int start = value.charAt(0) == '-' || value.charAt(0) == '+' ? 1 : 0;
+        if (start == value.length()) {
+            return false;
+        }
+        for (int i = start; i < value.length(); i++) {
+            if (!Character.isDigit(value.charAt(i))) {
+                return false;
+            }
+        }
+        long parsed = Long.parseLong(value);
+        return parsed >= Integer.MIN_VALUE && parsed <= Integer.MAX_VALUE;
+    }
+
+    private static byte[] quote(String value) {
+        StringBuilder builder = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                builder.append('\\').append(c);
+            } else if (c < 0x20) {
+                builder.append(String.format("\\u%04x", (int) c));
+            } else {
+                builder.append(c);
+            }
+        }
+        return builder.append('"').toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
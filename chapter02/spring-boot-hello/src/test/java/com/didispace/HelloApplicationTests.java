@@ -4,7 +4,14 @@ import com.didispace.controller.HelloController;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.support.PropertySourcesPlaceholderConfigurer;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 import org.springframework.test.context.web.WebAppConfiguration;
@@ -17,15 +24,18 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @RunWith(SpringJUnit4ClassRunner.class)
-@SpringApplicationConfiguration(classes = HelloController.class)
+@SpringApplicationConfiguration(classes = {HelloController.class, HelloApplicationTests.TestConfig.class})
 @WebAppConfiguration
 public class HelloApplicationTests {
 
+    @Autowired
+    private HelloController controller;
+
     private MockMvc mvc;
 
     @Before
     public void setUp() {
-        mvc = MockMvcBuilders.standaloneSetup(new HelloController()).build();
+        mvc = MockMvcBuilders.standaloneSetup(controller).build();
     }
 
     @Test
@@ -35,4 +45,22 @@ public class HelloApplicationTests {
                 .andExpect(content().string(equalTo("Hello World")));
     }
 
+    // HelloController 注入 DiscoveryClient 和 ${hello.log-sample-rate}，测试时不连接注册中心
+    @Configuration
+    static class TestConfig {
+
+        @Bean
+        public static PropertySourcesPlaceholderConfigurer placeholderConfigurer() {
+            return new PropertySourcesPlaceholderConfigurer();
+        }
+
+        @Bean
+        public DiscoveryClient discoveryClient() {
+            DiscoveryClient client = Mockito.mock(DiscoveryClient.class);
+            Mockito.when(client.getLocalServiceInstance())
+                    .thenReturn(new DefaultServiceInstance("hello-service", "localhost", 8081, false));
+            return client;
+        }
+    }
+
 }
@@ -0,0 +1,113 @@
+package com.didispace;
+
+import com.didispace.controller.HelloController;
+import com.didispace.controller.HelloFastPathFilter;
+import com.didispace.controller.RefactorHelloController;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.StringHttpMessageConverter;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+public class HelloFastPathFilterTest {
+
+    private MockMvc mvc;
+
+    private MockMvc fastMvc;
+
+    @Before
+    public void setUp() {
+        DiscoveryClient client = mock(DiscoveryClient.class);
+        when(client.getLocalServiceInstance())
+                .thenReturn(new DefaultServiceInstance("hello-service", "localhost", 8081, false));
+        HelloController controller = new HelloController();
+        ReflectionTestUtils.setField(controller, "client", client);
+        // 与 Spring Boot 自动配置的消息转换器一致，String 按 UTF-8 输出
+        HttpMessageConverter<?>[] converters = {
+                new StringHttpMessageConverter(StandardCharsets.UTF_8), new MappingJackson2HttpMessageConverter()};
+        RefactorHelloController refactorController = new RefactorHelloController();
+        mvc = MockMvcBuilders.standaloneSetup(controller, refactorController).setMessageConverters(converters).build();
+        fastMvc = MockMvcBuilders.standaloneSetup(controller, refactorController).setMessageConverters(converters)
+                .addFilters(new HelloFastPathFilter(controller)).build();
+    }
+
+    @Test
+    public void sameResponsesAsController() throws Exception {
+        assertSame(get("/hello"));
+        assertSame(get("/hello1").param("name", "didi"));
+        assertSame(get("/hello2").header("name", "di\"di").header("age", "30"));
+        // 参数不合法时交给 Controller
+        assertSame(get("/hello1"));
+        assertSame(get("/hello2").header("name", "didi").header("age", "abc"));
+    }
+
+    @Test
+    public void sameResponsesAsRefactorController() throws Exception {
+        assertSame(get("/refactor/hello4").param("name", "didi"));
+        assertSame(get("/refactor/hello5").header("name", "di\"di").header("age", "30"));
+        assertSame(get("/refactor/hello4"));
+        assertSame(get("/refactor/hello5").header("name", "didi").header("age", "abc"));
+        assertSame(get("/refactor/hello4").param("name", "didi").accept("application/json"));
+        assertSame(get("/refactor/hello5").header("name", "didi").header("age", "30").accept("text/plain"));
+    }
+
+    @Test
+    public void sameContentNegotiationAsController() throws Exception {
+        assertSame(get("/hello").accept("*/*"));
+        assertSame(get("/hello").accept("text/*"));
+        assertSame(get("/hello1").param("name", "didi").accept("text/plain", "application/json", "*/*"));
+        assertSame(get("/hello2").header("name", "didi").header("age", "30").accept("application/*"));
+        // 首选类型不是快速路径输出的类型
+        assertSame(get("/hello").accept("application/json"));
+        assertSame(get("/hello").header("Accept", "text/html,application/xhtml+xml,application/xml;q=0.9,*/*;q=0.8"));
+        assertSame(get("/hello1").param("name", "didi").accept("text/plain;charset=ISO-8859-1"));
+        assertSame(get("/hello2").header("name", "didi").header("age", "30").accept("text/plain"));
+        assertSame(get("/hello2").header("name", "didi").header("age", "30").accept("application/json;q=0"));
+        assertSame(get("/hello2").header("name", "didi").header("age", "30").header("Accept", "not a type"));
+    }
+
+    @Test
+    public void allocatesLessPerRequest() throws Exception {
+        RequestBuilder request = get("/hello2").header("name", "didi").header("age", "30");
+        long controller = allocatedPerRequest(mvc, request);
+        long fast = allocatedPerRequest(fastMvc, request);
+        assertTrue("controller " + controller + " bytes, fast path " + fast + " bytes", fast < controller);
+    }
+
+    private void assertSame(RequestBuilder request) throws Exception {
+        MockHttpServletResponse expected = mvc.perform(request).andReturn().getResponse();
+        MockHttpServletResponse actual = fastMvc.perform(request).andReturn().getResponse();
+        assertEquals(expected.getStatus(), actual.getStatus());
+        assertEquals(expected.getContentType(), actual.getContentType());
+        assertEquals(expected.getContentAsString(), actual.getContentAsString());
+    }
+
+    private long allocatedPerRequest(MockMvc mvc, RequestBuilder request) throws Exception {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+        for (int i = 0; i < 2000; i++) {
+            mvc.perform(request);
+        }
+        long start = threads.getThreadAllocatedBytes(thread);
+        for (int i = 0; i < 2000; i++) {
+            mvc.perform(request);
+        }
+        return (threads.getThreadAllocatedBytes(thread) - start) / 2000;
+    }
+}
@@ -0,0 +1,127 @@
+package com.didispace.config;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class RocketMQHealthIndicatorTest {
+
+    private static Logger logger = LoggerFactory.getLogger(RocketMQHealthIndicatorTest.class);
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @Test
+    public void healthEndpointDoesNotWaitForStuckBroker() throws Exception {
+        // 第一次探测一直卡住，直到 release
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch checking = new CountDownLatch(1);
+        BrokerClient broker = () -> {
+            checking.countDown();
+            release.await();
+            return 0;
+        };
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(HealthApplication.class)
+                .initializers(ctx -> ctx.getBeanFactory().registerSingleton("brokerClient", broker))
+                .run("--server.port=0", "--eureka.client.enabled=false", "--rocketmq.health.interval-ms=50")) {
+            String url = "http://localhost:" + context.getEnvironment().getProperty("local.server.port") + "/health";
+            // health() 等待 broker 时请求读超时失败，而不是卡住测试
+            SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+            requestFactory.setReadTimeout(5000);
+            RestTemplate restTemplate = new RestTemplate(requestFactory);
+            assertTrue(checking.await(10, TimeUnit.SECONDS));
+
+            List<Long> latencies = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                long start = System.nanoTime();
+                assertEquals(Status.UNKNOWN.getCode(), rocketMQStatus(restTemplate, url));
+                latencies.add(System.nanoTime() - start);
+            }
+            Collections.sort(latencies);
+            logger.info("/health while the broker check is stuck: {} requests, p50 {} us, max {} ms", latencies.size(),
+                    TimeUnit.NANOSECONDS.toMicros(latencies.get(latencies.size() / 2)),
+                    TimeUnit.NANOSECONDS.toMillis(latencies.get(latencies.size() - 1)));
+
+            release.countDown();
+            long deadline = System.currentTimeMillis() + 10000;
+            String status;
+            while (!Status.UP.getCode().equals(status = rocketMQStatus(restTemplate, url))
+                    && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+            assertEquals(Status.UP.getCode(), status);
+        }
+    }
+
+    @Test
+    public void downWhenResultIsStale() {
+        AtomicLong now = new AtomicLong(1000);
+        RocketMQHealthIndicator indicator = new RocketMQHealthIndicator(() -> 0, 50, 300) {
+            @Override
+            long currentTimeMillis() {
+                return now.get();
+            }
+        };
+        assertEquals(Status.UNKNOWN, indicator.health().getStatus());
+
+        indicator.refresh();
+        assertEquals(Status.UP, indicator.health().getStatus());
+        now.addAndGet(300);
+        assertEquals(Status.UP, indicator.health().getStatus());
+
+        // 探测卡住，结果不再更新
+        now.addAndGet(1);
+        Health stale = indicator.health();
+        assertEquals(Status.DOWN, stale.getStatus());
+        assertEquals(301L, stale.getDetails().get("Stale"));
+
+        indicator.refresh();
+        assertEquals(Status.UP, indicator.health().getStatus());
+    }
+
+    @Test
+    public void downWhenBrokerReportsError() {
+        RocketMQHealthIndicator indicator = new RocketMQHealthIndicator(() -> 1, 50, 5000);
+        indicator.refresh();
+        assertEquals(Status.DOWN, indicator.health().getStatus());
+        assertEquals(1, indicator.health().getDetails().get("Error Code"));
+
+        RocketMQHealthIndicator failing = new RocketMQHealthIndicator(() -> {
+            throw new IllegalStateException("connect refused");
+        }, 50, 5000);
+        failing.refresh();
+        assertEquals(Status.DOWN, failing.health().getStatus());
+        assertEquals(RocketMQHealthIndicator.CHECK_FAILED, failing.health().getDetails().get("Error Code"));
+    }
+
+    private static String rocketMQStatus(RestTemplate restTemplate, String url) throws Exception {
+        JsonNode health = MAPPER.readTree(restTemplate.getForObject(url, String.class));
+        return health.path("rocketMQ").path("status").asText();
+    }
+
+    @Configuration
+    @EnableAutoConfiguration
+    @Import(RocketMQHealthConfig.class)
+    static class HealthApplication {
+    }
+}
@@ -0,0 +1,40 @@
+package com.kuraki.hystrix;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.embedded.ServletRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * hystrix.binary-stream.enabled=true 时在 /hystrix.binary.stream 提供二进制指标流，/hystrix.stream 不受影响。
+ * 发送字节数和编码耗时在 /metrics 的 hystrix.binaryStream.* 中，用于和文本流对比
+ */
+@Configuration
+@ConditionalOnProperty(name = "hystrix.binary-stream.enabled")
+public class HystrixBinaryStreamConfig {
+
+    @Bean
+    public HystrixBinaryStreamServlet hystrixBinaryStreamServlet(
+            @Value("${hystrix.binary-stream.max-connections:5}") int maxConnections) {
+        return new HystrixBinaryStreamServlet(new HystrixMetricsSampler(), maxConnections);
+    }
+
+    @Bean
+    public ServletRegistrationBean hystrixBinaryStreamRegistration(HystrixBinaryStreamServlet servlet) {
+        return new ServletRegistrationBean(servlet, "/hystrix.binary.stream");
+    }
+
+    @Bean
+    public PublicMetrics hystrixBinaryStreamMetrics(HystrixBinaryStreamServlet servlet) {
+        return () -> Arrays.<Metric<?>>asList(
+                new Metric<>("hystrix.binaryStream.connections", servlet.getConnections()),
+                new Metric<>("hystrix.binaryStream.bytes", servlet.getBytesSent()),
+                new Metric<>("hystrix.binaryStream.encodeMicros", TimeUnit.NANOSECONDS.toMicros(servlet.getEncodeNanos())));
+    }
+}
@@ -18,10 +18,14 @@ public class UserPostCommand extends HystrixCommand<User> {
 
     @Override
     protected User run() throws Exception {
-        // 写操作
+        // 写操作，user-service 在事务提交后才返回
         User user1 = restTemplate.postForObject("http://user-service/users", user, User.class);
         // 刷新缓存，清理缓存中失效的User
         UserGetCommand.flushCache(user.getId());
+        if (user1 != null && user1.getId() != null && !user1.getId().equals(user.getId())) {
+            // 新建用户的 id 由 user-service 生成
+            UserGetCommand.flushCache(user1.getId());
+        }
         return user1;
     }
 }
@@ -0,0 +1,48 @@
+package com.kuraki.config;
+
+import com.netflix.hystrix.strategy.concurrency.HystrixRequestContext;
+import com.netflix.hystrix.strategy.concurrency.HystrixRequestVariableDefault;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 读自己的写：user-service 在写请求的响应头 X-Primary-Until 中返回主库读取的截止时间，
+ * RestTemplate 不保存 cookie，由这里记在当前 HystrixRequestContext 中，并带到同一请求后续调用的请求头上，
+ * 这样 UserPostCommand 之后的 UserGetCommand 会读主库。没有初始化 HystrixRequestContext 时不做处理
+ */
+public class ReadYourWritesInterceptor implements ClientHttpRequestInterceptor {
+
+    public static final String HEADER = "X-Primary-Until";
+
+    private static final HystrixRequestVariableDefault<AtomicReference<String>> PRIMARY_UNTIL =
+            new HystrixRequestVariableDefault<AtomicReference<String>>() {
+                @Override
+                public AtomicReference<String> initialValue() {
+                    return new AtomicReference<>();
+                }
+            };
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution)
+            throws IOException {
+        if (!HystrixRequestContext.isCurrentThreadInitialized()) {
+            return execution.execute(request, body);
+        }
+        AtomicReference<String> primaryUntil = PRIMARY_UNTIL.get();
+        String until = primaryUntil.get();
+        if (until != null) {
+            request.getHeaders().set(HEADER, until);
+        }
+        ClientHttpResponse response = execution.execute(request, body);
+        String returned = response.getHeaders().getFirst(HEADER);
+        if (returned != null) {
+            primaryUntil.set(returned);
+        }
+        return response;
+    }
+}
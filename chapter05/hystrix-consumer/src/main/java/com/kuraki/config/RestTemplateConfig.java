@@ -11,7 +11,10 @@ public class RestTemplateConfig {
     @Bean
     @LoadBalanced // 必须改注解修饰的restTemplate，才可以以服务名访问
     public RestTemplate restTemplate() {
-        return new RestTemplate();
+        RestTemplate restTemplate = new RestTemplate();
+        // 写之后同一请求内的读走 user-service 的主库
+        restTemplate.getInterceptors().add(new ReadYourWritesInterceptor());
+        return restTemplate;
     }
 
 }
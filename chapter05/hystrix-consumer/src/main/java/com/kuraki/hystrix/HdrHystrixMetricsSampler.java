@@ -0,0 +1,27 @@
+package com.kuraki.hystrix;
+
+import com.netflix.hystrix.HystrixCommandMetrics;
+
+/**
+ * 有 HdrMetricsPublisher 时耗时分位数取自 HdrHistogram，该 command 还没有直方图时取 Hystrix 的滚动分位桶
+ */
+public class HdrHystrixMetricsSampler extends HystrixMetricsSampler {
+
+    private final HdrMetricsPublisher hdrMetricsPublisher;
+
+    public HdrHystrixMetricsSampler(HdrMetricsPublisher hdrMetricsPublisher) {
+        this.hdrMetricsPublisher = hdrMetricsPublisher;
+    }
+
+    @Override
+    protected long executionPercentile(HystrixCommandMetrics metrics, double percentile) {
+        HdrLatencyMetrics hdr = hdrMetricsPublisher.command(metrics.getCommandKey().name());
+        return hdr != null ? hdr.executionPercentile(percentile) : super.executionPercentile(metrics, percentile);
+    }
+
+    @Override
+    protected long totalPercentile(HystrixCommandMetrics metrics, double percentile) {
+        HdrLatencyMetrics hdr = hdrMetricsPublisher.command(metrics.getCommandKey().name());
+        return hdr != null ? hdr.totalPercentile(percentile) : super.totalPercentile(metrics, percentile);
+    }
+}
@@ -0,0 +1,106 @@
+package com.kuraki.hystrix;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+/**
+ * 一个 command 或 thread pool key 的执行耗时和总耗时，单位毫秒。
+ * record 使用 Recorder，不加锁、不分配内存。读取时先把 Recorder 中新记录的值并入当前窗口，
+ * 所以结果包含正在进行的窗口；roll 定期切换到环形数组中的下一个窗口，并从合并结果中减去被复用的最旧窗口。
+ * 读取的是最近 windows 个窗口（含当前窗口）合并后的直方图。
+ */
+public class HdrLatencyMetrics {
+
+    // 最大可记录 1 小时，3 位有效数字
+    private static final long HIGHEST_TRACKABLE_MS = 3600000;
+
+    private static final int SIGNIFICANT_DIGITS = 3;
+
+    private final Recorder executionRecorder = new Recorder(HIGHEST_TRACKABLE_MS, SIGNIFICANT_DIGITS);
+
+    private final Recorder totalRecorder = new Recorder(HIGHEST_TRACKABLE_MS, SIGNIFICANT_DIGITS);
+
+    private final Histogram[] executionWindows;
+
+    private final Histogram[] totalWindows;
+
+    private final Histogram execution = histogram();
+
+    private final Histogram total = histogram();
+
+    private final Histogram interval = histogram();
+
+    private int current;
+
+    public HdrLatencyMetrics(int windows) {
+        executionWindows = new Histogram[windows];
+        totalWindows = new Histogram[windows];
+        for (int i = 0; i < windows; i++) {
+            executionWindows[i] = histogram();
+            totalWindows[i] = histogram();
+        }
+    }
+
+    /**
+     * 小于 0 的值（未执行）忽略，超过上限的按上限记录
+     */
+    public void record(long executionMs, long totalMs) {
+        if (executionMs >= 0) {
+            executionRecorder.recordValue(Math.min(executionMs, HIGHEST_TRACKABLE_MS));
+        }
+        if (totalMs >= 0) {
+            totalRecorder.recordValue(Math.min(totalMs, HIGHEST_TRACKABLE_MS));
+        }
+    }
+
+    /**
+     * 结束当前窗口，由单个调度线程调用
+     */
+    public synchronized void roll() {
+        collect();
+        current = (current + 1) % executionWindows.length;
+        evict(executionWindows[current], execution);
+        evict(totalWindows[current], total);
+    }
+
+    public synchronized long executionPercentile(double percentile) {
+        collect();
+        return execution.getValueAtPercentile(percentile);
+    }
+
+    public synchronized long totalPercentile(double percentile) {
+        collect();
+        return total.getValueAtPercentile(percentile);
+    }
+
+    public synchronized long executionMax() {
+        collect();
+        return execution.getMaxValue();
+    }
+
+    public synchronized long count() {
+        collect();
+        return total.getTotalCount();
+    }
+
+    /**
+     * 取出上次之后新记录的值，并入当前窗口和合并结果
+     */
+    private void collect() {
+        executionRecorder.getIntervalHistogramInto(interval);
+        executionWindows[current].add(interval);
+        execution.add(interval);
+        totalRecorder.getIntervalHistogramInto(interval);
+        totalWindows[current].add(interval);
+        total.add(interval);
+    }
+
+    private static void evict(Histogram window, Histogram merged) {
+        merged.subtract(window);
+        window.reset();
+    }
+
+    private static Histogram histogram() {
+        return new Histogram(HIGHEST_TRACKABLE_MS, SIGNIFICANT_DIGITS);
+    }
+}
@@ -0,0 +1,62 @@
+package com.kuraki.hystrix;
+
+import com.netflix.hystrix.strategy.HystrixPlugins;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * hystrix.hdr.enabled=true 时用 HdrHistogram 统计每个 command 和 thread pool 的耗时，
+ * 最近 windows * window-ms 毫秒的分位数在 /metrics 的 hystrix.hdr.* 中，
+ * 开启 /hystrix.binary.stream 时也用于其中的 latencyExecute 和 latencyTotal
+ */
+@Configuration
+@ConditionalOnProperty(name = "hystrix.hdr.enabled")
+public class HdrMetricsConfig {
+
+    private static Logger logger = LoggerFactory.getLogger(HdrMetricsConfig.class);
+
+    @Bean(destroyMethod = "shutdown")
+    public HdrMetricsPublisher hdrMetricsPublisher(@Value("${hystrix.hdr.window-ms:10000}") long windowMs,
+                                                   @Value("${hystrix.hdr.windows:6}") int windows) {
+        HdrMetricsPublisher publisher = new HdrMetricsPublisher(windowMs, windows);
+        try {
+            HystrixPlugins.getInstance().registerMetricsPublisher(publisher);
+        } catch (IllegalStateException e) {
+            logger.warn("Could not register HdrMetricsPublisher, another metrics publisher is already registered");
+        }
+        return publisher;
+    }
+
+    @Bean
+    public PublicMetrics hdrPublicMetrics(HdrMetricsPublisher publisher) {
+        return () -> {
+            List<Metric<?>> metrics = new ArrayList<>();
+            add(metrics, "hystrix.hdr.command.", publisher.getCommands());
+            add(metrics, "hystrix.hdr.threadPool.", publisher.getThreadPools());
+            return metrics;
+        };
+    }
+
+    private static void add(List<Metric<?>> metrics, String prefix, Map<String, HdrLatencyMetrics> latencies) {
+        for (Map.Entry<String, HdrLatencyMetrics> entry : latencies.entrySet()) {
+            String name = prefix + entry.getKey();
+            HdrLatencyMetrics latency = entry.getValue();
+            metrics.add(new Metric<>(name + ".count", latency.count()));
+            metrics.add(new Metric<>(name + ".p50", latency.executionPercentile(50)));
+            metrics.add(new Metric<>(name + ".p99", latency.executionPercentile(99)));
+            metrics.add(new Metric<>(name + ".p999", latency.executionPercentile(99.9)));
+            metrics.add(new Metric<>(name + ".max", latency.executionMax()));
+            metrics.add(new Metric<>(name + ".totalP999", latency.totalPercentile(99.9)));
+        }
+    }
+}
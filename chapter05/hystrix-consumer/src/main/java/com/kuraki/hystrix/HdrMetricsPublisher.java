@@ -0,0 +1,94 @@
+package com.kuraki.hystrix;
+
+import com.netflix.hystrix.HystrixCircuitBreaker;
+import com.netflix.hystrix.HystrixCommandGroupKey;
+import com.netflix.hystrix.HystrixCommandKey;
+import com.netflix.hystrix.HystrixCommandMetrics;
+import com.netflix.hystrix.HystrixCommandProperties;
+import com.netflix.hystrix.HystrixThreadPoolKey;
+import com.netflix.hystrix.HystrixThreadPoolMetrics;
+import com.netflix.hystrix.HystrixThreadPoolProperties;
+import com.netflix.hystrix.metric.HystrixCommandCompletionStream;
+import com.netflix.hystrix.metric.HystrixThreadPoolCompletionStream;
+import com.netflix.hystrix.strategy.metrics.HystrixMetricsPublisher;
+import com.netflix.hystrix.strategy.metrics.HystrixMetricsPublisherCommand;
+import com.netflix.hystrix.strategy.metrics.HystrixMetricsPublisherThreadPool;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 为每个 command key 和 thread pool key 订阅 Hystrix 的执行完成事件，把耗时记录到 HdrLatencyMetrics。
+ * Hystrix 只允许注册一个 metrics publisher，且必须在第一个 command 执行前注册。
+ */
+public class HdrMetricsPublisher extends HystrixMetricsPublisher {
+
+    private final int windows;
+
+    private final Map<String, HdrLatencyMetrics> commands = new ConcurrentHashMap<>();
+
+    private final Map<String, HdrLatencyMetrics> threadPools = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "hystrix-hdr-roll");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public HdrMetricsPublisher(long windowMs, int windows) {
+        this.windows = windows;
+        scheduler.scheduleAtFixedRate(this::roll, windowMs, windowMs, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public HystrixMetricsPublisherCommand getMetricsPublisherForCommand(HystrixCommandKey commandKey,
+                                                                       HystrixCommandGroupKey commandGroupKey,
+                                                                       HystrixCommandMetrics metrics,
+                                                                       HystrixCircuitBreaker circuitBreaker,
+                                                                       HystrixCommandProperties properties) {
+        return () -> {
+            HdrLatencyMetrics latency = commands.computeIfAbsent(commandKey.name(), key -> new HdrLatencyMetrics(windows));
+            HystrixCommandCompletionStream.getInstance(commandKey).observe().subscribe(completion ->
+                    latency.record(completion.getExecutionLatency(), completion.getTotalLatency()));
+        };
+    }
+
+    @Override
+    public HystrixMetricsPublisherThreadPool getMetricsPublisherForThreadPool(HystrixThreadPoolKey threadPoolKey,
+                                                                             HystrixThreadPoolMetrics metrics,
+                                                                             HystrixThreadPoolProperties properties) {
+        return () -> {
+            HdrLatencyMetrics latency = threadPools.computeIfAbsent(threadPoolKey.name(), key -> new HdrLatencyMetrics(windows));
+            HystrixThreadPoolCompletionStream.getInstance(threadPoolKey).observe().subscribe(completion ->
+                    latency.record(completion.getExecutionLatency(), completion.getTotalLatency()));
+        };
+    }
+
+    public HdrLatencyMetrics command(String commandKey) {
+        return commands.get(commandKey);
+    }
+
+    public Map<String, HdrLatencyMetrics> getCommands() {
+        return commands;
+    }
+
+    public Map<String, HdrLatencyMetrics> getThreadPools() {
+        return threadPools;
+    }
+
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    private void roll() {
+        for (HdrLatencyMetrics metrics : commands.values()) {
+            metrics.roll();
+        }
+        for (HdrLatencyMetrics metrics : threadPools.values()) {
+            metrics.roll();
+        }
+    }
+}
@@ -26,7 +26,7 @@ public class UserService {
     // 同步执行
     @HystrixCommand(commandKey = "getUserById", groupKey = "UserGroup", threadPoolKey = "getUserByIdThread")
     public User getUserById(Long id) {
-        return restTemplate.getForObject("http://localhost:8090/users/{1}", User.class, id);
+        return restTemplate.getForObject("http://user-service/users/{1}", User.class, id);
     }
 
     // 异步执行
@@ -35,7 +35,7 @@ public class UserService {
         return new AsyncResult<User>() {
             @Override
             public User invoke() {
-                return restTemplate.getForObject("http://localhost:8090/users/{1}", User.class, id);
+                return restTemplate.getForObject("http://user-service/users/{1}", User.class, id);
             }
         };
     }
@@ -76,7 +76,7 @@ public class UserService {
      * 请求合并
      */
     @HystrixCollapser(batchMethod = "findAll", collapserProperties = {
-            @HystrixProperty(name = "timeDelayInMilliseconds", value = "100")
+            @HystrixProperty(name = "timerDelayInMilliseconds", value = "100")
     })
     public User find(Long id) {
         return null;
@@ -0,0 +1,112 @@
+package com.kuraki.hystrix;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class HdrLatencyMetricsTest {
+
+    @Test
+    public void readsIncludeTheCurrentWindow() {
+        HdrLatencyMetrics metrics = new HdrLatencyMetrics(6);
+        for (int i = 1; i <= 1000; i++) {
+            metrics.record(i, i + 1);
+        }
+
+        // 还没有 roll 过也能读到
+        assertEquals(1000, metrics.count());
+        assertEquals(1000, metrics.executionMax(), 1);
+        assertEquals(999, metrics.executionPercentile(99.9), 1);
+        assertEquals(1000, metrics.totalPercentile(99.9), 1);
+
+        metrics.record(5000, 5000);
+        assertEquals(1001, metrics.count());
+        assertEquals(5000, metrics.executionMax(), 5);
+    }
+
+    @Test
+    public void oldestWindowIsEvictedOnRoll() {
+        HdrLatencyMetrics metrics = new HdrLatencyMetrics(2);
+        metrics.record(900, 900);
+        metrics.roll();
+        metrics.record(10, 10);
+        assertEquals(2, metrics.count());
+        assertEquals(900, metrics.executionMax(), 1);
+
+        // 两个窗口：900 所在的窗口在第二次 roll 时被复用
+        metrics.roll();
+        assertEquals(1, metrics.count());
+        assertEquals(10, metrics.executionMax());
+        assertEquals(10, metrics.totalPercentile(100));
+
+        metrics.roll();
+        assertEquals(0, metrics.count());
+    }
+
+    @Test
+    public void negativeLatenciesAreIgnored() {
+        HdrLatencyMetrics metrics = new HdrLatencyMetrics(1);
+        // 被拒绝或短路的 command 没有执行耗时
+        metrics.record(-1, 3);
+        assertEquals(1, metrics.count());
+        assertEquals(0, metrics.executionMax());
+    }
+
+    @Test
+    public void concurrentRecordsAreNotLostWhileReadingAndRolling() throws Exception {
+        int threads = 4;
+        int perThread = 100000;
+        // 窗口足够多，测试期间不会淘汰任何记录
+        HdrLatencyMetrics metrics = new HdrLatencyMetrics(1000);
+        ExecutorService executor = Executors.newFixedThreadPool(threads + 1);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicBoolean recording = new AtomicBoolean(true);
+        List<Future<?>> writers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            writers.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < perThread; i++) {
+                    metrics.record(i % 100, i % 100);
+                }
+                return null;
+            }));
+        }
+        Future<?> reader = executor.submit(() -> {
+            start.await();
+            long last = 0;
+            int rolls = 0;
+            while (recording.get()) {
+                long count = metrics.count();
+                assertTrue(count >= last);
+                last = count;
+                metrics.executionPercentile(99.9);
+                if (rolls < 100) {
+                    metrics.roll();
+                    rolls++;
+                }
+            }
+            return null;
+        });
+
+        start.countDown();
+        for (Future<?> writer : writers) {
+            writer.get(30, TimeUnit.SECONDS);
+        }
+        recording.set(false);
+        reader.get(30, TimeUnit.SECONDS);
+        executor.shutdown();
+
+        assertEquals((long) threads * perThread, metrics.count());
+        assertEquals(99, metrics.executionMax());
+    }
+}
@@ -0,0 +1,53 @@
+package com.kuraki.dashboard;
+
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 代替 /proxy.stream：页面仍然请求 proxy.stream?origin=...，数据改由 StreamHub 提供，
+ * 同一个 origin 的多个页面共用一个上游连接
+ */
+public class HubProxyStreamFilter extends OncePerRequestFilter {
+
+    private final StreamHub streamHub;
+
+    public HubProxyStreamFilter(StreamHub streamHub) {
+        this.streamHub = streamHub;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String origin = request.getParameter("origin");
+        if (origin == null || origin.trim().isEmpty()) {
+            chain.doFilter(request, response);
+            return;
+        }
+        response.setContentType("text/event-stream;charset=UTF-8");
+        response.setHeader("Cache-Control", "no-cache, no-store, max-age=0, must-revalidate");
+        PrintWriter writer = response.getWriter();
+        StreamHub.Viewer viewer = streamHub.subscribe(origin.trim());
+        try {
+            while (true) {
+                String payload = viewer.poll(1, TimeUnit.SECONDS);
+                writer.write(payload != null ? payload : "ping: \n\n");
+                writer.flush();
+                if (writer.checkError()) {
+                    // 页面已关闭
+                    break;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            streamHub.unsubscribe(viewer);
+        }
+    }
+}
@@ -0,0 +1,292 @@
+package com.kuraki.dashboard;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 指标流的扇出中心：每个 origin 只建立一个上游连接，按 type + name 只保留每个 key 的最新一条，
+ * 每隔 refreshMs 把有更新的 key 合并成一段推送给该 origin 的所有页面，新页面先收到全部 key。
+ * 最后一个页面断开后关闭上游连接。页面处理不过来时丢弃该页面的本次推送，不影响其他页面和上游；
+ * 被丢弃的如果是全量，下次仍然发全量。
+ */
+public class StreamHub {
+
+    private static Logger logger = LoggerFactory.getLogger(StreamHub.class);
+
+    public interface UpstreamOpener {
+
+        InputStream open(String origin) throws IOException;
+    }
+
+    private final UpstreamOpener opener;
+
+    private final int viewerQueueSize;
+
+    private final JsonFactory jsonFactory = new JsonFactory();
+
+    private final Map<String, Upstream> upstreams = new ConcurrentHashMap<>();
+
+    private final AtomicLong connections = new AtomicLong();
+
+    private final AtomicLong eventsRead = new AtomicLong();
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "stream-hub");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public StreamHub(UpstreamOpener opener, long refreshMs, int viewerQueueSize) {
+        this.opener = opener;
+        this.viewerQueueSize = viewerQueueSize;
+        scheduler.scheduleAtFixedRate(this::tick, refreshMs, refreshMs, TimeUnit.MILLISECONDS);
+    }
+
+    public Viewer subscribe(String origin) {
+        Viewer viewer = new Viewer(origin, viewerQueueSize);
+        synchronized (upstreams) {
+            upstreams.computeIfAbsent(origin, Upstream::new).add(viewer);
+        }
+        return viewer;
+    }
+
+    public void unsubscribe(Viewer viewer) {
+        synchronized (upstreams) {
+            Upstream upstream = upstreams.get(viewer.origin);
+            if (upstream != null && upstream.remove(viewer)) {
+                upstreams.remove(viewer.origin);
+                upstream.stop();
+            }
+        }
+    }
+
+    /**
+     * 累计建立过的上游连接数
+     */
+    public long getConnections() {
+        return connections.get();
+    }
+
+    /**
+     * 累计从上游读取的事件数
+     */
+    public long getEventsRead() {
+        return eventsRead.get();
+    }
+
+    public void shutdown() {
+        scheduler.shutdownNow();
+        for (Upstream upstream : upstreams.values()) {
+            upstream.stop();
+        }
+    }
+
+    private void tick() {
+        for (Upstream upstream : upstreams.values()) {
+            try {
+                upstream.emit();
+            } catch (Exception e) {
+                logger.warn("Could not emit {}: {}", upstream.origin, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 一个页面连接，由请求线程调用 poll 取出待写出的内容
+     */
+    public static class Viewer {
+
+        private final String origin;
+
+        private final BlockingQueue<String> queue;
+
+        private volatile boolean snapshotSent;
+
+        Viewer(String origin, int queueSize) {
+            this.origin = origin;
+            this.queue = new ArrayBlockingQueue<>(queueSize);
+        }
+
+        public String poll(long timeout, TimeUnit unit) throws InterruptedException {
+            return queue.poll(timeout, unit);
+        }
+
+        /**
+         * 队列已满时丢弃并返回 false
+         */
+        boolean offer(String payload) {
+            return queue.offer(payload);
+        }
+    }
+
+    private class Upstream implements Runnable {
+
+        private final String origin;
+
+        private final List<Viewer> viewers = new CopyOnWriteArrayList<>();
+
+        // key -> 最新的 data 行
+        private final Map<String, String> latest = new LinkedHashMap<>();
+
+        private final Set<String> changed = new LinkedHashSet<>();
+
+        private volatile boolean running = true;
+
+        private volatile InputStream in;
+
+        Upstream(String origin) {
+            this.origin = origin;
+            Thread thread = new Thread(this, "stream-hub-upstream");
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        void add(Viewer viewer) {
+            viewers.add(viewer);
+        }
+
+        /**
+         * 返回是否已经没有页面
+         */
+        boolean remove(Viewer viewer) {
+            viewers.remove(viewer);
+            return viewers.isEmpty();
+        }
+
+        @Override
+        public void run() {
+            while (running) {
+                try {
+                    in = opener.open(origin);
+                    connections.incrementAndGet();
+                    read(new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8)));
+                } catch (IOException e) {
+                    logger.debug("Upstream {} disconnected: {}", origin, e.getMessage());
+                } finally {
+                    close();
+                }
+                if (running) {
+                    try {
+                        Thread.sleep(2000);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+            }
+        }
+
+        private void read(BufferedReader reader) throws IOException {
+            String line;
+            while (running && (line = reader.readLine()) != null) {
+                if (!line.startsWith("data:")) {
+                    continue;
+                }
+                eventsRead.incrementAndGet();
+                String key = key(line.substring(5));
+                synchronized (this) {
+                    latest.put(key, line);
+                    changed.add(key);
+                }
+            }
+        }
+
+        void emit() {
+            String update;
+            String snapshot = null;
+            synchronized (this) {
+                update = join(changed);
+                changed.clear();
+                for (Viewer viewer : viewers) {
+                    if (!viewer.snapshotSent) {
+                        snapshot = join(latest.keySet());
+                        break;
+                    }
+                }
+            }
+            for (Viewer viewer : viewers) {
+                if (viewer.snapshotSent) {
+                    if (!update.isEmpty()) {
+                        viewer.offer(update);
+                    }
+                } else if (snapshot != null && !snapshot.isEmpty()) {
+                    // 全量没有放进队列时下次重发，否则该页面永远收不到之后不再变化的 key。
+                    // 在本次加锁之后加入的页面（snapshot 为 null）也等下次
+                    viewer.snapshotSent = viewer.offer(snapshot);
+                }
+            }
+        }
+
+        private String join(Set<String> keys) {
+            StringBuilder payload = new StringBuilder();
+            for (String key : keys) {
+                payload.append(latest.get(key)).append("\n\n");
+            }
+            return payload.toString();
+        }
+
+        // 取 type 和 name 作为 key，hystrix.stream 中这两个字段在最前面
+        private String key(String json) {
+            String type = null;
+            String name = null;
+            try (JsonParser parser = jsonFactory.createParser(json)) {
+                if (parser.nextToken() != JsonToken.START_OBJECT) {
+                    return json;
+                }
+                while (parser.nextToken() == JsonToken.FIELD_NAME && (type == null || name == null)) {
+                    String field = parser.getCurrentName();
+                    JsonToken token = parser.nextToken();
+                    if ("type".equals(field)) {
+                        type = parser.getText();
+                    } else if ("name".equals(field)) {
+                        name = parser.getText();
+                    } else if (token == JsonToken.START_OBJECT || token == JsonToken.START_ARRAY) {
+                        parser.skipChildren();
+                    }
+                }
+            } catch (IOException e) {
+                // 无法解析的事件不合并
+                return json;
+            }
+            return type + ":" + name;
+        }
+
+        void stop() {
+            running = false;
+            close();
+        }
+
+        private void close() {
+            InputStream current = in;
+            if (current != null) {
+                try {
+                    current.close();
+                } catch (IOException e) {
+                    // ignore
+                }
+            }
+        }
+    }
+}
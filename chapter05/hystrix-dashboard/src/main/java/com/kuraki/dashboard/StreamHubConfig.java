@@ -0,0 +1,37 @@
+package com.kuraki.dashboard;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.embedded.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.net.HttpURLConnection;
+import java.net.URL;
+
+/**
+ * dashboard.hub.enabled=true 时 /proxy.stream 由 StreamHub 处理，
+ * 每个 origin 一个上游连接，按 dashboard.hub.refresh-ms 降采样后推送给所有页面
+ */
+@Configuration
+@ConditionalOnProperty(name = "dashboard.hub.enabled")
+public class StreamHubConfig {
+
+    @Bean(destroyMethod = "shutdown")
+    public StreamHub streamHub(@Value("${dashboard.hub.refresh-ms:1000}") long refreshMs,
+                               @Value("${dashboard.hub.viewer-queue-size:16}") int viewerQueueSize) {
+        return new StreamHub(origin -> {
+            HttpURLConnection connection = (HttpURLConnection) new URL(origin).openConnection();
+            connection.setConnectTimeout(5000);
+            connection.setReadTimeout(10000);
+            return connection.getInputStream();
+        }, refreshMs, viewerQueueSize);
+    }
+
+    @Bean
+    public FilterRegistrationBean hubProxyStreamFilter(StreamHub streamHub) {
+        FilterRegistrationBean registration = new FilterRegistrationBean(new HubProxyStreamFilter(streamHub));
+        registration.addUrlPatterns("/proxy.stream");
+        return registration;
+    }
+}
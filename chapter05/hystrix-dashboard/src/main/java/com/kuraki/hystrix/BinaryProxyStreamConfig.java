@@ -0,0 +1,19 @@
+package com.kuraki.hystrix;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.embedded.ServletRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * dashboard.binary-proxy.enabled=true 时在 /binary.proxy.stream 把二进制指标流转换为文本流
+ */
+@Configuration
+@ConditionalOnProperty(name = "dashboard.binary-proxy.enabled")
+public class BinaryProxyStreamConfig {
+
+    @Bean
+    public ServletRegistrationBean binaryProxyStreamServlet() {
+        return new ServletRegistrationBean(new BinaryProxyStreamServlet(), "/binary.proxy.stream");
+    }
+}
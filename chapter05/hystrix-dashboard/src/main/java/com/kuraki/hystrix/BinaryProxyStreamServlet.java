@@ -0,0 +1,56 @@
+package com.kuraki.hystrix;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintWriter;
+import java.net.HttpURLConnection;
+import java.net.URL;
+
+/**
+ * 读取 origin 指向的 /hystrix.binary.stream，解码后以 hystrix.stream 的文本格式输出给页面。
+ * 在监控页面中填写 http://{dashboard}/binary.proxy.stream?origin=http://{app}/hystrix.binary.stream 即可。
+ */
+public class BinaryProxyStreamServlet extends HttpServlet {
+
+    private static Logger logger = LoggerFactory.getLogger(BinaryProxyStreamServlet.class);
+
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        String origin = request.getParameter("origin");
+        if (origin == null || origin.trim().isEmpty()) {
+            response.sendError(400, "Required parameter 'origin' missing");
+            return;
+        }
+        HttpURLConnection connection = (HttpURLConnection) new URL(origin.trim()).openConnection();
+        connection.setConnectTimeout(5000);
+        connection.setReadTimeout(10000);
+        try (InputStream in = new BufferedInputStream(connection.getInputStream())) {
+            response.setContentType("text/event-stream;charset=UTF-8");
+            response.setHeader("Cache-Control", "no-cache, no-store, max-age=0, must-revalidate");
+            PrintWriter writer = response.getWriter();
+            MetricsFrameCodec.Decoder decoder = new MetricsFrameCodec.Decoder();
+            byte[] frame;
+            while ((frame = MetricsFrameCodec.Decoder.readFrame(in)) != null) {
+                decoder.decode(frame, (type, name, group, values, texts) -> writer.append("data: ")
+                        .append(MetricsFrameCodec.toJson(type, name, group, values, texts)).append("\n\n"));
+                writer.append("ping: \n\n");
+                writer.flush();
+                if (writer.checkError()) {
+                    // 页面已关闭
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            logger.debug("Binary stream {} closed: {}", origin, e.getMessage());
+        } finally {
+            connection.disconnect();
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.kuraki;
+
+import com.kuraki.dashboard.StreamHub;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class StreamHubTest {
+
+    private static final int KEYS = 5;
+
+    private StreamHub hub;
+
+    @Before
+    public void setUp() {
+        // 本地模拟的上游：约每毫秒一条事件，在 KEYS 个 command 之间轮换
+        hub = new StreamHub(origin -> new FakeStream(), 100, 16);
+    }
+
+    @After
+    public void tearDown() {
+        hub.shutdown();
+    }
+
+    @Test
+    public void upstreamLoadIndependentOfViewers() throws Exception {
+        long oneViewer = eventsReadPerSecond(1);
+        long manyViewers = eventsReadPerSecond(50);
+        // 每组页面只建立一个上游连接
+        assertEquals(2, hub.getConnections());
+        assertTrue("1 viewer " + oneViewer + "/s, 50 viewers " + manyViewers + "/s",
+                manyViewers < oneViewer * 1.5 && manyViewers > oneViewer / 1.5);
+    }
+
+    @Test
+    public void downsampleToLatestPerKey() throws Exception {
+        StreamHub.Viewer viewer = hub.subscribe("http://turbine/turbine.stream");
+        try {
+            // 第一次是全量，之后每 100ms 每个 key 最多一条
+            assertNotNull(viewer.poll(1, TimeUnit.SECONDS));
+            for (int i = 0; i < 5; i++) {
+                String payload = viewer.poll(1, TimeUnit.SECONDS);
+                assertNotNull(payload);
+                int events = payload.split("\n\n").length;
+                assertTrue(events + " events", events <= KEYS);
+            }
+        } finally {
+            hub.unsubscribe(viewer);
+        }
+    }
+
+    private long eventsReadPerSecond(int viewerCount) throws Exception {
+        List<StreamHub.Viewer> viewers = new ArrayList<>();
+        for (int i = 0; i < viewerCount; i++) {
+            viewers.add(hub.subscribe("http://turbine/turbine.stream?viewers=" + viewerCount));
+        }
+        Thread.sleep(300);
+        long start = hub.getEventsRead();
+        long begin = System.nanoTime();
+        Thread.sleep(1000);
+        long events = hub.getEventsRead() - start;
+        long elapsed = System.nanoTime() - begin;
+        for (StreamHub.Viewer viewer : viewers) {
+            assertNotNull(viewer.poll(1, TimeUnit.SECONDS));
+            hub.unsubscribe(viewer);
+        }
+        return events * TimeUnit.SECONDS.toNanos(1) / elapsed;
+    }
+
+    private static class FakeStream extends InputStream {
+
+        private byte[] line = new byte[0];
+
+        private int position;
+
+        private long sequence;
+
+        private volatile boolean closed;
+
+        @Override
+        public int read() {
+            if (closed) {
+                return -1;
+            }
+            if (position == line.length) {
+                try {
+                    Thread.sleep(1);
+                } catch (InterruptedException e) {
+                    return -1;
+                }
+                long n = sequence++;
+                line = ("data: {\"type\":\"HystrixCommand\",\"name\":\"command" + n % KEYS
+                        + "\",\"requestCount\":" + n + "}\n\n").getBytes(StandardCharsets.UTF_8);
+                position = 0;
+            }
+            return line[position++];
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+}
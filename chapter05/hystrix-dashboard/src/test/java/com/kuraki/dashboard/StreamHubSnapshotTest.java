@@ -0,0 +1,100 @@
+package com.kuraki.dashboard;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class StreamHubSnapshotTest {
+
+    private static final long REFRESH_MS = 50;
+
+    private final CountDownLatch upstreamReady = new CountDownLatch(1);
+
+    private StreamHub hub;
+
+    @After
+    public void tearDown() {
+        hub.shutdown();
+    }
+
+    @Test
+    public void droppedSnapshotIsResent() throws Exception {
+        // 队列只能放一段，上游先发一次不再变化的 key，之后只有 hot 在变
+        hub = new StreamHub(origin -> {
+            try {
+                upstreamReady.await();
+            } catch (InterruptedException e) {
+                throw new IOException(e);
+            }
+            return new SequenceInputStream(
+                    new ByteArrayInputStream(event("static", 0)), new HotStream());
+        }, REFRESH_MS, 1);
+        StreamHub.Viewer viewer = hub.subscribe("http://turbine/turbine.stream");
+        // 页面还没取走上一段，之后的全量放不进队列
+        assertTrue(viewer.offer("pending"));
+        upstreamReady.countDown();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (hub.getEventsRead() < 10 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Thread.sleep(REFRESH_MS * 3);
+
+        assertEquals("pending", viewer.poll(1, TimeUnit.SECONDS));
+        for (int i = 0; i < 5; i++) {
+            String payload = viewer.poll(1, TimeUnit.SECONDS);
+            if (payload != null && payload.contains("\"name\":\"static\"")) {
+                return;
+            }
+        }
+        fail("viewer never received the unchanged key");
+    }
+
+    private static byte[] event(String name, long n) {
+        return ("data: {\"type\":\"HystrixCommand\",\"name\":\"" + name + "\",\"requestCount\":" + n + "}\n\n")
+                .getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static class HotStream extends InputStream {
+
+        private byte[] line = new byte[0];
+
+        private int position;
+
+        private long sequence;
+
+        private volatile boolean closed;
+
+        @Override
+        public int read() {
+            if (closed) {
+                return -1;
+            }
+            if (position == line.length) {
+                try {
+                    Thread.sleep(1);
+                } catch (InterruptedException e) {
+                    return -1;
+                }
+                line = event("hot", sequence++);
+                position = 0;
+            }
+            return line[position++];
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+}
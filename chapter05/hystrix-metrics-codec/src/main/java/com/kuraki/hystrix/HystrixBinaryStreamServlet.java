@@ -0,0 +1,91 @@
+package com.kuraki.hystrix;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 以 MetricsFrameCodec 格式输出指标，与 /hystrix.stream 一样每个连接阻塞一个线程，
+ * 按 delay 参数（默认 500ms）的间隔发送一帧，超过 maxConnections 时返回 503。
+ */
+public class HystrixBinaryStreamServlet extends HttpServlet {
+
+    private static Logger logger = LoggerFactory.getLogger(HystrixBinaryStreamServlet.class);
+
+    public static final String CONTENT_TYPE = "application/x-hystrix-frames";
+
+    private final HystrixMetricsSampler sampler;
+
+    private final int maxConnections;
+
+    private final AtomicInteger connections = new AtomicInteger();
+
+    private final AtomicLong bytesSent = new AtomicLong();
+
+    private final AtomicLong encodeNanos = new AtomicLong();
+
+    private volatile boolean destroyed;
+
+    public HystrixBinaryStreamServlet(HystrixMetricsSampler sampler, int maxConnections) {
+        this.sampler = sampler;
+        this.maxConnections = maxConnections;
+    }
+
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (connections.incrementAndGet() > maxConnections) {
+            connections.decrementAndGet();
+            response.sendError(503, "MaxConnections exceeded: " + maxConnections);
+            return;
+        }
+        try {
+            long delay = request.getParameter("delay") == null ? 500 : Long.parseLong(request.getParameter("delay"));
+            response.setContentType(CONTENT_TYPE);
+            response.setHeader("Cache-Control", "no-cache, no-store, max-age=0, must-revalidate");
+            ServletOutputStream out = response.getOutputStream();
+            MetricsFrameCodec.Encoder encoder = new MetricsFrameCodec.Encoder();
+            while (!destroyed) {
+                long start = System.nanoTime();
+                List<MetricsFrameCodec.Sample> samples = sampler.sample();
+                int bytes = encoder.writeFrame(out, samples);
+                encodeNanos.addAndGet(System.nanoTime() - start);
+                bytesSent.addAndGet(bytes);
+                // 客户端断开时 flush 抛出 IOException
+                out.flush();
+                Thread.sleep(delay);
+            }
+        } catch (IOException e) {
+            logger.debug("Binary stream client disconnected: {}", e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            connections.decrementAndGet();
+        }
+    }
+
+    @Override
+    public void destroy() {
+        destroyed = true;
+        super.destroy();
+    }
+
+    public int getConnections() {
+        return connections.get();
+    }
+
+    public long getBytesSent() {
+        return bytesSent.get();
+    }
+
+    public long getEncodeNanos() {
+        return encodeNanos.get();
+    }
+}
@@ -0,0 +1,130 @@
+package com.kuraki.hystrix;
+
+import com.netflix.hystrix.HystrixCircuitBreaker;
+import com.netflix.hystrix.HystrixCommandMetrics;
+import com.netflix.hystrix.HystrixCommandProperties;
+import com.netflix.hystrix.HystrixEventType;
+import com.netflix.hystrix.HystrixThreadPoolMetrics;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 读取当前进程中所有 command 和 thread pool 的指标，按 MetricsFrameCodec 的字段顺序填充，
+ * 取值方式与 hystrix.stream 相同。耗时分位数默认取自 Hystrix 的滚动分位桶，子类可以覆盖
+ */
+public class HystrixMetricsSampler {
+
+    private static final double[] PERCENTILES = {0, 25, 50, 75, 90, 95, 99, 99.5, 99.9, 100};
+
+    // 与 COMMAND_FIELDS 中 rollingCountBadRequests 到 rollingCountTimeout 的顺序一致
+    private static final HystrixEventType[] ROLLING_EVENTS = {
+            HystrixEventType.BAD_REQUEST, HystrixEventType.COLLAPSED, HystrixEventType.EMIT,
+            HystrixEventType.EXCEPTION_THROWN, HystrixEventType.FAILURE, HystrixEventType.FALLBACK_EMIT,
+            HystrixEventType.FALLBACK_FAILURE, HystrixEventType.FALLBACK_MISSING, HystrixEventType.FALLBACK_REJECTION,
+            HystrixEventType.FALLBACK_SUCCESS, HystrixEventType.RESPONSE_FROM_CACHE,
+            HystrixEventType.SEMAPHORE_REJECTED, HystrixEventType.SHORT_CIRCUITED, HystrixEventType.SUCCESS,
+            HystrixEventType.THREAD_POOL_REJECTED, HystrixEventType.TIMEOUT
+    };
+
+    private static final String[] NO_TEXTS = {};
+
+    public List<MetricsFrameCodec.Sample> sample() {
+        List<MetricsFrameCodec.Sample> samples = new ArrayList<>();
+        for (HystrixCommandMetrics metrics : HystrixCommandMetrics.getInstances()) {
+            samples.add(new MetricsFrameCodec.Sample(MetricsFrameCodec.COMMAND, metrics.getCommandKey().name(),
+                    metrics.getCommandGroup().name(), command(metrics), commandTexts(metrics)));
+        }
+        for (HystrixThreadPoolMetrics metrics : HystrixThreadPoolMetrics.getInstances()) {
+            samples.add(new MetricsFrameCodec.Sample(MetricsFrameCodec.THREAD_POOL, metrics.getThreadPoolKey().name(),
+                    null, threadPool(metrics), NO_TEXTS));
+        }
+        return samples;
+    }
+
+    /**
+     * 执行耗时的分位数，单位毫秒
+     */
+    protected long executionPercentile(HystrixCommandMetrics metrics, double percentile) {
+        return metrics.getExecutionTimePercentile(percentile);
+    }
+
+    /**
+     * 总耗时的分位数，单位毫秒
+     */
+    protected long totalPercentile(HystrixCommandMetrics metrics, double percentile) {
+        return metrics.getTotalTimePercentile(percentile);
+    }
+
+    private long[] command(HystrixCommandMetrics metrics) {
+        long[] values = new long[MetricsFrameCodec.COMMAND_FIELDS.length];
+        HystrixCommandMetrics.HealthCounts health = metrics.getHealthCounts();
+        HystrixCircuitBreaker circuitBreaker = HystrixCircuitBreaker.Factory.getInstance(metrics.getCommandKey());
+        HystrixCommandProperties properties = metrics.getProperties();
+        int i = 0;
+        values[i++] = bool(circuitBreaker != null && circuitBreaker.isOpen());
+        values[i++] = health.getErrorPercentage();
+        values[i++] = health.getErrorCount();
+        values[i++] = health.getTotalRequests();
+        for (HystrixEventType event : ROLLING_EVENTS) {
+            values[i++] = metrics.getRollingCount(event);
+        }
+        values[i++] = metrics.getCurrentConcurrentExecutionCount();
+        values[i++] = metrics.getRollingMaxConcurrentExecutions();
+        values[i++] = metrics.getExecutionTimeMean();
+        for (double percentile : PERCENTILES) {
+            values[i++] = executionPercentile(metrics, percentile);
+        }
+        values[i++] = metrics.getTotalTimeMean();
+        for (double percentile : PERCENTILES) {
+            values[i++] = totalPercentile(metrics, percentile);
+        }
+        values[i++] = properties.circuitBreakerRequestVolumeThreshold().get();
+        values[i++] = properties.circuitBreakerSleepWindowInMilliseconds().get();
+        values[i++] = properties.circuitBreakerErrorThresholdPercentage().get();
+        values[i++] = bool(properties.circuitBreakerForceOpen().get());
+        values[i++] = bool(properties.circuitBreakerForceClosed().get());
+        values[i++] = bool(properties.circuitBreakerEnabled().get());
+        // hystrix.stream 中两个超时字段都取 executionTimeoutInMilliseconds
+        values[i++] = properties.executionTimeoutInMilliseconds().get();
+        values[i++] = properties.executionTimeoutInMilliseconds().get();
+        values[i++] = bool(properties.executionIsolationThreadInterruptOnTimeout().get());
+        values[i++] = properties.executionIsolationSemaphoreMaxConcurrentRequests().get();
+        values[i++] = properties.fallbackIsolationSemaphoreMaxConcurrentRequests().get();
+        values[i++] = properties.metricsRollingStatisticalWindowInMilliseconds().get();
+        values[i++] = bool(properties.requestCacheEnabled().get());
+        values[i++] = bool(properties.requestLogEnabled().get());
+        return values;
+    }
+
+    private String[] commandTexts(HystrixCommandMetrics metrics) {
+        HystrixCommandProperties properties = metrics.getProperties();
+        return new String[]{
+                properties.executionIsolationStrategy().get().name(),
+                properties.executionIsolationThreadPoolKeyOverride().get(),
+                metrics.getThreadPoolKey().name()
+        };
+    }
+
+    private long[] threadPool(HystrixThreadPoolMetrics metrics) {
+        return new long[]{
+                metrics.getCurrentActiveCount().longValue(),
+                metrics.getCurrentCompletedTaskCount().longValue(),
+                metrics.getCurrentCorePoolSize().longValue(),
+                metrics.getCurrentLargestPoolSize().longValue(),
+                metrics.getCurrentMaximumPoolSize().longValue(),
+                metrics.getCurrentPoolSize().longValue(),
+                metrics.getCurrentQueueSize().longValue(),
+                metrics.getCurrentTaskCount().longValue(),
+                metrics.getRollingCountThreadsExecuted(),
+                metrics.getRollingMaxActiveThreads(),
+                metrics.getRollingCount(HystrixEventType.ThreadPool.REJECTED),
+                metrics.getProperties().queueSizeRejectionThreshold().get(),
+                metrics.getProperties().metricsRollingStatisticalWindowInMilliseconds().get()
+        };
+    }
+
+    private static long bool(boolean value) {
+        return value ? 1 : 0;
+    }
+}
@@ -0,0 +1,496 @@
+package com.kuraki.hystrix;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * hystrix.binary.stream 的二进制格式，替代 hystrix.stream 的文本 SSE。
+ * 每一帧为 varint 长度加内容，内容为 varint 条数，之后每条：
+ * varint key 编号（第一次出现时紧跟类型、名称和分组），varint 变化字段的位图，变化字段与上一帧的差值（zigzag varint）；
+ * 该类型有文本字段时再跟 varint 变化文本字段的位图和变化的文本（varint 长度加 1 与 UTF-8 内容，0 表示 null）。
+ * 没有变化的 key 不写出，没有任何变化时只发送条数为 0 的帧作为心跳。
+ * 字段与 hystrix.stream 一一对应，顺序由 fields(type) 和 textFields(type) 固定，编码和解码两端必须一致。
+ * 各模块共用这一份实现，不要再复制到模块中。
+ */
+public class MetricsFrameCodec {
+
+    public static final byte COMMAND = 1;
+
+    public static final byte THREAD_POOL = 2;
+
+    private static final String[] PERCENTILES = {"0", "25", "50", "75", "90", "95", "99", "99.5", "99.9", "100"};
+
+    // 数值和布尔字段，顺序与 hystrix.stream 相同，位图为 64 位，不能超过 64 个
+    public static final String[] COMMAND_FIELDS = concat(new String[]{
+            "isCircuitBreakerOpen", "errorPercentage", "errorCount", "requestCount",
+            "rollingCountBadRequests", "rollingCountCollapsedRequests", "rollingCountEmit",
+            "rollingCountExceptionsThrown", "rollingCountFailure", "rollingCountFallbackEmit",
+            "rollingCountFallbackFailure", "rollingCountFallbackMissing", "rollingCountFallbackRejection",
+            "rollingCountFallbackSuccess", "rollingCountResponsesFromCache", "rollingCountSemaphoreRejected",
+            "rollingCountShortCircuited", "rollingCountSuccess", "rollingCountThreadPoolRejected",
+            "rollingCountTimeout", "currentConcurrentExecutionCount", "rollingMaxConcurrentExecutionCount",
+            "latencyExecute_mean"
+    }, percentiles("latencyExecute"), new String[]{
+            "latencyTotal_mean"
+    }, percentiles("latencyTotal"), new String[]{
+            "propertyValue_circuitBreakerRequestVolumeThreshold",
+            "propertyValue_circuitBreakerSleepWindowInMilliseconds",
+            "propertyValue_circuitBreakerErrorThresholdPercentage", "propertyValue_circuitBreakerForceOpen",
+            "propertyValue_circuitBreakerForceClosed", "propertyValue_circuitBreakerEnabled",
+            "propertyValue_executionIsolationThreadTimeoutInMilliseconds",
+            "propertyValue_executionTimeoutInMilliseconds",
+            "propertyValue_executionIsolationThreadInterruptOnTimeout",
+            "propertyValue_executionIsolationSemaphoreMaxConcurrentRequests",
+            "propertyValue_fallbackIsolationSemaphoreMaxConcurrentRequests",
+            "propertyValue_metricsRollingStatisticalWindowInMilliseconds", "propertyValue_requestCacheEnabled",
+            "propertyValue_requestLogEnabled"
+    });
+
+    // 文本字段，值可以为 null
+    public static final String[] COMMAND_TEXT_FIELDS = {
+            "propertyValue_executionIsolationStrategy", "propertyValue_executionIsolationThreadPoolKeyOverride",
+            "threadPool"
+    };
+
+    public static final String[] THREAD_POOL_FIELDS = {
+            "currentActiveCount", "currentCompletedTaskCount", "currentCorePoolSize", "currentLargestPoolSize",
+            "currentMaximumPoolSize", "currentPoolSize", "currentQueueSize", "currentTaskCount",
+            "rollingCountThreadsExecuted", "rollingMaxActiveThreads", "rollingCountCommandRejections",
+            "propertyValue_queueSizeRejectionThreshold", "propertyValue_metricsRollingStatisticalWindowInMilliseconds"
+    };
+
+    public static final String[] THREAD_POOL_TEXT_FIELDS = {};
+
+    private static final Set<String> BOOLEAN_FIELDS = new HashSet<>(Arrays.asList(
+            "isCircuitBreakerOpen", "propertyValue_circuitBreakerForceOpen", "propertyValue_circuitBreakerForceClosed",
+            "propertyValue_circuitBreakerEnabled", "propertyValue_executionIsolationThreadInterruptOnTimeout",
+            "propertyValue_requestCacheEnabled", "propertyValue_requestLogEnabled"
+    ));
+
+    static {
+        if (COMMAND_FIELDS.length > 64 || THREAD_POOL_FIELDS.length > 64 || COMMAND_TEXT_FIELDS.length > 64) {
+            throw new IllegalStateException("Metrics frame masks are limited to 64 fields");
+        }
+    }
+
+    public static String[] fields(byte type) {
+        return type == COMMAND ? COMMAND_FIELDS : THREAD_POOL_FIELDS;
+    }
+
+    public static String[] textFields(byte type) {
+        return type == COMMAND ? COMMAND_TEXT_FIELDS : THREAD_POOL_TEXT_FIELDS;
+    }
+
+    public static String typeName(byte type) {
+        return type == COMMAND ? "HystrixCommand" : "HystrixThreadPool";
+    }
+
+    public static boolean isBoolean(String field) {
+        return BOOLEAN_FIELDS.contains(field);
+    }
+
+    /**
+     * 一个 key 的采样值，values 按 fields(type) 的顺序，texts 按 textFields(type) 的顺序
+     */
+    public static class Sample {
+
+        private final byte type;
+
+        private final String name;
+
+        private final String group;
+
+        private final long[] values;
+
+        private final String[] texts;
+
+        public Sample(byte type, String name, String group, long[] values, String[] texts) {
+            this.type = type;
+            this.name = name;
+            this.group = group;
+            this.values = values;
+            this.texts = texts;
+        }
+    }
+
+    public interface Listener {
+
+        void onSample(byte type, String name, String group, long[] values, String[] texts);
+    }
+
+    /**
+     * 每个连接一个，记录该连接已经发送过的 key 和值，非线程安全
+     */
+    public static class Encoder {
+
+        private final Map<String, Integer> ids = new HashMap<>();
+
+        private final List<long[]> previous = new ArrayList<>();
+
+        private final List<String[]> previousTexts = new ArrayList<>();
+
+        private final ByteArrayOutputStream frame = new ByteArrayOutputStream(4096);
+
+        private final ByteArrayOutputStream entries = new ByteArrayOutputStream(4096);
+
+        /**
+         * 写出一帧，返回写出的字节数
+         */
+        public int writeFrame(OutputStream out, List<Sample> samples) throws IOException {
+            entries.reset();
+            int count = 0;
+            for (Sample sample : samples) {
+                if (encode(sample)) {
+                    count++;
+                }
+            }
+            frame.reset();
+            writeVarint(frame, count);
+            entries.writeTo(frame);
+            int length = frame.size();
+            writeVarint(out, length);
+            frame.writeTo(out);
+            return length + varintSize(length);
+        }
+
+        private boolean encode(Sample sample) throws IOException {
+            String key = sample.type + ":" + sample.name;
+            Integer id = ids.get(key);
+            long[] last;
+            String[] lastTexts;
+            boolean added = id == null;
+            if (added) {
+                id = ids.size();
+                ids.put(key, id);
+                last = new long[sample.values.length];
+                lastTexts = new String[sample.texts.length];
+                previous.add(last);
+                previousTexts.add(lastTexts);
+            } else {
+                last = previous.get(id);
+                lastTexts = previousTexts.get(id);
+            }
+            long mask = 0;
+            for (int i = 0; i < sample.values.length; i++) {
+                if (added || sample.values[i] != last[i]) {
+                    mask |= 1L << i;
+                }
+            }
+            long textMask = 0;
+            for (int i = 0; i < sample.texts.length; i++) {
+                if (added || !equals(sample.texts[i], lastTexts[i])) {
+                    textMask |= 1L << i;
+                }
+            }
+            if (mask == 0 && textMask == 0) {
+                return false;
+            }
+            writeVarint(entries, id);
+            if (added) {
+                entries.write(sample.type);
+                writeString(entries, sample.name);
+                writeString(entries, sample.group == null ? "" : sample.group);
+            }
+            writeVarint(entries, mask);
+            for (int i = 0; i < sample.values.length; i++) {
+                if ((mask & (1L << i)) != 0) {
+                    long delta = sample.values[i] - last[i];
+                    writeVarint(entries, (delta << 1) ^ (delta >> 63));
+                    last[i] = sample.values[i];
+                }
+            }
+            if (sample.texts.length > 0) {
+                writeVarint(entries, textMask);
+                for (int i = 0; i < sample.texts.length; i++) {
+                    if ((textMask & (1L << i)) != 0) {
+                        writeNullableString(entries, sample.texts[i]);
+                        lastTexts[i] = sample.texts[i];
+                    }
+                }
+            }
+            return true;
+        }
+
+        private static boolean equals(String a, String b) {
+            return a == null ? b == null : a.equals(b);
+        }
+    }
+
+    /**
+     * 每个连接一个，与对端的 Encoder 状态对应，非线程安全
+     */
+    public static class Decoder {
+
+        private final List<Entry> entries = new ArrayList<>();
+
+        /**
+         * 读取一帧，流结束时返回 null
+         */
+        public static byte[] readFrame(InputStream in) throws IOException {
+            int first = in.read();
+            if (first < 0) {
+                return null;
+            }
+            int length = (int) readVarint(in, first);
+            byte[] frame = new byte[length];
+            int read = 0;
+            while (read < length) {
+                int n = in.read(frame, read, length - read);
+                if (n < 0) {
+                    throw new EOFException("Truncated metrics frame");
+                }
+                read += n;
+            }
+            return frame;
+        }
+
+        /**
+         * 解码一帧，对每个有变化的 key 回调一次，回调中的 values 和 texts 为该 key 的全部当前值，调用方不能保留
+         */
+        public void decode(byte[] frame, Listener listener) throws IOException {
+            Input in = new Input(frame);
+            long count = in.varint();
+            for (long n = 0; n < count; n++) {
+                int id = (int) in.varint();
+                if (id == entries.size()) {
+                    byte type = in.read();
+                    entries.add(new Entry(type, in.string(), in.string()));
+                } else if (id > entries.size()) {
+                    throw new IOException("Unknown metrics key " + id);
+                }
+                Entry entry = entries.get(id);
+                long[] current = entry.values;
+                long mask = in.varint();
+                for (int i = 0; i < current.length; i++) {
+                    if ((mask & (1L << i)) != 0) {
+                        long zigzag = in.varint();
+                        current[i] += (zigzag >>> 1) ^ -(zigzag & 1);
+                    }
+                }
+                String[] texts = entry.texts;
+                if (texts.length > 0) {
+                    long textMask = in.varint();
+                    for (int i = 0; i < texts.length; i++) {
+                        if ((textMask & (1L << i)) != 0) {
+                            texts[i] = in.nullableString();
+                        }
+                    }
+                }
+                listener.onSample(entry.type, entry.name, entry.group, current, texts);
+            }
+        }
+
+        private static class Entry {
+
+            private final byte type;
+
+            private final String name;
+
+            private final String group;
+
+            private final long[] values;
+
+            private final String[] texts;
+
+            Entry(byte type, String name, String group) {
+                this.type = type;
+                this.name = name;
+                this.group = group;
+                this.values = new long[fields(type).length];
+                this.texts = new String[textFields(type).length];
+            }
+        }
+    }
+
+    /**
+     * 转换为 hystrix.stream 中的 JSON 格式
+     */
+    public static String toJson(byte type, String name, String group, long[] values, String[] texts) {
+        String[] fields = fields(type);
+        StringBuilder json = new StringBuilder(1024);
+        json.append("{\"type\":\"").append(typeName(type)).append("\",\"name\":");
+        quote(json, name);
+        if (type == COMMAND) {
+            json.append(",\"group\":");
+            quote(json, group);
+        }
+        json.append(",\"currentTime\":").append(System.currentTimeMillis());
+        String parent = null;
+        for (int i = 0; i < fields.length; i++) {
+            String field = fields[i];
+            int dot = field.indexOf('.');
+            String fieldParent = dot < 0 ? null : field.substring(0, dot);
+            if (parent != null && !parent.equals(fieldParent)) {
+                json.append('}');
+                parent = null;
+            }
+            if (fieldParent != null && parent == null) {
+                json.append(",\"").append(fieldParent).append("\":{");
+                parent = fieldParent;
+            } else {
+                json.append(',');
+            }
+            json.append('"').append(dot < 0 ? field : field.substring(dot + 1)).append("\":");
+            if (isBoolean(field)) {
+                json.append(values[i] != 0);
+            } else {
+                json.append(values[i]);
+            }
+        }
+        if (parent != null) {
+            json.append('}');
+        }
+        String[] textFields = textFields(type);
+        for (int i = 0; i < textFields.length; i++) {
+            json.append(",\"").append(textFields[i]).append("\":");
+            quote(json, texts[i]);
+        }
+        return json.append(",\"reportingHosts\":1}").toString();
+    }
+
+    private static void quote(StringBuilder json, String value) {
+        if (value == null) {
+            json.append("null");
+            return;
+        }
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                json.append('\\');
+            }
+            json.append(c);
+        }
+        json.append('"');
+    }
+
+    private static String[] percentiles(String parent) {
+        String[] fields = new String[PERCENTILES.length];
+        for (int i = 0; i < PERCENTILES.length; i++) {
+            fields[i] = parent + "." + PERCENTILES[i];
+        }
+        return fields;
+    }
+
+    private static String[] concat(String[]... parts) {
+        String[] result = new String[0];
+        for (String[] part : parts) {
+            int offset = result.length;
+            result = Arrays.copyOf(result, offset + part.length);
+            System.arraycopy(part, 0, result, offset, part.length);
+        }
+        return result;
+    }
+
+    private static void writeVarint(OutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static int varintSize(long value) {
+        int size = 1;
+        while ((value & ~0x7FL) != 0) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+
+    private static void writeString(OutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarint(out, bytes.length);
+        out.write(bytes);
+    }
+
+    private static void writeNullableString(OutputStream out, String value) throws IOException {
+        if (value == null) {
+            writeVarint(out, 0);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarint(out, bytes.length + 1L);
+        out.write(bytes);
+    }
+
+    private static long readVarint(InputStream in, int first) throws IOException {
+        long value = first & 0x7F;
+        int shift = 7;
+        int b = first;
+        while ((b & 0x80) != 0) {
+            b = in.read();
+            if (b < 0) {
+                throw new EOFException("Truncated varint");
+            }
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        }
+        return value;
+    }
+
+    private static class Input {
+
+        private final byte[] bytes;
+
+        private int position;
+
+        Input(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        byte read() throws IOException {
+            if (position >= bytes.length) {
+                throw new EOFException("Truncated metrics frame");
+            }
+            return bytes[position++];
+        }
+
+        long varint() throws IOException {
+            long value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = read();
+                value |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            return value;
+        }
+
+        String string() throws IOException {
+            int length = (int) varint();
+            if (position + length > bytes.length) {
+                throw new EOFException("Truncated metrics frame");
+            }
+            String value = new String(bytes, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+
+        String nullableString() throws IOException {
+            long length = varint();
+            if (length == 0) {
+                return null;
+            }
+            if (position + length - 1 > bytes.length) {
+                throw new EOFException("Truncated metrics frame");
+            }
+            String value = new String(bytes, position, (int) length - 1, StandardCharsets.UTF_8);
+            position += (int) length - 1;
+            return value;
+        }
+    }
+}
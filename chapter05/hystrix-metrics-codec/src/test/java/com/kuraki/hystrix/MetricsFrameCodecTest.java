@@ -0,0 +1,194 @@
+package com.kuraki.hystrix;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class MetricsFrameCodecTest {
+
+    // hystrix-dashboard 的 hystrixCommand.js / hystrixThreadPool.js 中 validateData 检查的字段
+    private static final List<String> DASHBOARD_COMMAND_KEYS = Arrays.asList(
+            "reportingHosts", "type", "name", "group", "isCircuitBreakerOpen", "errorPercentage", "errorCount",
+            "requestCount", "rollingCountCollapsedRequests", "rollingCountExceptionsThrown", "rollingCountFailure",
+            "rollingCountFallbackFailure", "rollingCountFallbackRejection", "rollingCountFallbackSuccess",
+            "rollingCountResponsesFromCache", "rollingCountSemaphoreRejected", "rollingCountShortCircuited",
+            "rollingCountSuccess", "rollingCountThreadPoolRejected", "rollingCountTimeout", "rollingCountBadRequests",
+            "currentConcurrentExecutionCount", "latencyExecute_mean", "latencyExecute", "latencyTotal_mean",
+            "latencyTotal", "propertyValue_circuitBreakerRequestVolumeThreshold",
+            "propertyValue_circuitBreakerSleepWindowInMilliseconds",
+            "propertyValue_circuitBreakerErrorThresholdPercentage", "propertyValue_circuitBreakerForceOpen",
+            "propertyValue_executionIsolationStrategy", "propertyValue_executionIsolationThreadTimeoutInMilliseconds",
+            "propertyValue_executionIsolationThreadInterruptOnTimeout",
+            "propertyValue_executionIsolationSemaphoreMaxConcurrentRequests",
+            "propertyValue_fallbackIsolationSemaphoreMaxConcurrentRequests", "propertyValue_requestCacheEnabled",
+            "propertyValue_requestLogEnabled", "propertyValue_metricsRollingStatisticalWindowInMilliseconds");
+
+    private static final List<String> DASHBOARD_THREAD_POOL_KEYS = Arrays.asList(
+            "type", "name", "currentActiveCount", "currentCompletedTaskCount", "currentCorePoolSize",
+            "currentLargestPoolSize", "currentMaximumPoolSize", "currentPoolSize", "currentQueueSize",
+            "currentTaskCount", "rollingCountThreadsExecuted", "rollingMaxActiveThreads", "reportingHosts",
+            "propertyValue_queueSizeRejectionThreshold", "propertyValue_metricsRollingStatisticalWindowInMilliseconds");
+
+    // 重复的 key 直接解析失败
+    private final ObjectMapper mapper = new ObjectMapper().enable(DeserializationFeature.FAIL_ON_READING_DUP_TREE_KEY);
+
+    @Test
+    public void roundTripCarriesValuesAndTexts() throws IOException {
+        MetricsFrameCodec.Encoder encoder = new MetricsFrameCodec.Encoder();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long[] first = commandValues(1);
+        String[] texts = {"THREAD", null, "UserService"};
+        long[] pool = threadPoolValues(7);
+        encoder.writeFrame(out, Arrays.asList(
+                new MetricsFrameCodec.Sample(MetricsFrameCodec.COMMAND, "getUser", "UserService", first, texts),
+                new MetricsFrameCodec.Sample(MetricsFrameCodec.THREAD_POOL, "UserService", null, pool, new String[0])));
+        long[] second = commandValues(1);
+        second[3] = 42;
+        // 数值减小时差值为负
+        second[5] = -3;
+        String[] changedTexts = {"SEMAPHORE", "override", "UserService"};
+        encoder.writeFrame(out, Arrays.asList(
+                new MetricsFrameCodec.Sample(MetricsFrameCodec.COMMAND, "getUser", "UserService", second, changedTexts),
+                new MetricsFrameCodec.Sample(MetricsFrameCodec.THREAD_POOL, "UserService", null, pool, new String[0])));
+
+        List<Decoded> frames = decodeAll(out.toByteArray());
+        assertEquals(3, frames.size());
+        Decoded command = frames.get(0);
+        assertEquals(MetricsFrameCodec.COMMAND, command.type);
+        assertEquals("getUser", command.name);
+        assertEquals("UserService", command.group);
+        assertArrayEquals(first, command.values);
+        assertArrayEquals(texts, command.texts);
+        Decoded threadPool = frames.get(1);
+        assertEquals(MetricsFrameCodec.THREAD_POOL, threadPool.type);
+        assertArrayEquals(pool, threadPool.values);
+        // 第二帧中 thread pool 没有变化，不写出
+        Decoded changed = frames.get(2);
+        assertEquals("getUser", changed.name);
+        assertArrayEquals(second, changed.values);
+        assertArrayEquals(changedTexts, changed.texts);
+    }
+
+    @Test
+    public void unchangedFrameIsEmpty() throws IOException {
+        MetricsFrameCodec.Encoder encoder = new MetricsFrameCodec.Encoder();
+        List<MetricsFrameCodec.Sample> samples = Collections.singletonList(new MetricsFrameCodec.Sample(
+                MetricsFrameCodec.COMMAND, "getUser", "UserService", commandValues(3), new String[]{"THREAD", null, "p"}));
+        encoder.writeFrame(new ByteArrayOutputStream(), samples);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        // 长度 1，内容为条数 0
+        assertEquals(2, encoder.writeFrame(out, samples));
+        assertTrue(decodeAll(out.toByteArray()).isEmpty());
+    }
+
+    @Test
+    public void commandJsonHasEveryDashboardKey() throws IOException {
+        String json = MetricsFrameCodec.toJson(MetricsFrameCodec.COMMAND, "getUser", "UserService", commandValues(1),
+                new String[]{"THREAD", null, "UserService"});
+        JsonNode node = mapper.readTree(json);
+        for (String key : DASHBOARD_COMMAND_KEYS) {
+            assertTrue("Key Missing: " + key, node.has(key) && !node.get(key).isNull());
+        }
+        assertEquals("HystrixCommand", node.get("type").asText());
+        assertEquals("THREAD", node.get("propertyValue_executionIsolationStrategy").asText());
+        assertTrue(node.get("propertyValue_executionIsolationThreadPoolKeyOverride").isNull());
+        assertTrue(node.get("propertyValue_requestCacheEnabled").isBoolean());
+        assertTrue(node.get("isCircuitBreakerOpen").isBoolean());
+        assertTrue(node.get("latencyExecute").has("99.5"));
+        assertEquals(MetricsFrameCodec.COMMAND_FIELDS.length + MetricsFrameCodec.COMMAND_TEXT_FIELDS.length,
+                leafCount(node) - 5);
+    }
+
+    @Test
+    public void threadPoolJsonHasEveryDashboardKey() throws IOException {
+        String json = MetricsFrameCodec.toJson(MetricsFrameCodec.THREAD_POOL, "UserService", null,
+                threadPoolValues(2), new String[0]);
+        JsonNode node = mapper.readTree(json);
+        for (String key : DASHBOARD_THREAD_POOL_KEYS) {
+            assertTrue("Key Missing: " + key, node.has(key));
+        }
+        assertFalse(node.has("group"));
+    }
+
+    @Test
+    public void booleanFieldsAreKnown() {
+        assertTrue(MetricsFrameCodec.isBoolean("propertyValue_circuitBreakerForceOpen"));
+        assertFalse(MetricsFrameCodec.isBoolean("propertyValue_circuitBreakerRequestVolumeThreshold"));
+        assertEquals(0, MetricsFrameCodec.textFields(MetricsFrameCodec.THREAD_POOL).length);
+    }
+
+    private static long[] commandValues(long seed) {
+        long[] values = new long[MetricsFrameCodec.COMMAND_FIELDS.length];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = MetricsFrameCodec.isBoolean(MetricsFrameCodec.COMMAND_FIELDS[i]) ? i % 2 : seed * 1000 + i;
+        }
+        return values;
+    }
+
+    private static long[] threadPoolValues(long seed) {
+        long[] values = new long[MetricsFrameCodec.THREAD_POOL_FIELDS.length];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = seed + i;
+        }
+        return values;
+    }
+
+    private static int leafCount(JsonNode node) {
+        if (!node.isObject()) {
+            return 1;
+        }
+        int count = 0;
+        for (JsonNode child : node) {
+            count += leafCount(child);
+        }
+        return count;
+    }
+
+    private static List<Decoded> decodeAll(byte[] bytes) throws IOException {
+        MetricsFrameCodec.Decoder decoder = new MetricsFrameCodec.Decoder();
+        List<Decoded> decoded = new ArrayList<>();
+        InputStream in = new ByteArrayInputStream(bytes);
+        byte[] frame;
+        while ((frame = MetricsFrameCodec.Decoder.readFrame(in)) != null) {
+            decoder.decode(frame, (type, name, group, values, texts) ->
+                    decoded.add(new Decoded(type, name, group, values.clone(), texts.clone())));
+        }
+        return decoded;
+    }
+
+    private static class Decoded {
+
+        private final byte type;
+
+        private final String name;
+
+        private final String group;
+
+        private final long[] values;
+
+        private final String[] texts;
+
+        Decoded(byte type, String name, String group, long[] values, String[] texts) {
+            this.type = type;
+            this.name = name;
+            this.group = group;
+            this.values = values;
+            this.texts = texts;
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package com.kuraki.turbine;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 一个 command / thread pool key 在所有实例上的聚合值。
+ * 每个实例最近一次上报的数值保存在 long 数组中，更新时只把差值加到合计上，
+ * 不需要在每个周期重新合并所有实例的快照。布尔值按“任一实例为 true”合并，字符串取最近一次。
+ * 嵌套对象（如 latencyExecute）展开为 "latencyExecute.99.5" 这样的字段，输出时还原。
+ * 字段按首次出现的顺序编号，输出顺序另外保存在 order 中，同一父对象的字段始终相邻，
+ * 之后才出现的嵌套字段也会插到父对象已有字段之后，不会重复打开父对象。
+ */
+class CommandAggregate {
+
+    private final String type;
+
+    private final String name;
+
+    private final Map<String, Integer> fieldIndex = new HashMap<>();
+
+    private String[] fields = new String[32];
+
+    // 嵌套字段的父对象名，顶层字段为 null
+    private String[] parents = new String[32];
+
+    // 输出顺序，值为字段编号
+    private int[] order = new int[32];
+
+    private boolean[] booleans = new boolean[32];
+
+    private long[] totals = new long[32];
+
+    // [实例槽位][字段]，实例没有上报过该 key 时为 null
+    private long[][] instances = new long[0][];
+
+    private int reportingHosts;
+
+    private final Map<String, String> strings = new LinkedHashMap<>();
+
+    private boolean changed;
+
+    CommandAggregate(String type, String name) {
+        this.type = type;
+        this.name = name;
+    }
+
+    synchronized void update(int slot, String field, long value, boolean bool) {
+        Integer index = fieldIndex.get(field);
+        if (index == null) {
+            index = addField(field, bool);
+        }
+        long[] values = values(slot);
+        long delta = value - values[index];
+        if (delta != 0) {
+            values[index] = value;
+            totals[index] += delta;
+            changed = true;
+        }
+    }
+
+    synchronized void updateString(String field, String value) {
+        if (!value.equals(strings.put(field, value))) {
+            changed = true;
+        }
+    }
+
+    /**
+     * 实例下线时减去它的值
+     */
+    synchronized void remove(int slot) {
+        if (slot >= instances.length || instances[slot] == null) {
+            return;
+        }
+        long[] values = instances[slot];
+        for (int i = 0; i < fieldIndex.size(); i++) {
+            totals[i] -= values[i];
+        }
+        instances[slot] = null;
+        reportingHosts--;
+        changed = true;
+    }
+
+    /**
+     * 写出合并后的 JSON。onlyChanged 为 true 时只在有变化时写出并清除变化标记，没有变化返回 false
+     */
+    synchronized boolean write(JsonGenerator generator, boolean onlyChanged) throws IOException {
+        if (onlyChanged) {
+            if (!changed) {
+                return false;
+            }
+            changed = false;
+        }
+        generator.writeStartObject();
+        generator.writeStringField("type", type);
+        generator.writeStringField("name", name);
+        for (Map.Entry<String, String> entry : strings.entrySet()) {
+            generator.writeStringField(entry.getKey(), entry.getValue());
+        }
+        String parent = null;
+        for (int n = 0; n < fieldIndex.size(); n++) {
+            int i = order[n];
+            String field = fields[i];
+            String fieldParent = parents[i];
+            if (parent != null && !parent.equals(fieldParent)) {
+                generator.writeEndObject();
+                parent = null;
+            }
+            if (fieldParent != null && parent == null) {
+                generator.writeObjectFieldStart(fieldParent);
+                parent = fieldParent;
+            }
+            String fieldName = fieldParent == null ? field : field.substring(fieldParent.length() + 1);
+            if (booleans[i]) {
+                generator.writeBooleanField(fieldName, totals[i] > 0);
+            } else {
+                generator.writeNumberField(fieldName, totals[i]);
+            }
+        }
+        if (parent != null) {
+            generator.writeEndObject();
+        }
+        generator.writeNumberField("reportingHosts", reportingHosts);
+        generator.writeEndObject();
+        return true;
+    }
+
+    private int addField(String field, boolean bool) {
+        int index = fieldIndex.size();
+        if (index == fields.length) {
+            int length = fields.length * 2;
+            fields = Arrays.copyOf(fields, length);
+            parents = Arrays.copyOf(parents, length);
+            order = Arrays.copyOf(order, length);
+            booleans = Arrays.copyOf(booleans, length);
+            totals = Arrays.copyOf(totals, length);
+            for (int i = 0; i < instances.length; i++) {
+                if (instances[i] != null) {
+                    instances[i] = Arrays.copyOf(instances[i], length);
+                }
+            }
+        }
+        int dot = field.indexOf('.');
+        String parent = dot < 0 ? null : field.substring(0, dot);
+        fields[index] = field;
+        parents[index] = parent;
+        booleans[index] = bool;
+        // 插到同一父对象最后一个字段之后，没有则追加到末尾
+        int position = index;
+        if (parent != null) {
+            for (int n = index - 1; n >= 0; n--) {
+                if (parent.equals(parents[order[n]])) {
+                    position = n + 1;
+                    break;
+                }
+            }
+        }
+        System.arraycopy(order, position, order, position + 1, index - position);
+        order[position] = index;
+        fieldIndex.put(field, index);
+        return index;
+    }
+
+    private long[] values(int slot) {
+        if (slot >= instances.length) {
+            instances = Arrays.copyOf(instances, Math.max(slot + 1, instances.length * 2));
+        }
+        if (instances[slot] == null) {
+            instances[slot] = new long[fields.length];
+            reportingHosts++;
+        }
+        return instances[slot];
+    }
+}
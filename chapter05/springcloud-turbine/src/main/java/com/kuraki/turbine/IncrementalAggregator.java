@@ -0,0 +1,228 @@
+package com.kuraki.turbine;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.kuraki.hystrix.MetricsFrameCodec;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 增量聚合 hystrix.stream：每条 data 用流式解析直接写入对应 key 的 CommandAggregate，
+ * 不构建 JSON 树；drainChanged 只输出上次之后有变化的 key。
+ */
+public class IncrementalAggregator {
+
+    private final JsonFactory jsonFactory = new JsonFactory();
+
+    private final Map<String, CommandAggregate> aggregates = new ConcurrentHashMap<>();
+
+    // 每个读取线程复用自己的解析缓冲
+    private final ThreadLocal<Fields> buffers = ThreadLocal.withInitial(Fields::new);
+
+    /**
+     * 处理 slot 对应实例的一条 data，同一个 slot 只能由一个线程调用
+     */
+    public void accept(int slot, String json) throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(json)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return;
+            }
+            Fields fields = buffers.get();
+            fields.clear();
+            String parent = null;
+            JsonToken token;
+            while ((token = parser.nextToken()) != null) {
+                if (token == JsonToken.END_OBJECT) {
+                    if (parent == null) {
+                        break;
+                    }
+                    parent = null;
+                    continue;
+                }
+                String field = parser.getCurrentName();
+                token = parser.nextToken();
+                // currentTime 是时间戳，合并没有意义；reportingHosts 由 CommandAggregate 自己统计
+                if (parent == null && ("currentTime".equals(field) || "reportingHosts".equals(field))) {
+                    continue;
+                }
+                String name = parent == null ? field : parent + "." + field;
+                switch (token) {
+                    case START_OBJECT:
+                        if (parent == null) {
+                            parent = field;
+                        } else {
+                            parser.skipChildren();
+                        }
+                        break;
+                    case START_ARRAY:
+                        parser.skipChildren();
+                        break;
+                    case VALUE_NUMBER_INT:
+                        fields.number(name, parser.getLongValue());
+                        break;
+                    case VALUE_NUMBER_FLOAT:
+                        fields.number(name, Math.round(parser.getDoubleValue()));
+                        break;
+                    case VALUE_TRUE:
+                    case VALUE_FALSE:
+                        fields.bool(name, token == JsonToken.VALUE_TRUE);
+                        break;
+                    case VALUE_STRING:
+                        fields.string(name, parser.getText());
+                        break;
+                    default:
+                        break;
+                }
+            }
+            fields.apply(slot);
+        }
+    }
+
+    /**
+     * 处理 slot 对应实例的二进制流解码出的一条采样
+     */
+    public void accept(int slot, byte type, String name, String group, long[] values, String[] texts) {
+        String[] fields = MetricsFrameCodec.fields(type);
+        String[] textFields = MetricsFrameCodec.textFields(type);
+        CommandAggregate aggregate = aggregate(MetricsFrameCodec.typeName(type), name);
+        synchronized (aggregate) {
+            for (int i = 0; i < fields.length; i++) {
+                aggregate.update(slot, fields[i], values[i], MetricsFrameCodec.isBoolean(fields[i]));
+            }
+            if (group != null && !group.isEmpty()) {
+                aggregate.updateString("group", group);
+            }
+            // 与文本流一样，值为 null 的字段不输出
+            for (int i = 0; i < textFields.length; i++) {
+                if (texts[i] != null) {
+                    aggregate.updateString(textFields[i], texts[i]);
+                }
+            }
+        }
+    }
+
+    /**
+     * 实例断开后移除它的所有值
+     */
+    public void remove(int slot) {
+        for (CommandAggregate aggregate : aggregates.values()) {
+            aggregate.remove(slot);
+        }
+    }
+
+    /**
+     * 返回上次调用之后有变化的 key 的合并结果
+     */
+    public List<String> drainChanged() throws IOException {
+        return write(true);
+    }
+
+    /**
+     * 返回所有 key 的合并结果，用于新连接的订阅者
+     */
+    public List<String> snapshot() throws IOException {
+        return write(false);
+    }
+
+    private List<String> write(boolean onlyChanged) throws IOException {
+        List<String> result = new ArrayList<>();
+        for (CommandAggregate aggregate : aggregates.values()) {
+            StringWriter writer = new StringWriter(1024);
+            try (JsonGenerator generator = jsonFactory.createGenerator(writer)) {
+                if (!aggregate.write(generator, onlyChanged)) {
+                    continue;
+                }
+            }
+            result.add(writer.toString());
+        }
+        return result;
+    }
+
+    public int size() {
+        return aggregates.size();
+    }
+
+    private CommandAggregate aggregate(String type, String name) {
+        String key = type + ":" + name;
+        CommandAggregate aggregate = aggregates.get(key);
+        return aggregate != null ? aggregate : aggregates.computeIfAbsent(key, k -> new CommandAggregate(type, name));
+    }
+
+    // 一条 data 中的字段，解析完后在 key 的锁内一次性写入
+    private class Fields {
+
+        private String[] names = new String[64];
+
+        private long[] values = new long[64];
+
+        private boolean[] bools = new boolean[64];
+
+        private int size;
+
+        private final List<String[]> strings = new ArrayList<>();
+
+        private String type;
+
+        private String name;
+
+        void clear() {
+            size = 0;
+            strings.clear();
+            type = null;
+            name = null;
+        }
+
+        void number(String field, long value) {
+            add(field, value, false);
+        }
+
+        void bool(String field, boolean value) {
+            add(field, value ? 1 : 0, true);
+        }
+
+        void string(String field, String value) {
+            if ("type".equals(field)) {
+                type = value;
+            } else if ("name".equals(field)) {
+                name = value;
+            } else {
+                strings.add(new String[]{field, value});
+            }
+        }
+
+        void apply(int slot) {
+            if (type == null || name == null) {
+                return;
+            }
+            CommandAggregate aggregate = aggregate(type, name);
+            synchronized (aggregate) {
+                for (int i = 0; i < size; i++) {
+                    aggregate.update(slot, names[i], values[i], bools[i]);
+                }
+                for (String[] string : strings) {
+                    aggregate.updateString(string[0], string[1]);
+                }
+            }
+        }
+
+        private void add(String field, long value, boolean bool) {
+            if (size == names.length) {
+                names = Arrays.copyOf(names, size * 2);
+                values = Arrays.copyOf(values, size * 2);
+                bools = Arrays.copyOf(bools, size * 2);
+            }
+            names[size] = field;
+            values[size] = value;
+            bools[size] = bool;
+            size++;
+        }
+    }
+}
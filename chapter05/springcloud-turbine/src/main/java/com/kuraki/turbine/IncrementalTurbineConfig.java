@@ -0,0 +1,42 @@
+package com.kuraki.turbine;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.StringUtils;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * turbine.incremental.enabled=true 时在 /turbine.incremental.stream 提供增量聚合的数据流，
+ * 原来的 /turbine.stream 不受影响。turbine.incremental.binary=true 时读取实例的 /hystrix.binary.stream，
+ * 读取字节数和解析耗时在 /metrics 的 turbine.incremental.* 中
+ */
+@Configuration
+@ConditionalOnProperty(name = "turbine.incremental.enabled")
+public class IncrementalTurbineConfig {
+
+    @Bean
+    public IncrementalTurbineStream incrementalTurbineStream(DiscoveryClient discoveryClient,
+                                                             @Value("${turbine.app-config}") String appConfig,
+                                                             @Value("${turbine.incremental.url-suffix:/hystrix.stream}") String urlSuffix,
+                                                             @Value("${turbine.incremental.interval-ms:1000}") long intervalMs,
+                                                             @Value("${turbine.incremental.binary:false}") boolean binary) {
+        return new IncrementalTurbineStream(discoveryClient, StringUtils.commaDelimitedListToStringArray(appConfig),
+                binary && "/hystrix.stream".equals(urlSuffix) ? "/hystrix.binary.stream" : urlSuffix, intervalMs, binary);
+    }
+
+    @Bean
+    public PublicMetrics incrementalTurbineMetrics(IncrementalTurbineStream stream) {
+        return () -> Arrays.<Metric<?>>asList(
+                new Metric<>("turbine.incremental.instances", stream.getInstances()),
+                new Metric<>("turbine.incremental.keys", stream.getAggregator().size()),
+                new Metric<>("turbine.incremental.bytes", stream.getBytesRead()),
+                new Metric<>("turbine.incremental.parseMicros", TimeUnit.NANOSECONDS.toMicros(stream.getParseNanos())));
+    }
+}
@@ -0,0 +1,20 @@
+package com.kuraki.turbine;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+@RestController
+@ConditionalOnProperty(name = "turbine.incremental.enabled")
+public class IncrementalTurbineController {
+
+    @Autowired
+    private IncrementalTurbineStream incrementalTurbineStream;
+
+    @RequestMapping("/turbine.incremental.stream")
+    public SseEmitter stream() {
+        return incrementalTurbineStream.subscribe();
+    }
+}
@@ -0,0 +1,317 @@
+package com.kuraki.turbine;
+
+import com.kuraki.hystrix.MetricsFrameCodec;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 增量聚合模式的 Turbine：从注册中心发现 turbine.app-config 中各应用的实例，
+ * 每个实例一个线程读取 hystrix.stream 并写入 IncrementalAggregator，
+ * 每隔 intervalMs 把有变化的 key 推送给所有订阅者，新订阅者先收到一次全量。
+ * binary 为 true 时读取实例的 /hystrix.binary.stream（MetricsFrameCodec 格式）而不是文本流。
+ */
+public class IncrementalTurbineStream {
+
+    private static Logger logger = LoggerFactory.getLogger(IncrementalTurbineStream.class);
+
+    private final DiscoveryClient discoveryClient;
+
+    private final String[] appIds;
+
+    private final String urlSuffix;
+
+    private final long intervalMs;
+
+    private final boolean binary;
+
+    private final AtomicLong bytesRead = new AtomicLong();
+
+    private final AtomicLong parseNanos = new AtomicLong();
+
+    private final IncrementalAggregator aggregator = new IncrementalAggregator();
+
+    private final Map<String, InstanceReader> readers = new ConcurrentHashMap<>();
+
+    private final BitSet slots = new BitSet();
+
+    private final List<SseEmitter> viewers = new CopyOnWriteArrayList<>();
+
+    private final List<SseEmitter> newViewers = new CopyOnWriteArrayList<>();
+
+    private final ExecutorService readerExecutor = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "turbine-instance-reader");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(2, r -> {
+        Thread thread = new Thread(r, "turbine-incremental");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public IncrementalTurbineStream(DiscoveryClient discoveryClient, String[] appIds, String urlSuffix, long intervalMs,
+                                    boolean binary) {
+        this.discoveryClient = discoveryClient;
+        this.appIds = appIds;
+        this.urlSuffix = urlSuffix;
+        this.intervalMs = intervalMs;
+        this.binary = binary;
+    }
+
+    @PostConstruct
+    public void start() {
+        scheduler.scheduleWithFixedDelay(this::discover, 0, 30, TimeUnit.SECONDS);
+        scheduler.scheduleWithFixedDelay(this::emit, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        scheduler.shutdownNow();
+        for (InstanceReader reader : readers.values()) {
+            reader.stop();
+        }
+        readerExecutor.shutdownNow();
+    }
+
+    public SseEmitter subscribe() {
+        SseEmitter emitter = new SseEmitter(0L);
+        emitter.onCompletion(() -> {
+            viewers.remove(emitter);
+            newViewers.remove(emitter);
+        });
+        newViewers.add(emitter);
+        return emitter;
+    }
+
+    public IncrementalAggregator getAggregator() {
+        return aggregator;
+    }
+
+    public int getInstances() {
+        return readers.size();
+    }
+
+    public long getBytesRead() {
+        return bytesRead.get();
+    }
+
+    public long getParseNanos() {
+        return parseNanos.get();
+    }
+
+    /**
+     * 按实例地址增加或停止读取线程
+     */
+    void discover() {
+        Set<String> current = new HashSet<>();
+        for (String appId : appIds) {
+            try {
+                for (ServiceInstance instance : discoveryClient.getInstances(appId.trim())) {
+                    String url = instance.getUri() + urlSuffix;
+                    current.add(url);
+                    readers.computeIfAbsent(url, key -> {
+                        InstanceReader reader = new InstanceReader(key, allocateSlot());
+                        readerExecutor.execute(reader);
+                        return reader;
+                    });
+                }
+            } catch (Exception e) {
+                logger.warn("Could not discover instances of {}: {}", appId, e.getMessage());
+            }
+        }
+        for (Map.Entry<String, InstanceReader> entry : readers.entrySet()) {
+            if (!current.contains(entry.getKey()) && readers.remove(entry.getKey(), entry.getValue())) {
+                entry.getValue().stop();
+            }
+        }
+    }
+
+    private void emit() {
+        try {
+            if (!newViewers.isEmpty()) {
+                List<String> snapshot = aggregator.snapshot();
+                for (SseEmitter emitter : newViewers) {
+                    newViewers.remove(emitter);
+                    if (send(emitter, snapshot)) {
+                        viewers.add(emitter);
+                    }
+                }
+            }
+            List<String> changed = aggregator.drainChanged();
+            if (changed.isEmpty()) {
+                return;
+            }
+            for (SseEmitter emitter : viewers) {
+                send(emitter, changed);
+            }
+        } catch (Exception e) {
+            logger.warn("Could not emit aggregated metrics: {}", e.getMessage());
+        }
+    }
+
+    private boolean send(SseEmitter emitter, List<String> events) {
+        try {
+            for (String event : events) {
+                emitter.send(SseEmitter.event().data(event));
+            }
+            return true;
+        } catch (IOException | IllegalStateException e) {
+            viewers.remove(emitter);
+            emitter.completeWithError(e);
+            return false;
+        }
+    }
+
+    private int allocateSlot() {
+        synchronized (slots) {
+            int slot = slots.nextClearBit(0);
+            slots.set(slot);
+            return slot;
+        }
+    }
+
+    private void releaseSlot(int slot) {
+        synchronized (slots) {
+            slots.clear(slot);
+        }
+    }
+
+    private class InstanceReader implements Runnable {
+
+        private final String url;
+
+        private final int slot;
+
+        private volatile boolean running = true;
+
+        private volatile HttpURLConnection connection;
+
+        InstanceReader(String url, int slot) {
+            this.url = url;
+            this.slot = slot;
+        }
+
+        @Override
+        public void run() {
+            while (running) {
+                try {
+                    read();
+                } catch (IOException e) {
+                    logger.debug("Stream {} disconnected: {}", url, e.getMessage());
+                }
+                aggregator.remove(slot);
+                if (running) {
+                    sleep();
+                }
+            }
+            releaseSlot(slot);
+        }
+
+        private void read() throws IOException {
+            connection = (HttpURLConnection) new URL(url).openConnection();
+            connection.setConnectTimeout(5000);
+            // hystrix.stream 空闲时也会定期发送 ping
+            connection.setReadTimeout(10000);
+            try (InputStream in = new CountingInputStream(connection.getInputStream())) {
+                if (binary) {
+                    readFrames(new BufferedInputStream(in));
+                } else {
+                    readLines(new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8)));
+                }
+            } finally {
+                connection.disconnect();
+            }
+        }
+
+        private void readLines(BufferedReader reader) throws IOException {
+            String line;
+            while (running && (line = reader.readLine()) != null) {
+                if (line.startsWith("data:")) {
+                    long start = System.nanoTime();
+                    aggregator.accept(slot, line.substring(5));
+                    parseNanos.addAndGet(System.nanoTime() - start);
+                }
+            }
+        }
+
+        private void readFrames(InputStream in) throws IOException {
+            MetricsFrameCodec.Decoder decoder = new MetricsFrameCodec.Decoder();
+            byte[] frame;
+            while (running && (frame = MetricsFrameCodec.Decoder.readFrame(in)) != null) {
+                long start = System.nanoTime();
+                decoder.decode(frame, (type, name, group, values, texts) ->
+                        aggregator.accept(slot, type, name, group, values, texts));
+                parseNanos.addAndGet(System.nanoTime() - start);
+            }
+        }
+
+        private void sleep() {
+            try {
+                Thread.sleep(2000);
+            } catch (InterruptedException e) {
+                running = false;
+            }
+        }
+
+        void stop() {
+            running = false;
+            HttpURLConnection current = connection;
+            if (current != null) {
+                current.disconnect();
+            }
+        }
+    }
+
+    private class CountingInputStream extends FilterInputStream {
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                bytesRead.incrementAndGet();
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int n = super.read(buffer, offset, length);
+            if (n > 0) {
+                bytesRead.addAndGet(n);
+            }
+            return n;
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.kuraki.turbine;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class IncrementalAggregatorTest {
+
+    // 重复的 key 直接解析失败
+    private final ObjectMapper mapper = new ObjectMapper().enable(DeserializationFeature.FAIL_ON_READING_DUP_TREE_KEY);
+
+    @Test
+    public void nestedFieldAddedLaterStaysInItsParent() throws IOException {
+        IncrementalAggregator aggregator = new IncrementalAggregator();
+        aggregator.accept(0, "{\"type\":\"HystrixCommand\",\"name\":\"getUser\",\"latencyExecute\":{\"50\":3},"
+                + "\"errorCount\":1}");
+        // 第二个实例多上报了一个百分位，新字段出现在 errorCount 之后
+        aggregator.accept(1, "{\"type\":\"HystrixCommand\",\"name\":\"getUser\",\"latencyExecute\":{\"50\":4,\"99\":9},"
+                + "\"errorCount\":2,\"latencyTotal\":{\"99\":11}}");
+
+        List<String> snapshot = aggregator.snapshot();
+        assertEquals(1, snapshot.size());
+        JsonNode node = mapper.readTree(snapshot.get(0));
+        assertEquals(7, node.get("latencyExecute").get("50").asLong());
+        assertEquals(9, node.get("latencyExecute").get("99").asLong());
+        assertEquals(11, node.get("latencyTotal").get("99").asLong());
+        assertEquals(3, node.get("errorCount").asLong());
+        assertEquals(2, node.get("reportingHosts").asInt());
+    }
+
+    @Test
+    public void onlyChangedKeysAreDrained() throws IOException {
+        IncrementalAggregator aggregator = new IncrementalAggregator();
+        aggregator.accept(0, command("getUser", 1, 5));
+        aggregator.accept(0, command("listUsers", 1, 5));
+        assertEquals(2, aggregator.drainChanged().size());
+        assertTrue(aggregator.drainChanged().isEmpty());
+
+        // 值没有变化不算变化
+        aggregator.accept(0, command("getUser", 1, 5));
+        assertTrue(aggregator.drainChanged().isEmpty());
+
+        aggregator.accept(0, command("listUsers", 2, 5));
+        List<String> changed = aggregator.drainChanged();
+        assertEquals(1, changed.size());
+        assertEquals("listUsers", mapper.readTree(changed.get(0)).get("name").asText());
+        assertEquals(2, aggregator.snapshot().size());
+    }
+
+    @Test
+    public void removedInstanceIsSubtracted() throws IOException {
+        IncrementalAggregator aggregator = new IncrementalAggregator();
+        aggregator.accept(0, command("getUser", 3, 10));
+        aggregator.accept(1, command("getUser", 4, 20));
+        aggregator.drainChanged();
+
+        aggregator.remove(0);
+        List<String> changed = aggregator.drainChanged();
+        assertEquals(1, changed.size());
+        JsonNode node = mapper.readTree(changed.get(0));
+        assertEquals(4, node.get("errorCount").asLong());
+        assertEquals(20, node.get("latencyExecute").get("99").asLong());
+        assertEquals(1, node.get("reportingHosts").asInt());
+    }
+
+    @Test
+    public void concurrentInstancesConvergeWhileDraining() throws Exception {
+        int instances = 8;
+        int updates = 20000;
+        IncrementalAggregator aggregator = new IncrementalAggregator();
+        ExecutorService executor = Executors.newFixedThreadPool(instances + 1);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicBoolean running = new AtomicBoolean(true);
+        List<Future<?>> readers = new ArrayList<>();
+        // 每个实例由自己的线程读取，与 IncrementalTurbineStream 一致
+        for (int slot = 0; slot < instances; slot++) {
+            int instance = slot;
+            readers.add(executor.submit(() -> {
+                start.await();
+                for (int i = 1; i <= updates; i++) {
+                    aggregator.accept(instance, command("getUser", i, i % 100));
+                }
+                // 最后一次上报的值
+                aggregator.accept(instance, command("getUser", updates, 100));
+                return null;
+            }));
+        }
+        Future<?> drainer = executor.submit(() -> {
+            start.await();
+            while (running.get()) {
+                for (String json : aggregator.drainChanged()) {
+                    mapper.readTree(json);
+                }
+            }
+            return null;
+        });
+
+        start.countDown();
+        for (Future<?> reader : readers) {
+            reader.get(30, TimeUnit.SECONDS);
+        }
+        running.set(false);
+        drainer.get(30, TimeUnit.SECONDS);
+        executor.shutdown();
+
+        List<String> snapshot = aggregator.snapshot();
+        assertEquals(1, snapshot.size());
+        JsonNode node = mapper.readTree(snapshot.get(0));
+        assertEquals((long) instances * updates, node.get("errorCount").asLong());
+        assertEquals(instances * 100, node.get("latencyExecute").get("99").asLong());
+        assertEquals(instances, node.get("reportingHosts").asInt());
+        assertFalse(node.has("currentTime"));
+    }
+
+    private static String command(String name, long errorCount, long p99) {
+        return "{\"type\":\"HystrixCommand\",\"name\":\"" + name + "\",\"currentTime\":" + System.currentTimeMillis()
+                + ",\"errorCount\":" + errorCount + ",\"isCircuitBreakerOpen\":false,\"latencyExecute\":{\"99\":"
+                + p99 + "},\"reportingHosts\":1}";
+    }
+}
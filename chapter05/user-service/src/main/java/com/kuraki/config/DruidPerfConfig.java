@@ -0,0 +1,43 @@
+package com.kuraki.config;
+
+import com.alibaba.druid.pool.DruidDataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+import java.util.Collections;
+
+/**
+ * perf 配置下使用 Druid 连接池，池大小默认按 CPU 核数计算，
+ * spring.datasource.druid.* 中配置的值会覆盖这里的默认值
+ */
+@Configuration
+@Profile("perf")
+public class DruidPerfConfig {
+
+    @Bean
+    public SampledSqlLogFilter sampledSqlLogFilter(@Value("${sql-log.sample-rate:100}") long sampleRate,
+                                                   @Value("${sql-log.slow-millis:200}") long slowMillis) {
+        return new SampledSqlLogFilter(sampleRate, slowMillis);
+    }
+
+    @Bean(initMethod = "init")
+    @ConfigurationProperties("spring.datasource.druid")
+    public DruidDataSource dataSource(DataSourceProperties properties, SampledSqlLogFilter sampledSqlLogFilter) {
+        DruidDataSource dataSource = new DruidDataSource();
+        dataSource.setUrl(properties.getUrl());
+        dataSource.setUsername(properties.getUsername());
+        dataSource.setPassword(properties.getPassword());
+        dataSource.setDriverClassName(properties.determineDriverClassName());
+        // 查询以数据库等待为主，每个核两个连接再加一个
+        int cores = Runtime.getRuntime().availableProcessors();
+        dataSource.setMaxActive(cores * 2 + 1);
+        dataSource.setInitialSize(cores);
+        dataSource.setMinIdle(cores);
+        dataSource.setProxyFilters(Collections.singletonList(sampledSqlLogFilter));
+        return dataSource;
+    }
+}
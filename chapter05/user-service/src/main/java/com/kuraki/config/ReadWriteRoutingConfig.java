@@ -0,0 +1,150 @@
+package com.kuraki.config;
+
+import com.kuraki.datasource.ReadWriteRoutingDataSource;
+import com.kuraki.datasource.ReadYourWritesFilter;
+import com.kuraki.datasource.ReplicaDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 读写分离，datasource.routing.enabled=true 时启用。
+ * 原有的 dataSource（默认连接池或 perf 配置下的 Druid）作为主库，
+ * datasource.routing.replicas 中的每一项创建一个从库连接池
+ */
+@Configuration
+@ConditionalOnProperty(value = "datasource.routing.enabled", havingValue = "true")
+public class ReadWriteRoutingConfig {
+
+    @Bean
+    public static RoutingDataSourcePostProcessor routingDataSourcePostProcessor(Environment environment) {
+        List<Replica> replicas = Binder.get(environment)
+                .bind("datasource.routing.replicas", Bindable.listOf(Replica.class))
+                .orElse(Collections.emptyList());
+        long probeIntervalMs = environment.getProperty("datasource.routing.probe-interval-ms", Long.class, 1000L);
+        return new RoutingDataSourcePostProcessor(replicas, probeIntervalMs);
+    }
+
+    @Bean
+    public FilterRegistrationBean<ReadYourWritesFilter> readYourWritesFilter(
+            @Value("${datasource.routing.read-your-writes-ms:2000}") long windowMs) {
+        FilterRegistrationBean<ReadYourWritesFilter> registration = new FilterRegistrationBean<>(new ReadYourWritesFilter(windowMs));
+        registration.addUrlPatterns("/*");
+        return registration;
+    }
+
+    public static class Replica {
+
+        private String name;
+
+        private String url;
+
+        private String username;
+
+        private String password;
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public String getUrl() {
+            return url;
+        }
+
+        public void setUrl(String url) {
+            this.url = url;
+        }
+
+        public String getUsername() {
+            return username;
+        }
+
+        public void setUsername(String username) {
+            this.username = username;
+        }
+
+        public String getPassword() {
+            return password;
+        }
+
+        public void setPassword(String password) {
+            this.password = password;
+        }
+    }
+
+    /**
+     * 把名为 dataSource 的 bean 替换为路由数据源
+     */
+    static class RoutingDataSourcePostProcessor implements BeanPostProcessor, DisposableBean {
+
+        private static Logger logger = LoggerFactory.getLogger(RoutingDataSourcePostProcessor.class);
+
+        private final List<Replica> replicas;
+
+        private final long probeIntervalMs;
+
+        private DataSource primary;
+
+        private ReadWriteRoutingDataSource routing;
+
+        RoutingDataSourcePostProcessor(List<Replica> replicas, long probeIntervalMs) {
+            this.replicas = replicas;
+            this.probeIntervalMs = probeIntervalMs;
+        }
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+            if (!"dataSource".equals(beanName) || !(bean instanceof DataSource)) {
+                return bean;
+            }
+            List<ReplicaDataSource> targets = new ArrayList<>();
+            for (int i = 0; i < replicas.size(); i++) {
+                Replica replica = replicas.get(i);
+                DataSource dataSource = DataSourceBuilder.create()
+                        .url(replica.getUrl())
+                        .username(replica.getUsername())
+                        .password(replica.getPassword())
+                        .build();
+                String name = replica.getName() != null ? replica.getName() : "replica-" + i;
+                targets.add(new ReplicaDataSource(name, dataSource));
+            }
+            primary = (DataSource) bean;
+            routing = new ReadWriteRoutingDataSource(primary, targets, probeIntervalMs);
+            logger.info("Routing read-only transactions to {} replicas", targets.size());
+            return new LazyConnectionDataSourceProxy(routing);
+        }
+
+        /**
+         * 替换后容器只能看到代理，主库也由这里关闭
+         */
+        @Override
+        public void destroy() throws Exception {
+            if (routing != null) {
+                routing.destroy();
+            }
+            if (primary instanceof AutoCloseable) {
+                ((AutoCloseable) primary).close();
+            }
+        }
+    }
+}
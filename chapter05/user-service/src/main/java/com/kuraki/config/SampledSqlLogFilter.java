@@ -0,0 +1,84 @@
+package com.kuraki.config;
+
+import com.alibaba.druid.filter.FilterEventAdapter;
+import com.alibaba.druid.proxy.jdbc.ResultSetProxy;
+import com.alibaba.druid.proxy.jdbc.StatementProxy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 代替 com.kuraki.mapper 的 debug 日志：每 sampleRate 条 SQL 记录一条，超过 slowMillis 的 SQL 全部记录
+ */
+public class SampledSqlLogFilter extends FilterEventAdapter {
+
+    private static Logger logger = LoggerFactory.getLogger(SampledSqlLogFilter.class);
+
+    private final long sampleRate;
+
+    private final long slowNanos;
+
+    private final AtomicLong statements = new AtomicLong();
+
+    private final ThreadLocal<long[]> startNanos = ThreadLocal.withInitial(() -> new long[1]);
+
+    public SampledSqlLogFilter(long sampleRate, long slowMillis) {
+        this.sampleRate = sampleRate;
+        this.slowNanos = TimeUnit.MILLISECONDS.toNanos(slowMillis);
+    }
+
+    @Override
+    protected void statementExecuteBefore(StatementProxy statement, String sql) {
+        start();
+    }
+
+    @Override
+    protected void statementExecuteAfter(StatementProxy statement, String sql, boolean result) {
+        log(sql);
+    }
+
+    @Override
+    protected void statementExecuteQueryBefore(StatementProxy statement, String sql) {
+        start();
+    }
+
+    @Override
+    protected void statementExecuteQueryAfter(StatementProxy statement, String sql, ResultSetProxy resultSet) {
+        log(sql);
+    }
+
+    @Override
+    protected void statementExecuteUpdateBefore(StatementProxy statement, String sql) {
+        start();
+    }
+
+    @Override
+    protected void statementExecuteUpdateAfter(StatementProxy statement, String sql, int updateCount) {
+        log(sql);
+    }
+
+    @Override
+    protected void statementExecuteBatchBefore(StatementProxy statement) {
+        start();
+    }
+
+    @Override
+    protected void statementExecuteBatchAfter(StatementProxy statement, int[] result) {
+        log(statement.getBatchSql());
+    }
+
+    private void start() {
+        startNanos.get()[0] = System.nanoTime();
+    }
+
+    private void log(String sql) {
+        long elapsed = System.nanoTime() - startNanos.get()[0];
+        if (elapsed >= slowNanos) {
+            logger.warn("Slow SQL {} ms: {}", TimeUnit.NANOSECONDS.toMillis(elapsed), sql);
+        } else if (sampleRate > 0 && statements.incrementAndGet() % sampleRate == 0) {
+            logger.info("SQL {} us (1/{} sampled): {}", TimeUnit.NANOSECONDS.toMicros(elapsed), sampleRate, sql);
+        }
+    }
+}
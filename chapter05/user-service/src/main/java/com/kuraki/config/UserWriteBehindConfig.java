@@ -0,0 +1,24 @@
+package com.kuraki.config;
+
+import com.kuraki.mapper.UserMapper;
+import com.kuraki.service.UserWriteBehind;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.PlatformTransactionManager;
+
+/**
+ * POST /users 的合批写入，window-ms 为 0、max-batch 为 1 时等同于逐条写入
+ */
+@Configuration
+public class UserWriteBehindConfig {
+
+    @Bean(initMethod = "start", destroyMethod = "stop")
+    public UserWriteBehind userWriteBehind(UserMapper userMapper, PlatformTransactionManager transactionManager,
+                                           @Value("${users.write-behind.max-batch:500}") int maxBatch,
+                                           @Value("${users.write-behind.window-ms:0}") long windowMs,
+                                           @Value("${users.write-behind.queue-capacity:10000}") int queueCapacity,
+                                           @Value("${users.write-behind.stop-timeout-ms:10000}") long stopTimeoutMs) {
+        return new UserWriteBehind(userMapper, transactionManager, maxBatch, windowMs, queueCapacity, stopTimeoutMs);
+    }
+}
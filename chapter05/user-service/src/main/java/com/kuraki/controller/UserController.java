@@ -6,7 +6,13 @@ import com.kuraki.service.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 public class UserController {
@@ -19,4 +25,20 @@ public class UserController {
         return userService.getUserById(userId);
     }
 
+    /**
+     * 事务提交后才返回，调用方随后清理缓存时读到的一定是已写入的数据
+     */
+    @PostMapping("/users")
+    public CompletableFuture<User> addUser(@RequestBody User user) throws InterruptedException {
+        return userService.addUser(user);
+    }
+
+    /**
+     * 全量导出，中断后可以用最后收到的 id 作为 after 继续
+     */
+    @GetMapping(value = "/users/export", produces = "application/x-ndjson")
+    public StreamingResponseBody exportUsers(@RequestParam(value = "after", defaultValue = "0") long afterId) {
+        return out -> userService.exportUsers(afterId, out);
+    }
+
 }
@@ -0,0 +1,151 @@
+package com.kuraki.datasource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 读写分离：只读事务走从库，其余走主库。
+ * 从库在可用的节点中随机取两个，选 score 较小的一个；没有可用从库或当前线程要求读自己的写时走主库。
+ * 从库取连接失败时标记为不可用，换一个从库重试，都失败后走主库。
+ * 事务开始时还没有设置只读标记，必须包一层 LazyConnectionDataSourceProxy，在第一条语句执行时再取连接
+ */
+public class ReadWriteRoutingDataSource extends AbstractDataSource implements DisposableBean {
+
+    private static Logger logger = LoggerFactory.getLogger(ReadWriteRoutingDataSource.class);
+
+    private final DataSource primary;
+
+    private final List<ReplicaDataSource> replicas;
+
+    private final ScheduledExecutorService prober;
+
+    public ReadWriteRoutingDataSource(DataSource primary, List<ReplicaDataSource> replicas, long probeIntervalMs) {
+        this.primary = primary;
+        this.replicas = new ArrayList<>(replicas);
+        if (probeIntervalMs > 0 && !replicas.isEmpty()) {
+            prober = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "replica-prober");
+                thread.setDaemon(true);
+                return thread;
+            });
+            prober.scheduleWithFixedDelay(this::probe, 0, probeIntervalMs, TimeUnit.MILLISECONDS);
+        } else {
+            prober = null;
+        }
+    }
+
+    public List<ReplicaDataSource> getReplicas() {
+        return replicas;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return connect(DataSource::getConnection);
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return connect(target -> target.getConnection(username, password));
+    }
+
+    private Connection connect(Connector connector) throws SQLException {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly() || RoutingContext.isPrimaryForced()) {
+            return connector.connect(primary);
+        }
+        Exception failure = null;
+        for (int attempt = 0; attempt < replicas.size(); attempt++) {
+            // 失败的从库已被标记为不可用，不会再被选中
+            ReplicaDataSource replica = selectReplica();
+            if (replica == null) {
+                break;
+            }
+            try {
+                return connector.connect(replica);
+            } catch (SQLException | RuntimeException e) {
+                logger.warn("Replica {} is down, trying another target: {}", replica.getName(), e.getMessage());
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        try {
+            return connector.connect(primary);
+        } catch (SQLException | RuntimeException e) {
+            if (failure != null) {
+                e.addSuppressed(failure);
+            }
+            throw e;
+        }
+    }
+
+    ReplicaDataSource selectReplica() {
+        List<ReplicaDataSource> candidates = new ArrayList<>(replicas.size());
+        for (ReplicaDataSource replica : replicas) {
+            if (replica.isHealthy()) {
+                candidates.add(replica);
+            }
+        }
+        int size = candidates.size();
+        if (size <= 1) {
+            return size == 0 ? null : candidates.get(0);
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = random.nextInt(size);
+        int second = random.nextInt(size - 1);
+        if (second >= first) {
+            second++;
+        }
+        ReplicaDataSource a = candidates.get(first);
+        ReplicaDataSource b = candidates.get(second);
+        return a.score() <= b.score() ? a : b;
+    }
+
+    private void probe() {
+        for (ReplicaDataSource replica : replicas) {
+            boolean wasHealthy = replica.isHealthy();
+            replica.probe();
+            if (wasHealthy != replica.isHealthy()) {
+                logger.warn("Replica {} is now {}", replica.getName(), replica.isHealthy() ? "up" : "down");
+            }
+        }
+    }
+
+    @Override
+    public void destroy() {
+        if (prober != null) {
+            prober.shutdownNow();
+        }
+        for (ReplicaDataSource replica : replicas) {
+            DataSource target = replica.getTargetDataSource();
+            if (target instanceof Closeable) {
+                try {
+                    ((Closeable) target).close();
+                } catch (IOException e) {
+                    logger.warn("Could not close replica {}: {}", replica.getName(), e.getMessage());
+                }
+            }
+        }
+    }
+
+    private interface Connector {
+
+        Connection connect(DataSource target) throws SQLException;
+    }
+}
@@ -0,0 +1,80 @@
+package com.kuraki.datasource;
+
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * 读自己的写：写请求在响应中带上 cookie 和 X-Primary-Until 头，记录主库读取的截止时间，
+ * 在截止时间之前同一客户端的读请求都走主库，windowMs 应覆盖写请求耗时加上从库延迟。
+ * 浏览器自动回传 cookie；RestTemplate 等服务调用方不保存 cookie，需要把响应头原样带到后续请求的请求头中
+ */
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+
+    public static final String COOKIE = "primary-until";
+
+    public static final String HEADER = "X-Primary-Until";
+
+    private final long windowMs;
+
+    public ReadYourWritesFilter(long windowMs) {
+        this.windowMs = windowMs;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        long now = System.currentTimeMillis();
+        if (isWrite(request.getMethod())) {
+            // 响应可能在 chain 返回前就已提交，所以先写 cookie 和响应头
+            String until = Long.toString(now + windowMs);
+            Cookie cookie = new Cookie(COOKIE, until);
+            cookie.setPath("/");
+            cookie.setMaxAge((int) Math.max(1, (windowMs + 999) / 1000));
+            response.addCookie(cookie);
+            response.setHeader(HEADER, until);
+            RoutingContext.forcePrimary();
+        } else if (primaryUntil(request) > now) {
+            RoutingContext.forcePrimary();
+        }
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            RoutingContext.clear();
+        }
+    }
+
+    private static boolean isWrite(String method) {
+        return !"GET".equals(method) && !"HEAD".equals(method) && !"OPTIONS".equals(method);
+    }
+
+    private static long primaryUntil(HttpServletRequest request) {
+        long until = parse(request.getHeader(HEADER));
+        Cookie[] cookies = request.getCookies();
+        if (cookies == null) {
+            return until;
+        }
+        for (Cookie cookie : cookies) {
+            if (COOKIE.equals(cookie.getName())) {
+                return Math.max(until, parse(cookie.getValue()));
+            }
+        }
+        return until;
+    }
+
+    private static long parse(String value) {
+        if (value == null) {
+            return 0;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.kuraki.datasource;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 从库连接池，记录借出中的连接数和连接占用时间的指数移动平均，
+ * 只读事务的连接占用时间近似于查询耗时。获取连接或探测失败后标记为不可用，直到下一次探测成功
+ */
+public class ReplicaDataSource extends DelegatingDataSource {
+
+    private static final double ALPHA = 0.2;
+
+    private final String name;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    // 微秒，多线程更新时允许丢失个别样本
+    private volatile double latency;
+
+    private volatile boolean healthy = true;
+
+    public ReplicaDataSource(String name, DataSource target) {
+        super(target);
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public double getLatency() {
+        return latency;
+    }
+
+    public boolean isHealthy() {
+        return healthy;
+    }
+
+    /**
+     * 越小越优先：平均耗时乘以排队中的连接数
+     */
+    double score() {
+        return (latency + 1) * (inFlight.get() + 1);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        inFlight.incrementAndGet();
+        long start = System.nanoTime();
+        Connection connection;
+        try {
+            connection = super.getConnection();
+        } catch (SQLException | RuntimeException e) {
+            inFlight.decrementAndGet();
+            healthy = false;
+            throw e;
+        }
+        return track(connection, start);
+    }
+
+    /**
+     * 用 SELECT 1 探测，成功后恢复可用
+     */
+    public void probe() {
+        long start = System.nanoTime();
+        try (Connection connection = getTargetDataSource().getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute("SELECT 1");
+            record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+            healthy = true;
+        } catch (SQLException e) {
+            healthy = false;
+        }
+    }
+
+    void record(long micros) {
+        double current = latency;
+        latency = current == 0 ? micros : current + ALPHA * (micros - current);
+    }
+
+    private Connection track(Connection connection, long start) {
+        boolean[] closed = {false};
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    if ("close".equals(method.getName()) && !closed[0]) {
+                        closed[0] = true;
+                        inFlight.decrementAndGet();
+                        record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+                    }
+                    try {
+                        return method.invoke(connection, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getTargetException();
+                    }
+                });
+    }
+
+    @Override
+    public String toString() {
+        return name + "{healthy=" + healthy + ", inFlight=" + inFlight.get() + ", latencyUs=" + (long) latency + "}";
+    }
+}
@@ -1,12 +1,41 @@
 package com.kuraki.mapper;
 
 import com.kuraki.bean.User;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Options;
 import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.cursor.Cursor;
 import tk.mybatis.mapper.common.Mapper;
 
+import java.util.List;
+
 public interface UserMapper extends Mapper<User> {
 
     @Select("SELECT * FROM user WHERE id = #{userId}")
     User getUserById(@Param("userId")Long userId);
+
+    /**
+     * 按 id 的 keyset 分页，只能在事务内遍历。
+     * MySQL 需要在 url 中加 useCursorFetch=true 才会按 fetchSize 分批读取，否则驱动会缓存一整页
+     */
+    @Select("SELECT * FROM user WHERE id > #{afterId} ORDER BY id LIMIT #{limit}")
+    @Options(fetchSize = 1000)
+    Cursor<User> streamAfter(@Param("afterId") long afterId, @Param("limit") int limit);
+
+    /**
+     * 多行插入，id 由数据库生成并回填
+     */
+    @Insert("<script>INSERT INTO user (name, age) VALUES " +
+            "<foreach collection='list' item='u' separator=','>(#{u.name}, #{u.age})</foreach></script>")
+    @Options(useGeneratedKeys = true, keyProperty = "id")
+    int insertGenerated(List<User> users);
+
+    /**
+     * 多行插入，使用调用方指定的 id。
+     * 与 insertGenerated 分开执行，混在一条语句里时驱动回填的 id 会错位
+     */
+    @Insert("<script>INSERT INTO user (id, name, age) VALUES " +
+            "<foreach collection='list' item='u' separator=','>(#{u.id}, #{u.name}, #{u.age})</foreach></script>")
+    int insertWithIds(List<User> users);
 }
@@ -1,9 +1,23 @@
 package com.kuraki.service;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import com.kuraki.bean.User;
 import com.kuraki.mapper.UserMapper;
+import org.apache.ibatis.cursor.Cursor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.concurrent.CompletableFuture;
 
 @Service
 public class UserService {
@@ -11,7 +25,87 @@ public class UserService {
     @Autowired
     private UserMapper userMapper;
 
+    @Autowired
+    private UserWriteBehind userWriteBehind;
+
+    @Value("${users.export.page-size:1000}")
+    private int exportPageSize;
+
+    private ObjectWriter userWriter;
+
+    private TransactionTemplate readOnlyTransaction;
+
+    @Autowired
+    public void setObjectMapper(ObjectMapper objectMapper) {
+        // 默认每写一个值都会 flush，导出时交给 JsonGenerator 自己的缓冲
+        this.userWriter = objectMapper.writerFor(User.class).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    @Autowired
+    public void setTransactionManager(PlatformTransactionManager transactionManager) {
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    @Transactional(readOnly = true)
     public User getUserById(Long userId) {
         return userMapper.getUserById(userId);
     }
+
+    /**
+     * 合批写入，返回的 future 在所在批次提交后完成
+     */
+    public CompletableFuture<User> addUser(User user) throws InterruptedException {
+        return userWriteBehind.insert(user);
+    }
+
+    /**
+     * 从 afterId 之后按 id 顺序导出全部用户，每行一个 JSON（NDJSON）。
+     * 每页一个短的只读事务，页内用游标逐行写出，内存占用与总行数无关
+     *
+     * @return 导出的行数
+     */
+    public long exportUsers(long afterId, OutputStream out) throws IOException {
+        JsonGenerator generator = userWriter.getFactory().createGenerator(out);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        generator.setRootValueSeparator(null);
+        long total = 0;
+        long lastId = afterId;
+        try {
+            while (true) {
+                long[] page = exportPage(lastId, generator);
+                total += page[0];
+                lastId = page[1];
+                generator.flush();
+                if (page[0] < exportPageSize) {
+                    break;
+                }
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            generator.close();
+        }
+        return total;
+    }
+
+    /**
+     * @return {行数, 最后一个 id}
+     */
+    private long[] exportPage(long afterId, JsonGenerator generator) {
+        return readOnlyTransaction.execute(status -> {
+            long[] page = {0, afterId};
+            try (Cursor<User> cursor = userMapper.streamAfter(afterId, exportPageSize)) {
+                for (User user : cursor) {
+                    userWriter.writeValue(generator, user);
+                    generator.writeRaw('\n');
+                    page[0]++;
+                    page[1] = user.getId();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return page;
+        });
+    }
 }
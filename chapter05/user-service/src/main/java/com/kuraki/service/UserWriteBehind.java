@@ -0,0 +1,238 @@
+package com.kuraki.service;
+
+import com.kuraki.bean.User;
+import com.kuraki.mapper.UserMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 用户写入合批：insert 先进入队列，写线程在第一条到达后最多等待 windowMs 或凑满 maxBatch 条，
+ * 用多行 INSERT 在一个事务中写入，事务提交后才完成对应的 future，调用方收到结果时数据已经落库。
+ * windowMs 为 0 时不等待，写入期间到达的用户在下一批一起写入。
+ * 整批失败时回滚并逐条重试，只有出错的那条失败。队列满时 insert 阻塞。
+ * stop 之后不再接收新的用户；写线程在 stopTimeoutMs 内没有写完时被中断，剩余用户的 future 以异常结束
+ */
+public class UserWriteBehind {
+
+    private static Logger logger = LoggerFactory.getLogger(UserWriteBehind.class);
+
+    private final UserMapper userMapper;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final int maxBatch;
+
+    private final long windowNanos;
+
+    private final BlockingQueue<Pending> queue;
+
+    private final long stopTimeoutMs;
+
+    private final AtomicLong batches = new AtomicLong();
+
+    private final AtomicLong rows = new AtomicLong();
+
+    // insert 持读锁检查状态并入队，stop 持写锁修改状态，stop 返回后不会再有用户进入队列
+    private final ReadWriteLock lifecycle = new ReentrantReadWriteLock();
+
+    private volatile boolean running;
+
+    // stop 超时后置位，写线程不再从队列取用户
+    private volatile boolean aborted;
+
+    // 正在写入的批次，stop 超时后写线程仍卡在其中时由 stop 以异常结束
+    private volatile List<Pending> writing = Collections.emptyList();
+
+    private Thread writer;
+
+    public UserWriteBehind(UserMapper userMapper, PlatformTransactionManager transactionManager,
+                           int maxBatch, long windowMs, int queueCapacity) {
+        this(userMapper, transactionManager, maxBatch, windowMs, queueCapacity, TimeUnit.SECONDS.toMillis(10));
+    }
+
+    public UserWriteBehind(UserMapper userMapper, PlatformTransactionManager transactionManager,
+                           int maxBatch, long windowMs, int queueCapacity, long stopTimeoutMs) {
+        this.userMapper = userMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.maxBatch = Math.max(maxBatch, 1);
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMs);
+        this.queue = new LinkedBlockingQueue<>(queueCapacity);
+        this.stopTimeoutMs = stopTimeoutMs;
+    }
+
+    public void start() {
+        running = true;
+        writer = new Thread(this::writeLoop, "user-write-behind");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * 停止接收并写完队列中剩余的用户，超时未写完的以异常结束
+     */
+    public void stop() throws InterruptedException {
+        lifecycle.writeLock().lock();
+        try {
+            running = false;
+        } finally {
+            lifecycle.writeLock().unlock();
+        }
+        if (writer == null) {
+            return;
+        }
+        writer.join(stopTimeoutMs);
+        if (!writer.isAlive()) {
+            return;
+        }
+        logger.warn("Write-behind did not finish in {} ms, {} users left", stopTimeoutMs, queue.size());
+        aborted = true;
+        writer.interrupt();
+        writer.join(TimeUnit.SECONDS.toMillis(1));
+        IllegalStateException cause = new IllegalStateException("UserWriteBehind stopped before the user was written");
+        List<Pending> left = new ArrayList<>();
+        queue.drainTo(left);
+        fail(left, cause);
+        fail(writing, cause);
+    }
+
+    public CompletableFuture<User> insert(User user) throws InterruptedException {
+        Pending pending = new Pending(user);
+        lifecycle.readLock().lockInterruptibly();
+        try {
+            if (!running) {
+                throw new IllegalStateException("UserWriteBehind is not running");
+            }
+            // 队列满时在这里阻塞，写线程在 stop 之后仍会清空队列，不会卡住 stop
+            queue.put(pending);
+        } finally {
+            lifecycle.readLock().unlock();
+        }
+        return pending.future;
+    }
+
+    public long getBatches() {
+        return batches.get();
+    }
+
+    public long getRows() {
+        return rows.get();
+    }
+
+    private void writeLoop() {
+        List<Pending> batch = new ArrayList<>(maxBatch);
+        while (!aborted && (running || !queue.isEmpty())) {
+            try {
+                Pending first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, maxBatch - 1);
+                long deadline = System.nanoTime() + windowNanos;
+                while (batch.size() < maxBatch) {
+                    long remaining = deadline - System.nanoTime();
+                    Pending next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : null;
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                    queue.drainTo(batch, maxBatch - batch.size());
+                }
+                writing = new ArrayList<>(batch);
+                write(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                fail(batch, new IllegalStateException("UserWriteBehind stopped before the user was written", e));
+                return;
+            } catch (Exception e) {
+                logger.warn("Write-behind loop failed: {}", e.getMessage());
+                fail(batch, e);
+            } finally {
+                writing = Collections.emptyList();
+                batch.clear();
+            }
+        }
+    }
+
+    private void write(List<Pending> batch) {
+        try {
+            insertAll(batch);
+            batches.incrementAndGet();
+            rows.addAndGet(batch.size());
+            for (Pending pending : batch) {
+                pending.future.complete(pending.user);
+            }
+        } catch (Exception e) {
+            if (batch.size() == 1) {
+                batch.get(0).future.completeExceptionally(e);
+                return;
+            }
+            logger.warn("Batch of {} users failed, retrying one by one: {}", batch.size(), e.getMessage());
+            for (Pending pending : batch) {
+                write(Collections.singletonList(pending));
+            }
+        }
+    }
+
+    /**
+     * 已经完成的 future 不受影响
+     */
+    private static void fail(List<Pending> pendings, Exception cause) {
+        for (Pending pending : pendings) {
+            pending.future.completeExceptionally(cause);
+        }
+    }
+
+    private void insertAll(List<Pending> batch) {
+        List<User> generated = new ArrayList<>(batch.size());
+        List<User> withIds = new ArrayList<>();
+        for (Pending pending : batch) {
+            if (pending.user.getId() == null) {
+                generated.add(pending.user);
+            } else {
+                withIds.add(pending.user);
+            }
+        }
+        try {
+            transactionTemplate.execute(status -> {
+                if (!generated.isEmpty()) {
+                    userMapper.insertGenerated(generated);
+                }
+                if (!withIds.isEmpty()) {
+                    userMapper.insertWithIds(withIds);
+                }
+                return null;
+            });
+        } catch (RuntimeException e) {
+            // 回滚后回填的 id 已无效，否则逐条重试时会被当作指定 id 插入
+            for (User user : generated) {
+                user.setId(null);
+            }
+            throw e;
+        }
+    }
+
+    private static class Pending {
+
+        private final User user;
+
+        private final CompletableFuture<User> future = new CompletableFuture<>();
+
+        Pending(User user) {
+            this.user = user;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.kuraki.chapter05.userservice;
+
+import com.kuraki.UserServiceApplication;
+import com.kuraki.service.UserService;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.IfProfileValue;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.io.OutputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 从 H2 文件库导出 export.rows 行（默认 10 万），导出过程中采样 10 次，每次先 GC，
+ * 检查存活的堆大小不随导出行数增长。数据库放在 target 下，重复运行时只补齐缺少的行。
+ * 耗时较长，默认不运行，用 -Dexport.test=true 打开；完整验证用 -Dexport.rows=10000000
+ */
+@RunWith(SpringRunner.class)
+@IfProfileValue(name = "export.test", value = "true")
+@SpringBootTest(classes = UserServiceApplication.class,
+        properties = {
+                "spring.datasource.url=jdbc:h2:file:./target/user-export;MODE=MySQL",
+                "spring.datasource.username=sa",
+                "spring.datasource.password=",
+                "spring.datasource.platform=h2",
+                "spring.datasource.initialization-mode=always",
+                "eureka.client.enabled=false"
+        })
+public class UserExportTests {
+
+    private static Logger logger = LoggerFactory.getLogger(UserExportTests.class);
+
+    private static final long ROWS = Long.getLong("export.rows", 100_000L);
+
+    private static final long SAMPLE_EVERY = Math.max(ROWS / 10, 1);
+
+    // 允许的存活堆增长
+    private static final long MAX_HEAP_GROWTH = 32L * 1024 * 1024;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Before
+    public void fill() {
+        Long maxId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM user", Long.class);
+        if (maxId < ROWS) {
+            jdbcTemplate.update("INSERT INTO user (id, name, age) SELECT X, CONCAT('user', X), MOD(X, 100) " +
+                    "FROM SYSTEM_RANGE(?, ?)", maxId + 1, ROWS);
+        }
+    }
+
+    @Test
+    public void heapStaysFlat() throws Exception {
+        long expected = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM user", Long.class);
+        long baseline = liveHeap();
+        long[] peak = {baseline};
+        OutputStream out = new OutputStream() {
+            long lines;
+
+            @Override
+            public void write(int b) {
+                if (b == '\n' && ++lines % SAMPLE_EVERY == 0) {
+                    peak[0] = Math.max(peak[0], liveHeap());
+                }
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+                for (int i = off; i < off + len; i++) {
+                    write(b[i]);
+                }
+            }
+        };
+        long start = System.currentTimeMillis();
+        long exported = userService.exportUsers(0, out);
+        logger.info("Exported {} rows in {} ms, live heap baseline {} KB, peak {} KB",
+                exported, System.currentTimeMillis() - start, baseline / 1024, peak[0] / 1024);
+        assertEquals(expected, exported);
+        assertTrue("live heap grew by " + (peak[0] - baseline) / 1024 + " KB",
+                peak[0] - baseline < MAX_HEAP_GROWTH);
+    }
+
+    private static long liveHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,95 @@
+package com.kuraki.chapter05.userservice;
+
+import com.kuraki.UserServiceApplication;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 用内存 H2 压测 /users/{id}，对比默认配置（每条 SQL 输出 debug 日志）和 perf 配置的吞吐
+ */
+public class UserPerfTests {
+
+    private static Logger logger = LoggerFactory.getLogger(UserPerfTests.class);
+
+    private static final int THREADS = 8;
+
+    private static final int REQUESTS_PER_THREAD = 1000;
+
+    @Test
+    public void perfProfileServesMoreRequests() throws Exception {
+        long baseline = requestsPerSecond("default");
+        long tuned = requestsPerSecond("perf");
+        logger.info("/users/{id}: default {} req/s, perf {} req/s, {}x",
+                baseline, tuned, String.format("%.2f", (double) tuned / baseline));
+        assertTrue("perf " + tuned + " req/s, default " + baseline, tuned > baseline);
+    }
+
+    private long requestsPerSecond(String profile) throws Exception {
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(UserServiceApplication.class)
+                .profiles(profile)
+                .run("--server.port=0",
+                        "--spring.datasource.url=jdbc:h2:mem:users-" + profile + ";MODE=MySQL;DB_CLOSE_DELAY=-1",
+                        "--spring.datasource.platform=h2",
+                        "--spring.datasource.initialization-mode=always",
+                        "--eureka.client.enabled=false")) {
+            String url = "http://localhost:" + context.getEnvironment().getProperty("local.server.port")
+                    + "/users/{id}";
+            RestTemplate restTemplate = new RestTemplate();
+            // 预热
+            assertEquals(0, run(restTemplate, url, 1, 1000));
+            long start = System.nanoTime();
+            long failures = run(restTemplate, url, THREADS, REQUESTS_PER_THREAD);
+            long elapsed = System.nanoTime() - start;
+            long total = (long) THREADS * REQUESTS_PER_THREAD;
+            logger.info("{}: {} requests in {} ms, avg {} us", profile, total, TimeUnit.NANOSECONDS.toMillis(elapsed),
+                    TimeUnit.NANOSECONDS.toMicros(elapsed) * THREADS / total);
+            assertEquals(0, failures);
+            return total * TimeUnit.SECONDS.toNanos(1) / elapsed;
+        }
+    }
+
+    private static long run(RestTemplate restTemplate, String url, int threads, int requests) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Long>> results = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int offset = t;
+                results.add(executor.submit(() -> {
+                    long failures = 0;
+                    for (int i = 0; i < requests; i++) {
+                        long id = (offset * requests + i) % 1000 + 1;
+                        ResponseEntity<String> response = restTemplate.getForEntity(url, String.class, id);
+                        if (response.getStatusCode() != HttpStatus.OK || response.getBody() == null
+                                || !response.getBody().contains("\"id\":" + id + ",")) {
+                            failures++;
+                        }
+                    }
+                    return failures;
+                }));
+            }
+            long failures = 0;
+            for (Future<Long> result : results) {
+                failures += result.get();
+            }
+            return failures;
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.kuraki.chapter05.userservice;
+
+import com.kuraki.UserServiceApplication;
+import com.kuraki.bean.User;
+import com.kuraki.mapper.UserMapper;
+import com.kuraki.service.UserWriteBehind;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 对比逐条写入和合批写入的 inserts/s，关闭 SQL 日志，H2 没有磁盘同步，MySQL 上差距会更大
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = UserServiceApplication.class,
+        properties = {
+                "spring.datasource.url=jdbc:h2:mem:write-behind;MODE=MySQL;DB_CLOSE_DELAY=-1",
+                "spring.datasource.username=sa",
+                "spring.datasource.password=",
+                "spring.datasource.platform=h2",
+                "spring.datasource.initialization-mode=always",
+                "eureka.client.enabled=false",
+                "logging.level.com.kuraki.mapper=info"
+        })
+public class UserWriteBehindTests {
+
+    private static Logger logger = LoggerFactory.getLogger(UserWriteBehindTests.class);
+
+    private static final int THREADS = 16;
+
+    private static final int USERS_PER_THREAD = 2000;
+
+    @Autowired
+    private UserMapper userMapper;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    public void batchingBeatsSingleInserts() throws Exception {
+        long total = (long) THREADS * USERS_PER_THREAD;
+        UserWriteBehind singleWriter = new UserWriteBehind(userMapper, transactionManager, 1, 0, 10000);
+        long single = inserts(singleWriter);
+        UserWriteBehind batchedWriter = new UserWriteBehind(userMapper, transactionManager, 500, 0, 10000);
+        long batched = inserts(batchedWriter);
+        logger.info("single-row {} inserts/s in {} batches, batched {} inserts/s in {} batches, {}x",
+                single, singleWriter.getBatches(), batched, batchedWriter.getBatches(),
+                String.format("%.1f", (double) batched / single));
+
+        assertEquals(total, singleWriter.getBatches());
+        // 16 个线程同时等待结果，每批至少合并 THREADS / 2 条
+        assertTrue("batches: " + batchedWriter.getBatches(), batchedWriter.getBatches() <= total * 2 / THREADS);
+        assertTrue("batched " + batched + " inserts/s, single-row " + single, batched > single);
+    }
+
+    @Test
+    public void acknowledgesOnlyCommittedRows() throws Exception {
+        UserWriteBehind writeBehind = new UserWriteBehind(userMapper, transactionManager, 100, 50, 1000);
+        writeBehind.start();
+        try {
+            User created = writeBehind.insert(user("created")).get(5, TimeUnit.SECONDS);
+            assertNotNull(created.getId());
+            assertEquals(Integer.valueOf(1), jdbcTemplate.queryForObject(
+                    "SELECT COUNT(*) FROM user WHERE id = ?", Integer.class, created.getId()));
+
+            // 同一批中有一条主键冲突，其余的仍然写入
+            User duplicate = user("duplicate");
+            duplicate.setId(created.getId());
+            CompletableFuture<User> ok = writeBehind.insert(user("ok"));
+            CompletableFuture<User> failed = writeBehind.insert(duplicate);
+            assertNotNull(ok.get(5, TimeUnit.SECONDS).getId());
+            try {
+                failed.get(5, TimeUnit.SECONDS);
+                throw new AssertionError("duplicate id should fail");
+            } catch (ExecutionException expected) {
+                // 主键冲突
+            }
+            assertEquals("created", jdbcTemplate.queryForObject(
+                    "SELECT name FROM user WHERE id = ?", String.class, created.getId()));
+        } finally {
+            writeBehind.stop();
+        }
+    }
+
+    private long inserts(UserWriteBehind writeBehind) throws Exception {
+        writeBehind.start();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            long start = System.nanoTime();
+            List<Future<?>> results = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                results.add(executor.submit(() -> {
+                    for (int i = 0; i < USERS_PER_THREAD; i++) {
+                        User user = writeBehind.insert(user("bench")).get();
+                        assertNotNull(user.getId());
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> result : results) {
+                result.get();
+            }
+            long elapsed = System.nanoTime() - start;
+            long total = (long) THREADS * USERS_PER_THREAD;
+            assertEquals(total, writeBehind.getRows());
+            assertTrue(writeBehind.getBatches() <= total);
+            return total * TimeUnit.SECONDS.toNanos(1) / elapsed;
+        } finally {
+            executor.shutdown();
+            writeBehind.stop();
+        }
+    }
+
+    private static User user(String name) {
+        User user = new User();
+        user.setName(name);
+        user.setAge(20);
+        return user;
+    }
+}
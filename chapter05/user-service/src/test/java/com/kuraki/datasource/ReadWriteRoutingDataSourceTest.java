@@ -0,0 +1,179 @@
+package com.kuraki.datasource;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 三个内存 H2 分别代替主库和两个从库，每个库的 node 表里存自己的名字
+ */
+public class ReadWriteRoutingDataSourceTest {
+
+    private ReplicaDataSource replica1;
+
+    private ReplicaDataSource replica2;
+
+    private ReadWriteRoutingDataSource routing;
+
+    private JdbcTemplate jdbcTemplate;
+
+    private TransactionTemplate readOnly;
+
+    private TransactionTemplate readWrite;
+
+    @Before
+    public void setUp() {
+        replica1 = new ReplicaDataSource("replica-1", database("replica-1"));
+        replica2 = new ReplicaDataSource("replica-2", database("replica-2"));
+        routing = new ReadWriteRoutingDataSource(database("primary"), Arrays.asList(replica1, replica2), 0);
+        DataSource dataSource = new LazyConnectionDataSourceProxy(routing);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        readWrite = new TransactionTemplate(transactionManager);
+    }
+
+    @After
+    public void tearDown() {
+        routing.destroy();
+        RoutingContext.clear();
+    }
+
+    @Test
+    public void readOnlyTransactionsGoToReplicas() {
+        Map<String, Integer> hits = new HashMap<>();
+        for (int i = 0; i < 100; i++) {
+            hits.merge(readOnly.execute(status -> node()), 1, Integer::sum);
+        }
+        assertFalse(hits.containsKey("primary"));
+        assertTrue(hits.containsKey("replica-1") || hits.containsKey("replica-2"));
+        assertEquals(0, replica1.getInFlight() + replica2.getInFlight());
+    }
+
+    @Test
+    public void writesAndNonTransactionalCallsGoToPrimary() {
+        assertEquals("primary", readWrite.execute(status -> node()));
+        assertEquals("primary", node());
+    }
+
+    @Test
+    public void readYourWritesGoesToPrimary() {
+        RoutingContext.forcePrimary();
+        assertEquals("primary", readOnly.execute(status -> node()));
+        RoutingContext.clear();
+        assertTrue(readOnly.execute(status -> node()).startsWith("replica"));
+    }
+
+    @Test
+    public void prefersFasterReplica() {
+        for (int i = 0; i < 20; i++) {
+            replica1.record(50_000);
+            replica2.record(500);
+        }
+        int fast = 0;
+        for (int i = 0; i < 100; i++) {
+            if ("replica-2".equals(readOnly.execute(status -> node()))) {
+                fast++;
+            }
+        }
+        assertTrue("replica-2 chosen " + fast + " times", fast >= 90);
+    }
+
+    @Test
+    public void prefersLessLoadedReplica() throws SQLException {
+        // 占住 replica-1 的连接
+        Connection[] held = new Connection[8];
+        for (int i = 0; i < held.length; i++) {
+            held[i] = replica1.getConnection();
+        }
+        try {
+            assertEquals(replica2, routing.selectReplica());
+        } finally {
+            for (Connection connection : held) {
+                connection.close();
+            }
+        }
+        assertEquals(0, replica1.getInFlight());
+    }
+
+    @Test
+    public void fallsBackWhenReplicasAreDown() {
+        ReplicaDataSource down = new ReplicaDataSource("down", unreachable());
+        down.probe();
+        assertFalse(down.isHealthy());
+        ReadWriteRoutingDataSource onlyDown = new ReadWriteRoutingDataSource(database("primary"),
+                Arrays.asList(down), 0);
+        DataSource dataSource = new LazyConnectionDataSourceProxy(onlyDown);
+        TransactionTemplate template = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        template.setReadOnly(true);
+        assertEquals("primary", template.execute(status ->
+                new JdbcTemplate(dataSource).queryForObject("SELECT name FROM node", String.class)));
+    }
+
+    @Test
+    public void failedReplicaFallsBackToAnotherReplica() {
+        // 还没有探测过，仍然标记为可用
+        ReplicaDataSource down = new ReplicaDataSource("down", unreachable());
+        ReadWriteRoutingDataSource withDown = new ReadWriteRoutingDataSource(database("primary"),
+                Arrays.asList(down, replica1), 0);
+        DataSource dataSource = new LazyConnectionDataSourceProxy(withDown);
+        TransactionTemplate template = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        template.setReadOnly(true);
+        for (int i = 0; i < 10; i++) {
+            assertEquals("replica-1", template.execute(status ->
+                    new JdbcTemplate(dataSource).queryForObject("SELECT name FROM node", String.class)));
+        }
+        assertFalse(down.isHealthy());
+        assertEquals(0, down.getInFlight());
+    }
+
+    @Test
+    public void failedReplicasFallBackToPrimary() {
+        ReplicaDataSource down = new ReplicaDataSource("down", unreachable());
+        ReadWriteRoutingDataSource onlyDown = new ReadWriteRoutingDataSource(database("primary"),
+                Arrays.asList(down), 0);
+        DataSource dataSource = new LazyConnectionDataSourceProxy(onlyDown);
+        TransactionTemplate template = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        template.setReadOnly(true);
+        assertEquals("primary", template.execute(status ->
+                new JdbcTemplate(dataSource).queryForObject("SELECT name FROM node", String.class)));
+        assertFalse(down.isHealthy());
+    }
+
+    private static DataSource unreachable() {
+        JdbcDataSource unreachable = new JdbcDataSource();
+        unreachable.setURL("jdbc:h2:tcp://127.0.0.1:1/missing");
+        return unreachable;
+    }
+
+    private String node() {
+        return jdbcTemplate.queryForObject("SELECT name FROM node", String.class);
+    }
+
+    private static DataSource database(String name) {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1");
+        JdbcTemplate template = new JdbcTemplate(dataSource);
+        template.execute("CREATE TABLE IF NOT EXISTS node (name VARCHAR(32))");
+        template.execute("DELETE FROM node");
+        template.update("INSERT INTO node VALUES (?)", name);
+        return dataSource;
+    }
+}
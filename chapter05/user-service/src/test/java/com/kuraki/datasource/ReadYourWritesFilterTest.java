@@ -0,0 +1,70 @@
+package com.kuraki.datasource;
+
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.servlet.FilterChain;
+import javax.servlet.http.Cookie;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class ReadYourWritesFilterTest {
+
+    private final ReadYourWritesFilter filter = new ReadYourWritesFilter(2000);
+
+    @After
+    public void tearDown() {
+        RoutingContext.clear();
+    }
+
+    @Test
+    public void writeReturnsCookieAndHeader() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        boolean[] forced = {false};
+        filter.doFilter(new MockHttpServletRequest("POST", "/users"), response,
+                (req, res) -> forced[0] = RoutingContext.isPrimaryForced());
+
+        assertTrue(forced[0]);
+        assertFalse(RoutingContext.isPrimaryForced());
+        String until = response.getHeader(ReadYourWritesFilter.HEADER);
+        assertNotNull(until);
+        assertEquals(until, response.getCookie(ReadYourWritesFilter.COOKIE).getValue());
+    }
+
+    @Test
+    public void readWithHeaderGoesToPrimary() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/users/1");
+        request.addHeader(ReadYourWritesFilter.HEADER, Long.toString(System.currentTimeMillis() + 2000));
+        assertTrue(forcedDuring(request));
+    }
+
+    @Test
+    public void readWithCookieGoesToPrimary() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/users/1");
+        request.setCookies(new Cookie(ReadYourWritesFilter.COOKIE, Long.toString(System.currentTimeMillis() + 2000)));
+        assertTrue(forcedDuring(request));
+    }
+
+    @Test
+    public void expiredOrInvalidValueDoesNotForcePrimary() throws Exception {
+        MockHttpServletRequest expired = new MockHttpServletRequest("GET", "/users/1");
+        expired.addHeader(ReadYourWritesFilter.HEADER, Long.toString(System.currentTimeMillis() - 1));
+        assertFalse(forcedDuring(expired));
+
+        MockHttpServletRequest invalid = new MockHttpServletRequest("GET", "/users/1");
+        invalid.addHeader(ReadYourWritesFilter.HEADER, "soon");
+        assertFalse(forcedDuring(invalid));
+    }
+
+    private boolean forcedDuring(MockHttpServletRequest request) throws Exception {
+        boolean[] forced = {false};
+        FilterChain chain = (req, res) -> forced[0] = RoutingContext.isPrimaryForced();
+        filter.doFilter(request, new MockHttpServletResponse(), chain);
+        return forced[0];
+    }
+}
@@ -0,0 +1,119 @@
+package com.kuraki.service;
+
+import com.kuraki.bean.User;
+import com.kuraki.mapper.UserMapper;
+import org.junit.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 启停与并发 insert 的交互，UserMapper 和事务管理器都用 mock 代替
+ */
+public class UserWriteBehindTest {
+
+    private final UserMapper userMapper = mock(UserMapper.class);
+
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+
+    public UserWriteBehindTest() {
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void insertAfterStopIsRejected() throws Exception {
+        UserWriteBehind writeBehind = new UserWriteBehind(userMapper, transactionManager, 10, 0, 10);
+        writeBehind.start();
+        writeBehind.stop();
+        writeBehind.insert(user());
+    }
+
+    @Test
+    public void everyAcceptedInsertCompletesWhenStoppedConcurrently() throws Exception {
+        UserWriteBehind writeBehind = new UserWriteBehind(userMapper, transactionManager, 50, 1, 100);
+        writeBehind.start();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<List<CompletableFuture<User>>>> results = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            results.add(executor.submit(() -> {
+                List<CompletableFuture<User>> accepted = new ArrayList<>();
+                try {
+                    while (true) {
+                        accepted.add(writeBehind.insert(user()));
+                    }
+                } catch (IllegalStateException stopped) {
+                    return accepted;
+                }
+            }));
+        }
+        Thread.sleep(50);
+        writeBehind.stop();
+        long total = 0;
+        for (Future<List<CompletableFuture<User>>> result : results) {
+            for (CompletableFuture<User> future : result.get(5, TimeUnit.SECONDS)) {
+                // stop 返回时每个被接收的用户都已写入
+                assertTrue(future.isDone());
+                future.get();
+                total++;
+            }
+        }
+        executor.shutdown();
+        assertEquals(total, writeBehind.getRows());
+    }
+
+    @Test
+    public void leftoverUsersFailWhenStopTimesOut() throws Exception {
+        CountDownLatch blocked = new CountDownLatch(1);
+        when(userMapper.insertGenerated(anyList())).thenAnswer(invocation -> {
+            blocked.countDown();
+            // 数据库卡住，只能被中断
+            new CountDownLatch(1).await();
+            return 0;
+        });
+        UserWriteBehind writeBehind = new UserWriteBehind(userMapper, transactionManager, 1, 0, 10, 200);
+        writeBehind.start();
+        List<CompletableFuture<User>> futures = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            futures.add(writeBehind.insert(user()));
+        }
+        assertTrue(blocked.await(5, TimeUnit.SECONDS));
+
+        long start = System.nanoTime();
+        writeBehind.stop();
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+
+        for (CompletableFuture<User> future : futures) {
+            try {
+                future.get(1, TimeUnit.SECONDS);
+                fail("write should not succeed");
+            } catch (ExecutionException expected) {
+                // 被中断的那条和队列中剩余的都以异常结束
+            }
+        }
+        assertEquals(0, writeBehind.getRows());
+    }
+
+    private static User user() {
+        User user = new User();
+        user.setName("user");
+        user.setAge(20);
+        return user;
+    }
+}
@@ -0,0 +1 @@
+INSERT INTO user (name, age) SELECT CONCAT('user', X), MOD(X, 100) FROM SYSTEM_RANGE(1, 1000);
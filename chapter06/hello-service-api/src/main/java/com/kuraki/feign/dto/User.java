@@ -1,4 +1,4 @@
-package com.kuraki.dto;
+package com.kuraki.feign.dto;
 
 import lombok.AllArgsConstructor;
 import lombok.Data;
@@ -1,6 +1,7 @@
-package com.kuraki.service;
+package com.kuraki.feign.service;
 
-import com.kuraki.dto.User;
+import com.kuraki.feign.dto.User;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
@@ -16,5 +17,5 @@ public interface HelloService {
     User hello(@RequestHeader("name") String name, @RequestHeader("age") Integer age);
 
     @RequestMapping(value = "/hello6", method = RequestMethod.POST)
-    String hello(@RequestParam User user);
+    String hello(@RequestBody User user);
 }
@@ -0,0 +1,52 @@
+package com.kuraki.zuul.config;
+
+import com.netflix.client.config.CommonClientConfigKey;
+import com.netflix.client.config.IClientConfigKey;
+import com.netflix.config.ConfigurationManager;
+import com.netflix.http4.NFHttpClientFactory;
+import org.apache.commons.configuration.AbstractConfiguration;
+import org.apache.http.client.params.ClientPNames;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import javax.annotation.PostConstruct;
+import java.util.Map;
+
+/**
+ * 将 route-pool 配置写入对应 serviceId 的 ribbon 客户端配置。
+ * ribbon 客户端在第一次请求时才创建，所以这里必须在预热之前执行。
+ * 等待空闲连接的超时 ribbon 没有对应的配置，直接设置在按 serviceId 登记的 HttpClient 上，RestClient 创建时复用它。
+ */
+public class RoutePoolConfigurer {
+
+    private static Logger log = LoggerFactory.getLogger(RoutePoolConfigurer.class);
+
+    @Autowired
+    private RoutePoolProperties properties;
+
+    @PostConstruct
+    public void configure() {
+        AbstractConfiguration config = ConfigurationManager.getConfigInstance();
+        for (Map.Entry<String, RoutePoolProperties.Pool> entry : properties.getRoutes().entrySet()) {
+            String serviceId = entry.getKey();
+            RoutePoolProperties.Pool pool = entry.getValue();
+            set(config, serviceId, CommonClientConfigKey.EnableConnectionPool, true);
+            set(config, serviceId, CommonClientConfigKey.MaxTotalHttpConnections, pool.getMaxTotal());
+            set(config, serviceId, CommonClientConfigKey.MaxHttpConnectionsPerHost, pool.getMaxPerHost());
+            set(config, serviceId, CommonClientConfigKey.ConnIdleEvictTimeMilliSeconds, pool.getIdleEvictMs());
+            set(config, serviceId, CommonClientConfigKey.ConnectionCleanerRepeatInterval, pool.getEvictIntervalMs());
+            set(config, serviceId, CommonClientConfigKey.StaleCheckingEnabled, pool.isStaleCheck());
+            // 不设置时连接池耗尽的请求会一直等待，直到 hystrix 超时
+            NFHttpClientFactory.getNamedNFHttpClient(serviceId).getParams()
+                    .setLongParameter(ClientPNames.CONN_MANAGER_TIMEOUT, pool.getAcquireTimeoutMs());
+            log.info("route {} pool: maxTotal={}, maxPerHost={}, idleEvictMs={}, acquireTimeoutMs={}, staleCheck={}",
+                    serviceId, pool.getMaxTotal(), pool.getMaxPerHost(), pool.getIdleEvictMs(),
+                    pool.getAcquireTimeoutMs(), pool.isStaleCheck());
+        }
+    }
+
+    private void set(AbstractConfiguration config, String serviceId, IClientConfigKey<?> key, Object value) {
+        config.setProperty(serviceId + ".ribbon." + key.key(), value);
+    }
+}
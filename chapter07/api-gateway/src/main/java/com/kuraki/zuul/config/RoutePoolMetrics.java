@@ -0,0 +1,51 @@
+package com.kuraki.zuul.config;
+
+import com.netflix.http4.NFHttpClientFactory;
+import com.netflix.niws.client.http.RestClient;
+import org.apache.http.conn.ClientConnectionManager;
+import org.apache.http.impl.conn.tsccm.ThreadSafeClientConnManager;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.cloud.netflix.ribbon.SpringClientFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 在 /metrics 中按路由输出上游连接池状态：gateway.pool.{serviceId}.connections / max
+ */
+public class RoutePoolMetrics implements PublicMetrics {
+
+    @Autowired
+    private RoutePoolProperties properties;
+
+    @Autowired
+    private SpringClientFactory clientFactory;
+
+    @Override
+    public Collection<Metric<?>> metrics() {
+        List<Metric<?>> metrics = new ArrayList<>();
+        for (String serviceId : properties.getRoutes().keySet()) {
+            ThreadSafeClientConnManager manager = connectionManager(serviceId);
+            if (manager == null) {
+                continue;
+            }
+            String prefix = "gateway.pool." + serviceId;
+            metrics.add(new Metric<>(prefix + ".connections", manager.getConnectionsInPool()));
+            metrics.add(new Metric<>(prefix + ".max", manager.getMaxTotal()));
+            metrics.add(new Metric<>(prefix + ".maxPerHost", manager.getDefaultMaxPerRoute()));
+        }
+        return metrics;
+    }
+
+    /**
+     * RestClient 按 serviceId 在 NFHttpClientFactory 中登记底层的 HttpClient，先取 RestClient 保证它已创建
+     */
+    private ThreadSafeClientConnManager connectionManager(String serviceId) {
+        clientFactory.getClient(serviceId, RestClient.class);
+        ClientConnectionManager manager = NFHttpClientFactory.getNamedNFHttpClient(serviceId).getConnectionManager();
+        return manager instanceof ThreadSafeClientConnManager ? (ThreadSafeClientConnManager) manager : null;
+    }
+}
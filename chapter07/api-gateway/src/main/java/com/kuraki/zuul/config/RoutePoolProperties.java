@@ -0,0 +1,46 @@
+package com.kuraki.zuul.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 按路由配置上游连接池，key 为 serviceId
+ */
+@Data
+@ConfigurationProperties(prefix = "route-pool")
+public class RoutePoolProperties {
+
+    private Map<String, Pool> routes = new LinkedHashMap<>();
+
+    @Data
+    public static class Pool {
+
+        // 连接池总连接数
+        private int maxTotal = 200;
+
+        // 每个实例的最大连接数
+        private int maxPerHost = 50;
+
+        // 空闲连接超过该时间后被回收
+        private int idleEvictMs = 30000;
+
+        // 空闲连接清理线程的执行间隔
+        private int evictIntervalMs = 5000;
+
+        // 连接池耗尽时等待空闲连接的时间，超时后网关返回 503
+        private long acquireTimeoutMs = 1000;
+
+        // 复用连接前先检查是否已被上游关闭，每次检查要阻塞约 1ms；
+        // idleEvictMs 小于上游的 keep-alive 超时时可以关闭
+        private boolean staleCheck = true;
+
+        // 启动时对每个实例预热的连接数，0 表示不预热
+        private int warmUpConnections = 0;
+
+        // 预热请求的路径
+        private String warmUpPath = "/";
+    }
+}
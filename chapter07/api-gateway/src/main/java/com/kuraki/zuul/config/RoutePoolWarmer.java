@@ -0,0 +1,92 @@
+package com.kuraki.zuul.config;
+
+import com.netflix.client.http.HttpRequest;
+import com.netflix.client.http.HttpResponse;
+import com.netflix.loadbalancer.ILoadBalancer;
+import com.netflix.loadbalancer.Server;
+import com.netflix.niws.client.http.RestClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.cloud.netflix.ribbon.SpringClientFactory;
+import org.springframework.context.ApplicationListener;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * 应用启动完成后，对每个路由的每个实例并发建立 warmUpConnections 个连接，
+ * 避免第一批请求承担建连开销。某个实例预热失败不影响其他实例。
+ * 预热节省的建连耗时见 benchmark 模块的 RoutePoolWarmUpBenchmark
+ */
+public class RoutePoolWarmer implements ApplicationListener<ApplicationReadyEvent> {
+
+    private static Logger log = LoggerFactory.getLogger(RoutePoolWarmer.class);
+
+    @Autowired
+    private RoutePoolProperties properties;
+
+    @Autowired
+    private SpringClientFactory clientFactory;
+
+    @Override
+    public void onApplicationEvent(ApplicationReadyEvent event) {
+        for (Map.Entry<String, RoutePoolProperties.Pool> entry : properties.getRoutes().entrySet()) {
+            RoutePoolProperties.Pool pool = entry.getValue();
+            if (pool.getWarmUpConnections() <= 0) {
+                continue;
+            }
+            try {
+                warmUp(entry.getKey(), pool);
+            } catch (RuntimeException e) {
+                log.warn("route {} warm up failed: {}", entry.getKey(), e.getMessage());
+            }
+        }
+    }
+
+    private void warmUp(String serviceId, RoutePoolProperties.Pool pool) {
+        RestClient client = clientFactory.getClient(serviceId, RestClient.class);
+        ILoadBalancer loadBalancer = clientFactory.getLoadBalancer(serviceId);
+        ExecutorService executor = Executors.newFixedThreadPool(pool.getWarmUpConnections());
+        try {
+            for (Server server : loadBalancer.getAllServers()) {
+                URI uri = URI.create("http://" + server.getHostPort() + pool.getWarmUpPath());
+                try {
+                    long elapsed = round(executor, client, uri, pool.getWarmUpConnections());
+                    log.info("route {} warmed {} connections to {} in {} ms",
+                            serviceId, pool.getWarmUpConnections(), server.getHostPort(), elapsed);
+                } catch (Exception e) {
+                    log.warn("route {} warm up of {} failed: {}", serviceId, server.getHostPort(), e.getMessage());
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * 并发发出 connections 个请求，返回耗时（毫秒）。连接池中没有空闲连接时每个请求都要新建连接
+     */
+    public static long round(ExecutorService executor, RestClient client, URI uri, int connections) throws Exception {
+        List<Callable<Void>> tasks = new ArrayList<>(connections);
+        for (int i = 0; i < connections; i++) {
+            tasks.add(() -> {
+                HttpResponse response = client.execute(HttpRequest.newBuilder().uri(uri).build());
+                response.close();
+                return null;
+            });
+        }
+        long start = System.currentTimeMillis();
+        for (Future<Void> future : executor.invokeAll(tasks)) {
+            future.get();
+        }
+        return System.currentTimeMillis() - start;
+    }
+}
@@ -1,12 +1,15 @@
 package com.kuraki.zuul.config;
 
 import com.kuraki.zuul.filter.AccessFilter;
+import com.kuraki.zuul.filter.PoolExhaustedFilter;
 import org.springframework.boot.autoconfigure.web.DefaultErrorAttributes;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.cloud.netflix.zuul.filters.discovery.PatternServiceRouteMapper;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
 @Configuration
+@EnableConfigurationProperties(RoutePoolProperties.class)
 public class ZuulConfig {
 
     @Bean
@@ -14,6 +17,11 @@ public class ZuulConfig {
         return new AccessFilter();
     }
 
+    @Bean
+    public PoolExhaustedFilter poolExhaustedFilter() {
+        return new PoolExhaustedFilter();
+    }
+
     @Bean
     public PatternServiceRouteMapper serviceRouteMapper() {
         return new PatternServiceRouteMapper(
@@ -26,4 +34,19 @@ public class ZuulConfig {
     public DefaultErrorAttributes errorAttributes(){
         return new DidiErrorAttributes();
     }
+
+    @Bean
+    public RoutePoolConfigurer routePoolConfigurer() {
+        return new RoutePoolConfigurer();
+    }
+
+    @Bean
+    public RoutePoolWarmer routePoolWarmer() {
+        return new RoutePoolWarmer();
+    }
+
+    @Bean
+    public RoutePoolMetrics routePoolMetrics() {
+        return new RoutePoolMetrics();
+    }
 }
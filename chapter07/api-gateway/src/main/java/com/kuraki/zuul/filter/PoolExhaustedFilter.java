@@ -0,0 +1,54 @@
+package com.kuraki.zuul.filter;
+
+import com.netflix.zuul.ZuulFilter;
+import com.netflix.zuul.context.RequestContext;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+
+/**
+ * 上游连接池耗尽时 RibbonRoutingFilter 只记录 500，这里在 SendErrorFilter 之前改为 503，
+ * 客户端可以据此退避重试，监控上也能与上游返回的错误区分开。
+ * 等待连接的时间由 route-pool 的 acquire-timeout-ms 决定，超时后抛出 ConnectionPoolTimeoutException
+ */
+public class PoolExhaustedFilter extends ZuulFilter {
+
+    private static Logger log = LoggerFactory.getLogger(PoolExhaustedFilter.class);
+
+    public static final String ERROR_CAUSE = "POOL_EXHAUSTED";
+
+    @Override
+    public String filterType() {
+        return "post";
+    }
+
+    @Override
+    public int filterOrder() {
+        return -1;// 小于SendErrorFilter的值
+    }
+
+    @Override
+    public boolean shouldFilter() {
+        RequestContext ctx = RequestContext.getCurrentContext();
+        return ctx.containsKey("error.status_code") && poolTimeout((Throwable) ctx.get("error.exception"));
+    }
+
+    @Override
+    public Object run() {
+        RequestContext ctx = RequestContext.getCurrentContext();
+        log.warn("upstream connection pool exhausted for {}", ctx.get("serviceId"));
+        ctx.set("error.status_code", HttpStatus.SERVICE_UNAVAILABLE.value());
+        ctx.set("error.message", ERROR_CAUSE);
+        return null;
+    }
+
+    static boolean poolTimeout(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConnectionPoolTimeoutException) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
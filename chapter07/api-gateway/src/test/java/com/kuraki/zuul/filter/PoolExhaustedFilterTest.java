@@ -0,0 +1,133 @@
+package com.kuraki.zuul.filter;
+
+import com.kuraki.zuul.config.RoutePoolConfigurer;
+import com.kuraki.zuul.config.RoutePoolProperties;
+import com.netflix.client.config.DefaultClientConfigImpl;
+import com.netflix.client.http.HttpRequest;
+import com.netflix.niws.client.http.RestClient;
+import com.netflix.zuul.context.RequestContext;
+import com.netflix.zuul.exception.ZuulException;
+import com.netflix.zuul.monitoring.MonitoringHelper;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URI;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class PoolExhaustedFilterTest {
+
+    private static final String SERVICE_ID = "pool-exhausted-test";
+
+    private final List<Socket> accepted = new CopyOnWriteArrayList<>();
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    private ServerSocket upstream;
+
+    @Before
+    public void setUp() throws IOException {
+        // ZuulException 构造时要计数，与 ZuulConfiguration 一样用空实现
+        MonitoringHelper.initMocks();
+        // 只建立连接不响应，占住连接池中唯一的连接
+        upstream = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        executor.execute(() -> {
+            while (!upstream.isClosed()) {
+                try {
+                    accepted.add(upstream.accept());
+                } catch (IOException e) {
+                    return;
+                }
+            }
+        });
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        upstream.close();
+        for (Socket socket : accepted) {
+            socket.close();
+        }
+        executor.shutdownNow();
+        RequestContext.getCurrentContext().unset();
+    }
+
+    @Test
+    public void exhaustedPoolIsReportedAs503() throws Exception {
+        RoutePoolProperties.Pool pool = new RoutePoolProperties.Pool();
+        pool.setMaxPerHost(1);
+        pool.setAcquireTimeoutMs(200);
+        RoutePoolProperties properties = new RoutePoolProperties();
+        properties.getRoutes().put(SERVICE_ID, pool);
+        RoutePoolConfigurer configurer = new RoutePoolConfigurer();
+        ReflectionTestUtils.setField(configurer, "properties", properties);
+        configurer.configure();
+
+        // 与 SpringClientFactory 一样按 serviceId 读取 ribbon 配置
+        RestClient client = new RestClient(DefaultClientConfigImpl.getClientConfigWithDefaultValues(SERVICE_ID));
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://127.0.0.1:" + upstream.getLocalPort() + "/hello")).build();
+        executor.execute(() -> {
+            try {
+                client.execute(request);
+            } catch (Exception e) {
+                // 测试结束时上游关闭连接
+            }
+        });
+        long deadline = System.currentTimeMillis() + 5000;
+        while (accepted.isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, accepted.size());
+
+        long start = System.nanoTime();
+        Exception error = null;
+        try {
+            client.execute(request);
+            fail("expected the pool to be exhausted");
+        } catch (Exception e) {
+            error = e;
+        }
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 2000);
+        assertTrue(PoolExhaustedFilter.poolTimeout(error));
+
+        RequestContext context = failedRoute(error);
+        PoolExhaustedFilter filter = new PoolExhaustedFilter();
+        assertTrue(filter.shouldFilter());
+        filter.run();
+        assertEquals(503, context.get("error.status_code"));
+        assertEquals(PoolExhaustedFilter.ERROR_CAUSE, context.get("error.message"));
+    }
+
+    @Test
+    public void otherRoutingErrorsKeepTheirStatus() {
+        failedRoute(new ConnectException("Connection refused"));
+        assertFalse(new PoolExhaustedFilter().shouldFilter());
+    }
+
+    /**
+     * 与 RibbonRoutingFilter 转发失败时写入的内容相同
+     */
+    private static RequestContext failedRoute(Throwable cause) {
+        RequestContext context = RequestContext.getCurrentContext();
+        ZuulException error = new ZuulException(cause, "Forwarding error", 500, "GENERAL");
+        context.set("error.status_code", error.nStatusCode);
+        context.set("error.exception", error);
+        return context;
+    }
+}
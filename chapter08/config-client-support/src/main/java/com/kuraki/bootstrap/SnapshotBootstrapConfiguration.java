@@ -0,0 +1,49 @@
+package com.kuraki.bootstrap;
+
+import com.kuraki.config.snapshot.SnapshotConfigServicePropertySourceLocator;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cloud.config.client.ConfigClientProperties;
+import org.springframework.cloud.config.client.ConfigServicePropertySourceLocator;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import java.io.File;
+
+/**
+ * spring.cloud.config.snapshot.enabled=true 时替换默认的 ConfigServicePropertySourceLocator。
+ * ConfigServiceBootstrapConfiguration 声明 locator 时没有 @ConditionalOnMissingBean，同名的 bean 会被它覆盖，
+ * 所以在它创建 locator 之后再替换成 SnapshotConfigServicePropertySourceLocator。
+ * 放在 com.kuraki.config 之外，避免被主应用的组件扫描加载
+ */
+@Configuration
+@ConditionalOnProperty(name = "spring.cloud.config.snapshot.enabled", havingValue = "true")
+public class SnapshotBootstrapConfiguration {
+
+    private static final String SNAPSHOT_PATH =
+            "${spring.cloud.config.snapshot.path:${user.home}/.config-snapshot/${spring.application.name:application}.json}";
+
+    @Bean
+    public static BeanPostProcessor configSnapshotPostProcessor(final Environment environment,
+                                                                final BeanFactory beanFactory) {
+        return new BeanPostProcessor() {
+
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) throws BeansException {
+                return bean;
+            }
+
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) throws BeansException {
+                if (bean.getClass() == ConfigServicePropertySourceLocator.class) {
+                    return new SnapshotConfigServicePropertySourceLocator(beanFactory.getBean(ConfigClientProperties.class),
+                            new File(environment.resolvePlaceholders(SNAPSHOT_PATH)));
+                }
+                return bean;
+            }
+        };
+    }
+}
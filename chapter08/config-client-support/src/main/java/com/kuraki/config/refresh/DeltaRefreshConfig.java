@@ -0,0 +1,19 @@
+package com.kuraki.config.refresh;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cloud.context.scope.refresh.RefreshScope;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * refresh.delta.enabled=true 时使用增量刷新，替换默认的 RefreshScope
+ */
+@Configuration
+@ConditionalOnProperty(name = "refresh.delta.enabled", havingValue = "true")
+public class DeltaRefreshConfig {
+
+    @Bean
+    public static RefreshScope refreshScope() {
+        return new DeltaRefreshScope();
+    }
+}
@@ -0,0 +1,298 @@
+package com.kuraki.config.refresh;
+
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.ObjectFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.beans.factory.support.AbstractBeanDefinition;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.cloud.context.config.BeanLifecycleDecorator;
+import org.springframework.cloud.context.config.StandardBeanLifecycleDecorator;
+import org.springframework.cloud.context.environment.EnvironmentChangeEvent;
+import org.springframework.cloud.context.scope.refresh.RefreshScope;
+import org.springframework.cloud.context.scope.refresh.RefreshScopeRefreshedEvent;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationListener;
+import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ReflectionUtils;
+
+import javax.annotation.PostConstruct;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 增量刷新的 RefreshScope。
+ * 默认的 refreshAll() 会销毁所有 @RefreshScope bean，下一次调用时再重新创建；
+ * 这里根据 EnvironmentChangeEvent 中变化的 key，只处理引用了这些 key 的 bean：
+ * 只通过 @Value 字段注入配置的 bean 直接原地更新字段；其余 bean（@ConfigurationProperties、
+ * 带初始化方法或 @PostConstruct、由 @Bean 方法创建、没有 @Value 字段等）无法判断依赖，仍然销毁后重新创建。
+ * RefreshScope 为每个 bean 包装一层代理，调用时持有该 bean 的读锁、销毁时持有写锁；
+ * 这里在同一个写锁内一次写入所有字段，等正在执行的调用结束后才更新，之后的调用都能看到完整的新值。
+ * 刷新完成后与默认实现一样发布 RefreshScopeRefreshedEvent。
+ */
+public class DeltaRefreshScope extends RefreshScope implements ApplicationListener<EnvironmentChangeEvent> {
+
+    private static final Pattern PLACEHOLDER = Pattern.compile("\\$\\{([^}:]+)");
+
+    private ConfigurableListableBeanFactory beanFactory;
+
+    // 已创建的 bean，key 为 scopedTarget.xxx
+    private final Map<String, Instance> instances = new ConcurrentHashMap<>();
+
+    // decorateBean 返回的代理到原始 bean 和锁的映射，get 取出后放入 instances
+    private final Map<Object, Instance> decorated = Collections.synchronizedMap(new IdentityHashMap<>());
+
+    private boolean proxyTargetClass;
+
+    // 每个类的 @Value 字段，null 表示不能原地更新
+    private final Map<Class<?>, List<ValueField>> valueFields = new ConcurrentHashMap<>();
+
+    private final Set<String> changedKeys = Collections.newSetFromMap(new ConcurrentHashMap<>());
+
+    private ApplicationContext context;
+
+    public DeltaRefreshScope() {
+        setBeanLifecycleManager(new LockTrackingDecorator());
+    }
+
+    @Override
+    public void setProxyTargetClass(boolean proxyTargetClass) {
+        super.setProxyTargetClass(proxyTargetClass);
+        this.proxyTargetClass = proxyTargetClass;
+    }
+
+    @Override
+    public void postProcessBeanFactory(ConfigurableListableBeanFactory beanFactory) throws BeansException {
+        super.postProcessBeanFactory(beanFactory);
+        this.beanFactory = beanFactory;
+    }
+
+    @Override
+    public void setApplicationContext(ApplicationContext context) throws BeansException {
+        super.setApplicationContext(context);
+        this.context = context;
+    }
+
+    @Override
+    public Object get(String name, ObjectFactory<?> objectFactory) {
+        Object bean = super.get(name, objectFactory);
+        Instance instance = instances.get(name);
+        if (instance == null || instance.bean != bean) {
+            instance = decorated.remove(bean);
+            if (instance != null) {
+                instances.put(name, instance);
+            }
+        }
+        return bean;
+    }
+
+    @Override
+    public void onApplicationEvent(EnvironmentChangeEvent event) {
+        changedKeys.addAll(event.getKeys());
+    }
+
+    @Override
+    public void refreshAll() {
+        if (changedKeys.isEmpty()) {
+            instances.clear();
+            decorated.clear();
+            super.refreshAll();
+            return;
+        }
+        Set<String> keys = new HashSet<>(changedKeys);
+        changedKeys.clear();
+        for (Map.Entry<String, Instance> entry : instances.entrySet()) {
+            if (!updateInPlace(entry.getKey(), entry.getValue(), keys)
+                    && instances.remove(entry.getKey(), entry.getValue())) {
+                refresh(entry.getKey());
+            }
+        }
+        context.publishEvent(new RefreshScopeRefreshedEvent());
+    }
+
+    /**
+     * 先解析出所有变化字段的新值再一起写入，任何一个转换失败都不修改 bean
+     */
+    private boolean updateInPlace(String name, Instance instance, Set<String> keys) {
+        BeanDefinition definition = beanFactory.containsBeanDefinition(name) ? beanFactory.getMergedBeanDefinition(name) : null;
+        if (definition == null || definition.getFactoryMethodName() != null
+                || (definition instanceof AbstractBeanDefinition
+                && ((AbstractBeanDefinition) definition).getInitMethodName() != null)) {
+            return false;
+        }
+        List<ValueField> fields = valueFields.computeIfAbsent(ClassUtils.getUserClass(instance.target), this::findValueFields);
+        if (fields == null) {
+            return false;
+        }
+        Map<ValueField, Object> values = new HashMap<>();
+        try {
+            for (ValueField field : fields) {
+                if (field.dependsOn(keys)) {
+                    values.put(field, field.resolve());
+                }
+            }
+        } catch (RuntimeException e) {
+            return false;
+        }
+        if (values.isEmpty()) {
+            return true;
+        }
+        Lock lock = instance.lock == null ? null : instance.lock.writeLock();
+        if (lock != null) {
+            lock.lock();
+        }
+        try {
+            for (Map.Entry<ValueField, Object> value : values.entrySet()) {
+                value.getKey().set(instance.target, value.getValue());
+            }
+        } finally {
+            if (lock != null) {
+                lock.unlock();
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 可以原地更新时返回所有 @Value 字段，否则返回 null
+     */
+    private List<ValueField> findValueFields(Class<?> type) {
+        if (AnnotationUtils.findAnnotation(type, ConfigurationProperties.class) != null
+                || InitializingBean.class.isAssignableFrom(type) || hasValueOnMethods(type)) {
+            return null;
+        }
+        List<ValueField> fields = new ArrayList<>();
+        for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+            for (Field field : current.getDeclaredFields()) {
+                Value value = field.getAnnotation(Value.class);
+                if (value == null) {
+                    continue;
+                }
+                if (value.value().contains("#{")) {
+                    // SpEL 表达式无法判断依赖的 key
+                    return null;
+                }
+                fields.add(new ValueField(field, value.value()));
+            }
+        }
+        // 没有 @Value 字段的 bean 可能通过其他方式读取配置
+        return fields.isEmpty() ? null : fields;
+    }
+
+    private boolean hasValueOnMethods(Class<?> type) {
+        for (Method method : ReflectionUtils.getAllDeclaredMethods(type)) {
+            // @PostConstruct 中由配置计算出的状态不会随字段更新
+            if (method.isAnnotationPresent(Value.class) || method.isAnnotationPresent(PostConstruct.class)
+                    || hasValueParameter(method.getParameterAnnotations())) {
+                return true;
+            }
+        }
+        for (Constructor<?> constructor : type.getDeclaredConstructors()) {
+            if (hasValueParameter(constructor.getParameterAnnotations())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean hasValueParameter(Annotation[][] parameterAnnotations) {
+        for (Annotation[] annotations : parameterAnnotations) {
+            for (Annotation annotation : annotations) {
+                if (annotation instanceof Value) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private class ValueField {
+
+        private final Field field;
+
+        private final String expression;
+
+        private final Set<String> keys = new HashSet<>();
+
+        ValueField(Field field, String expression) {
+            this.field = field;
+            this.expression = expression;
+            Matcher matcher = PLACEHOLDER.matcher(expression);
+            while (matcher.find()) {
+                keys.add(matcher.group(1));
+            }
+            ReflectionUtils.makeAccessible(field);
+        }
+
+        boolean dependsOn(Set<String> changed) {
+            for (String key : keys) {
+                if (changed.contains(key)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        Object resolve() {
+            String resolved = beanFactory.resolveEmbeddedValue(expression);
+            return beanFactory.getTypeConverter().convertIfNecessary(resolved, field.getType(), field);
+        }
+
+        void set(Object bean, Object value) {
+            ReflectionUtils.setField(field, bean, value);
+        }
+    }
+
+    /**
+     * 沿用 RefreshScope 默认的 StandardBeanLifecycleDecorator，同时记下原始 bean 和它的锁
+     */
+    private class LockTrackingDecorator implements BeanLifecycleDecorator<ReadWriteLock> {
+
+        @Override
+        public Object decorateBean(Object bean, Context<ReadWriteLock> context) {
+            Object result = new StandardBeanLifecycleDecorator(proxyTargetClass).decorateBean(bean, context);
+            decorated.put(result, new Instance(result, bean, context == null ? null : context.getAuxiliary()));
+            return result;
+        }
+
+        @Override
+        public Context<ReadWriteLock> decorateDestructionCallback(Runnable callback) {
+            return new StandardBeanLifecycleDecorator(proxyTargetClass).decorateDestructionCallback(callback);
+        }
+    }
+
+    private static class Instance {
+
+        // scope 返回的对象，可能是加锁的代理
+        private final Object bean;
+
+        private final Object target;
+
+        // 没有销毁回调的 bean 没有锁
+        private final ReadWriteLock lock;
+
+        Instance(Object bean, Object target, ReadWriteLock lock) {
+            this.bean = bean;
+            this.target = target;
+            this.lock = lock;
+        }
+    }
+}
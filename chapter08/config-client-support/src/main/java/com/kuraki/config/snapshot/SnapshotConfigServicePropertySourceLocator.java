@@ -0,0 +1,152 @@
+package com.kuraki.config.snapshot;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cloud.config.client.ConfigClientProperties;
+import org.springframework.cloud.config.client.ConfigServicePropertySourceLocator;
+import org.springframework.core.env.CompositePropertySource;
+import org.springframework.core.env.EnumerablePropertySource;
+import org.springframework.core.env.Environment;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.env.PropertySource;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 带本地快照的配置中心客户端。
+ * 进程第一次加载配置时如果存在快照，直接用快照启动，不等待配置中心；
+ * 之后的加载（/refresh、bus 刷新、启动后的校准）都从配置中心获取，成功后覆盖快照，
+ * 配置中心不可用时仍返回快照，避免刷新后丢掉配置中心提供的所有属性。
+ */
+public class SnapshotConfigServicePropertySourceLocator extends ConfigServicePropertySourceLocator {
+
+    private static Logger logger = LoggerFactory.getLogger(SnapshotConfigServicePropertySourceLocator.class);
+
+    // 每次刷新都会重建 bootstrap 上下文，所以这里用静态变量
+    private static final AtomicBoolean FIRST_LOAD = new AtomicBoolean(true);
+
+    private static volatile boolean startedFromSnapshot;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final File snapshot;
+
+    public SnapshotConfigServicePropertySourceLocator(ConfigClientProperties properties, File snapshot) {
+        super(properties);
+        this.snapshot = snapshot;
+    }
+
+    public static boolean isStartedFromSnapshot() {
+        return startedFromSnapshot;
+    }
+
+    @Override
+    public PropertySource<?> locate(Environment environment) {
+        if (FIRST_LOAD.compareAndSet(true, false) && snapshot.isFile()) {
+            long start = System.currentTimeMillis();
+            try {
+                PropertySource<?> source = load();
+                startedFromSnapshot = true;
+                logger.info("Loaded config snapshot {} in {} ms", snapshot, System.currentTimeMillis() - start);
+                return source;
+            } catch (IOException e) {
+                logger.warn("Could not load config snapshot {}: {}", snapshot, e.getMessage());
+            }
+        }
+        RuntimeException failure = null;
+        try {
+            PropertySource<?> source = fetch(environment);
+            if (source != null) {
+                return source;
+            }
+        } catch (RuntimeException e) {
+            // fail-fast 时配置中心不可用会抛出异常
+            failure = e;
+        }
+        if (snapshot.isFile()) {
+            try {
+                PropertySource<?> source = load();
+                logger.warn("Config server unavailable, using config snapshot {}", snapshot);
+                return source;
+            } catch (IOException e) {
+                logger.warn("Could not load config snapshot {}: {}", snapshot, e.getMessage());
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        return null;
+    }
+
+    /**
+     * 只从配置中心获取，成功时覆盖快照。配置中心不可用时返回 null，fail-fast 时抛出异常
+     */
+    public PropertySource<?> fetch(Environment environment) {
+        PropertySource<?> source = super.locate(environment);
+        if (source instanceof CompositePropertySource) {
+            save((CompositePropertySource) source);
+        }
+        return source;
+    }
+
+    private PropertySource<?> load() throws IOException {
+        try (FileChannel channel = FileChannel.open(snapshot.toPath(), StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            List<Map<String, Object>> sources;
+            try (InputStream in = new ByteBufferBackedInputStream(buffer)) {
+                sources = objectMapper.readValue(in, new TypeReference<List<Map<String, Object>>>() {});
+            }
+            CompositePropertySource composite = new CompositePropertySource("configService");
+            for (Map<String, Object> source : sources) {
+                @SuppressWarnings("unchecked")
+                Map<String, Object> values = (Map<String, Object>) source.get("source");
+                composite.addPropertySource(new MapPropertySource((String) source.get("name"), values));
+            }
+            return composite;
+        }
+    }
+
+    private void save(CompositePropertySource composite) {
+        List<Map<String, Object>> sources = new ArrayList<>();
+        for (PropertySource<?> source : composite.getPropertySources()) {
+            if (!(source instanceof EnumerablePropertySource)) {
+                continue;
+            }
+            EnumerablePropertySource<?> enumerable = (EnumerablePropertySource<?>) source;
+            Map<String, Object> values = new LinkedHashMap<>();
+            for (String name : enumerable.getPropertyNames()) {
+                values.put(name, enumerable.getProperty(name));
+            }
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("name", source.getName());
+            item.put("source", values);
+            sources.add(item);
+        }
+        try {
+            // 先写临时文件再替换，避免读到写了一半的快照
+            Path target = snapshot.toPath();
+            Files.createDirectories(target.toAbsolutePath().getParent());
+            Path temp = Files.createTempFile(target.toAbsolutePath().getParent(), snapshot.getName(), ".tmp");
+            objectMapper.writeValue(temp.toFile(), sources);
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.warn("Could not write config snapshot {}: {}", snapshot, e.getMessage());
+        }
+    }
+}
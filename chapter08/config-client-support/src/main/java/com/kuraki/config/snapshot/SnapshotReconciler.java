@@ -0,0 +1,91 @@
+package com.kuraki.config.snapshot;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.cloud.context.refresh.ContextRefresher;
+import org.springframework.context.ApplicationListener;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+
+/**
+ * 使用快照启动后，在后台从配置中心刷新一次，校准快照与配置中心的差异。
+ * 先确认能从配置中心获取到配置再刷新，配置中心不可用时按 retry-initial-ms 起指数退避重试（最长 5 分钟）
+ */
+@Component
+public class SnapshotReconciler implements ApplicationListener<ApplicationReadyEvent>, DisposableBean {
+
+    private static Logger logger = LoggerFactory.getLogger(SnapshotReconciler.class);
+
+    private static final long MAX_RETRY_DELAY_MS = 300000;
+
+    @Autowired
+    private ContextRefresher contextRefresher;
+
+    // 定义在 bootstrap 上下文中，即主应用上下文的父上下文
+    @Autowired(required = false)
+    private SnapshotConfigServicePropertySourceLocator locator;
+
+    @Autowired
+    private Environment environment;
+
+    @Value("${spring.cloud.config.snapshot.retry-initial-ms:1000}")
+    private long retryInitialMs;
+
+    private volatile Thread thread;
+
+    @Override
+    public void onApplicationEvent(ApplicationReadyEvent event) {
+        if (!SnapshotConfigServicePropertySourceLocator.isStartedFromSnapshot() || locator == null || thread != null) {
+            return;
+        }
+        thread = new Thread(this::reconcile, "config-snapshot-reconciler");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public void destroy() {
+        Thread current = thread;
+        if (current != null) {
+            current.interrupt();
+        }
+    }
+
+    private void reconcile() {
+        long delay = retryInitialMs;
+        while (!Thread.currentThread().isInterrupted()) {
+            if (fetched()) {
+                try {
+                    // 刷新时再次加载；此时配置中心又不可用也只会用到刚写入的快照
+                    Set<String> keys = contextRefresher.refresh();
+                    logger.info("Reconciled config snapshot, changed keys: {}", keys);
+                } catch (Exception e) {
+                    logger.warn("Could not reconcile config snapshot: {}", e.getMessage());
+                }
+                return;
+            }
+            logger.info("Config server unavailable, retrying snapshot reconcile in {} ms", delay);
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                return;
+            }
+            delay = Math.min(delay * 2, MAX_RETRY_DELAY_MS);
+        }
+    }
+
+    private boolean fetched() {
+        try {
+            return locator.fetch(environment) != null;
+        } catch (RuntimeException e) {
+            logger.debug("Could not fetch config: {}", e.getMessage());
+            return false;
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.kuraki.config.refresh;
+
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+import org.springframework.cloud.context.environment.EnvironmentChangeEvent;
+import org.springframework.cloud.context.scope.refresh.RefreshScope;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.support.PropertySourcesPlaceholderConfigurer;
+import org.springframework.core.env.MapPropertySource;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 多个线程持续调用 @RefreshScope bean 的同时反复刷新，对比默认 RefreshScope 和 DeltaRefreshScope 的调用延迟。
+ * 默认实现刷新后由下一次调用重新创建 bean，创建期间的调用都要等待
+ */
+public class DeltaRefreshScopeLatencyTest {
+
+    private static Logger logger = LoggerFactory.getLogger(DeltaRefreshScopeLatencyTest.class);
+
+    private static final int THREADS = 8;
+
+    private static final int REFRESHES = 5;
+
+    private static final long REFRESH_INTERVAL_MS = 300;
+
+    // 创建 bean 的耗时，比如建立连接池
+    static final long CREATE_MS = 200;
+
+    @Test
+    public void refreshDoesNotStallCalls() throws Exception {
+        List<Long> full = latencies(RefreshScope.class);
+        List<Long> delta = latencies(DeltaRefreshScope.class);
+        logger.info("RefreshScope: {}", summary(full));
+        logger.info("DeltaRefreshScope: {}", summary(delta));
+
+        assertTrue(summary(full), max(full) >= TimeUnit.MILLISECONDS.toNanos(CREATE_MS));
+        assertTrue(summary(delta), max(delta) < TimeUnit.MILLISECONDS.toNanos(CREATE_MS) / 2);
+    }
+
+    /**
+     * 返回刷新期间每次调用的耗时（纳秒），已排序
+     */
+    private List<Long> latencies(Class<? extends RefreshScope> scopeType) throws Exception {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("from", "git-dev-0");
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+        context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("test", properties));
+        context.registerBeanDefinition("placeholderConfigurer",
+                new RootBeanDefinition(PropertySourcesPlaceholderConfigurer.class));
+        context.registerBeanDefinition("refreshScope", new RootBeanDefinition(scopeType));
+        context.register(SlowBean.class);
+        context.refresh();
+        RefreshScope scope = context.getBean(RefreshScope.class);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            SlowBean bean = context.getBean(SlowBean.class);
+            bean.getFrom();
+            AtomicBoolean running = new AtomicBoolean(true);
+            List<Future<List<Long>>> results = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                results.add(executor.submit(() -> {
+                    List<Long> samples = new ArrayList<>();
+                    while (running.get()) {
+                        long start = System.nanoTime();
+                        bean.getFrom();
+                        samples.add(System.nanoTime() - start);
+                        // 请求之间的其他处理
+                        LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(200));
+                    }
+                    return samples;
+                }));
+            }
+            for (int i = 1; i <= REFRESHES; i++) {
+                Thread.sleep(REFRESH_INTERVAL_MS);
+                properties.put("from", "git-dev-" + i);
+                context.publishEvent(new EnvironmentChangeEvent(Collections.singleton("from")));
+                scope.refreshAll();
+            }
+            Thread.sleep(REFRESH_INTERVAL_MS);
+            running.set(false);
+            List<Long> latencies = new ArrayList<>();
+            for (Future<List<Long>> result : results) {
+                latencies.addAll(result.get(10, TimeUnit.SECONDS));
+            }
+            assertEquals("git-dev-" + REFRESHES, bean.getFrom());
+            Collections.sort(latencies);
+            return latencies;
+        } finally {
+            executor.shutdownNow();
+            context.close();
+        }
+    }
+
+    private static long max(List<Long> sorted) {
+        return sorted.get(sorted.size() - 1);
+    }
+
+    private static String summary(List<Long> sorted) {
+        return String.format("%d calls, p50 %d us, p99 %d us, p99.9 %d us, max %d ms", sorted.size(),
+                TimeUnit.NANOSECONDS.toMicros(sorted.get(sorted.size() / 2)),
+                TimeUnit.NANOSECONDS.toMicros(sorted.get((int) (sorted.size() * 0.99))),
+                TimeUnit.NANOSECONDS.toMicros(sorted.get((int) (sorted.size() * 0.999))),
+                TimeUnit.NANOSECONDS.toMillis(max(sorted)));
+    }
+
+    @org.springframework.cloud.context.config.annotation.RefreshScope
+    public static class SlowBean {
+
+        @Value("${from}")
+        private String from;
+
+        public SlowBean() throws InterruptedException {
+            Thread.sleep(CREATE_MS);
+        }
+
+        public String getFrom() {
+            return from;
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package com.kuraki.config.refresh;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.cloud.context.environment.EnvironmentChangeEvent;
+import org.springframework.cloud.context.scope.refresh.RefreshScope;
+import org.springframework.cloud.context.scope.refresh.RefreshScopeRefreshedEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.support.PropertySourcesPlaceholderConfigurer;
+import org.springframework.core.env.MapPropertySource;
+
+import javax.annotation.PostConstruct;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class DeltaRefreshScopeTest {
+
+    private final Map<String, Object> properties = new HashMap<>();
+
+    private AnnotationConfigApplicationContext context;
+
+    @Before
+    public void setUp() {
+        properties.put("from", "git-dev-1.0");
+        properties.put("greeting.text", "hello");
+        properties.put("other", "a");
+        context = new AnnotationConfigApplicationContext();
+        context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("test", properties));
+        // 与 TestController 一样由注解声明的 bean 才能原地更新
+        context.register(TestConfig.class, ValueBean.class, DerivedBean.class);
+        context.refresh();
+    }
+
+    @After
+    public void tearDown() {
+        context.close();
+    }
+
+    @Test
+    public void valueFieldsAreUpdatedInPlace() {
+        ValueBean bean = context.getBean(ValueBean.class);
+        assertEquals("git-dev-1.0", bean.getFrom());
+        int created = ValueBean.CREATED.get();
+
+        change("from", "git-dev-2.0");
+
+        assertEquals("git-dev-2.0", bean.getFrom());
+        assertEquals(created, ValueBean.CREATED.get());
+    }
+
+    @Test
+    public void updateWaitsForCallsInProgress() throws Exception {
+        ValueBean bean = context.getBean(ValueBean.class);
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        FutureTask<String> call = new FutureTask<>(() -> bean.fromAfter(entered, release));
+        new Thread(call).start();
+        assertTrue(entered.await(1, TimeUnit.SECONDS));
+
+        FutureTask<Void> refresh = new FutureTask<>(() -> change("from", "git-dev-2.0"), null);
+        new Thread(refresh).start();
+        // 正在执行的调用持有读锁，字段等它结束后才写入
+        Thread.sleep(200);
+        assertFalse(refresh.isDone());
+        release.countDown();
+        assertEquals("git-dev-1.0", call.get(1, TimeUnit.SECONDS));
+        refresh.get(1, TimeUnit.SECONDS);
+        assertEquals("git-dev-2.0", bean.getFrom());
+    }
+
+    @Test
+    public void beansWithoutValueFieldsAreRecreated() {
+        GreetingProperties greeting = context.getBean(GreetingProperties.class);
+        DerivedBean derived = context.getBean(DerivedBean.class);
+        assertEquals("hello", greeting.getText());
+        assertEquals("HELLO", derived.getUpper());
+
+        change("greeting.text", "bonjour");
+
+        // @ConfigurationProperties 和 @PostConstruct 的状态只能重新创建
+        assertEquals("bonjour", greeting.getText());
+        assertEquals("BONJOUR", derived.getUpper());
+    }
+
+    @Test
+    public void refreshedEventIsPublished() {
+        context.getBean(ValueBean.class).getFrom();
+        List<RefreshScopeRefreshedEvent> events = context.getBean(TestConfig.class).events;
+        events.clear();
+
+        change("other", "b");
+
+        assertTrue(events.size() >= 1);
+        assertEquals(RefreshScopeRefreshedEvent.DEFAULT_NAME, events.get(events.size() - 1).getName());
+    }
+
+    private void change(String key, String value) {
+        properties.put(key, value);
+        context.publishEvent(new EnvironmentChangeEvent(new HashSet<>(Arrays.asList(key))));
+        context.getBean(RefreshScope.class).refreshAll();
+    }
+
+    @Configuration
+    @EnableConfigurationProperties
+    static class TestConfig implements ApplicationListener<RefreshScopeRefreshedEvent> {
+
+        private final List<RefreshScopeRefreshedEvent> events = new CopyOnWriteArrayList<>();
+
+        @Bean
+        public static PropertySourcesPlaceholderConfigurer placeholderConfigurer() {
+            return new PropertySourcesPlaceholderConfigurer();
+        }
+
+        @Bean
+        public static RefreshScope refreshScope() {
+            return new DeltaRefreshScope();
+        }
+
+        @Bean
+        @org.springframework.cloud.context.config.annotation.RefreshScope
+        public GreetingProperties greetingProperties() {
+            return new GreetingProperties();
+        }
+
+        @Override
+        public void onApplicationEvent(RefreshScopeRefreshedEvent event) {
+            events.add(event);
+        }
+    }
+
+    @ConfigurationProperties("greeting")
+    public static class GreetingProperties {
+
+        private String text;
+
+        public String getText() {
+            return text;
+        }
+
+        public void setText(String text) {
+            this.text = text;
+        }
+    }
+
+    @org.springframework.cloud.context.config.annotation.RefreshScope
+    public static class ValueBean {
+
+        static final AtomicInteger CREATED = new AtomicInteger();
+
+        @Value("${from}")
+        private String from;
+
+        public ValueBean() {
+            CREATED.incrementAndGet();
+        }
+
+        public String getFrom() {
+            return from;
+        }
+
+        public String fromAfter(CountDownLatch entered, CountDownLatch release) throws InterruptedException {
+            entered.countDown();
+            release.await(1, TimeUnit.SECONDS);
+            return from;
+        }
+    }
+
+    @org.springframework.cloud.context.config.annotation.RefreshScope
+    public static class DerivedBean {
+
+        @Value("${greeting.text}")
+        private String text;
+
+        private String upper;
+
+        @PostConstruct
+        public void init() {
+            upper = text.toUpperCase();
+        }
+
+        public String getUpper() {
+            return upper;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.kuraki.config.snapshot;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.cloud.config.client.ConfigClientProperties;
+import org.springframework.core.env.PropertySource;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class SnapshotConfigServicePropertySourceLocatorTest {
+
+    private File snapshot;
+
+    private MockEnvironment environment;
+
+    private SnapshotConfigServicePropertySourceLocator locator;
+
+    private HttpServer server;
+
+    private int port;
+
+    @Before
+    public void setUp() throws IOException {
+        snapshot = File.createTempFile("config-snapshot", ".json");
+        Files.write(snapshot.toPath(), "[{\"name\":\"snapshot\",\"source\":{\"from\":\"snapshot\"}}]"
+                .getBytes(StandardCharsets.UTF_8));
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        environment = new MockEnvironment().withProperty("spring.application.name", "config-client");
+        ConfigClientProperties properties = new ConfigClientProperties(environment);
+        properties.setUri("http://localhost:" + port);
+        locator = new SnapshotConfigServicePropertySourceLocator(properties, snapshot);
+    }
+
+    @After
+    public void tearDown() {
+        if (server != null) {
+            server.stop(0);
+        }
+        snapshot.delete();
+    }
+
+    /**
+     * FIRST_LOAD 是静态的，启动、刷新、恢复的顺序放在同一个用例中
+     */
+    @Test
+    public void fallsBackToSnapshotUntilServerIsReachable() throws IOException {
+        // 启动：直接使用快照
+        assertEquals("snapshot", locator.locate(environment).getProperty("from"));
+        assertTrue(SnapshotConfigServicePropertySourceLocator.isStartedFromSnapshot());
+
+        // 配置中心不可用时的刷新：仍返回快照，而不是 null
+        PropertySource<?> refreshed = locator.locate(environment);
+        assertEquals("snapshot", refreshed.getProperty("from"));
+        assertNull(locator.fetch(environment));
+
+        // 配置中心恢复后使用配置中心的值并覆盖快照
+        startServer();
+        assertEquals("server", locator.fetch(environment).getProperty("from"));
+        assertTrue(new String(Files.readAllBytes(snapshot.toPath()), StandardCharsets.UTF_8).contains("server"));
+
+        // 再次不可用时回退到新的快照
+        server.stop(0);
+        server = null;
+        assertEquals("server", locator.locate(environment).getProperty("from"));
+    }
+
+    private void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", port), 0);
+        server.createContext("/", exchange -> {
+            byte[] body = ("{\"name\":\"config-client\",\"profiles\":[\"default\"],\"label\":\"master\","
+                    + "\"propertySources\":[{\"name\":\"git:config-client.properties\",\"source\":{\"from\":\"server\"}}]}")
+                    .getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+    }
+}
@@ -0,0 +1,116 @@
+package com.kuraki.config.snapshot;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 配置中心每次响应都延迟 DELAY_MS 时，对比有无快照的启动耗时
+ */
+public class SnapshotStartupTest {
+
+    private static Logger logger = LoggerFactory.getLogger(SnapshotStartupTest.class);
+
+    private static final long DELAY_MS = 2000;
+
+    private final AtomicInteger requests = new AtomicInteger();
+
+    private HttpServer server;
+
+    private File snapshot;
+
+    @Before
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", exchange -> {
+            requests.incrementAndGet();
+            try {
+                Thread.sleep(DELAY_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            byte[] body = ("{\"name\":\"config-client\",\"profiles\":[\"default\"],\"label\":\"master\","
+                    + "\"propertySources\":[{\"name\":\"git:config-client.properties\",\"source\":{\"from\":\"server\"}}]}")
+                    .getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+        snapshot = File.createTempFile("config-snapshot", ".json");
+        Files.write(snapshot.toPath(), "[{\"name\":\"snapshot\",\"source\":{\"from\":\"snapshot\"}}]"
+                .getBytes(StandardCharsets.UTF_8));
+        resetFirstLoad();
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+        snapshot.delete();
+        resetFirstLoad();
+    }
+
+    @Test
+    public void snapshotStartupDoesNotWaitForServer() {
+        long withoutSnapshot = start(false, "server");
+        assertEquals(1, requests.get());
+        long withSnapshot = start(true, "snapshot");
+        assertEquals(1, requests.get());
+        logger.info("Startup with a config server delayed by {} ms: without snapshot {} ms, with snapshot {} ms",
+                DELAY_MS, withoutSnapshot, withSnapshot);
+
+        assertTrue("without snapshot " + withoutSnapshot + " ms", withoutSnapshot >= DELAY_MS);
+        assertTrue("with snapshot " + withSnapshot + " ms", withSnapshot < DELAY_MS);
+    }
+
+    /**
+     * 启动一个只有配置中心客户端的应用，返回启动耗时（毫秒）
+     */
+    private long start(boolean snapshotEnabled, String expectedFrom) {
+        long started = System.nanoTime();
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(EmptyApplication.class)
+                .web(false)
+                .run("--spring.application.name=config-client",
+                        "--spring.cloud.config.uri=http://localhost:" + server.getAddress().getPort(),
+                        "--spring.cloud.config.snapshot.enabled=" + snapshotEnabled,
+                        "--spring.cloud.config.snapshot.path=" + snapshot.getAbsolutePath())) {
+            long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+            assertEquals(expectedFrom, context.getEnvironment().getProperty("from"));
+            return elapsed;
+        }
+    }
+
+    /**
+     * 快照只在进程第一次加载配置时使用，同一个 JVM 中的其他用例也会加载
+     */
+    private static void resetFirstLoad() {
+        ((AtomicBoolean) ReflectionTestUtils.getField(SnapshotConfigServicePropertySourceLocator.class, "FIRST_LOAD"))
+                .set(true);
+    }
+
+    @Configuration
+    static class EmptyApplication {
+    }
+}
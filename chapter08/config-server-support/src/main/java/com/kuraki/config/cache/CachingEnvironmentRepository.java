@@ -0,0 +1,127 @@
+package com.kuraki.config.cache;
+
+import org.springframework.cloud.config.environment.Environment;
+import org.springframework.cloud.config.server.environment.EnvironmentRepository;
+import org.springframework.cloud.config.server.environment.SearchPathLocator;
+import org.springframework.util.DigestUtils;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 缓存解析后的 Environment，key 为 application/profile/label。
+ * 只有后端仓库的版本变化时才重新解析：git 仓库使用 commit id，
+ * 本地文件仓库使用配置文件的修改时间和大小作为版本。
+ * 同一个 key 在 revisionCheckIntervalMs 内最多检查一次版本，并发请求共用一次解析。
+ * ETag 只由版本计算，判断 304 时不解析 Environment。
+ */
+public class CachingEnvironmentRepository implements EnvironmentRepository, SearchPathLocator {
+
+    private final EnvironmentRepository delegate;
+
+    private final long revisionCheckIntervalMs;
+
+    private final ConcurrentMap<String, Entry> cache = new ConcurrentHashMap<>();
+
+    public CachingEnvironmentRepository(EnvironmentRepository delegate, long revisionCheckIntervalMs) {
+        this.delegate = delegate;
+        this.revisionCheckIntervalMs = revisionCheckIntervalMs;
+    }
+
+    @Override
+    public Environment findOne(String application, String profile, String label) {
+        Entry entry = check(application, profile, label);
+        synchronized (entry) {
+            if (entry.environment == null) {
+                entry.environment = delegate.findOne(application, profile, label);
+            }
+            return entry.environment;
+        }
+    }
+
+    /**
+     * 当前版本对应的 ETag，用于 304 响应；只检查版本，不解析 Environment。无法确定版本时返回 null
+     */
+    public String etag(String application, String profile, String label) {
+        Entry entry = check(application, profile, label);
+        synchronized (entry) {
+            return entry.etag;
+        }
+    }
+
+    @Override
+    public Locations getLocations(String application, String profile, String label) {
+        if (delegate instanceof SearchPathLocator) {
+            return ((SearchPathLocator) delegate).getLocations(application, profile, label);
+        }
+        return new Locations(application, profile, label, null, new String[0]);
+    }
+
+    /**
+     * 超过检查间隔时读取版本，版本变化或无法确定时丢弃缓存的 Environment，由下一次 findOne 重新解析
+     */
+    private Entry check(String application, String profile, String label) {
+        String key = application + "/" + profile + "/" + label;
+        Entry entry = cache.computeIfAbsent(key, k -> new Entry());
+        synchronized (entry) {
+            long now = System.currentTimeMillis();
+            if (entry.checkedAt != 0 && now - entry.checkedAt < revisionCheckIntervalMs) {
+                return entry;
+            }
+            String revision = revision(application, profile, label);
+            if (revision == null || !revision.equals(entry.revision)) {
+                entry.environment = null;
+                entry.revision = revision;
+                entry.etag = revision == null ? null
+                        : "\"" + DigestUtils.md5DigestAsHex((key + "@" + revision).getBytes(StandardCharsets.UTF_8)) + "\"";
+            }
+            entry.checkedAt = now;
+            return entry;
+        }
+    }
+
+    /**
+     * 仓库版本，无法确定时返回 null，此时每次检查都会重新解析
+     */
+    private String revision(String application, String profile, String label) {
+        if (!(delegate instanceof SearchPathLocator)) {
+            return null;
+        }
+        Locations locations = ((SearchPathLocator) delegate).getLocations(application, profile, label);
+        if (locations.getVersion() != null) {
+            return locations.getVersion();
+        }
+        long hash = 17;
+        for (String location : locations.getLocations()) {
+            if (!location.startsWith("file:")) {
+                continue;
+            }
+            hash = 31 * hash + fingerprint(new File(location.substring("file:".length())));
+        }
+        return String.valueOf(hash);
+    }
+
+    private long fingerprint(File file) {
+        long hash = file.lastModified() ^ file.length();
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                hash = 31 * hash + fingerprint(child);
+            }
+        }
+        return hash;
+    }
+
+    private static class Entry {
+
+        private Environment environment;
+
+        private String revision;
+
+        private String etag;
+
+        private long checkedAt;
+    }
+}
@@ -0,0 +1,57 @@
+package com.kuraki.config.cache;
+
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.cloud.config.server.environment.EnvironmentRepository;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurerAdapter;
+
+@Configuration
+public class EnvironmentCacheConfig extends WebMvcConfigurerAdapter {
+
+    /**
+     * 配置中心的 EnvironmentRepositoryConfiguration 中 git、svn、native 仓库共用的 bean 名称
+     */
+    public static final String REPOSITORY_BEAN = "environmentRepository";
+
+    @Autowired
+    @Qualifier(REPOSITORY_BEAN)
+    private EnvironmentRepository repository;
+
+    /**
+     * 只用 CachingEnvironmentRepository 包装配置中心对外提供的 EnvironmentRepository，
+     * 其他实现了 EnvironmentRepository 的 bean 保持不变
+     */
+    @Bean
+    public static BeanPostProcessor environmentCachePostProcessor(final Environment environment) {
+        return new BeanPostProcessor() {
+
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) throws BeansException {
+                return bean;
+            }
+
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) throws BeansException {
+                if (REPOSITORY_BEAN.equals(beanName) && bean instanceof EnvironmentRepository
+                        && !(bean instanceof CachingEnvironmentRepository)) {
+                    long interval = environment.getProperty("config.cache.revision-check-interval-ms", Long.class, 1000L);
+                    return new CachingEnvironmentRepository((EnvironmentRepository) bean, interval);
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        if (repository instanceof CachingEnvironmentRepository) {
+            registry.addInterceptor(new EnvironmentEtagInterceptor((CachingEnvironmentRepository) repository));
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.kuraki.config.cache;
+
+import org.springframework.cloud.config.environment.Environment;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.handler.HandlerInterceptorAdapter;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.Map;
+
+/**
+ * 为 /{name}/{profiles}[/{label}] 接口设置 ETag，客户端带上相同的 If-None-Match 时直接返回 304，
+ * 不再序列化整个 Environment
+ */
+public class EnvironmentEtagInterceptor extends HandlerInterceptorAdapter {
+
+    private final CachingEnvironmentRepository repository;
+
+    public EnvironmentEtagInterceptor(CachingEnvironmentRepository repository) {
+        this.repository = repository;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!"GET".equals(request.getMethod()) || !(handler instanceof HandlerMethod)
+                || ((HandlerMethod) handler).getMethod().getReturnType() != Environment.class) {
+            return true;
+        }
+        @SuppressWarnings("unchecked")
+        Map<String, String> variables = (Map<String, String>) request.getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+        String label = variables.get("label");
+        if (label != null && label.contains("(_)")) {
+            // 与 EnvironmentController 保持一致，(_) 代表 /
+            label = label.replace("(_)", "/");
+        }
+        String etag = repository.etag(variables.get("name"), variables.get("profiles"), label);
+        if (etag == null) {
+            return true;
+        }
+        response.setHeader(HttpHeaders.ETAG, etag);
+        if (etag.equals(request.getHeader(HttpHeaders.IF_NONE_MATCH))) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,205 @@
+package com.kuraki.config.cache;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.cloud.config.environment.Environment;
+import org.springframework.cloud.config.server.environment.EnvironmentRepository;
+import org.springframework.cloud.config.server.environment.NativeEnvironmentRepository;
+import org.springframework.cloud.config.server.environment.SearchPathLocator;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.env.StandardEnvironment;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class CachingEnvironmentRepositoryTest {
+
+    private static final int CLIENTS = 500;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void refreshStormResolvesOnce() throws Exception {
+        CountingRepository delegate = new CountingRepository();
+        CachingEnvironmentRepository repository = new CachingEnvironmentRepository(delegate, 60000);
+
+        List<Environment> results = storm(repository);
+
+        assertEquals(1, delegate.resolved.get());
+        assertEquals(1, delegate.located.get());
+        for (Environment environment : results) {
+            assertSame(results.get(0), environment);
+        }
+    }
+
+    @Test
+    public void newRevisionResolvesOnceMore() throws Exception {
+        CountingRepository delegate = new CountingRepository();
+        CachingEnvironmentRepository repository = new CachingEnvironmentRepository(delegate, 0);
+        String etag = repository.etag("app", "dev", "master");
+        repository.findOne("app", "dev", "master");
+
+        delegate.version = "v2";
+        storm(repository);
+
+        assertEquals(2, delegate.resolved.get());
+        assertNotEquals(etag, repository.etag("app", "dev", "master"));
+    }
+
+    @Test
+    public void etagDoesNotResolve() {
+        CountingRepository delegate = new CountingRepository();
+        CachingEnvironmentRepository repository = new CachingEnvironmentRepository(delegate, 60000);
+
+        String etag = repository.etag("app", "dev", "master");
+
+        assertNotNull(etag);
+        assertEquals(0, delegate.resolved.get());
+        assertEquals(etag, repository.etag("app", "dev", "master"));
+    }
+
+    @Test
+    public void unknownRevisionHasNoEtag() {
+        EnvironmentRepository delegate = (application, profile, label) -> new Environment(application, profile);
+        assertNull(new CachingEnvironmentRepository(delegate, 0).etag("app", "dev", "master"));
+    }
+
+    @Test
+    public void onlyPrimaryRepositoryIsWrapped() {
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext(RepositoryConfig.class);
+        try {
+            assertTrue(context.getBean(EnvironmentCacheConfig.REPOSITORY_BEAN) instanceof CachingEnvironmentRepository);
+            assertFalse(context.getBean("otherRepository") instanceof CachingEnvironmentRepository);
+        } finally {
+            context.close();
+        }
+    }
+
+    @Test
+    public void nativeRepositoryResolvesAgainOnlyWhenFilesChange() throws Exception {
+        File config = folder.newFile("app.properties");
+        write(config, "greeting=hello");
+        NativeEnvironmentRepository delegate = new NativeEnvironmentRepository(new StandardEnvironment());
+        delegate.setSearchLocations("file:" + folder.getRoot().getAbsolutePath() + "/");
+        CachingEnvironmentRepository repository = new CachingEnvironmentRepository(delegate, 0);
+
+        String etag = repository.etag("app", "default", "master");
+        Environment first = repository.findOne("app", "default", "master");
+        assertEquals("hello", greeting(first));
+        assertSame(first, repository.findOne("app", "default", "master"));
+        assertEquals(etag, repository.etag("app", "default", "master"));
+
+        // 长度不变，只有修改时间变化
+        long modified = config.lastModified();
+        write(config, "greeting=howdy");
+        config.setLastModified(modified + 2000);
+        Environment second = repository.findOne("app", "default", "master");
+        assertNotSame(first, second);
+        assertEquals("howdy", greeting(second));
+        String changed = repository.etag("app", "default", "master");
+        assertNotEquals(etag, changed);
+
+        // 修改时间不变，只有长度变化
+        write(config, "greeting=hi");
+        config.setLastModified(modified + 2000);
+        assertEquals("hi", greeting(repository.findOne("app", "default", "master")));
+        assertNotEquals(changed, repository.etag("app", "default", "master"));
+    }
+
+    private static void write(File file, String content) throws Exception {
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Object greeting(Environment environment) {
+        return environment.getPropertySources().get(0).getSource().get("greeting");
+    }
+
+    private static List<Environment> storm(CachingEnvironmentRepository repository) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(CLIENTS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Environment>> futures = new ArrayList<>();
+        try {
+            for (int i = 0; i < CLIENTS; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    // 与客户端一样先带 If-None-Match 检查，再取配置
+                    repository.etag("app", "dev", "master");
+                    return repository.findOne("app", "dev", "master");
+                }));
+            }
+            start.countDown();
+            List<Environment> results = new ArrayList<>();
+            for (Future<Environment> future : futures) {
+                results.add(future.get(30, TimeUnit.SECONDS));
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Configuration
+    @Import(EnvironmentCacheConfig.class)
+    static class RepositoryConfig {
+
+        @Bean
+        public EnvironmentRepository environmentRepository() {
+            return new CountingRepository();
+        }
+
+        @Bean
+        public EnvironmentRepository otherRepository() {
+            return new CountingRepository();
+        }
+    }
+
+    static class CountingRepository implements EnvironmentRepository, SearchPathLocator {
+
+        private final AtomicInteger resolved = new AtomicInteger();
+
+        private final AtomicInteger located = new AtomicInteger();
+
+        private volatile String version = "v1";
+
+        @Override
+        public Environment findOne(String application, String profile, String label) {
+            resolved.incrementAndGet();
+            try {
+                // 模拟拉取仓库和解析配置文件的耗时
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return new Environment(application, profile);
+        }
+
+        @Override
+        public Locations getLocations(String application, String profile, String label) {
+            located.incrementAndGet();
+            return new Locations(application, profile, label, version, new String[0]);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.kuraki.config.cache;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.cloud.config.environment.Environment;
+import org.springframework.cloud.config.server.environment.EnvironmentController;
+import org.springframework.cloud.config.server.environment.EnvironmentRepository;
+import org.springframework.cloud.config.server.environment.SearchPathLocator;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.Matchers.isEmptyString;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * 通过配置中心的 EnvironmentController 验证 If-None-Match 与 304
+ */
+public class EnvironmentEtagInterceptorTest {
+
+    private final RecordingRepository delegate = new RecordingRepository();
+
+    private MockMvc mvc;
+
+    @Before
+    public void setUp() {
+        CachingEnvironmentRepository repository = new CachingEnvironmentRepository(delegate, 0);
+        mvc = MockMvcBuilders.standaloneSetup(new EnvironmentController(repository))
+                .addInterceptors(new EnvironmentEtagInterceptor(repository))
+                .build();
+    }
+
+    @Test
+    public void matchingEtagReturnsNotModifiedWithoutResolving() throws Exception {
+        String etag = mvc.perform(get("/app/dev/master"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(not(isEmptyString())))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertEquals(1, delegate.resolved.size());
+
+        mvc.perform(get("/app/dev/master").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, etag))
+                .andExpect(content().string(""));
+        assertEquals(1, delegate.resolved.size());
+    }
+
+    @Test
+    public void newRevisionReturnsBodyWithNewEtag() throws Exception {
+        String etag = mvc.perform(get("/app/dev/master"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        delegate.version = "v2";
+        String changed = mvc.perform(get("/app/dev/master").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andExpect(content().string(not(isEmptyString())))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotEquals(etag, changed);
+        assertEquals(2, delegate.resolved.size());
+    }
+
+    @Test
+    public void etagIsPerApplicationProfileAndLabel() throws Exception {
+        String etag = mvc.perform(get("/app/dev/master"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mvc.perform(get("/app/prod/master").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk());
+        // (_) 代表 /，与 EnvironmentController 使用同一个 label
+        mvc.perform(get("/app/dev/feature(_)x").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk());
+        assertEquals("feature/x", delegate.resolved.get(delegate.resolved.size() - 1));
+    }
+
+    @Test
+    public void propertiesEndpointHasNoEtag() throws Exception {
+        mvc.perform(get("/app-dev.properties"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, nullValue()));
+    }
+
+    static class RecordingRepository implements EnvironmentRepository, SearchPathLocator {
+
+        // 每次解析的 label
+        private final List<String> resolved = new ArrayList<>();
+
+        private volatile String version = "v1";
+
+        @Override
+        public synchronized Environment findOne(String application, String profile, String label) {
+            resolved.add(label);
+            return new Environment(application, new String[]{profile}, label, version);
+        }
+
+        @Override
+        public Locations getLocations(String application, String profile, String label) {
+            return new Locations(application, profile, label, version, new String[0]);
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.kuraki.config.bus;
+
+import com.netflix.appinfo.EurekaInstanceConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cloud.bus.event.RefreshRemoteApplicationEvent;
+import org.springframework.cloud.context.refresh.ContextRefresher;
+import org.springframework.context.ApplicationListener;
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 代替 spring-cloud-bus 默认的 RefreshListener（spring.cloud.bus.refresh.enabled=false 时生效）。
+ * 收到刷新事件后不立即拉取配置，而是按实例 id 错开到 stagger-ms 窗口内的固定位置，再叠加 jitter-ms 内的随机延迟；
+ * 实例 id 取 eureka 注册的 instanceId（默认包含主机名），不同主机上端口相同的实例不会落在同一位置；
+ * 等待期间收到的刷新事件合并为一次。
+ */
+@Component
+@ConditionalOnProperty(name = "spring.cloud.bus.refresh.enabled", havingValue = "false")
+public class JitteredRefreshListener implements ApplicationListener<RefreshRemoteApplicationEvent> {
+
+    private static Logger logger = LoggerFactory.getLogger(JitteredRefreshListener.class);
+
+    @Autowired
+    private ContextRefresher contextRefresher;
+
+    @Value("${bus.refresh.stagger-ms:5000}")
+    private long staggerMs;
+
+    @Value("${bus.refresh.jitter-ms:1000}")
+    private long jitterMs;
+
+    @Autowired(required = false)
+    private EurekaInstanceConfig instanceConfig;
+
+    // 没有 eureka 时与 eureka 默认 instanceId 的格式相同
+    @Value("${spring.cloud.client.hostname:localhost}:${spring.application.name:application}:${server.port:8080}")
+    private String defaultInstanceId;
+
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "bus-refresh-jitter");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Override
+    public void onApplicationEvent(RefreshRemoteApplicationEvent event) {
+        if (!scheduled.compareAndSet(false, true)) {
+            return;
+        }
+        long delay = delay();
+        logger.info("Refresh scheduled in {} ms", delay);
+        scheduler.schedule(this::refresh, delay, TimeUnit.MILLISECONDS);
+    }
+
+    private long delay() {
+        long slot = staggerMs > 0 ? Math.floorMod(spread(instanceId().hashCode()), staggerMs) : 0;
+        long jitter = jitterMs > 0 ? ThreadLocalRandom.current().nextLong(jitterMs) : 0;
+        return slot + jitter;
+    }
+
+    private String instanceId() {
+        String instanceId = instanceConfig == null ? null : instanceConfig.getInstanceId();
+        return instanceId != null ? instanceId : defaultInstanceId;
+    }
+
+    /**
+     * 只有末尾几个字符不同的 id（如相邻的主机名）hashCode 也很接近，打散后再取位置
+     */
+    private static long spread(int hash) {
+        long h = hash * 0x9E3779B97F4A7C15L;
+        return h ^ (h >>> 32);
+    }
+
+    private void refresh() {
+        scheduled.set(false);
+        try {
+            Set<String> keys = contextRefresher.refresh();
+            logger.info("Received remote refresh request. Keys refreshed {}", keys);
+        } catch (Exception e) {
+            logger.warn("Refresh failed: {}", e.getMessage());
+        }
+    }
+}
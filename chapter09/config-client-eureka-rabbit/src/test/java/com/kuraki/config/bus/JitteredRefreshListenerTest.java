@@ -0,0 +1,105 @@
+package com.kuraki.config.bus;
+
+import org.junit.Test;
+import org.springframework.cloud.bus.event.RefreshRemoteApplicationEvent;
+import org.springframework.cloud.context.refresh.ContextRefresher;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+public class JitteredRefreshListenerTest {
+
+    private static final int CLIENTS = 40;
+
+    // 配置服务端处理一次请求的时间
+    private static final long RESOLVE_MS = 50;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private final AtomicInteger peak = new AtomicInteger();
+
+    @Test
+    public void eventsWhileWaitingAreCoalesced() {
+        ContextRefresher refresher = mock(ContextRefresher.class);
+        JitteredRefreshListener listener = listener("host-1:config-client:8080", refresher, 200, 0);
+        listener.onApplicationEvent(event());
+        listener.onApplicationEvent(event());
+        listener.onApplicationEvent(event());
+
+        verify(refresher, timeout(1000)).refresh();
+        verify(refresher, after(300).times(1)).refresh();
+
+        // 刷新之后的事件重新计时
+        listener.onApplicationEvent(event());
+        verify(refresher, timeout(1000).times(2)).refresh();
+    }
+
+    @Test
+    public void staggerFlattensRefreshBurst() throws Exception {
+        // 不错开时所有实例同时请求配置服务端
+        int immediatePeak = broadcast(0, 0);
+        // 错开到 2 秒内
+        long started = System.nanoTime();
+        int staggeredPeak = broadcast(2000, 100);
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+
+        assertTrue("immediate peak " + immediatePeak, immediatePeak >= CLIENTS / 4);
+        assertTrue("staggered peak " + staggeredPeak, staggeredPeak <= 6);
+        assertTrue("took " + elapsedMs + " ms", elapsedMs < 2100 + RESOLVE_MS + 1000);
+    }
+
+    /**
+     * 由 broker 的替身把一次 /bus/refresh 广播给 CLIENTS 个实例，等待所有实例刷新完成，返回服务端的最大并发请求数
+     */
+    private int broadcast(long staggerMs, long jitterMs) throws InterruptedException {
+        inFlight.set(0);
+        peak.set(0);
+        CountDownLatch refreshed = new CountDownLatch(CLIENTS);
+        List<JitteredRefreshListener> bus = new ArrayList<>();
+        for (int i = 0; i < CLIENTS; i++) {
+            ContextRefresher refresher = mock(ContextRefresher.class);
+            doAnswer(invocation -> {
+                peak.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                Thread.sleep(RESOLVE_MS);
+                inFlight.decrementAndGet();
+                refreshed.countDown();
+                return Collections.emptySet();
+            }).when(refresher).refresh();
+            bus.add(listener("10.0.0." + i + ":config-client:8080", refresher, staggerMs, jitterMs));
+        }
+        RefreshRemoteApplicationEvent event = event();
+        for (JitteredRefreshListener listener : bus) {
+            listener.onApplicationEvent(event);
+        }
+        assertTrue(refreshed.await(staggerMs + jitterMs + 5000, TimeUnit.MILLISECONDS));
+        assertEquals(0, inFlight.get());
+        return peak.get();
+    }
+
+    private static JitteredRefreshListener listener(String instanceId, ContextRefresher refresher, long staggerMs,
+                                                    long jitterMs) {
+        JitteredRefreshListener listener = new JitteredRefreshListener();
+        ReflectionTestUtils.setField(listener, "contextRefresher", refresher);
+        ReflectionTestUtils.setField(listener, "staggerMs", staggerMs);
+        ReflectionTestUtils.setField(listener, "jitterMs", jitterMs);
+        ReflectionTestUtils.setField(listener, "defaultInstanceId", instanceId);
+        return listener;
+    }
+
+    private static RefreshRemoteApplicationEvent event() {
+        return new RefreshRemoteApplicationEvent(new Object(), "config-server:8888", null);
+    }
+}
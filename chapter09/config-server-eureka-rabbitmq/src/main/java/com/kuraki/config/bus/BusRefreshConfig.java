@@ -0,0 +1,64 @@
+package com.kuraki.config.bus;
+
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.cloud.bus.endpoint.BusEndpoint;
+import org.springframework.cloud.bus.endpoint.RefreshBusEndpoint;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.core.env.Environment;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurerAdapter;
+
+/**
+ * 先于 EnvironmentCacheConfig 注册拦截器，ETag 的计算也在并发限制之内
+ */
+@Configuration
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class BusRefreshConfig extends WebMvcConfigurerAdapter {
+
+    // 同时解析配置的最大请求数
+    @Value("${config.server.max-concurrent-resolves:16}")
+    private int maxConcurrentResolves;
+
+    // 排队等待许可的最长时间，超过后不受限制地处理。Brixton 的配置客户端没有设置读超时，等待不会导致客户端超时
+    @Value("${config.server.resolve-wait-ms:10000}")
+    private long resolveWaitMs;
+
+    /**
+     * 用 CoalescingRefreshBusEndpoint 代替 /bus/refresh 端点。
+     * bus.refresh.debounce-ms 为最后一次请求后等待的时间，bus.refresh.max-delay-ms 为最长推迟时间
+     */
+    @Bean
+    public static BeanPostProcessor coalescingRefreshPostProcessor(final ApplicationContext context,
+                                                                   final Environment environment) {
+        return new BeanPostProcessor() {
+
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) throws BeansException {
+                return bean;
+            }
+
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) throws BeansException {
+                if (bean instanceof RefreshBusEndpoint && !(bean instanceof CoalescingRefreshBusEndpoint)) {
+                    long debounceMs = environment.getProperty("bus.refresh.debounce-ms", Long.class, 3000L);
+                    long maxDelayMs = environment.getProperty("bus.refresh.max-delay-ms", Long.class, 15000L);
+                    // 与 BusAutoConfiguration 创建 RefreshBusEndpoint 的参数相同
+                    return new CoalescingRefreshBusEndpoint(context, context.getId(), context.getBean(BusEndpoint.class),
+                            debounceMs, maxDelayMs);
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new ResolveConcurrencyInterceptor(maxConcurrentResolves, resolveWaitMs));
+    }
+}
@@ -0,0 +1,100 @@
+package com.kuraki.config.bus;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.cloud.bus.endpoint.BusEndpoint;
+import org.springframework.cloud.bus.endpoint.RefreshBusEndpoint;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 代替 spring-cloud-bus 的 /bus/refresh 端点，合并短时间内的多次刷新请求。
+ * 请求仍由 actuator 端点处理（路径、安全设置和响应不变），只是广播延后：
+ * 最后一次请求之后 debounceMs 内没有新请求才广播，持续有请求时最晚在第一次请求后 maxDelayMs 广播。
+ * 每个 destination 只广播一次；其中有一次不带 destination 的请求时，合并为一次全量广播。
+ */
+public class CoalescingRefreshBusEndpoint extends RefreshBusEndpoint implements DisposableBean {
+
+    private static Logger logger = LoggerFactory.getLogger(CoalescingRefreshBusEndpoint.class);
+
+    private static final String ALL = "";
+
+    private final long debounceMs;
+
+    private final long maxDelayMs;
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "bus-refresh-coalescer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private Set<String> pending = new HashSet<>();
+
+    private long firstRequestAt;
+
+    private ScheduledFuture<?> flush;
+
+    public CoalescingRefreshBusEndpoint(ApplicationEventPublisher context, String appId, BusEndpoint delegate,
+                                        long debounceMs, long maxDelayMs) {
+        super(context, appId, delegate);
+        this.debounceMs = debounceMs;
+        this.maxDelayMs = maxDelayMs;
+    }
+
+    @Override
+    @RequestMapping(value = "refresh", method = RequestMethod.POST)
+    @ResponseBody
+    public void refresh(@RequestParam(value = "destination", required = false) String destination) {
+        synchronized (this) {
+            long now = TimeUnit.NANOSECONDS.toMillis(System.nanoTime());
+            if (pending.isEmpty()) {
+                firstRequestAt = now;
+            }
+            pending.add(destination == null ? ALL : destination);
+            if (flush != null) {
+                flush.cancel(false);
+            }
+            long delay = Math.min(debounceMs, Math.max(0, firstRequestAt + maxDelayMs - now));
+            flush = scheduler.schedule(this::publishPending, delay, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void publishPending() {
+        Set<String> destinations;
+        synchronized (this) {
+            destinations = pending;
+            pending = new HashSet<>();
+            flush = null;
+        }
+        // 取消前已经开始执行的广播会把新请求一起带走，之后的这次为空
+        if (destinations.isEmpty()) {
+            return;
+        }
+        if (destinations.contains(ALL)) {
+            logger.info("Publishing coalesced refresh for all services");
+            super.refresh(null);
+            return;
+        }
+        for (String destination : destinations) {
+            logger.info("Publishing coalesced refresh for {}", destination);
+            super.refresh(destination);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        scheduler.shutdownNow();
+    }
+}
@@ -0,0 +1,55 @@
+package com.kuraki.config.bus;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cloud.config.environment.Environment;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.handler.HandlerInterceptorAdapter;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 限制同时处理的 /{name}/{profiles}[/{label}] 请求数，超出的请求按到达顺序排队等待。
+ * 等待超过 waitMs 后不再等待许可，直接处理：Brixton 的配置客户端刷新时收到错误响应不会重试，
+ * 而是当作没有远程配置，刷新后远程的属性全部丢失，所以这里只推迟请求，不拒绝
+ */
+public class ResolveConcurrencyInterceptor extends HandlerInterceptorAdapter {
+
+    private static Logger logger = LoggerFactory.getLogger(ResolveConcurrencyInterceptor.class);
+
+    private static final String ACQUIRED = ResolveConcurrencyInterceptor.class.getName() + ".ACQUIRED";
+
+    private final Semaphore permits;
+
+    private final long waitMs;
+
+    public ResolveConcurrencyInterceptor(int maxConcurrent, long waitMs) {
+        this.permits = new Semaphore(maxConcurrent, true);
+        this.waitMs = waitMs;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
+        if (!(handler instanceof HandlerMethod)
+                || ((HandlerMethod) handler).getMethod().getReturnType() != Environment.class) {
+            return true;
+        }
+        if (permits.tryAcquire(waitMs, TimeUnit.MILLISECONDS)) {
+            request.setAttribute(ACQUIRED, Boolean.TRUE);
+        } else {
+            logger.debug("No resolve permit after {} ms, resolving {} anyway", waitMs, request.getRequestURI());
+        }
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        if (request.getAttribute(ACQUIRED) != null) {
+            request.removeAttribute(ACQUIRED);
+            permits.release();
+        }
+    }
+}
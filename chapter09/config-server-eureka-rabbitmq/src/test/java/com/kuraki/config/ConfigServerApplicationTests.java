@@ -0,0 +1,57 @@
+package com.kuraki.config;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.boot.test.TestRestTemplate;
+import org.springframework.boot.test.WebIntegrationTest;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.web.client.RestTemplate;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 本地文件仓库下，配置没有变化时带 If-None-Match 的请求返回 304
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringApplicationConfiguration(classes = ConfigServerApplication.class)
+@WebIntegrationTest(randomPort = true, value = {
+        "spring.profiles.active=native",
+        "spring.cloud.config.server.native.searchLocations=file:src/test/resources/config/",
+        "eureka.client.enabled=false",
+        "spring.cloud.bus.enabled=false"
+})
+public class ConfigServerApplicationTests {
+
+    @Value("${local.server.port}")
+    private int port;
+
+    private final RestTemplate restTemplate = new TestRestTemplate();
+
+    @Test
+    public void unchangedConfigReturnsNotModified() {
+        String url = "http://localhost:" + port + "/app/default";
+        ResponseEntity<String> first = restTemplate.getForEntity(url, String.class);
+        assertEquals(HttpStatus.OK, first.getStatusCode());
+        assertTrue(first.getBody().contains("\"greeting\":\"hello\""));
+        String etag = first.getHeaders().getETag();
+        assertNotNull(etag);
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setIfNoneMatch(etag);
+        ResponseEntity<String> second = restTemplate.exchange(url, HttpMethod.GET, new HttpEntity<Void>(headers),
+                String.class);
+        assertEquals(HttpStatus.NOT_MODIFIED, second.getStatusCode());
+        assertEquals(etag, second.getHeaders().getETag());
+        assertNull(second.getBody());
+    }
+}
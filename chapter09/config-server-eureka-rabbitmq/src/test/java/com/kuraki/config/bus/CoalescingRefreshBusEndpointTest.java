@@ -0,0 +1,78 @@
+package com.kuraki.config.bus;
+
+import org.junit.After;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.cloud.bus.endpoint.BusEndpoint;
+import org.springframework.cloud.bus.event.RefreshRemoteApplicationEvent;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+public class CoalescingRefreshBusEndpointTest {
+
+    private final ApplicationEventPublisher publisher = mock(ApplicationEventPublisher.class);
+
+    private CoalescingRefreshBusEndpoint endpoint;
+
+    @After
+    public void tearDown() {
+        endpoint.destroy();
+    }
+
+    @Test
+    public void publishAfterLastRequestGoesQuiet() throws Exception {
+        endpoint = new CoalescingRefreshBusEndpoint(publisher, "config-server:8888", mock(BusEndpoint.class), 300, 10000);
+        endpoint.refresh("a");
+        Thread.sleep(200);
+        endpoint.refresh("b");
+        endpoint.refresh("a");
+
+        // 窗口从最后一次请求开始计算，第一次请求后 300ms 还不会广播
+        verify(publisher, after(200).never()).publishEvent(any(ApplicationEvent.class));
+        ArgumentCaptor<ApplicationEvent> events = ArgumentCaptor.forClass(ApplicationEvent.class);
+        verify(publisher, timeout(1000).times(2)).publishEvent(events.capture());
+        Set<String> destinations = new HashSet<>();
+        for (ApplicationEvent event : events.getAllValues()) {
+            destinations.add(((RefreshRemoteApplicationEvent) event).getDestinationService());
+        }
+        assertEquals(2, destinations.size());
+        assertTrue(destinations.toString(), destinations.contains("a:**"));
+    }
+
+    @Test
+    public void refreshWithoutDestinationCoversEveryService() {
+        endpoint = new CoalescingRefreshBusEndpoint(publisher, "config-server:8888", mock(BusEndpoint.class), 100, 10000);
+        endpoint.refresh("a");
+        endpoint.refresh(null);
+        endpoint.refresh("b");
+
+        ArgumentCaptor<ApplicationEvent> event = ArgumentCaptor.forClass(ApplicationEvent.class);
+        verify(publisher, timeout(1000)).publishEvent(event.capture());
+        verify(publisher, after(200).times(1)).publishEvent(any(ApplicationEvent.class));
+        assertEquals("*:**", ((RefreshRemoteApplicationEvent) event.getValue()).getDestinationService());
+    }
+
+    @Test
+    public void continuousRequestsArePublishedByMaxDelay() throws Exception {
+        endpoint = new CoalescingRefreshBusEndpoint(publisher, "config-server:8888", mock(BusEndpoint.class), 200, 400);
+        long end = System.currentTimeMillis() + 1000;
+        while (System.currentTimeMillis() < end) {
+            endpoint.refresh("a");
+            Thread.sleep(50);
+        }
+        // 请求从未间断超过 200ms，但每 400ms 至少广播一次
+        verify(publisher, timeout(1000).atLeast(2)).publishEvent(any(ApplicationEvent.class));
+    }
+}
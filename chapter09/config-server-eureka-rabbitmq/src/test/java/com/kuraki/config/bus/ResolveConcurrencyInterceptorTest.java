@@ -0,0 +1,112 @@
+package com.kuraki.config.bus;
+
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.cloud.config.environment.Environment;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.method.HandlerMethod;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ResolveConcurrencyInterceptorTest {
+
+    private final ExecutorService clients = Executors.newFixedThreadPool(40);
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private final AtomicInteger peak = new AtomicInteger();
+
+    @After
+    public void tearDown() {
+        clients.shutdownNow();
+    }
+
+    @Test
+    public void burstIsQueuedInsteadOfRejected() throws Exception {
+        ResolveConcurrencyInterceptor interceptor = new ResolveConcurrencyInterceptor(4, 10000);
+        HandlerMethod handler = handler();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Integer>> responses = new ArrayList<>();
+        // 所有客户端同时收到刷新事件
+        for (int i = 0; i < 40; i++) {
+            responses.add(clients.submit(() -> {
+                start.await();
+                return resolve(interceptor, handler, 20);
+            }));
+        }
+        start.countDown();
+
+        for (Future<Integer> response : responses) {
+            assertEquals(200, (int) response.get(10, TimeUnit.SECONDS));
+        }
+        assertTrue("peak " + peak.get(), peak.get() <= 4);
+    }
+
+    @Test
+    public void requestProceedsWhenWaitExpires() throws Exception {
+        ResolveConcurrencyInterceptor interceptor = new ResolveConcurrencyInterceptor(1, 50);
+        HandlerMethod handler = handler();
+        CountDownLatch holding = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Future<?> slow = clients.submit(() -> {
+            MockHttpServletRequest request = new MockHttpServletRequest("GET", "/app/default");
+            MockHttpServletResponse response = new MockHttpServletResponse();
+            interceptor.preHandle(request, response, handler);
+            holding.countDown();
+            release.await();
+            interceptor.afterCompletion(request, response, handler, null);
+            return null;
+        });
+        holding.await();
+
+        long started = System.nanoTime();
+        assertEquals(200, resolve(interceptor, handler, 0));
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started) >= 50);
+
+        // 没有拿到许可的请求结束时不归还许可，仍然只有一个请求在处理
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/app/default");
+        long waiting = System.nanoTime();
+        interceptor.preHandle(request, new MockHttpServletResponse(), handler);
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - waiting) >= 50);
+        release.countDown();
+        slow.get(1, TimeUnit.SECONDS);
+    }
+
+    /**
+     * 模拟一次配置请求，返回响应状态
+     */
+    private int resolve(ResolveConcurrencyInterceptor interceptor, HandlerMethod handler, long resolveMs)
+            throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/app/default");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        if (interceptor.preHandle(request, response, handler)) {
+            peak.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            Thread.sleep(resolveMs);
+            inFlight.decrementAndGet();
+        }
+        interceptor.afterCompletion(request, response, handler, null);
+        return response.getStatus();
+    }
+
+    private static HandlerMethod handler() throws NoSuchMethodException {
+        return new HandlerMethod(new Resolver(), Resolver.class.getMethod("defaultLabel", String.class, String.class));
+    }
+
+    public static class Resolver {
+
+        public Environment defaultLabel(String name, String profiles) {
+            return new Environment(name, profiles);
+        }
+    }
+}
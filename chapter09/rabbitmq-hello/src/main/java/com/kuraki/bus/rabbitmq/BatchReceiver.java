@@ -0,0 +1,220 @@
+package com.kuraki.bus.rabbitmq;
+
+import com.rabbitmq.client.Channel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.AmqpRejectAndDontRequeueException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.core.ChannelAwareMessageListener;
+import org.springframework.beans.factory.DisposableBean;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 批量消费 hello 队列。
+ * 消费线程只把消息放入队列，由单独的处理线程按 batchSize 或 batchTimeoutMs 取出一批交给 process，
+ * 日志也在处理线程中按批输出，不占用消费线程。
+ * BatchingSender 发出的 AMQP 批量消息由这里拆分（容器需要关闭 deBatchingEnabled），
+ * 一次投递拆出的所有消息总在同一批中处理，处理完成后按投递逐条 ack 或 nack。
+ * 整批处理失败时逐个投递重新处理，只拒绝真正失败的投递：首次失败重回队列，
+ * 重新投递后仍然失败则不再重回队列，队列配置了死信交换机（policy）时进入死信队列，避免毒消息无限重试。
+ * 格式错误、无法拆分的批量消息在消费线程中直接拒绝且不重回队列。
+ * 需要配合 AcknowledgeMode.MANUAL 使用，未确认的投递数量由 prefetch 限制。
+ */
+public class BatchReceiver implements ChannelAwareMessageListener, DisposableBean {
+
+    private static Logger logger = LoggerFactory.getLogger(BatchReceiver.class);
+
+    private final BlockingQueue<Delivery> deliveries;
+
+    private final int batchSize;
+
+    private final long batchTimeoutMs;
+
+    private final Thread worker;
+
+    private volatile boolean running = true;
+
+    /**
+     * @param capacity 等待处理的投递数量上限，按投递计数，与拆分出的消息条数无关
+     */
+    public BatchReceiver(int capacity, int batchSize, long batchTimeoutMs) {
+        this.deliveries = new ArrayBlockingQueue<>(capacity);
+        this.batchSize = batchSize;
+        this.batchTimeoutMs = batchTimeoutMs;
+        this.worker = new Thread(this::run, "batch-receiver");
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    @Override
+    public void onMessage(Message message, Channel channel) throws Exception {
+        MessageProperties properties = message.getMessageProperties();
+        List<String> hellos;
+        try {
+            hellos = split(message);
+        } catch (AmqpRejectAndDontRequeueException e) {
+            // 手动确认时容器不会处理监听器抛出的异常，这里不拒绝的话投递会一直占用 prefetch
+            logger.error("delivery {} rejected: {}", properties.getDeliveryTag(), e.getMessage());
+            synchronized (channel) {
+                channel.basicNack(properties.getDeliveryTag(), false, false);
+            }
+            return;
+        }
+        deliveries.put(new Delivery(channel, properties.getDeliveryTag(), Boolean.TRUE.equals(properties.isRedelivered()),
+                hellos));
+    }
+
+    protected void process(List<String> hellos) {
+        logger.info("Receiver: {} messages, last: {}", hellos.size(), hellos.get(hellos.size() - 1));
+    }
+
+    /**
+     * 按 SimpleBatchingStrategy 的格式拆分：每条消息前是 4 字节的长度。格式不对时抛出 AmqpRejectAndDontRequeueException
+     */
+    static List<String> split(Message message) {
+        byte[] body = message.getBody();
+        Object format = message.getMessageProperties().getHeaders().get(MessageProperties.SPRING_BATCH_FORMAT);
+        if (!MessageProperties.BATCH_FORMAT_LENGTH_HEADER4.equals(format)) {
+            return Collections.singletonList(new String(body, StandardCharsets.UTF_8));
+        }
+        List<String> parts = new ArrayList<>();
+        ByteBuffer buffer = ByteBuffer.wrap(body);
+        while (buffer.hasRemaining()) {
+            if (buffer.remaining() < 4) {
+                throw new AmqpRejectAndDontRequeueException("Corrupt batch, " + buffer.remaining() + " trailing bytes");
+            }
+            int length = buffer.getInt();
+            if (length < 0 || length > buffer.remaining()) {
+                throw new AmqpRejectAndDontRequeueException("Corrupt batch, part length " + length);
+            }
+            parts.add(new String(body, buffer.position(), length, StandardCharsets.UTF_8));
+            buffer.position(buffer.position() + length);
+        }
+        return parts;
+    }
+
+    private void run() {
+        List<Delivery> batch = new ArrayList<>();
+        while (running) {
+            try {
+                Delivery first = deliveries.poll(batchTimeoutMs, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                int size = first.hellos.size();
+                long deadline = System.currentTimeMillis() + batchTimeoutMs;
+                while (size < batchSize) {
+                    long remaining = deadline - System.currentTimeMillis();
+                    if (remaining <= 0) {
+                        break;
+                    }
+                    Delivery next = deliveries.poll(remaining, TimeUnit.MILLISECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                    size += next.hellos.size();
+                }
+                handle(batch);
+            } catch (InterruptedException e) {
+                // 未确认的投递在 channel 关闭后由 broker 重新投递
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void handle(List<Delivery> batch) {
+        List<String> hellos = new ArrayList<>();
+        for (Delivery delivery : batch) {
+            hellos.addAll(delivery.hellos);
+        }
+        try {
+            process(hellos);
+            for (Delivery delivery : batch) {
+                ack(delivery);
+            }
+            return;
+        } catch (Exception e) {
+            if (batch.size() > 1) {
+                logger.warn("batch of {} messages failed, retry delivery by delivery: {}", hellos.size(), e.getMessage());
+            } else {
+                reject(batch.get(0), e);
+                return;
+            }
+        }
+        for (Delivery delivery : batch) {
+            try {
+                process(delivery.hellos);
+                ack(delivery);
+            } catch (Exception e) {
+                reject(delivery, e);
+            }
+        }
+    }
+
+    private void ack(Delivery delivery) {
+        try {
+            // 同一个 channel 的确认不能并发，拒绝格式错误的投递在消费线程中进行
+            synchronized (delivery.channel) {
+                delivery.channel.basicAck(delivery.deliveryTag, false);
+            }
+        } catch (Exception e) {
+            logger.warn("ack {} failed: {}", delivery.deliveryTag, e.getMessage());
+        }
+    }
+
+    private void reject(Delivery delivery, Exception cause) {
+        boolean requeue = !delivery.redelivered;
+        if (requeue) {
+            logger.warn("delivery {} ({} messages) failed, requeue: {}", delivery.deliveryTag, delivery.hellos.size(),
+                    cause.getMessage());
+        } else {
+            logger.error("delivery {} ({} messages) failed again, reject: {}, first message: {}", delivery.deliveryTag,
+                    delivery.hellos.size(), cause.getMessage(), delivery.hellos.get(0));
+        }
+        try {
+            synchronized (delivery.channel) {
+                delivery.channel.basicNack(delivery.deliveryTag, false, requeue);
+            }
+        } catch (Exception e) {
+            logger.warn("nack {} failed: {}", delivery.deliveryTag, e.getMessage());
+        }
+    }
+
+    @Override
+    public void destroy() {
+        running = false;
+        worker.interrupt();
+    }
+
+    private static class Delivery {
+
+        private final Channel channel;
+
+        private final long deliveryTag;
+
+        private final boolean redelivered;
+
+        private final List<String> hellos;
+
+        Delivery(Channel channel, long deliveryTag, boolean redelivered, List<String> hellos) {
+            this.channel = channel;
+            this.deliveryTag = deliveryTag;
+            this.redelivered = redelivered;
+            this.hellos = hellos;
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package com.kuraki.bus.rabbitmq;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.rabbit.core.support.BatchingStrategy;
+import org.springframework.amqp.rabbit.core.support.MessageBatch;
+import org.springframework.amqp.rabbit.core.support.SimpleBatchingStrategy;
+import org.springframework.amqp.rabbit.support.CorrelationData;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 批量发送：消息先按条数或字节数攒成一批，达到上限或 flushIntervalMs 到期时作为一条 AMQP 消息发出，
+ * 消费端的 listener 容器会自动拆批，Receiver 不需要改动。
+ * 每批带 CorrelationData 异步等待 publisher confirm，未确认的批次超过 maxOutstandingConfirms 时 send 阻塞。
+ * 被 nack（包括 channel 关闭时未确认的批次）或超过 confirmTimeoutMs 未确认的批次重新发送，
+ * 共发送 maxAttempts 次仍未确认时丢弃并计入 getDropped()。首次发送抛出异常时释放占用并把异常抛给调用方。
+ * 定时 flush 在单独的线程中执行：它可能阻塞在等待许可上，而释放许可的重发和丢弃在 scheduler 线程中进行，
+ * 两者共用一个线程时所有许可都被收不到确认的批次占住就会互相等待。
+ */
+public class BatchingSender {
+
+    private static Logger logger = LoggerFactory.getLogger(BatchingSender.class);
+
+    private final RabbitTemplate rabbitTemplate;
+
+    private final String routingKey;
+
+    private final BatchingStrategy batchingStrategy;
+
+    private final int maxOutstandingConfirms;
+
+    private final Semaphore outstanding;
+
+    private final long confirmTimeoutNanos;
+
+    private final int maxAttempts;
+
+    private final Map<String, Pending> unconfirmed = new ConcurrentHashMap<>();
+
+    private final AtomicLong dropped = new AtomicLong();
+
+    // 处理 nack 和确认超时，不能执行任何会等待许可的操作
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "batching-sender");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "batching-sender-flush");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public BatchingSender(RabbitTemplate rabbitTemplate, String routingKey, int batchSize, int bufferLimit,
+                          long flushIntervalMs, int maxOutstandingConfirms, long confirmTimeoutMs, int maxAttempts) {
+        this.rabbitTemplate = rabbitTemplate;
+        this.routingKey = routingKey;
+        this.batchingStrategy = new SimpleBatchingStrategy(batchSize, bufferLimit, flushIntervalMs);
+        this.maxOutstandingConfirms = maxOutstandingConfirms;
+        this.outstanding = new Semaphore(maxOutstandingConfirms);
+        this.confirmTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(confirmTimeoutMs);
+        this.maxAttempts = maxAttempts;
+        rabbitTemplate.setConfirmCallback(this::confirm);
+        flusher.scheduleAtFixedRate(this::flushQuietly, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+        long sweepMs = Math.max(1, confirmTimeoutMs / 2);
+        scheduler.scheduleWithFixedDelay(this::expire, sweepMs, sweepMs, TimeUnit.MILLISECONDS);
+    }
+
+    public void send(String content) throws InterruptedException {
+        MessageProperties properties = new MessageProperties();
+        properties.setContentType(MessageProperties.CONTENT_TYPE_TEXT_PLAIN);
+        Message message = new Message(content.getBytes(StandardCharsets.UTF_8), properties);
+        MessageBatch batch;
+        synchronized (batchingStrategy) {
+            batch = batchingStrategy.addToBatch("", routingKey, message);
+        }
+        if (batch != null) {
+            publish(batch);
+        }
+    }
+
+    /**
+     * 立即发出当前未满的批次
+     */
+    public void flush() throws InterruptedException {
+        Collection<MessageBatch> batches;
+        synchronized (batchingStrategy) {
+            batches = batchingStrategy.releaseBatches();
+        }
+        for (MessageBatch batch : batches) {
+            publish(batch);
+        }
+    }
+
+    /**
+     * 等待已发出的批次全部确认
+     */
+    public boolean awaitConfirms(long timeout, TimeUnit unit) throws InterruptedException {
+        if (!outstanding.tryAcquire(maxOutstandingConfirms, timeout, unit)) {
+            return false;
+        }
+        outstanding.release(maxOutstandingConfirms);
+        return true;
+    }
+
+    public int getUnconfirmed() {
+        return unconfirmed.size();
+    }
+
+    /**
+     * 重试 maxAttempts 次仍未确认而丢弃的批次数
+     */
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    private void publish(MessageBatch batch) throws InterruptedException {
+        outstanding.acquire();
+        String id = UUID.randomUUID().toString();
+        Pending pending = new Pending(batch);
+        unconfirmed.put(id, pending);
+        try {
+            transmit(id, pending);
+        } catch (RuntimeException e) {
+            if (unconfirmed.remove(id, pending)) {
+                outstanding.release();
+            }
+            throw e;
+        }
+    }
+
+    private void transmit(String id, Pending pending) {
+        pending.attempts++;
+        pending.sentAt = System.nanoTime();
+        MessageBatch batch = pending.batch;
+        rabbitTemplate.send(batch.getExchange(), batch.getRoutingKey(), batch.getMessage(), new CorrelationData(id));
+    }
+
+    void confirm(CorrelationData correlationData, boolean ack, String cause) {
+        if (correlationData == null) {
+            return;
+        }
+        String id = correlationData.getId();
+        if (ack) {
+            if (unconfirmed.remove(id) != null) {
+                outstanding.release();
+            }
+            return;
+        }
+        Pending pending = unconfirmed.get(id);
+        if (pending != null) {
+            // 不在 confirm 回调线程里发送
+            scheduler.execute(() -> retry(id, pending, "nacked: " + cause));
+        }
+    }
+
+    /**
+     * 只在 scheduler 线程中调用，同一批次的重发不会并发
+     */
+    private void retry(String id, Pending pending, String reason) {
+        if (unconfirmed.get(id) != pending) {
+            // 已经确认
+            return;
+        }
+        if (pending.attempts >= maxAttempts) {
+            if (unconfirmed.remove(id, pending)) {
+                dropped.incrementAndGet();
+                outstanding.release();
+                logger.error("batch {} dropped after {} attempts, last {}", id, pending.attempts, reason);
+            }
+            return;
+        }
+        logger.warn("batch {} {}, resending", id, reason);
+        try {
+            transmit(id, pending);
+        } catch (RuntimeException e) {
+            // 下一次 expire 时再重发
+            logger.warn("resend of batch {} failed: {}", id, e.getMessage());
+        }
+    }
+
+    private void expire() {
+        long now = System.nanoTime();
+        for (Map.Entry<String, Pending> entry : unconfirmed.entrySet()) {
+            if (now - entry.getValue().sentAt > confirmTimeoutNanos) {
+                retry(entry.getKey(), entry.getValue(), "not confirmed in time");
+            }
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            logger.warn("flush failed: {}", e.getMessage());
+        }
+    }
+
+    private static class Pending {
+
+        private final MessageBatch batch;
+
+        private volatile long sentAt;
+
+        private volatile int attempts;
+
+        Pending(MessageBatch batch) {
+            this.batch = batch;
+        }
+    }
+}
@@ -1,6 +1,13 @@
 package com.kuraki.bus.rabbitmq;
 
+import org.springframework.amqp.core.AcknowledgeMode;
 import org.springframework.amqp.core.Queue;
+import org.springframework.amqp.rabbit.connection.CachingConnectionFactory;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.rabbit.listener.SimpleMessageListenerContainer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -11,4 +18,50 @@ public class RabbitConfig {
     public Queue helloQueue(){
         return new Queue("hello");
     }
+
+    @Bean
+    public BatchingSender batchingSender(ConnectionFactory connectionFactory,
+                                         @Value("${hello.sender.batch-size:100}") int batchSize,
+                                         @Value("${hello.sender.buffer-limit:65536}") int bufferLimit,
+                                         @Value("${hello.sender.flush-interval-ms:10}") long flushIntervalMs,
+                                         @Value("${hello.sender.max-outstanding-confirms:64}") int maxOutstandingConfirms,
+                                         @Value("${hello.sender.confirm-timeout-ms:5000}") long confirmTimeoutMs,
+                                         @Value("${hello.sender.max-attempts:3}") int maxAttempts) {
+        if (connectionFactory instanceof CachingConnectionFactory) {
+            // 开启 publisher confirm
+            ((CachingConnectionFactory) connectionFactory).setPublisherConfirms(true);
+        }
+        // 单独的 RabbitTemplate，避免 ConfirmCallback 影响其他发送者
+        RabbitTemplate rabbitTemplate = new RabbitTemplate(connectionFactory);
+        return new BatchingSender(rabbitTemplate, "hello", batchSize, bufferLimit, flushIntervalMs, maxOutstandingConfirms,
+                confirmTimeoutMs, maxAttempts);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "hello.receiver.batch-enabled", havingValue = "true")
+    public BatchReceiver batchReceiver(@Value("${hello.receiver.concurrency:4}") int concurrency,
+                                       @Value("${hello.receiver.prefetch:250}") int prefetch,
+                                       @Value("${hello.receiver.batch-size:100}") int batchSize,
+                                       @Value("${hello.receiver.batch-timeout-ms:20}") long batchTimeoutMs) {
+        // 队列按投递计数，未确认的投递通常不超过所有消费者的 prefetch 之和；
+        // 消费者重启后旧 channel 的投递还在队列中时，消费线程放入会等待处理线程腾出空间
+        return new BatchReceiver(concurrency * prefetch, batchSize, batchTimeoutMs);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "hello.receiver.batch-enabled", havingValue = "true")
+    public SimpleMessageListenerContainer batchReceiverContainer(ConnectionFactory connectionFactory,
+                                                                 BatchReceiver batchReceiver,
+                                                                 @Value("${hello.receiver.concurrency:4}") int concurrency,
+                                                                 @Value("${hello.receiver.prefetch:250}") int prefetch) {
+        SimpleMessageListenerContainer container = new SimpleMessageListenerContainer(connectionFactory);
+        container.setQueueNames("hello");
+        container.setConcurrentConsumers(concurrency);
+        container.setPrefetchCount(prefetch);
+        container.setAcknowledgeMode(AcknowledgeMode.MANUAL);
+        container.setMessageListener(batchReceiver);
+        // 由 BatchReceiver 拆分批量消息，保证同一次投递的消息一起确认
+        container.setDeBatchingEnabled(false);
+        return container;
+    }
 }
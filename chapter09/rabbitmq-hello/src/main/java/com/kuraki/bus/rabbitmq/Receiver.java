@@ -1,16 +1,22 @@
 package com.kuraki.bus.rabbitmq;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.amqp.rabbit.annotation.RabbitHandler;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
 
 @Component
+@ConditionalOnProperty(name = "hello.receiver.batch-enabled", havingValue = "false", matchIfMissing = true)
 @RabbitListener(queues = "hello")
 public class Receiver {
 
+    private static Logger logger = LoggerFactory.getLogger(Receiver.class);
+
     @RabbitHandler
     public void process(String hello) {
-        System.out.println("Receiver: " + hello);
+        logger.info("Receiver: {}", hello);
     }
 
 }
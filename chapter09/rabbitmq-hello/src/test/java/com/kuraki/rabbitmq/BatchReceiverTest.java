@@ -0,0 +1,141 @@
+package com.kuraki.rabbitmq;
+
+import com.kuraki.bus.rabbitmq.BatchReceiver;
+import com.rabbitmq.client.Channel;
+import org.junit.Test;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+public class BatchReceiverTest {
+
+    @Test
+    public void deliverBatchesAndAckEachDelivery() throws Exception {
+        List<List<String>> batches = new CopyOnWriteArrayList<>();
+        BatchReceiver receiver = new BatchReceiver(10, 2, 200) {
+            @Override
+            protected void process(List<String> hellos) {
+                batches.add(hellos);
+            }
+        };
+        Channel channel = mock(Channel.class);
+        for (long tag = 1; tag <= 5; tag++) {
+            receiver.onMessage(message("hello " + tag, tag), channel);
+        }
+
+        for (long tag = 1; tag <= 5; tag++) {
+            verify(channel, timeout(1000)).basicAck(tag, false);
+        }
+        assertEquals(3, batches.size());
+        assertEquals(2, batches.get(0).size());
+        receiver.destroy();
+    }
+
+    @Test
+    public void splitBatchedDeliveryAndAckItOnce() throws Exception {
+        List<List<String>> batches = new CopyOnWriteArrayList<>();
+        BatchReceiver receiver = new BatchReceiver(10, 2, 200) {
+            @Override
+            protected void process(List<String> hellos) {
+                batches.add(hellos);
+            }
+        };
+        Channel channel = mock(Channel.class);
+        receiver.onMessage(batched(7, "a", "b", "c"), channel);
+
+        verify(channel, timeout(1000)).basicAck(7L, false);
+        // 一次投递拆出的消息不会跨批次
+        assertEquals(Arrays.asList("a", "b", "c"), batches.get(0));
+        verify(channel, after(100).never()).basicNack(anyLong(), anyBoolean(), anyBoolean());
+        receiver.destroy();
+    }
+
+    @Test
+    public void poisonDeliveryIsRequeuedOnceThenRejected() throws Exception {
+        BatchReceiver receiver = new BatchReceiver(10, 10, 100) {
+            @Override
+            protected void process(List<String> hellos) {
+                if (hellos.contains("poison")) {
+                    throw new IllegalArgumentException("poison");
+                }
+            }
+        };
+        Channel channel = mock(Channel.class);
+        receiver.onMessage(message("hello 1", 1), channel);
+        receiver.onMessage(batched(2, "hello 2", "poison"), channel);
+        receiver.onMessage(message("hello 3", 3), channel);
+
+        // 同批的其他投递正常确认，只有失败的投递重回队列
+        verify(channel, timeout(1000)).basicAck(1L, false);
+        verify(channel, timeout(1000)).basicAck(3L, false);
+        verify(channel, timeout(1000)).basicNack(2L, false, true);
+
+        Message redelivered = batched(4, "hello 2", "poison");
+        redelivered.getMessageProperties().setRedelivered(true);
+        receiver.onMessage(redelivered, channel);
+        verify(channel, timeout(1000)).basicNack(4L, false, false);
+        verify(channel, never()).basicAck(2L, false);
+        receiver.destroy();
+    }
+
+    @Test
+    public void corruptBatchIsRejectedWithoutRequeue() throws Exception {
+        List<List<String>> batches = new CopyOnWriteArrayList<>();
+        BatchReceiver receiver = new BatchReceiver(10, 10, 100) {
+            @Override
+            protected void process(List<String> hellos) {
+                batches.add(hellos);
+            }
+        };
+        Channel channel = mock(Channel.class);
+        // 长度超出消息体
+        Message tooLong = batched(1, "hello 1");
+        tooLong.getBody()[3] = 100;
+        receiver.onMessage(tooLong, channel);
+        // 末尾不足 4 字节的长度
+        Message shortTail = batched(2, "hello 2");
+        receiver.onMessage(new Message(Arrays.copyOf(shortTail.getBody(), shortTail.getBody().length + 2),
+                shortTail.getMessageProperties()), channel);
+        receiver.onMessage(message("hello 3", 3), channel);
+
+        verify(channel).basicNack(1L, false, false);
+        verify(channel).basicNack(2L, false, false);
+        verify(channel, timeout(1000)).basicAck(3L, false);
+        verify(channel, never()).basicAck(1L, false);
+        verify(channel, never()).basicAck(2L, false);
+        assertEquals(Arrays.asList("hello 3"), batches.get(0));
+        receiver.destroy();
+    }
+
+    private Message message(String body, long deliveryTag) {
+        MessageProperties properties = new MessageProperties();
+        properties.setDeliveryTag(deliveryTag);
+        return new Message(body.getBytes(StandardCharsets.UTF_8), properties);
+    }
+
+    private Message batched(long deliveryTag, String... bodies) {
+        ByteBuffer buffer = ByteBuffer.allocate(1024);
+        for (String body : bodies) {
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            buffer.putInt(bytes.length).put(bytes);
+        }
+        MessageProperties properties = new MessageProperties();
+        properties.setDeliveryTag(deliveryTag);
+        properties.setHeader(MessageProperties.SPRING_BATCH_FORMAT, MessageProperties.BATCH_FORMAT_LENGTH_HEADER4);
+        return new Message(Arrays.copyOf(buffer.array(), buffer.position()), properties);
+    }
+}
@@ -0,0 +1,143 @@
+package com.kuraki.rabbitmq;
+
+import com.kuraki.bus.rabbitmq.BatchingSender;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.amqp.AmqpConnectException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.rabbit.support.CorrelationData;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class BatchingSenderTest {
+
+    @Test
+    public void sendFullBatchesAndFlushRest() throws Exception {
+        RabbitTemplate template = mock(RabbitTemplate.class);
+        BatchingSender sender = new BatchingSender(template, "hello", 10, 65536, 60000, 100, 60000, 3);
+        for (int i = 0; i < 25; i++) {
+            sender.send("hello " + i);
+        }
+        verify(template, times(2)).send(eq(""), eq("hello"), any(Message.class), any(CorrelationData.class));
+
+        sender.flush();
+        verify(template, times(3)).send(eq(""), eq("hello"), any(Message.class), any(CorrelationData.class));
+    }
+
+    @Test
+    public void blockWhenTooManyConfirmsOutstanding() throws Exception {
+        RabbitTemplate template = mock(RabbitTemplate.class);
+        ArgumentCaptor<RabbitTemplate.ConfirmCallback> callback = ArgumentCaptor.forClass(RabbitTemplate.ConfirmCallback.class);
+        BatchingSender sender = new BatchingSender(template, "hello", 1, 65536, 60000, 2, 60000, 3);
+        verify(template).setConfirmCallback(callback.capture());
+
+        sender.send("1");
+        sender.send("2");
+        Thread third = new Thread(() -> {
+            try {
+                sender.send("3");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        third.start();
+        third.join(200);
+        assertTrue(third.isAlive());
+
+        ArgumentCaptor<CorrelationData> correlation = ArgumentCaptor.forClass(CorrelationData.class);
+        verify(template, times(2)).send(eq(""), eq("hello"), any(Message.class), correlation.capture());
+        callback.getValue().confirm(correlation.getAllValues().get(0), true, null);
+        third.join(1000);
+        assertFalse(third.isAlive());
+        assertEquals(2, sender.getUnconfirmed());
+
+        assertFalse(sender.awaitConfirms(100, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void releasePermitWhenSendFails() throws Exception {
+        RabbitTemplate template = mock(RabbitTemplate.class);
+        doThrow(new AmqpConnectException(new java.net.ConnectException("refused")))
+                .when(template).send(eq(""), eq("hello"), any(Message.class), any(CorrelationData.class));
+        BatchingSender sender = new BatchingSender(template, "hello", 1, 65536, 60000, 1, 60000, 3);
+        for (int i = 0; i < 3; i++) {
+            try {
+                sender.send("m" + i);
+                fail("Expected the send failure to reach the caller");
+            } catch (AmqpConnectException expected) {
+                // 只有一个许可，没有释放时第二次发送会一直阻塞
+            }
+        }
+        assertEquals(0, sender.getUnconfirmed());
+        assertTrue(sender.awaitConfirms(100, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void resendNackedBatchAndDropAfterMaxAttempts() throws Exception {
+        RabbitTemplate template = mock(RabbitTemplate.class);
+        ArgumentCaptor<RabbitTemplate.ConfirmCallback> callback = ArgumentCaptor.forClass(RabbitTemplate.ConfirmCallback.class);
+        BatchingSender sender = new BatchingSender(template, "hello", 1, 65536, 60000, 4, 60000, 2);
+        verify(template).setConfirmCallback(callback.capture());
+
+        sender.send("1");
+        ArgumentCaptor<CorrelationData> correlation = ArgumentCaptor.forClass(CorrelationData.class);
+        verify(template).send(eq(""), eq("hello"), any(Message.class), correlation.capture());
+        // channel 关闭时 Spring AMQP 对未确认的发送回调 nack
+        callback.getValue().confirm(correlation.getValue(), false, "channel closed");
+        verify(template, timeout(1000).times(2)).send(eq(""), eq("hello"), any(Message.class), any(CorrelationData.class));
+
+        callback.getValue().confirm(correlation.getValue(), false, "channel closed");
+        assertTrue(sender.awaitConfirms(1000, TimeUnit.MILLISECONDS));
+        assertEquals(1, sender.getDropped());
+        assertEquals(0, sender.getUnconfirmed());
+    }
+
+    @Test
+    public void timerFlushDoesNotBlockExpiryWhenConfirmsNeverArrive() throws Exception {
+        RabbitTemplate template = mock(RabbitTemplate.class);
+        // 只有一个许可，批次只由定时 flush 发出，broker 从不确认
+        BatchingSender sender = new BatchingSender(template, "hello", 100, 65536, 10, 1, 50, 2);
+
+        sender.send("1");
+        verify(template, timeout(1000)).send(eq(""), eq("hello"), any(Message.class), any(CorrelationData.class));
+        // 定时 flush 等待许可，同时第一批要靠超时重发后丢弃才能释放许可
+        sender.send("2");
+        verify(template, timeout(5000).times(3)).send(eq(""), eq("hello"), any(Message.class), any(CorrelationData.class));
+        assertTrue(sender.getDropped() >= 1);
+
+        // 第二批同样超时丢弃后许可全部归还
+        assertTrue(sender.awaitConfirms(5000, TimeUnit.MILLISECONDS));
+        assertEquals(2, sender.getDropped());
+        assertEquals(0, sender.getUnconfirmed());
+    }
+
+    @Test
+    public void resendWhenConfirmTimesOut() throws Exception {
+        RabbitTemplate template = mock(RabbitTemplate.class);
+        ArgumentCaptor<RabbitTemplate.ConfirmCallback> callback = ArgumentCaptor.forClass(RabbitTemplate.ConfirmCallback.class);
+        BatchingSender sender = new BatchingSender(template, "hello", 1, 65536, 60000, 4, 50, 3);
+        verify(template).setConfirmCallback(callback.capture());
+
+        sender.send("1");
+        ArgumentCaptor<CorrelationData> correlation = ArgumentCaptor.forClass(CorrelationData.class);
+        verify(template, timeout(1000).times(2)).send(eq(""), eq("hello"), any(Message.class), correlation.capture());
+        // 重发使用同一个 id，任何一次的确认都会结束等待
+        assertEquals(correlation.getAllValues().get(0).getId(), correlation.getAllValues().get(1).getId());
+        callback.getValue().confirm(correlation.getValue(), true, null);
+        assertTrue(sender.awaitConfirms(1000, TimeUnit.MILLISECONDS));
+        assertEquals(0, sender.getDropped());
+    }
+}
@@ -1,21 +1,90 @@
 package com.kuraki.config;
 
+import com.kuraki.stream.DelayedRetry;
+import com.kuraki.stream.KeyedLanes;
+import com.kuraki.stream.PayloadCodecs;
+import com.kuraki.stream.TracingChannelInterceptor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.cloud.stream.annotation.EnableBinding;
 import org.springframework.cloud.stream.annotation.StreamListener;
 import org.springframework.cloud.stream.messaging.Processor;
+import org.springframework.integration.support.MessageBuilder;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
 import org.springframework.messaging.handler.annotation.SendTo;
 
+import java.nio.charset.StandardCharsets;
+
 @EnableBinding(value = {Processor.class})
+@ConditionalOnProperty(name = "app1.batch.enabled", havingValue = "false", matchIfMissing = true)
 public class App1 {
 
     private static Logger logger = LoggerFactory.getLogger(App1.class);
 
+    static final byte[] PREFIX = "From Input Channel Return - ".getBytes(StandardCharsets.UTF_8);
+
+    private static final String TEXT_PLAIN = "text/plain";
+
+    @Autowired
+    private Processor processor;
+
+    @Autowired(required = false)
+    private KeyedLanes lanes;
+
+    @Autowired(required = false)
+    private DelayedRetry retry;
+
     @StreamListener(Processor.INPUT)
     @SendTo(Processor.OUTPUT)
-    public Object receiveFromInput(Object payload) {
-        logger.info("Received: " + payload);
-        return "From Input Channel Return - " + payload;
+    public Message<byte[]> receiveFromInput(Message<?> message) throws InterruptedException {
+        if (lanes == null) {
+            return processWithRetry(message);
+        }
+        // 交给分区 lane 异步处理，由 lane 线程发送回复，发送完成后才确认消息
+        lanes.submit(message, () -> {
+            Message<byte[]> reply = processWithRetry(message);
+            if (reply != null) {
+                processor.output().send(reply);
+            }
+        });
+        return null;
+    }
+
+    // 配置了 DelayedRetry 时失败的消息转入延迟队列，不回复
+    private Message<byte[]> processWithRetry(Message<?> message) {
+        return retry == null ? process(message) : retry.execute(message, this::process);
+    }
+
+    private Message<byte[]> process(Message<?> message) {
+        Object payload = message.getPayload();
+        if (logger.isInfoEnabled()) {
+            Object contentType = message.getHeaders().get(MessageHeaders.CONTENT_TYPE);
+            if (PayloadCodecs.isText(contentType, payload)) {
+                logger.info("Received: {}", new String(PayloadCodecs.bytes(payload), StandardCharsets.UTF_8));
+            } else {
+                logger.info("Received {} bytes of {}", PayloadCodecs.bytes(payload).length, contentType);
+            }
+        }
+        return reply(message);
+    }
+
+    /**
+     * 文本消息直接在字节上拼接前缀，不做解码和再编码，回复为 text/plain；
+     * JSON、二进制等其他类型拼接前缀会破坏格式，原样转发并保留 contentType。
+     * 两种情况都保留起点时间，以便下游统计端到端延迟
+     */
+    public static Message<byte[]> reply(Message<?> message) {
+        Object payload = message.getPayload();
+        Object contentType = message.getHeaders().get(MessageHeaders.CONTENT_TYPE);
+        boolean text = PayloadCodecs.isText(contentType, payload);
+        byte[] bytes = PayloadCodecs.bytes(payload);
+        return MessageBuilder.withPayload(text ? PayloadCodecs.prepend(PREFIX, bytes) : bytes)
+                .setHeader(MessageHeaders.CONTENT_TYPE, text ? TEXT_PLAIN : contentType)
+                .setHeader(TracingChannelInterceptor.ORIGIN_SENT_AT,
+                        message.getHeaders().get(TracingChannelInterceptor.ORIGIN_SENT_AT))
+                .build();
     }
 }
@@ -0,0 +1,55 @@
+package com.kuraki.config;
+
+import com.kuraki.stream.BatchMessageHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cloud.stream.annotation.EnableBinding;
+import org.springframework.cloud.stream.messaging.Processor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.messaging.Message;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * App1 的批量模式，app1.batch.enabled=true 时代替 App1。
+ * 建议设置 spring.cloud.stream.rabbit.bindings.input.consumer.acknowledgeMode=MANUAL，prefetch 不小于 app1.batch.size，
+ * 这样不占用消费线程；自动确认时批次大小不超过 spring.cloud.stream.bindings.input.consumer.concurrency。
+ */
+@EnableBinding(value = {Processor.class})
+@ConditionalOnProperty(name = "app1.batch.enabled", havingValue = "true")
+public class App1Batch {
+
+    private static Logger logger = LoggerFactory.getLogger(App1Batch.class);
+
+    @Autowired
+    private Processor processor;
+
+    @Bean
+    public BatchMessageHandler<Message<?>> app1BatchHandler(@Value("${app1.batch.size:100}") int batchSize,
+                                                        @Value("${app1.batch.timeout-ms:10}") long batchTimeoutMs,
+                                                        @Value("${spring.cloud.stream.bindings.input.consumer.concurrency:1}") int concurrency) {
+        // 需要 contentType 判断是否拼接前缀，批次中传入整条消息
+        BatchMessageHandler<Message<?>> handler = new BatchMessageHandler<Message<?>>(this::receiveFromInput,
+                processor.output(), batchSize, batchTimeoutMs, concurrency) {
+            @Override
+            protected Message<?> extract(Message<?> message) {
+                return message;
+            }
+        };
+        processor.input().subscribe(handler);
+        return handler;
+    }
+
+    public List<Message<byte[]>> receiveFromInput(List<Message<?>> messages) {
+        logger.info("Received {} messages", messages.size());
+        List<Message<byte[]>> results = new ArrayList<>(messages.size());
+        for (Message<?> message : messages) {
+            results.add(App1.reply(message));
+        }
+        return results;
+    }
+}
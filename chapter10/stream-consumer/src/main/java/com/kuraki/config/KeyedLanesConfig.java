@@ -0,0 +1,23 @@
+package com.kuraki.config;
+
+import com.kuraki.stream.KeyedLanes;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 设置 app1.lanes.count 后，App1 按分区 key 在多个 lane 中并行处理，
+ * 同时需要设置 spring.cloud.stream.rabbit.bindings.input.consumer.acknowledgeMode=MANUAL，消息处理完成后才确认
+ */
+@Configuration
+@ConditionalOnProperty(name = "app1.lanes.count")
+public class KeyedLanesConfig {
+
+    @Bean
+    public KeyedLanes keyedLanes(@Value("${app1.lanes.count}") int laneCount,
+                                 @Value("${app1.lanes.capacity:1024}") int laneCapacity,
+                                 @Value("${app1.lanes.key-header:partitionKey}") String keyHeader) {
+        return new KeyedLanes(laneCount, laneCapacity, keyHeader);
+    }
+}
@@ -0,0 +1,140 @@
+package com.kuraki.stream;
+
+import com.rabbitmq.client.Channel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.support.AmqpHeaders;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.messaging.Message;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 按分区 key 把任务分配到固定的 lane，每个 lane 一个线程顺序执行：
+ * 同一个 key 的消息保持顺序，不同 key 之间并行；没有 key 的消息不要求顺序，轮流分配到各个 lane。
+ * lane 的队列满时 submit 阻塞，背压传递到 binder 的消费线程。
+ * 需要设置 acknowledgeMode=MANUAL：消息在 lane 中处理完成后才 ack，处理失败时 nack 且不重回队列，
+ * 配置 autoBindDlq 时进入死信队列；需要延迟重试时由任务自己交给 DelayedRetry。
+ * 未确认的消息数量由 prefetch 限制，停止时未处理的消息在 channel 关闭后由 broker 重新投递。
+ */
+public class KeyedLanes implements DisposableBean {
+
+    private static Logger logger = LoggerFactory.getLogger(KeyedLanes.class);
+
+    private final String keyHeader;
+
+    private final BlockingQueue<Runnable>[] queues;
+
+    private final Thread[] workers;
+
+    private final AtomicInteger next = new AtomicInteger();
+
+    private final AtomicBoolean autoAckWarned = new AtomicBoolean();
+
+    @SuppressWarnings("unchecked")
+    public KeyedLanes(int laneCount, int laneCapacity, String keyHeader) {
+        this.keyHeader = keyHeader;
+        this.queues = new BlockingQueue[laneCount];
+        this.workers = new Thread[laneCount];
+        for (int i = 0; i < laneCount; i++) {
+            BlockingQueue<Runnable> queue = new ArrayBlockingQueue<>(laneCapacity);
+            queues[i] = queue;
+            workers[i] = new Thread(() -> run(queue), "lane-" + i);
+            workers[i].setDaemon(true);
+            workers[i].start();
+        }
+    }
+
+    /**
+     * 分区 key：keyHeader 消息头，没有时返回 null
+     */
+    public Object keyOf(Message<?> message) {
+        return keyHeader == null ? null : message.getHeaders().get(keyHeader);
+    }
+
+    /**
+     * 把消息的处理交给所在 lane，task 正常返回后 ack，抛出异常时 nack
+     */
+    public void submit(Message<?> message, Runnable task) throws InterruptedException {
+        Channel channel = message.getHeaders().get(AmqpHeaders.CHANNEL, Channel.class);
+        Long deliveryTag = message.getHeaders().get(AmqpHeaders.DELIVERY_TAG, Long.class);
+        if ((channel == null || deliveryTag == null) && autoAckWarned.compareAndSet(false, true)) {
+            logger.warn("Messages are acknowledged before their lane runs, set acknowledgeMode=MANUAL");
+        }
+        submit(keyOf(message), () -> {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                logger.warn("lane task failed, reject message {}", deliveryTag, e);
+                acknowledge(channel, deliveryTag, false);
+                return;
+            }
+            acknowledge(channel, deliveryTag, true);
+        });
+    }
+
+    public void submit(Object key, Runnable task) throws InterruptedException {
+        queues[laneOf(key)].put(task);
+    }
+
+    public int getLaneCount() {
+        return queues.length;
+    }
+
+    int laneOf(Object key) {
+        if (key == null) {
+            return Math.floorMod(next.getAndIncrement(), queues.length);
+        }
+        int hash = key instanceof byte[] ? Arrays.hashCode((byte[]) key) : key.hashCode();
+        // 打散低位，避免相近的 key 落到同一个 lane
+        hash ^= (hash >>> 16);
+        return Math.floorMod(hash, queues.length);
+    }
+
+    private void run(BlockingQueue<Runnable> queue) {
+        while (!Thread.currentThread().isInterrupted()) {
+            Runnable task;
+            try {
+                task = queue.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            try {
+                task.run();
+            } catch (Exception e) {
+                logger.warn("lane task failed", e);
+            }
+        }
+    }
+
+    private void acknowledge(Channel channel, Long deliveryTag, boolean ok) {
+        if (channel == null || deliveryTag == null) {
+            return;
+        }
+        try {
+            // 同一个 channel 的确认不能并发
+            synchronized (channel) {
+                if (ok) {
+                    channel.basicAck(deliveryTag, false);
+                } else {
+                    channel.basicNack(deliveryTag, false, false);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            // channel 已关闭时 broker 会重新投递未确认的消息
+            logger.warn("Could not acknowledge message {}: {}", deliveryTag, e.getMessage());
+        }
+    }
+
+    @Override
+    public void destroy() {
+        for (Thread worker : workers) {
+            worker.interrupt();
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.kuraki;
+
+import com.kuraki.config.App1;
+import com.kuraki.stream.TracingChannelInterceptor;
+import org.junit.Test;
+import org.springframework.integration.support.MessageBuilder;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class App1Test {
+
+    @Test
+    public void prefixTextAndReplyAsPlainText() {
+        Message<byte[]> reply = App1.reply(MessageBuilder.withPayload("hello".getBytes(StandardCharsets.UTF_8))
+                .setHeader(MessageHeaders.CONTENT_TYPE, "text/plain;charset=UTF-8")
+                .setHeader(TracingChannelInterceptor.ORIGIN_SENT_AT, 42L)
+                .build());
+
+        assertEquals("From Input Channel Return - hello", new String(reply.getPayload(), StandardCharsets.UTF_8));
+        assertEquals("text/plain", reply.getHeaders().get(MessageHeaders.CONTENT_TYPE));
+        assertEquals(42L, reply.getHeaders().get(TracingChannelInterceptor.ORIGIN_SENT_AT));
+    }
+
+    @Test
+    public void prefixStringWithoutContentType() {
+        Message<byte[]> reply = App1.reply(MessageBuilder.withPayload("hello").build());
+
+        assertEquals("From Input Channel Return - hello", new String(reply.getPayload(), StandardCharsets.UTF_8));
+        assertEquals("text/plain", reply.getHeaders().get(MessageHeaders.CONTENT_TYPE));
+    }
+
+    @Test
+    public void forwardJsonAndBinaryUnchanged() {
+        byte[] json = "{\"name\":\"kuraki\"}".getBytes(StandardCharsets.UTF_8);
+        Message<byte[]> jsonReply = App1.reply(MessageBuilder.withPayload(json)
+                .setHeader(MessageHeaders.CONTENT_TYPE, "application/json").build());
+        assertArrayEquals(json, jsonReply.getPayload());
+        assertEquals("application/json", jsonReply.getHeaders().get(MessageHeaders.CONTENT_TYPE));
+
+        byte[] binary = {0, 1, 2, (byte) 0xff};
+        Message<byte[]> binaryReply = App1.reply(MessageBuilder.withPayload(binary)
+                .setHeader(MessageHeaders.CONTENT_TYPE, "application/x-load-message").build());
+        assertArrayEquals(binary, binaryReply.getPayload());
+        assertEquals("application/x-load-message", binaryReply.getHeaders().get(MessageHeaders.CONTENT_TYPE));
+    }
+}
@@ -0,0 +1,108 @@
+package com.kuraki;
+
+import com.kuraki.stream.KeyedLanes;
+import com.rabbitmq.client.Channel;
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.amqp.support.AmqpHeaders;
+import org.springframework.integration.support.MessageBuilder;
+import org.springframework.messaging.Message;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+public class KeyedLanesTest {
+
+    private final KeyedLanes lanes = new KeyedLanes(2, 16, "partitionKey");
+
+    private final Channel channel = mock(Channel.class);
+
+    @After
+    public void tearDown() {
+        lanes.destroy();
+    }
+
+    @Test
+    public void ackAfterLaneFinishes() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        lanes.submit(message(1, "user-1"), () -> await(release));
+
+        // 入队时不确认，处理完成后才确认
+        verify(channel, after(100).never()).basicAck(anyLong(), anyBoolean());
+        release.countDown();
+        verify(channel, timeout(1000)).basicAck(1L, false);
+    }
+
+    @Test
+    public void failedTaskIsRejectedAndLaneKeepsRunning() throws Exception {
+        List<Long> done = new CopyOnWriteArrayList<>();
+        lanes.submit(message(1, "user-1"), () -> {
+            throw new IllegalStateException("poison");
+        });
+        lanes.submit(message(2, "user-1"), () -> done.add(2L));
+
+        verify(channel, timeout(1000)).basicNack(1L, false, false);
+        verify(channel, timeout(1000)).basicAck(2L, false);
+        verify(channel, never()).basicAck(1L, false);
+        assertEquals(1, done.size());
+    }
+
+    @Test
+    public void sameKeyKeepsOrder() throws Exception {
+        List<Integer> order = new CopyOnWriteArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            int n = i;
+            lanes.submit(message(i, "user-1"), () -> order.add(n));
+        }
+        verify(channel, timeout(1000)).basicAck(9L, false);
+        for (int i = 0; i < 10; i++) {
+            assertEquals(i, (int) order.get(i));
+        }
+    }
+
+    @Test
+    public void messagesWithoutKeyUseEveryLane() throws Exception {
+        CountDownLatch bothRunning = new CountDownLatch(2);
+        CountDownLatch release = new CountDownLatch(1);
+        Runnable task = () -> {
+            bothRunning.countDown();
+            await(release);
+        };
+        // 没有 key 时不按消息体分配，两条内容相同的消息也会分到不同的 lane 并行处理
+        lanes.submit(message(1, null), task);
+        lanes.submit(message(2, null), task);
+
+        assertTrue(bothRunning.await(1, TimeUnit.SECONDS));
+        release.countDown();
+        verify(channel, timeout(1000)).basicAck(1L, false);
+        verify(channel, timeout(1000)).basicAck(2L, false);
+    }
+
+    private Message<?> message(long deliveryTag, String key) {
+        return MessageBuilder.withPayload("hello".getBytes())
+                .setHeader("partitionKey", key)
+                .setHeader(AmqpHeaders.CHANNEL, channel)
+                .setHeader(AmqpHeaders.DELIVERY_TAG, deliveryTag)
+                .build();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.kuraki.rabbit;
+
+import com.kuraki.config.SinkSender;
+import com.kuraki.stream.BatchMessageHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cloud.stream.annotation.EnableBinding;
+import org.springframework.cloud.stream.messaging.Sink;
+import org.springframework.context.annotation.Bean;
+
+import java.util.List;
+
+/**
+ * SinkReceiver 的批量模式，sink.batch.enabled=true 时代替 SinkReceiver。
+ * 建议设置 spring.cloud.stream.rabbit.bindings.input.consumer.acknowledgeMode=MANUAL，prefetch 不小于 sink.batch.size
+ */
+@EnableBinding(value = {Sink.class, SinkSender.class})
+@ConditionalOnProperty(name = "sink.batch.enabled", havingValue = "true")
+public class SinkBatchReceiver {
+
+    private static Logger logger = LoggerFactory.getLogger(SinkBatchReceiver.class);
+
+    @Autowired
+    private Sink sink;
+
+    @Bean
+    public BatchMessageHandler<Object> sinkBatchHandler(@Value("${sink.batch.size:100}") int batchSize,
+                                                        @Value("${sink.batch.timeout-ms:10}") long batchTimeoutMs,
+                                                        @Value("${spring.cloud.stream.bindings.input.consumer.concurrency:1}") int concurrency) {
+        BatchMessageHandler<Object> handler = new BatchMessageHandler<>(this::receiver, null, batchSize, batchTimeoutMs,
+                concurrency);
+        sink.input().subscribe(handler);
+        return handler;
+    }
+
+    public List<?> receiver(List<Object> payloads) {
+        logger.info("Received {} messages", payloads.size());
+        return null;
+    }
+}
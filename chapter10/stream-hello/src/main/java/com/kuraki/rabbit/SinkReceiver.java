@@ -1,19 +1,46 @@
 package com.kuraki.rabbit;
 
 import com.kuraki.config.SinkSender;
+import com.kuraki.stream.DelayedRetry;
+import com.kuraki.stream.PayloadCodecs;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.cloud.stream.annotation.EnableBinding;
 import org.springframework.cloud.stream.annotation.StreamListener;
 import org.springframework.cloud.stream.messaging.Sink;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+
+import java.nio.charset.StandardCharsets;
 
 @EnableBinding(value = {Sink.class, SinkSender.class})
+@ConditionalOnProperty(name = "sink.batch.enabled", havingValue = "false", matchIfMissing = true)
 public class SinkReceiver {
 
     private static Logger logger = LoggerFactory.getLogger(SinkReceiver.class);
 
+    @Autowired(required = false)
+    private DelayedRetry retry;
+
     @StreamListener(Sink.INPUT)
-    public void receiver(Object payload) {
-        logger.info("Received: " + payload);
+    public void receiver(Message<?> message) {
+        if (retry == null) {
+            handle(message);
+        } else {
+            retry.run(message, this::handle);
+        }
+    }
+
+    private void handle(Message<?> message) {
+        Object payload = message.getPayload();
+        Object contentType = message.getHeaders().get(MessageHeaders.CONTENT_TYPE);
+        if (PayloadCodecs.isText(contentType, payload)) {
+            logger.info("Received: {}", payload instanceof String ? payload
+                    : new String(PayloadCodecs.bytes(payload), StandardCharsets.UTF_8));
+        } else {
+            logger.info("Received {} bytes of {}", PayloadCodecs.bytes(payload).length, contentType);
+        }
     }
 }
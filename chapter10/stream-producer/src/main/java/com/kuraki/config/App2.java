@@ -1,4 +1,196 @@
 package com.kuraki.config;
 
-public class App2 {
+import com.kuraki.stream.LatencyHistogram;
+import com.kuraki.stream.LoadMessage;
+import com.kuraki.stream.LoadMessageCodec;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.cloud.stream.annotation.EnableBinding;
+import org.springframework.cloud.stream.annotation.StreamListener;
+import org.springframework.context.ApplicationListener;
+import org.springframework.integration.support.MessageBuilder;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.util.InvalidMimeTypeException;
+import org.springframework.util.MimeType;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 基于 MySource 的压测消息生成器。
+ * 支持固定速率和最大吞吐两种模式，消息头部带序号和发送时间，
+ * 经 App1 处理后从 load-return 通道返回时统计端到端延迟，load-return 上的其他消息忽略。
+ * 发送超时或失败视为背压，退避后重试下一条。
+ */
+@EnableBinding(value = {MySource.class, LoadReturn.class})
+@EnableConfigurationProperties(LoadProperties.class)
+public class App2 implements ApplicationListener<ApplicationReadyEvent> {
+
+    private static Logger logger = LoggerFactory.getLogger(App2.class);
+
+    private static final long MAX_BACKOFF_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    @Autowired
+    private LoadProperties properties;
+
+    @Autowired
+    private MySource source;
+
+    private final LoadMessageCodec codec = new LoadMessageCodec();
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    private final AtomicLong sent = new AtomicLong();
+
+    private final AtomicLong rejected = new AtomicLong();
+
+    private final AtomicLong received = new AtomicLong();
+
+    private final AtomicLong ignored = new AtomicLong();
+
+    // 发送耗时，微秒
+    private final LatencyHistogram sendLatency = new LatencyHistogram();
+
+    // 端到端延迟，微秒
+    private final LatencyHistogram endToEndLatency = new LatencyHistogram();
+
+    private volatile boolean running;
+
+    private ExecutorService senders;
+
+    private ScheduledExecutorService reporter;
+
+    @Override
+    public void onApplicationEvent(ApplicationReadyEvent event) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        MessageChannel channel = "output-2".equals(properties.getOutput()) ? source.output2() : source.output1();
+        running = true;
+        senders = Executors.newFixedThreadPool(properties.getThreads());
+        for (int i = 0; i < properties.getThreads(); i++) {
+            senders.execute(() -> sendLoop(channel));
+        }
+        reporter = Executors.newSingleThreadScheduledExecutor();
+        reporter.scheduleAtFixedRate(this::report, properties.getReportIntervalMs(),
+                properties.getReportIntervalMs(), TimeUnit.MILLISECONDS);
+        logger.info("Load started: {}", properties);
+    }
+
+    @StreamListener(LoadReturn.INPUT)
+    public void receive(Message<byte[]> message) {
+        long now = System.nanoTime();
+        if (!isLoadMessage(message.getHeaders().get(MessageHeaders.CONTENT_TYPE))) {
+            ignored.incrementAndGet();
+            return;
+        }
+        LoadMessage load;
+        try {
+            load = codec.decode(message.getPayload());
+        } catch (IllegalArgumentException e) {
+            ignored.incrementAndGet();
+            return;
+        }
+        received.incrementAndGet();
+        endToEndLatency.record(TimeUnit.NANOSECONDS.toMicros(now - load.getSentAt()));
+    }
+
+    private static boolean isLoadMessage(Object contentType) {
+        try {
+            return contentType != null
+                    && LoadMessageCodec.MIME_TYPE.isCompatibleWith(MimeType.valueOf(contentType.toString()));
+        } catch (InvalidMimeTypeException e) {
+            return false;
+        }
+    }
+
+    private void sendLoop(MessageChannel channel) {
+        int batchSize = Math.max(properties.getBatchSize(), 1);
+        boolean fixedRate = properties.getMode() == LoadProperties.Mode.FIXED_RATE;
+        // 每个线程每批之间的间隔
+        long intervalNanos = fixedRate
+                ? TimeUnit.SECONDS.toNanos(1) * batchSize * properties.getThreads() / Math.max(properties.getRate(), 1)
+                : 0;
+        long deadline = properties.getDurationSeconds() > 0
+                ? System.nanoTime() + TimeUnit.SECONDS.toNanos(properties.getDurationSeconds())
+                : Long.MAX_VALUE;
+        long next = System.nanoTime();
+        long backoff = 0;
+        while (running && System.nanoTime() < deadline) {
+            if (fixedRate) {
+                long now = System.nanoTime();
+                if (next > now) {
+                    LockSupport.parkNanos(next - now);
+                } else if (now - next > TimeUnit.SECONDS.toNanos(1)) {
+                    // 落后超过 1 秒时放弃追赶，避免突发
+                    next = now;
+                }
+                next += intervalNanos;
+            }
+            for (int i = 0; i < batchSize; i++) {
+                if (send(channel)) {
+                    backoff = 0;
+                } else {
+                    backoff = backoff == 0 ? TimeUnit.MILLISECONDS.toNanos(1) : Math.min(backoff * 2, MAX_BACKOFF_NANOS);
+                    LockSupport.parkNanos(backoff);
+                    break;
+                }
+            }
+        }
+    }
+
+    private boolean send(MessageChannel channel) {
+        LoadMessage load = new LoadMessage(sequence.incrementAndGet(), System.nanoTime(), properties.getPayloadSize());
+        Message<byte[]> message = MessageBuilder.withPayload(codec.encode(load))
+                .setHeader(MessageHeaders.CONTENT_TYPE, LoadMessageCodec.MIME_TYPE.toString())
+                .build();
+        long start = System.nanoTime();
+        try {
+            if (!channel.send(message, properties.getSendTimeoutMs())) {
+                rejected.incrementAndGet();
+                return false;
+            }
+        } catch (Exception e) {
+            rejected.incrementAndGet();
+            return false;
+        }
+        sendLatency.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+        sent.incrementAndGet();
+        return true;
+    }
+
+    // 只统计上一个报告间隔，发送线程不停止记录
+    private void report() {
+        double seconds = properties.getReportIntervalMs() / 1000.0;
+        long sentCount = sent.getAndSet(0);
+        long receivedCount = received.getAndSet(0);
+        LatencyHistogram.Snapshot send = sendLatency.intervalSnapshot();
+        LatencyHistogram.Snapshot endToEnd = endToEndLatency.intervalSnapshot();
+        logger.info("sent {}/s, rejected {}, received {}/s, ignored {}, send p50 {}us p99 {}us, "
+                        + "end-to-end p50 {}us p99 {}us p99.9 {}us",
+                (long) (sentCount / seconds), rejected.getAndSet(0), (long) (receivedCount / seconds),
+                ignored.getAndSet(0), send.percentile(50), send.percentile(99),
+                endToEnd.percentile(50), endToEnd.percentile(99), endToEnd.percentile(99.9));
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (senders != null) {
+            senders.shutdown();
+        }
+        if (reporter != null) {
+            reporter.shutdown();
+        }
+    }
 }
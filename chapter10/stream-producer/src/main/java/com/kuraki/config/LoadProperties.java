@@ -0,0 +1,44 @@
+package com.kuraki.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "load")
+public class LoadProperties {
+
+    public enum Mode {
+        // 按 rate 固定速率发送
+        FIXED_RATE,
+        // 不限速，尽可能快地发送
+        MAX_THROUGHPUT
+    }
+
+    // 默认不发送，避免应用一启动就开始压测
+    private boolean enabled = false;
+
+    private Mode mode = Mode.FIXED_RATE;
+
+    // 每秒发送的消息数，仅 FIXED_RATE 模式使用
+    private int rate = 1000;
+
+    // 每条消息的字节数，不小于 20
+    private int payloadSize = 128;
+
+    // 每次连续发送的消息数
+    private int batchSize = 1;
+
+    // 发送线程数
+    private int threads = 1;
+
+    // 持续时间，0 表示一直发送
+    private int durationSeconds = 0;
+
+    // 单次发送的超时时间，超时视为被背压拒绝
+    private long sendTimeoutMs = 1000;
+
+    private long reportIntervalMs = 5000;
+
+    // 使用 MySource 的哪个输出通道
+    private String output = "output-1";
+}
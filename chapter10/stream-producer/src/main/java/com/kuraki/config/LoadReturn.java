@@ -0,0 +1,15 @@
+package com.kuraki.config;
+
+import org.springframework.cloud.stream.annotation.Input;
+import org.springframework.messaging.SubscribableChannel;
+
+/**
+ * 压测消息经过处理后返回的通道，用来统计端到端延迟
+ */
+public interface LoadReturn {
+
+    String INPUT = "load-return";
+
+    @Input(INPUT)
+    SubscribableChannel input();
+}
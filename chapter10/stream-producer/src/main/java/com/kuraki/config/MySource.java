@@ -0,0 +1,13 @@
+package com.kuraki.config;
+
+import org.springframework.cloud.stream.annotation.Output;
+import org.springframework.messaging.MessageChannel;
+
+public interface MySource {
+
+    @Output("output-1")
+    MessageChannel output1();
+
+    @Output("output-2")
+    MessageChannel output2();
+}
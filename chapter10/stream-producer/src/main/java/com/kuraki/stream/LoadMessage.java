@@ -0,0 +1,19 @@
+package com.kuraki.stream;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class LoadMessage {
+
+    private long sequence;
+
+    // 发送时的 System.nanoTime()，只能由发送进程计算延迟
+    private long sentAt;
+
+    // 编码后的总字节数
+    private int size;
+}
@@ -0,0 +1,47 @@
+package com.kuraki.stream;
+
+import org.springframework.util.MimeType;
+
+import java.nio.ByteBuffer;
+
+/**
+ * LoadMessage 的二进制格式：[magic 4 字节][sequence 8 字节][sentAt 8 字节][填充]。
+ * 头部在开头并带 magic，不依赖处理端对消息的改动方式；App1 对非文本消息原样转发。
+ */
+public class LoadMessageCodec implements PayloadCodec<LoadMessage> {
+
+    public static final MimeType MIME_TYPE = MimeType.valueOf("application/x-load-message");
+
+    public static final int MAGIC = 0x4c4f4144;
+
+    public static final int HEADER_SIZE = 20;
+
+    @Override
+    public MimeType getMimeType() {
+        return MIME_TYPE;
+    }
+
+    @Override
+    public Class<LoadMessage> getType() {
+        return LoadMessage.class;
+    }
+
+    @Override
+    public byte[] encode(LoadMessage value) {
+        byte[] bytes = new byte[Math.max(value.getSize(), HEADER_SIZE)];
+        ByteBuffer.wrap(bytes)
+                .putInt(MAGIC)
+                .putLong(value.getSequence())
+                .putLong(value.getSentAt());
+        return bytes;
+    }
+
+    @Override
+    public LoadMessage decode(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        if (bytes.length < HEADER_SIZE || buffer.getInt() != MAGIC) {
+            throw new IllegalArgumentException("Not a load message, length " + bytes.length);
+        }
+        return new LoadMessage(buffer.getLong(), buffer.getLong(), bytes.length);
+    }
+}
@@ -0,0 +1,17 @@
+package com.kuraki.stream;
+
+import org.springframework.util.MimeType;
+
+/**
+ * DTO 的紧凑二进制编解码，发送时以 getMimeType() 作为 contentType
+ */
+public interface PayloadCodec<T> {
+
+    MimeType getMimeType();
+
+    Class<T> getType();
+
+    byte[] encode(T value);
+
+    T decode(byte[] bytes);
+}
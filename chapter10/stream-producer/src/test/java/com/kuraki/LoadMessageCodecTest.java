@@ -0,0 +1,36 @@
+package com.kuraki;
+
+import com.kuraki.stream.LoadMessage;
+import com.kuraki.stream.LoadMessageCodec;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+
+public class LoadMessageCodecTest {
+
+    private final LoadMessageCodec codec = new LoadMessageCodec();
+
+    @Test
+    public void roundTrip() {
+        byte[] bytes = codec.encode(new LoadMessage(7, 123456789L, 128));
+        assertEquals(128, bytes.length);
+        assertEquals(new LoadMessage(7, 123456789L, 128), codec.decode(bytes));
+    }
+
+    @Test
+    public void payloadIsAtLeastTheHeader() {
+        assertEquals(LoadMessageCodec.HEADER_SIZE, codec.encode(new LoadMessage(1, 2, 4)).length);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void prefixedMessageIsRejected() {
+        byte[] prefix = "From Input Channel Return - ".getBytes(StandardCharsets.UTF_8);
+        byte[] encoded = codec.encode(new LoadMessage(1, 2, 64));
+        byte[] prefixed = new byte[prefix.length + encoded.length];
+        System.arraycopy(prefix, 0, prefixed, 0, prefix.length);
+        System.arraycopy(encoded, 0, prefixed, prefix.length, encoded.length);
+        codec.decode(prefixed);
+    }
+}
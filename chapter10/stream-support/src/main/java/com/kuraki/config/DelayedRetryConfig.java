@@ -0,0 +1,29 @@
+package com.kuraki.config;
+
+import com.kuraki.stream.DelayedRetry;
+import org.springframework.amqp.core.AmqpAdmin;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 设置 stream.retry.queue（消费队列名 {destination}.{group}）后，处理失败的消息转入延迟队列重试，
+ * stream.retry.delays-ms 为每次重试的等待时间，用完后进入死信队列；
+ * stream.retry.confirm-timeout-ms 为等待 broker 确认转发消息的时间，超时后原消息交还给 binder
+ */
+@Configuration
+@ConditionalOnProperty(name = "stream.retry.queue")
+public class DelayedRetryConfig {
+
+    @Bean
+    public DelayedRetry delayedRetry(RabbitTemplate rabbitTemplate, AmqpAdmin amqpAdmin,
+                                     @Value("${stream.retry.queue}") String queue,
+                                     @Value("${stream.retry.delays-ms:1000,10000,60000}") long[] delaysMs,
+                                     @Value("${stream.retry.confirm-timeout-ms:5000}") long confirmTimeoutMs) {
+        DelayedRetry retry = new DelayedRetry(rabbitTemplate, queue, delaysMs, confirmTimeoutMs);
+        retry.declare(amqpAdmin);
+        return retry;
+    }
+}
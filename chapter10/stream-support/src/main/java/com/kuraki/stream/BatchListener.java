@@ -0,0 +1,16 @@
+package com.kuraki.stream;
+
+import java.util.List;
+
+/**
+ * 批量消费接口
+ */
+public interface BatchListener<T> {
+
+    /**
+     * 处理一批消息。返回值与 payloads 一一对应，作为回复发送到输出通道，为 null 的元素不发送；
+     * 没有输出通道时可以返回 null。
+     * 抛出异常时这一批会逐条重新调用，只有真正失败的消息按单条失败处理。
+     */
+    List<?> onBatch(List<T> payloads);
+}
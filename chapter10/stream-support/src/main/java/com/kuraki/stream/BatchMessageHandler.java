@@ -0,0 +1,276 @@
+package com.kuraki.stream;
+
+import com.rabbitmq.client.Channel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.support.AmqpHeaders;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.integration.support.MessageBuilder;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.MessagingException;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 把逐条投递的消息攒成批次交给 BatchListener，按消费端的确认方式分两种模式：
+ * <ul>
+ * <li>acknowledgeMode=MANUAL（推荐）：消息带有 amqp_channel 和 amqp_deliveryTag 头，handleMessage 入队后立即返回，
+ * 不占用消费线程，批次大小只受 prefetch 限制（prefetch 不能小于 batchSize）。一批处理完后先发送整批回复，
+ * 再逐条 ack 回复已发出的消息；处理或回复失败的消息 nack 且不重回队列，配置 autoBindDlq 时进入死信队列。</li>
+ * <li>自动确认：binder 消费线程等待所在批次处理完成后再返回，单条消息的 ack、重试、失败仍由 binder 处理。
+ * 同时等待的消息不会超过消费并发度，攒满 min(batchSize, concurrency) 条就处理，不必等到超时。</li>
+ * </ul>
+ * 回复已发出的消息不会因为同批其他消息失败而重新处理，避免重试时重复回复。
+ * 回复较多时可以打开输出绑定的 producer.batchingEnabled，由 binder 把连续的回复合并为一次发布。
+ */
+public class BatchMessageHandler<T> implements MessageHandler, DisposableBean {
+
+    private static Logger logger = LoggerFactory.getLogger(BatchMessageHandler.class);
+
+    private final BatchListener<T> listener;
+
+    private final MessageChannel output;
+
+    private final int batchSize;
+
+    private final int blockingBatchSize;
+
+    private final long batchTimeoutMs;
+
+    private final BlockingQueue<Pending> pending;
+
+    private final Thread worker;
+
+    private volatile boolean running = true;
+
+    /**
+     * @param concurrency 输入绑定的消费并发度，只用于自动确认模式
+     */
+    public BatchMessageHandler(BatchListener<T> listener, MessageChannel output, int batchSize, long batchTimeoutMs,
+                               int concurrency) {
+        this.listener = listener;
+        this.output = output;
+        this.batchSize = batchSize;
+        this.blockingBatchSize = Math.max(1, Math.min(batchSize, concurrency));
+        this.batchTimeoutMs = batchTimeoutMs;
+        this.pending = new ArrayBlockingQueue<>(batchSize * 4);
+        this.worker = new Thread(this::run, "batch-listener");
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    @Override
+    public void handleMessage(Message<?> message) throws MessagingException {
+        if (!running) {
+            throw new MessagingException(message, "Batch handler is stopped");
+        }
+        Pending item = new Pending(message);
+        try {
+            pending.put(item);
+            // 与 destroy 并发时，入队的消息可能错过 destroy 的清理
+            if (!running) {
+                failPending();
+            }
+            if (item.manualAck()) {
+                return;
+            }
+            item.done.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MessagingException(message, e);
+        }
+        if (item.error != null) {
+            throw new MessagingException(message, item.error);
+        }
+    }
+
+    private void run() {
+        List<Pending> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                Pending first = pending.poll(batchTimeoutMs, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.currentTimeMillis() + batchTimeoutMs;
+                while (!full(batch)) {
+                    pending.drainTo(batch, batchSize - batch.size());
+                    long remaining = deadline - System.currentTimeMillis();
+                    if (full(batch) || remaining <= 0) {
+                        break;
+                    }
+                    Pending next = pending.poll(remaining, TimeUnit.MILLISECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                process(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                abandon(batch);
+                batch.clear();
+                return;
+            } finally {
+                for (Pending item : batch) {
+                    complete(item);
+                }
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * 所有阻塞等待的消费线程都已在批次中时，不会再有新消息到达
+     */
+    private boolean full(List<Pending> batch) {
+        if (batch.size() >= batchSize) {
+            return true;
+        }
+        for (Pending item : batch) {
+            if (item.manualAck()) {
+                return false;
+            }
+        }
+        return batch.size() >= blockingBatchSize;
+    }
+
+    private void process(List<Pending> batch) {
+        List<T> payloads = new ArrayList<>(batch.size());
+        for (Pending item : batch) {
+            payloads.add(extract(item.message));
+        }
+        List<?> results = null;
+        boolean processed = false;
+        try {
+            results = listener.onBatch(payloads);
+            processed = true;
+        } catch (Exception e) {
+            if (batch.size() == 1) {
+                batch.get(0).error = e;
+                return;
+            }
+            logger.warn("batch of {} failed, retry one by one: {}", batch.size(), e.getMessage());
+        }
+        if (processed) {
+            for (int i = 0; i < batch.size(); i++) {
+                send(batch.get(i), results == null || i >= results.size() ? null : results.get(i));
+            }
+            return;
+        }
+        for (Pending item : batch) {
+            List<?> result;
+            try {
+                result = listener.onBatch(Collections.singletonList(extract(item.message)));
+            } catch (Exception e) {
+                item.error = e;
+                continue;
+            }
+            send(item, result == null || result.isEmpty() ? null : result.get(0));
+        }
+    }
+
+    /**
+     * 交给 BatchListener 的内容，默认是消息体；需要消息头时可以覆盖为返回整条消息
+     */
+    @SuppressWarnings("unchecked")
+    protected T extract(Message<?> message) {
+        return (T) message.getPayload();
+    }
+
+    private void send(Pending item, Object result) {
+        if (output == null || result == null) {
+            return;
+        }
+        try {
+            output.send(result instanceof Message ? (Message<?>) result : MessageBuilder.withPayload(result).build());
+        } catch (Exception e) {
+            item.error = e;
+        }
+    }
+
+    private void complete(Pending item) {
+        if (item.manualAck()) {
+            acknowledge(item);
+        }
+        item.done.countDown();
+    }
+
+    private void acknowledge(Pending item) {
+        Channel channel = item.channel();
+        long deliveryTag = item.deliveryTag();
+        try {
+            // 同一个 channel 的确认不能并发
+            synchronized (channel) {
+                if (item.error == null) {
+                    channel.basicAck(deliveryTag, false);
+                } else {
+                    logger.warn("Rejecting message {}: {}", deliveryTag, item.error.getMessage());
+                    channel.basicNack(deliveryTag, false, false);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            // channel 已关闭时 broker 会重新投递未确认的消息
+            logger.warn("Could not acknowledge message {}: {}", deliveryTag, e.getMessage());
+        }
+    }
+
+    private void failPending() {
+        List<Pending> left = new ArrayList<>();
+        pending.drainTo(left);
+        abandon(left);
+    }
+
+    /**
+     * 停止时未处理的消息：等待的消费线程收到异常；手动确认的消息不确认，channel 关闭后由 broker 重新投递
+     */
+    private void abandon(List<Pending> items) {
+        for (Pending item : items) {
+            item.error = new IllegalStateException("Batch handler is stopped");
+            item.done.countDown();
+        }
+    }
+
+    @Override
+    public void destroy() {
+        running = false;
+        worker.interrupt();
+        failPending();
+    }
+
+    private class Pending {
+
+        private final Message<?> message;
+
+        private final CountDownLatch done = new CountDownLatch(1);
+
+        private volatile Exception error;
+
+        Pending(Message<?> message) {
+            this.message = message;
+        }
+
+        boolean manualAck() {
+            return message.getHeaders().get(AmqpHeaders.CHANNEL) instanceof Channel
+                    && message.getHeaders().get(AmqpHeaders.DELIVERY_TAG) != null;
+        }
+
+        Channel channel() {
+            return (Channel) message.getHeaders().get(AmqpHeaders.CHANNEL);
+        }
+
+        long deliveryTag() {
+            return message.getHeaders().get(AmqpHeaders.DELIVERY_TAG, Long.class);
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package com.kuraki.stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.core.AmqpAdmin;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.core.Queue;
+import org.springframework.amqp.rabbit.core.RabbitOperations;
+import org.springframework.amqp.rabbit.support.DefaultMessagePropertiesConverter;
+import org.springframework.amqp.rabbit.support.MessagePropertiesConverter;
+import org.springframework.amqp.support.converter.SimpleMessageConverter;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * 不阻塞消费线程的重试：处理失败的消息发到第 n 个延迟队列，消息在队列中等待 TTL 到期后
+ * 经默认 exchange 回到消费队列；超过最大次数后发到 {queue}.dlq。
+ * 消费线程等到 broker 确认（publisher confirm）转发的消息后才返回，之后 binder 才确认原消息，
+ * 转发失败或超时时把原异常交还给 binder，不会两边都丢；正常消息不受影响。
+ * byte[] 和 String 消息体原样转发，其他可序列化的消息体按 Java 序列化转发，binder 重新投递时还原。
+ * queue 必须是固定名称的消费队列，即 {destination}.{group}，所以 binding 需要配置 group。
+ */
+public class DelayedRetry {
+
+    private static Logger logger = LoggerFactory.getLogger(DelayedRetry.class);
+
+    public static final String ATTEMPT = "x-retry-attempt";
+
+    public static final String EXCEPTION = "x-exception-message";
+
+    private final RabbitOperations rabbitOperations;
+
+    private final String queue;
+
+    private final long[] delaysMs;
+
+    private final long confirmTimeoutMs;
+
+    private final SimpleMessageConverter converter = new SimpleMessageConverter();
+
+    private final MessagePropertiesConverter propertiesConverter = new DefaultMessagePropertiesConverter();
+
+    public DelayedRetry(RabbitOperations rabbitOperations, String queue, long[] delaysMs, long confirmTimeoutMs) {
+        this.rabbitOperations = rabbitOperations;
+        this.queue = queue;
+        this.delaysMs = delaysMs;
+        this.confirmTimeoutMs = confirmTimeoutMs;
+    }
+
+    /**
+     * 声明延迟队列和死信队列，参数与已存在的队列不一致时 broker 会拒绝
+     */
+    public void declare(AmqpAdmin amqpAdmin) {
+        for (int i = 0; i < delaysMs.length; i++) {
+            Map<String, Object> arguments = new HashMap<>();
+            arguments.put("x-message-ttl", delaysMs[i]);
+            arguments.put("x-dead-letter-exchange", "");
+            arguments.put("x-dead-letter-routing-key", queue);
+            amqpAdmin.declareQueue(new Queue(delayQueue(i), true, false, false, arguments));
+        }
+        amqpAdmin.declareQueue(new Queue(deadLetterQueue(), true));
+    }
+
+    public String delayQueue(int index) {
+        return queue + ".retry." + delaysMs[index];
+    }
+
+    public String deadLetterQueue() {
+        return queue + ".dlq";
+    }
+
+    /**
+     * 执行 handler，失败时转入重试并返回 null
+     */
+    public <T> T execute(Message<?> message, Function<Message<?>, T> handler) {
+        try {
+            return handler.apply(message);
+        } catch (RuntimeException e) {
+            retry(message, e);
+            return null;
+        }
+    }
+
+    /**
+     * 执行 handler，失败时转入重试并返回 false
+     */
+    public boolean run(Message<?> message, Consumer<Message<?>> handler) {
+        try {
+            handler.accept(message);
+            return true;
+        } catch (RuntimeException e) {
+            retry(message, e);
+            return false;
+        }
+    }
+
+    private void retry(Message<?> message, RuntimeException cause) {
+        int attempt = attempt(message);
+        String target = attempt < delaysMs.length ? delayQueue(attempt) : deadLetterQueue();
+        MessageProperties properties = new MessageProperties();
+        for (Map.Entry<String, Object> header : message.getHeaders().entrySet()) {
+            if (copyable(header.getKey(), header.getValue())) {
+                properties.setHeader(header.getKey(), header.getValue());
+            }
+        }
+        properties.setHeader(ATTEMPT, attempt + 1);
+        properties.setHeader(EXCEPTION, String.valueOf(cause.getMessage()));
+        try {
+            publish(target, toAmqpMessage(message, properties));
+        } catch (AmqpException | IllegalArgumentException e) {
+            // 发不出去时交还给 binder 处理，不丢消息；保留原异常，转发失败的原因附在后面
+            logger.warn("Could not publish to {}: {}", target, e.getMessage());
+            cause.addSuppressed(e);
+            throw cause;
+        }
+        logger.warn("Attempt {} failed, sent to {}: {}", attempt + 1, target, cause.getMessage());
+    }
+
+    private org.springframework.amqp.core.Message toAmqpMessage(Message<?> message, MessageProperties properties) {
+        Object payload = message.getPayload();
+        if (payload instanceof byte[] || payload instanceof String) {
+            Object contentType = message.getHeaders().get(MessageHeaders.CONTENT_TYPE);
+            if (contentType != null) {
+                properties.setContentType(contentType.toString());
+            }
+            return new org.springframework.amqp.core.Message(PayloadCodecs.bytes(payload), properties);
+        }
+        if (payload instanceof Serializable) {
+            return converter.toMessage(payload, properties);
+        }
+        throw new IllegalArgumentException("Unsupported payload " + payload.getClass().getName());
+    }
+
+    /**
+     * 把借用的 channel 切换到 confirm 模式，发布后等待 broker 确认
+     */
+    private void publish(String target, org.springframework.amqp.core.Message message) {
+        rabbitOperations.execute(channel -> {
+            channel.confirmSelect();
+            channel.basicPublish("", target, false,
+                    propertiesConverter.fromMessageProperties(message.getMessageProperties(), "UTF-8"),
+                    message.getBody());
+            if (!channel.waitForConfirms(confirmTimeoutMs)) {
+                throw new AmqpException("Broker rejected message to " + target);
+            }
+            return null;
+        });
+    }
+
+    private int attempt(Message<?> message) {
+        Object attempt = message.getHeaders().get(ATTEMPT);
+        return attempt instanceof Number ? ((Number) attempt).intValue() : 0;
+    }
+
+    private boolean copyable(String name, Object value) {
+        if (MessageHeaders.ID.equals(name) || MessageHeaders.TIMESTAMP.equals(name)
+                || MessageHeaders.CONTENT_TYPE.equals(name) || name.startsWith("amqp_")) {
+            return false;
+        }
+        return value instanceof String || value instanceof Number || value instanceof Boolean;
+    }
+}
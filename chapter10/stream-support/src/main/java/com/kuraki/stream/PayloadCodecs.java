@@ -0,0 +1,63 @@
+package com.kuraki.stream;
+
+import org.springframework.util.InvalidMimeTypeException;
+import org.springframework.util.MimeType;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 直接在 byte[] 上处理消息体，不经过 binder 的通用类型转换
+ */
+public final class PayloadCodecs {
+
+    private PayloadCodecs() {
+    }
+
+    /**
+     * 取出消息体的字节。byte[] 直接返回，不复制；ByteBuffer 只读取剩余部分，不改变它的 position
+     */
+    public static byte[] bytes(Object payload) {
+        if (payload instanceof byte[]) {
+            return (byte[]) payload;
+        }
+        if (payload instanceof String) {
+            return ((String) payload).getBytes(StandardCharsets.UTF_8);
+        }
+        if (payload instanceof ByteBuffer) {
+            ByteBuffer buffer = (ByteBuffer) payload;
+            if (buffer.hasArray() && buffer.arrayOffset() == 0 && buffer.position() == 0
+                    && buffer.remaining() == buffer.array().length) {
+                return buffer.array();
+            }
+            byte[] bytes = new byte[buffer.remaining()];
+            buffer.duplicate().get(bytes);
+            return bytes;
+        }
+        throw new IllegalArgumentException("Unsupported payload " + payload.getClass().getName());
+    }
+
+    /**
+     * 消息体是否为文本：String，或 contentType 为 text/*。没有 contentType 的 byte[] 按 binder 的默认当作文本
+     */
+    public static boolean isText(Object contentType, Object payload) {
+        if (payload instanceof String || contentType == null) {
+            return true;
+        }
+        try {
+            return "text".equals(MimeType.valueOf(contentType.toString()).getType());
+        } catch (InvalidMimeTypeException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 在消息体前拼接固定前缀，只分配一次
+     */
+    public static byte[] prepend(byte[] prefix, byte[] payload) {
+        byte[] result = new byte[prefix.length + payload.length];
+        System.arraycopy(prefix, 0, result, 0, prefix.length);
+        System.arraycopy(payload, 0, result, prefix.length, payload.length);
+        return result;
+    }
+}
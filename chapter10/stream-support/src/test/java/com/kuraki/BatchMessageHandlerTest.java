@@ -0,0 +1,215 @@
+package com.kuraki;
+
+import com.kuraki.stream.BatchMessageHandler;
+import com.rabbitmq.client.Channel;
+import org.junit.Test;
+import org.springframework.amqp.support.AmqpHeaders;
+import org.springframework.integration.channel.QueueChannel;
+import org.springframework.integration.support.MessageBuilder;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessagingException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+public class BatchMessageHandlerTest {
+
+    @Test
+    public void batchMessagesAndFailOnlyPoison() throws Exception {
+        List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+        QueueChannel output = new QueueChannel();
+        BatchMessageHandler<String> handler = new BatchMessageHandler<>(payloads -> {
+            batchSizes.add(payloads.size());
+            List<String> results = new ArrayList<>();
+            for (String payload : payloads) {
+                if ("poison".equals(payload)) {
+                    throw new IllegalArgumentException(payload);
+                }
+                results.add("reply " + payload);
+            }
+            return results;
+        }, output, 8, 50, 8);
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            String payload = i == 5 ? "poison" : "m" + i;
+            futures.add(executor.submit(() -> handler.handleMessage(MessageBuilder.withPayload(payload).build())));
+        }
+        int failed = 0;
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (Exception e) {
+                assertTrue(e.getCause() instanceof MessagingException);
+                failed++;
+            }
+        }
+        executor.shutdown();
+        handler.destroy();
+
+        assertEquals(1, failed);
+        assertEquals(15, output.getQueueSize());
+        assertTrue(batchSizes.get(0) > 1);
+        assertTrue(batchSizes.stream().allMatch(size -> size <= 8));
+    }
+
+    @Test
+    public void blockingBatchFlushesAtConcurrencyWithoutWaitingForTimeout() throws Exception {
+        List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+        BatchMessageHandler<String> handler = new BatchMessageHandler<>(payloads -> {
+            batchSizes.add(payloads.size());
+            return null;
+        }, null, 100, 10000, 2);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        long start = System.nanoTime();
+        Future<?> first = executor.submit(() -> handler.handleMessage(MessageBuilder.withPayload("a").build()));
+        Future<?> second = executor.submit(() -> handler.handleMessage(MessageBuilder.withPayload("b").build()));
+        first.get(5, TimeUnit.SECONDS);
+        second.get(5, TimeUnit.SECONDS);
+        // 远小于 10 秒的批次超时
+        assertTrue(TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start) < 5);
+        executor.shutdown();
+        handler.destroy();
+        assertEquals(2, batchSizes.stream().mapToInt(Integer::intValue).sum());
+    }
+
+    @Test
+    public void manualAckDoesNotBlockListenerAndAcksEachDelivery() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+        BatchMessageHandler<String> handler = new BatchMessageHandler<>(payloads -> {
+            batchSizes.add(payloads.size());
+            await(release);
+            if (payloads.contains("poison")) {
+                throw new IllegalArgumentException("poison");
+            }
+            return null;
+        }, null, 10, 50, 1);
+        Channel channel = mock(Channel.class);
+        // 单个消费线程连续投递，批次仍能攒满
+        for (long tag = 1; tag <= 10; tag++) {
+            handler.handleMessage(manual(tag == 4 ? "poison" : "m" + tag, channel, tag));
+        }
+        release.countDown();
+        for (long tag = 1; tag <= 10; tag++) {
+            if (tag == 4) {
+                verify(channel, timeout(5000)).basicNack(tag, false, false);
+            } else {
+                verify(channel, timeout(5000)).basicAck(tag, false);
+            }
+        }
+        handler.destroy();
+        assertEquals(10, (int) batchSizes.get(0));
+    }
+
+    @Test
+    public void sentRepliesAreNotResentWhenLaterReplyFails() throws Exception {
+        FailingChannel output = new FailingChannel(2);
+        BatchMessageHandler<String> handler = new BatchMessageHandler<>(payloads -> {
+            List<String> results = new ArrayList<>();
+            for (String payload : payloads) {
+                results.add("reply " + payload);
+            }
+            return results;
+        }, output, 3, 50, 1);
+        Channel channel = mock(Channel.class);
+        for (long tag = 1; tag <= 3; tag++) {
+            handler.handleMessage(manual("m" + tag, channel, tag));
+        }
+        verify(channel, timeout(5000)).basicAck(1L, false);
+        verify(channel, timeout(5000)).basicNack(2L, false, false);
+        verify(channel, timeout(5000)).basicAck(3L, false);
+        handler.destroy();
+        assertEquals(2, output.replies.size());
+    }
+
+    @Test
+    public void destroyReleasesBlockedListenerThreads() throws Exception {
+        CountDownLatch entered = new CountDownLatch(1);
+        BatchMessageHandler<String> handler = new BatchMessageHandler<>(payloads -> {
+            entered.countDown();
+            await(new CountDownLatch(1));
+            return null;
+        }, null, 1, 10, 1);
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            String payload = "m" + i;
+            futures.add(executor.submit(() -> handler.handleMessage(MessageBuilder.withPayload(payload).build())));
+        }
+        assertTrue(entered.await(5, TimeUnit.SECONDS));
+        handler.destroy();
+        for (Future<?> future : futures) {
+            try {
+                future.get(5, TimeUnit.SECONDS);
+                fail("Expected the handler to reject pending messages on shutdown");
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof MessagingException);
+            }
+        }
+        executor.shutdownNow();
+    }
+
+    private static Message<String> manual(String payload, Channel channel, long deliveryTag) {
+        return MessageBuilder.withPayload(payload)
+                .setHeader(AmqpHeaders.CHANNEL, channel)
+                .setHeader(AmqpHeaders.DELIVERY_TAG, deliveryTag)
+                .build();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 第 failAt 次发送失败，其余记录回复
+     */
+    private static class FailingChannel implements MessageChannel {
+
+        private final int failAt;
+
+        private final AtomicInteger sends = new AtomicInteger();
+
+        private final List<Object> replies = new CopyOnWriteArrayList<>();
+
+        FailingChannel(int failAt) {
+            this.failAt = failAt;
+        }
+
+        @Override
+        public boolean send(Message<?> message) {
+            return send(message, -1);
+        }
+
+        @Override
+        public boolean send(Message<?> message, long timeout) {
+            if (sends.incrementAndGet() == failAt) {
+                throw new IllegalStateException("broker unavailable");
+            }
+            replies.add(message.getPayload());
+            return true;
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.kuraki;
+
+import com.kuraki.stream.DelayedRetry;
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.Channel;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InOrder;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.core.ChannelCallback;
+import org.springframework.amqp.rabbit.core.RabbitOperations;
+import org.springframework.amqp.rabbit.support.DefaultMessagePropertiesConverter;
+import org.springframework.amqp.rabbit.support.MessagePropertiesConverter;
+import org.springframework.amqp.support.converter.SimpleMessageConverter;
+import org.springframework.integration.support.MessageBuilder;
+import org.springframework.messaging.Message;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class DelayedRetryTest {
+
+    // 代替 broker：按 routing key 存放发到默认 exchange 的消息
+    private final Map<String, Queue<org.springframework.amqp.core.Message>> broker = new ConcurrentHashMap<>();
+
+    private final MessagePropertiesConverter propertiesConverter = new DefaultMessagePropertiesConverter();
+
+    private Channel channel;
+
+    private static final Consumer<Message<?>> POISON = message -> {
+        throw new IllegalStateException("poison");
+    };
+
+    private DelayedRetry retry;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setUp() throws Exception {
+        channel = mock(Channel.class);
+        doAnswer(invocation -> {
+            Object[] args = invocation.getArguments();
+            MessageProperties properties = propertiesConverter.toMessageProperties(
+                    (AMQP.BasicProperties) args[3], null, "UTF-8");
+            broker.computeIfAbsent((String) args[1], key -> new ConcurrentLinkedQueue<>())
+                    .add(new org.springframework.amqp.core.Message((byte[]) args[4], properties));
+            return null;
+        }).when(channel).basicPublish(anyString(), anyString(), anyBoolean(), any(AMQP.BasicProperties.class),
+                any(byte[].class));
+        when(channel.waitForConfirms(anyLong())).thenReturn(true);
+        RabbitOperations template = mock(RabbitOperations.class);
+        when(template.execute(any(ChannelCallback.class)))
+                .thenAnswer(invocation -> ((ChannelCallback<?>) invocation.getArguments()[0]).doInRabbit(channel));
+        retry = new DelayedRetry(template, "input.hello", new long[]{1000, 10000}, 5000);
+    }
+
+    @Test
+    public void poisonMessageEscalatesToDeadLetterQueue() {
+        Consumer<Message<?>> poison = POISON;
+        Message<?> message = MessageBuilder.withPayload("bad").setHeader("contentType", "text/plain").build();
+
+        assertFalse(retry.run(message, poison));
+        message = redeliver("input.hello.retry.1000");
+        assertFalse(retry.run(message, poison));
+        message = redeliver("input.hello.retry.10000");
+        assertFalse(retry.run(message, poison));
+
+        org.springframework.amqp.core.Message dead = broker.get("input.hello.dlq").poll();
+        assertEquals("bad", new String(dead.getBody()));
+        assertEquals(3, dead.getMessageProperties().getHeaders().get(DelayedRetry.ATTEMPT));
+        assertEquals("poison", dead.getMessageProperties().getHeaders().get(DelayedRetry.EXCEPTION));
+        assertEquals("text/plain", dead.getMessageProperties().getContentType());
+        assertNull(broker.get("input.hello.retry.1000").poll());
+    }
+
+    @Test
+    public void waitForConfirmBeforeReturning() throws Exception {
+        assertFalse(retry.run(MessageBuilder.withPayload("bad").build(), POISON));
+
+        InOrder inOrder = inOrder(channel);
+        inOrder.verify(channel).confirmSelect();
+        inOrder.verify(channel).basicPublish(eq(""), eq("input.hello.retry.1000"), eq(false),
+                any(AMQP.BasicProperties.class), any(byte[].class));
+        inOrder.verify(channel).waitForConfirms(5000);
+    }
+
+    @Test
+    public void unconfirmedRepublishHandsOriginalFailureBackToBinder() throws Exception {
+        when(channel.waitForConfirms(anyLong())).thenReturn(false);
+        try {
+            retry.run(MessageBuilder.withPayload("bad").build(), POISON);
+            fail("Expected the handler failure");
+        } catch (IllegalStateException e) {
+            // binder 收到原异常，消息不会被确认
+            assertEquals("poison", e.getMessage());
+            assertTrue(e.getSuppressed()[0] instanceof AmqpException);
+        }
+    }
+
+    @Test
+    public void serializablePayloadIsRepublished() {
+        HashMap<String, Integer> payload = new HashMap<>();
+        payload.put("id", 7);
+        assertFalse(retry.run(MessageBuilder.withPayload(payload).build(), POISON));
+
+        org.springframework.amqp.core.Message sent = broker.get("input.hello.retry.1000").poll();
+        assertEquals(MessageProperties.CONTENT_TYPE_SERIALIZED_OBJECT, sent.getMessageProperties().getContentType());
+        assertEquals(payload, new SimpleMessageConverter().fromMessage(sent));
+    }
+
+    @Test
+    public void unsupportedPayloadKeepsOriginalFailure() {
+        try {
+            retry.run(MessageBuilder.withPayload(new Object()).build(), POISON);
+            fail("Expected the handler failure");
+        } catch (IllegalStateException e) {
+            assertEquals("poison", e.getMessage());
+            assertEquals(1, e.getSuppressed().length);
+        }
+        assertTrue(broker.isEmpty());
+    }
+
+    private Message<?> redeliver(String queue) {
+        org.springframework.amqp.core.Message message = broker.get(queue).poll();
+        // binder 把 AMQP 的 contentType 属性映射为消息头
+        return MessageBuilder.withPayload(message.getBody())
+                .copyHeaders(message.getMessageProperties().getHeaders())
+                .setHeader("contentType", message.getMessageProperties().getContentType())
+                .build();
+    }
+}
@@ -0,0 +1,60 @@
+package com.kuraki;
+
+import com.kuraki.stream.PayloadCodecs;
+import org.junit.Test;
+import org.springframework.util.MimeType;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class PayloadCodecsTest {
+
+    @Test
+    public void byteArrayIsNotCopied() {
+        byte[] payload = {1, 2, 3};
+        assertSame(payload, PayloadCodecs.bytes(payload));
+        assertSame(payload, PayloadCodecs.bytes(ByteBuffer.wrap(payload)));
+    }
+
+    @Test
+    public void byteBufferReadsOnlyRemainingWithoutConsuming() {
+        ByteBuffer buffer = ByteBuffer.wrap(new byte[]{9, 9, 1, 2, 3, 9}, 2, 3);
+        assertArrayEquals(new byte[]{1, 2, 3}, PayloadCodecs.bytes(buffer));
+        assertEquals(2, buffer.position());
+
+        ByteBuffer direct = ByteBuffer.allocateDirect(4);
+        direct.put(new byte[]{4, 5, 6, 7}).flip();
+        direct.get();
+        assertArrayEquals(new byte[]{5, 6, 7}, PayloadCodecs.bytes(direct));
+        assertEquals(1, direct.position());
+
+        ByteBuffer slice = ByteBuffer.wrap(new byte[]{8, 1, 2}, 1, 2).slice();
+        assertArrayEquals(new byte[]{1, 2}, PayloadCodecs.bytes(slice));
+    }
+
+    @Test
+    public void stringIsUtf8() {
+        assertArrayEquals("héllo".getBytes(StandardCharsets.UTF_8), PayloadCodecs.bytes("héllo"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unsupportedPayload() {
+        PayloadCodecs.bytes(42);
+    }
+
+    @Test
+    public void onlyTextContentTypesAreText() {
+        assertTrue(PayloadCodecs.isText(null, new byte[0]));
+        assertTrue(PayloadCodecs.isText("application/json", "{}"));
+        assertTrue(PayloadCodecs.isText(MimeType.valueOf("text/plain;charset=UTF-8"), new byte[0]));
+        assertFalse(PayloadCodecs.isText("application/json", new byte[0]));
+        assertFalse(PayloadCodecs.isText("application/octet-stream", new byte[0]));
+        assertFalse(PayloadCodecs.isText("not a mime type", new byte[0]));
+    }
+}
@@ -0,0 +1,112 @@
+package com.kuraki.stream;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 对数线性分桶的延迟直方图，记录不分配内存，相对误差约 1/8。
+ * 小于 64 的值逐个分桶，之后每个 2 的幂区间再分 8 个桶。
+ * 按时间窗口统计时用 intervalSnapshot() 取出并清零上一窗口的数据，与并发的 record 不会丢失或重复计数。
+ */
+public class LatencyHistogram {
+
+    private static final int LINEAR = 64;
+
+    private static final int SUB_BUCKETS = 8;
+
+    private static final int BUCKETS = LINEAR + (64 - 6) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+    public void record(long value) {
+        counts.incrementAndGet(indexOf(Math.max(value, 0)));
+    }
+
+    public long count() {
+        return snapshot().count();
+    }
+
+    /**
+     * 返回对应分位的桶上界，没有数据时返回 0
+     */
+    public long percentile(double percentile) {
+        return snapshot().percentile(percentile);
+    }
+
+    /**
+     * 累计至今的数据
+     */
+    public Snapshot snapshot() {
+        long[] snapshot = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+        }
+        return new Snapshot(snapshot);
+    }
+
+    /**
+     * 取出上次调用以来的数据并清零。每个桶原子地取出，并发记录的值只会计入这一次或下一次
+     */
+    public Snapshot intervalSnapshot() {
+        long[] snapshot = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.getAndSet(i, 0);
+        }
+        return new Snapshot(snapshot);
+    }
+
+    static int indexOf(long value) {
+        if (value < LINEAR) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exponent - 3)) & (SUB_BUCKETS - 1);
+        return LINEAR + (exponent - 6) * SUB_BUCKETS + sub;
+    }
+
+    static long upperBound(int index) {
+        if (index < LINEAR) {
+            return index;
+        }
+        int exponent = (index - LINEAR) / SUB_BUCKETS + 6;
+        int sub = (index - LINEAR) % SUB_BUCKETS;
+        return ((long) (SUB_BUCKETS + sub + 1) << (exponent - 3)) - 1;
+    }
+
+    public static class Snapshot {
+
+        private final long[] counts;
+
+        private final long total;
+
+        Snapshot(long[] counts) {
+            this.counts = counts;
+            long total = 0;
+            for (long count : counts) {
+                total += count;
+            }
+            this.total = total;
+        }
+
+        public long count() {
+            return total;
+        }
+
+        /**
+         * 返回对应分位的桶上界，没有数据时返回 0
+         */
+        public long percentile(double percentile) {
+            if (total == 0) {
+                return 0;
+            }
+            long rank = Math.max((long) Math.ceil(total * percentile / 100.0), 1);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return upperBound(i);
+                }
+            }
+            return upperBound(BUCKETS - 1);
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.kuraki.stream;
+
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cloud.stream.annotation.EnableBinding;
+import org.springframework.cloud.stream.annotation.Input;
+import org.springframework.cloud.stream.annotation.Output;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationContextAware;
+import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.integration.channel.AbstractMessageChannel;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 为 @EnableBinding 声明的通道添加 TracingChannelInterceptor，
+ * 并在 /metrics 中输出每个输入通道的延迟分位：stream.latency.{channel}.hop.p99 等，单位微秒。
+ * 分位和 count 统计的是最近一个完整的窗口（stream.tracing.window-ms，默认 60 秒），不是启动以来的累计值
+ */
+@Component
+@ConditionalOnProperty(name = "stream.tracing.enabled", matchIfMissing = true)
+public class StreamLatencyMetrics implements PublicMetrics, SmartInitializingSingleton, ApplicationContextAware,
+        DisposableBean {
+
+    private ApplicationContext context;
+
+    @Value("${stream.tracing.window-ms:60000}")
+    private long windowMs;
+
+    private final Map<String, Window> hopLatency = new ConcurrentHashMap<>();
+
+    private final Map<String, Window> endToEndLatency = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService roller;
+
+    @Override
+    public void setApplicationContext(ApplicationContext context) throws BeansException {
+        this.context = context;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        Set<String> inputs = new LinkedHashSet<>();
+        Set<String> outputs = new LinkedHashSet<>();
+        for (Object bean : context.getBeansWithAnnotation(EnableBinding.class).values()) {
+            EnableBinding binding = AnnotationUtils.findAnnotation(bean.getClass(), EnableBinding.class);
+            for (Class<?> type : binding.value()) {
+                collect(type, inputs, outputs);
+            }
+        }
+        for (String name : inputs) {
+            Window hop = new Window();
+            Window endToEnd = new Window();
+            hopLatency.put(name, hop);
+            endToEndLatency.put(name, endToEnd);
+            channel(name).addInterceptor(new TracingChannelInterceptor(hop.histogram, endToEnd.histogram,
+                    outputs.contains(name)));
+        }
+        for (String name : outputs) {
+            if (!inputs.contains(name)) {
+                channel(name).addInterceptor(new TracingChannelInterceptor(null, null, true));
+            }
+        }
+        if (!inputs.isEmpty()) {
+            roller = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "stream-latency-window");
+                thread.setDaemon(true);
+                return thread;
+            });
+            roller.scheduleAtFixedRate(this::roll, windowMs, windowMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public Collection<Metric<?>> metrics() {
+        List<Metric<?>> metrics = new ArrayList<>();
+        for (String name : hopLatency.keySet()) {
+            add(metrics, "stream.latency." + name + ".hop", hopLatency.get(name).last);
+            add(metrics, "stream.latency." + name + ".endToEnd", endToEndLatency.get(name).last);
+        }
+        return metrics;
+    }
+
+    @Override
+    public void destroy() {
+        if (roller != null) {
+            roller.shutdownNow();
+        }
+    }
+
+    void roll() {
+        for (Window window : hopLatency.values()) {
+            window.roll();
+        }
+        for (Window window : endToEndLatency.values()) {
+            window.roll();
+        }
+    }
+
+    private void add(List<Metric<?>> metrics, String prefix, LatencyHistogram.Snapshot snapshot) {
+        metrics.add(new Metric<>(prefix + ".count", snapshot.count()));
+        metrics.add(new Metric<>(prefix + ".p50", snapshot.percentile(50)));
+        metrics.add(new Metric<>(prefix + ".p99", snapshot.percentile(99)));
+        metrics.add(new Metric<>(prefix + ".p999", snapshot.percentile(99.9)));
+    }
+
+    private void collect(Class<?> type, Set<String> inputs, Set<String> outputs) {
+        for (Method method : type.getMethods()) {
+            Input input = AnnotationUtils.findAnnotation(method, Input.class);
+            if (input != null) {
+                inputs.add(StringUtils.hasText(input.value()) ? input.value() : method.getName());
+            }
+            Output output = AnnotationUtils.findAnnotation(method, Output.class);
+            if (output != null) {
+                outputs.add(StringUtils.hasText(output.value()) ? output.value() : method.getName());
+            }
+        }
+    }
+
+    private AbstractMessageChannel channel(String name) {
+        return context.getBean(name, AbstractMessageChannel.class);
+    }
+
+    /**
+     * 拦截器写入 histogram，每个窗口结束时取出放到 last，/metrics 只读 last
+     */
+    static class Window {
+
+        final LatencyHistogram histogram = new LatencyHistogram();
+
+        volatile LatencyHistogram.Snapshot last = histogram.snapshot();
+
+        void roll() {
+            last = histogram.intervalSnapshot();
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.kuraki.stream;
+
+import org.springframework.integration.support.MessageBuilder;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.support.ChannelInterceptorAdapter;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 输入通道：根据消息头记录本跳延迟和从起点开始的端到端延迟，不修改消息。
+ * 输出通道：写入本跳的发送时间，第一跳同时写入起点时间。时间和延迟的单位都是微秒。
+ * 同一个通道既是输入又是输出时（如 SinkSender 直接写 Sink 的 input），先记录再写入。
+ */
+public class TracingChannelInterceptor extends ChannelInterceptorAdapter {
+
+    public static final String HOP_SENT_AT = "x-hop-sent-at";
+
+    public static final String ORIGIN_SENT_AT = "x-origin-sent-at";
+
+    // 启动时的系统时间加上 nanoTime 的增量，进程内单调；跨进程的误差取决于各机器的时钟同步
+    private static final long BASE_MICROS = TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis());
+
+    private static final long BASE_NANOS = System.nanoTime();
+
+    private final LatencyHistogram hopLatency;
+
+    private final LatencyHistogram endToEndLatency;
+
+    private final boolean outbound;
+
+    /**
+     * @param hopLatency      为 null 时不记录，只作为输出通道
+     * @param endToEndLatency 与 hopLatency 同时为 null 或非 null
+     * @param outbound        是否写入发送时间
+     */
+    public TracingChannelInterceptor(LatencyHistogram hopLatency, LatencyHistogram endToEndLatency, boolean outbound) {
+        this.hopLatency = hopLatency;
+        this.endToEndLatency = endToEndLatency;
+        this.outbound = outbound;
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        long now = currentMicros();
+        if (hopLatency != null) {
+            record(hopLatency, message.getHeaders().get(HOP_SENT_AT), now);
+            record(endToEndLatency, message.getHeaders().get(ORIGIN_SENT_AT), now);
+        }
+        if (!outbound) {
+            return message;
+        }
+        MessageBuilder<?> builder = MessageBuilder.fromMessage(message).setHeader(HOP_SENT_AT, now);
+        if (!message.getHeaders().containsKey(ORIGIN_SENT_AT)) {
+            builder.setHeader(ORIGIN_SENT_AT, now);
+        }
+        return builder.build();
+    }
+
+    public static long currentMicros() {
+        return BASE_MICROS + TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - BASE_NANOS);
+    }
+
+    private void record(LatencyHistogram histogram, Object sentAt, long now) {
+        // 经过 broker 后数值类型可能变化
+        if (sentAt instanceof Number) {
+            histogram.record(Math.max(now - ((Number) sentAt).longValue(), 0));
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.kuraki.stream;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void percentileIsBucketUpperBound() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(i);
+        }
+        assertEquals(100, histogram.count());
+        assertEquals(50, histogram.percentile(50));
+        long p99 = histogram.percentile(99);
+        // 64 以上按 1/8 的精度分桶
+        assertTrue(p99 >= 99 && p99 <= 99 + 99 / 8);
+        assertEquals(0, new LatencyHistogram().percentile(99));
+    }
+
+    @Test
+    public void intervalSnapshotOnlyHasLastInterval() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(1000);
+        assertEquals(1, histogram.intervalSnapshot().count());
+
+        histogram.record(5);
+        LatencyHistogram.Snapshot interval = histogram.intervalSnapshot();
+        assertEquals(1, interval.count());
+        assertEquals(5, interval.percentile(100));
+        assertEquals(0, histogram.count());
+    }
+
+    @Test
+    public void intervalSnapshotsDoNotLoseConcurrentRecords() throws Exception {
+        LatencyHistogram histogram = new LatencyHistogram();
+        int threads = 4;
+        int perThread = 200_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            executor.execute(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    histogram.record(i % 500);
+                }
+                done.countDown();
+            });
+        }
+        long total = 0;
+        while (!done.await(1, TimeUnit.MILLISECONDS)) {
+            total += histogram.intervalSnapshot().count();
+        }
+        total += histogram.intervalSnapshot().count();
+        executor.shutdown();
+
+        assertEquals((long) threads * perThread, total);
+    }
+}
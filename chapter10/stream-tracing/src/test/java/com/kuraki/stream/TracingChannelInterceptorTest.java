@@ -0,0 +1,85 @@
+package com.kuraki.stream;
+
+import org.junit.Test;
+import org.springframework.integration.channel.QueueChannel;
+import org.springframework.integration.support.MessageBuilder;
+import org.springframework.messaging.Message;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class TracingChannelInterceptorTest {
+
+    @Test
+    public void stampOnOutputAndRecordOnInput() {
+        QueueChannel output = new QueueChannel();
+        output.addInterceptor(new TracingChannelInterceptor(null, null, true));
+        LatencyHistogram hop = new LatencyHistogram();
+        LatencyHistogram endToEnd = new LatencyHistogram();
+        QueueChannel input = new QueueChannel();
+        input.addInterceptor(new TracingChannelInterceptor(hop, endToEnd, false));
+
+        output.send(MessageBuilder.withPayload("hello").build());
+        Message<?> sent = output.receive(0);
+        assertNotNull(sent.getHeaders().get(TracingChannelInterceptor.HOP_SENT_AT));
+        assertNotNull(sent.getHeaders().get(TracingChannelInterceptor.ORIGIN_SENT_AT));
+
+        input.send(sent);
+        assertEquals(1, hop.count());
+        assertEquals(1, endToEnd.count());
+        // 输入通道不修改消息
+        assertSame(sent, input.receive(0));
+    }
+
+    @Test
+    public void timesAreMicros() throws InterruptedException {
+        long before = TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis());
+        QueueChannel output = new QueueChannel();
+        output.addInterceptor(new TracingChannelInterceptor(null, null, true));
+        output.send(MessageBuilder.withPayload("hello").build());
+        Message<?> sent = output.receive(0);
+        long sentAt = sent.getHeaders().get(TracingChannelInterceptor.HOP_SENT_AT, Long.class);
+        assertTrue(Math.abs(sentAt - before) < TimeUnit.SECONDS.toMicros(1));
+
+        Thread.sleep(5);
+        LatencyHistogram hop = new LatencyHistogram();
+        QueueChannel input = new QueueChannel();
+        input.addInterceptor(new TracingChannelInterceptor(hop, new LatencyHistogram(), false));
+        input.send(sent);
+        long latency = hop.percentile(100);
+        assertTrue("hop " + latency + "us", latency >= 4000 && latency < TimeUnit.SECONDS.toMicros(1));
+    }
+
+    @Test
+    public void originIsKeptAcrossHops() {
+        QueueChannel output = new QueueChannel();
+        output.addInterceptor(new TracingChannelInterceptor(null, null, true));
+        output.send(MessageBuilder.withPayload("hello").setHeader(TracingChannelInterceptor.ORIGIN_SENT_AT, 42L).build());
+        assertEquals(42L, output.receive(0).getHeaders().get(TracingChannelInterceptor.ORIGIN_SENT_AT));
+    }
+
+    @Test
+    public void metricsReportLastCompleteWindow() {
+        StreamLatencyMetrics.Window window = new StreamLatencyMetrics.Window();
+        window.histogram.record(100);
+        assertEquals(0, window.last.count());
+
+        window.roll();
+        assertEquals(1, window.last.count());
+        window.histogram.record(5);
+        window.histogram.record(5);
+        // 当前窗口结束前，last 不变
+        assertEquals(1, window.last.count());
+        assertTrue(window.last.percentile(50) >= 100);
+
+        window.roll();
+        assertEquals(2, window.last.count());
+        assertEquals(5, window.last.percentile(99));
+        window.roll();
+        assertEquals(0, window.last.count());
+    }
+}
@@ -0,0 +1,127 @@
+package com.kuraki.loadtest;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 插在两个服务之间的 HTTP 转发代理：服务以代理端口注册到 Eureka，
+ * 调用方的请求经这里转发到服务的真实端口，记录的耗时即这一跳（含下游）的延迟。
+ * 请求和响应体整体缓存后转发，不适合流式接口
+ */
+public class HopProxy implements Closeable {
+
+    private static final Set<String> HOP_BY_HOP = new HashSet<>(Arrays.asList(
+            "connection", "keep-alive", "proxy-connection", "transfer-encoding", "te", "trailer", "upgrade",
+            "content-length", "host"));
+
+    static {
+        // 默认开启 Nagle，响应头和响应体分开发送时会叠加 40ms 的延迟确认
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+
+    private final int targetPort;
+
+    private final HopStats stats;
+
+    private final HttpServer server;
+
+    private final ExecutorService executor;
+
+    public HopProxy(HopStats stats, int listenPort, int targetPort, int threads) throws IOException {
+        this.stats = stats;
+        this.targetPort = targetPort;
+        this.server = HttpServer.create(new InetSocketAddress(listenPort), 1024);
+        this.executor = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "proxy-" + stats.getName());
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.createContext("/", this::forward);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    private void forward(HttpExchange exchange) {
+        long start = System.nanoTime();
+        int status = 0;
+        try {
+            URL url = new URL("http", "127.0.0.1", targetPort, exchange.getRequestURI().toString());
+            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+            connection.setRequestMethod(exchange.getRequestMethod());
+            connection.setInstanceFollowRedirects(false);
+            for (Map.Entry<String, List<String>> header : exchange.getRequestHeaders().entrySet()) {
+                if (!HOP_BY_HOP.contains(header.getKey().toLowerCase(Locale.ROOT))) {
+                    for (String value : header.getValue()) {
+                        connection.addRequestProperty(header.getKey(), value);
+                    }
+                }
+            }
+            byte[] requestBody = readAll(exchange.getRequestBody());
+            if (requestBody.length > 0) {
+                connection.setDoOutput(true);
+                try (OutputStream out = connection.getOutputStream()) {
+                    out.write(requestBody);
+                }
+            }
+            status = connection.getResponseCode();
+            InputStream in = status >= 400 ? connection.getErrorStream() : connection.getInputStream();
+            byte[] body = in == null ? new byte[0] : readAll(in);
+            for (Map.Entry<String, List<String>> header : connection.getHeaderFields().entrySet()) {
+                if (header.getKey() != null && !HOP_BY_HOP.contains(header.getKey().toLowerCase(Locale.ROOT))) {
+                    exchange.getResponseHeaders().put(header.getKey(), header.getValue());
+                }
+            }
+            boolean noBody = body.length == 0 || status == 204 || status == 304
+                    || "HEAD".equals(exchange.getRequestMethod());
+            exchange.sendResponseHeaders(status, noBody ? -1 : body.length);
+            if (!noBody) {
+                exchange.getResponseBody().write(body);
+            }
+        } catch (IOException e) {
+            status = 0;
+            try {
+                exchange.sendResponseHeaders(502, -1);
+            } catch (IOException ignored) {
+                // 响应头已经发出
+            }
+        } finally {
+            exchange.close();
+            stats.record(status, System.nanoTime() - start);
+        }
+    }
+
+    static byte[] readAll(InputStream in) throws IOException {
+        try (InputStream input = in) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = input.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return out.toByteArray();
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,61 @@
+package com.kuraki.loadtest;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 一跳的耗时（微秒）和错误数，interval() 取出上次调用以来的数据并清零
+ */
+public class HopStats {
+
+    private final String name;
+
+    private final Recorder latency = new Recorder(3);
+
+    private final AtomicLong errors = new AtomicLong();
+
+    public HopStats(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @param status HTTP 状态码，0 表示连接失败或超时
+     */
+    public void record(int status, long elapsedNanos) {
+        latency.recordValue(Math.max(TimeUnit.NANOSECONDS.toMicros(elapsedNanos), 1));
+        if (status == 0 || status >= 500) {
+            errors.incrementAndGet();
+        }
+    }
+
+    public Interval interval() {
+        return new Interval(latency.getIntervalHistogram(), errors.getAndSet(0));
+    }
+
+    public static class Interval {
+
+        private final Histogram histogram;
+
+        private final long errors;
+
+        Interval(Histogram histogram, long errors) {
+            this.histogram = histogram;
+            this.errors = errors;
+        }
+
+        public Histogram getHistogram() {
+            return histogram;
+        }
+
+        public long getErrors() {
+            return errors;
+        }
+    }
+}
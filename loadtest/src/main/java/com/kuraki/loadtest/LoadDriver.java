@@ -0,0 +1,123 @@
+package com.kuraki.loadtest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 按流量配置发压，每个 target 记一跳（入口）的耗时。
+ * open 模式下积压超过 1 秒的请求直接记为失败，避免压测端自身无限排队
+ */
+class LoadDriver {
+
+    private final TrafficProfile profile;
+
+    private final Map<String, HopStats> stats = new LinkedHashMap<>();
+
+    LoadDriver(TrafficProfile profile) {
+        this.profile = profile;
+        for (TrafficProfile.Target target : profile.getTargets()) {
+            stats.put(target.name, new HopStats("client:" + target.name));
+        }
+    }
+
+    Iterable<HopStats> getStats() {
+        return stats.values();
+    }
+
+    void run(long seconds) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        if (profile.getMode() == TrafficProfile.Mode.OPEN) {
+            runOpen(deadline);
+        } else {
+            runClosed(deadline);
+        }
+    }
+
+    private void runOpen(long deadline) throws InterruptedException {
+        int rate = Math.max(profile.getRate(), 1);
+        long interval = TimeUnit.SECONDS.toNanos(1) / rate;
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(profile.getConcurrency(), profile.getConcurrency(),
+                0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(rate), daemon("load-open"));
+        try {
+            long next = System.nanoTime();
+            while (next < deadline) {
+                long now = System.nanoTime();
+                if (next > now) {
+                    LockSupport.parkNanos(next - now);
+                }
+                long intended = next;
+                TrafficProfile.Target target = profile.next();
+                try {
+                    executor.execute(() -> call(target, intended));
+                } catch (RejectedExecutionException e) {
+                    stats.get(target.name).record(0, System.nanoTime() - intended);
+                }
+                next += interval;
+            }
+        } finally {
+            executor.shutdown();
+            executor.awaitTermination(30, TimeUnit.SECONDS);
+        }
+    }
+
+    private void runClosed(long deadline) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(profile.getConcurrency(), daemon("load-closed"));
+        for (int i = 0; i < profile.getConcurrency(); i++) {
+            executor.execute(() -> {
+                while (System.nanoTime() < deadline) {
+                    call(profile.next(), System.nanoTime());
+                }
+            });
+        }
+        executor.shutdown();
+        executor.awaitTermination(TimeUnit.NANOSECONDS.toSeconds(deadline - System.nanoTime()) + 30, TimeUnit.SECONDS);
+    }
+
+    private void call(TrafficProfile.Target target, long start) {
+        int status = 0;
+        try {
+            HttpURLConnection connection = (HttpURLConnection) new URL(profile.url(target)).openConnection();
+            connection.setRequestMethod(target.method);
+            connection.setConnectTimeout(5000);
+            connection.setReadTimeout(30000);
+            if (target.body != null) {
+                connection.setDoOutput(true);
+                connection.setRequestProperty("Content-Type", target.contentType);
+                try (OutputStream out = connection.getOutputStream()) {
+                    out.write(target.body);
+                }
+            }
+            status = connection.getResponseCode();
+            // 读完响应体，连接才能复用
+            InputStream in = status >= 400 ? connection.getErrorStream() : connection.getInputStream();
+            if (in != null) {
+                HopProxy.readAll(in);
+            }
+        } catch (IOException e) {
+            status = 0;
+        } finally {
+            stats.get(target.name).record(status, System.nanoTime() - start);
+        }
+    }
+
+    private static ThreadFactory daemon(String name) {
+        return r -> {
+            Thread thread = new Thread(r, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,110 @@
+package com.kuraki.loadtest;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 本地端到端压测入口。
+ * LoadTestHarness [--no-start] [--topology=topology.properties] profiles/xxx.properties
+ * 按拓扑顺序启动各服务（--no-start 时只启动转发代理，服务需已按同样的参数运行），
+ * 预热后清零统计，正式发压结束输出 client:* （入口）和各服务代理记录的每一跳延迟，
+ * 结果写入 target/loadtest/{profile}.csv
+ */
+public class LoadTestHarness {
+
+    private static Logger logger = LoggerFactory.getLogger(LoadTestHarness.class);
+
+    private final List<ServiceProcess> services = new ArrayList<>();
+
+    private final List<HopProxy> proxies = new ArrayList<>();
+
+    private final List<HopStats> hops = new ArrayList<>();
+
+    public static void main(String[] args) throws Exception {
+        boolean start = true;
+        File topologyFile = new File("topology.properties");
+        File profileFile = null;
+        for (String arg : args) {
+            if ("--no-start".equals(arg)) {
+                start = false;
+            } else if (arg.startsWith("--topology=")) {
+                topologyFile = new File(arg.substring("--topology=".length()));
+            } else {
+                profileFile = new File(arg);
+            }
+        }
+        if (profileFile == null) {
+            System.err.println("Usage: LoadTestHarness [--no-start] [--topology=file] <profile.properties>");
+            System.exit(2);
+        }
+        LoadTestHarness harness = new LoadTestHarness();
+        Runtime.getRuntime().addShutdownHook(new Thread(harness::stop, "loadtest-shutdown"));
+        try {
+            harness.run(new Settings(topologyFile), new TrafficProfile(profileFile), start);
+        } finally {
+            harness.stop();
+        }
+    }
+
+    private void run(Settings topology, TrafficProfile profile, boolean start) throws Exception {
+        String eurekaUrl = topology.require("eureka.url");
+        long timeoutMs = TimeUnit.SECONDS.toMillis(topology.getInt("startup-timeout-seconds", 180));
+        int proxyThreads = topology.getInt("proxy-threads", 200);
+        List<String> commonArgs = topology.getArgs("common-args");
+        File logDir = new File("target/loadtest/logs");
+        if (!logDir.isDirectory() && !logDir.mkdirs()) {
+            throw new IOException("Could not create " + logDir);
+        }
+
+        for (String name : topology.getList("services")) {
+            ServiceProcess service = new ServiceProcess(topology, name, commonArgs);
+            if (service.getProxyPort() > 0) {
+                HopStats stats = new HopStats(name);
+                proxies.add(new HopProxy(stats, service.getProxyPort(), service.getPort(), proxyThreads));
+                hops.add(stats);
+            }
+            if (start) {
+                services.add(service);
+                service.start(eurekaUrl, logDir);
+                service.awaitReady(eurekaUrl, timeoutMs);
+            }
+        }
+
+        LoadDriver driver = new LoadDriver(profile);
+        List<HopStats> all = new ArrayList<>();
+        for (HopStats stats : driver.getStats()) {
+            all.add(stats);
+        }
+        all.addAll(hops);
+
+        logger.info("Warming up {} for {} s", profile.getName(), profile.getWarmupSeconds());
+        driver.run(profile.getWarmupSeconds());
+        for (HopStats stats : all) {
+            stats.interval();
+        }
+        logger.info("Running {} for {} s", profile.getName(), profile.getDurationSeconds());
+        driver.run(profile.getDurationSeconds());
+        Report.write(profile.getName(), all, profile.getDurationSeconds(),
+                new File("target/loadtest/" + profile.getName() + ".csv"));
+    }
+
+    private synchronized void stop() {
+        List<ServiceProcess> reversed = new ArrayList<>(services);
+        Collections.reverse(reversed);
+        for (ServiceProcess service : reversed) {
+            service.stop();
+        }
+        services.clear();
+        for (HopProxy proxy : proxies) {
+            proxy.close();
+        }
+        proxies.clear();
+    }
+}
@@ -0,0 +1,49 @@
+package com.kuraki.loadtest;
+
+import org.HdrHistogram.Histogram;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * 每一跳的吞吐和延迟分位数，输出到控制台并写入 csv
+ */
+class Report {
+
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+
+    static void write(String profile, List<HopStats> hops, long seconds, File csv) throws IOException {
+        StringBuilder table = new StringBuilder();
+        table.append(String.format("%nProfile %s, %d s%n", profile, seconds));
+        table.append(String.format("%-28s %10s %10s %8s %9s %9s %9s %9s %9s%n",
+                "hop", "requests", "req/s", "errors", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms"));
+        File parent = csv.getAbsoluteFile().getParentFile();
+        if (!parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("Could not create " + parent);
+        }
+        try (PrintWriter out = new PrintWriter(csv, StandardCharsets.UTF_8.name())) {
+            out.println("profile,hop,requests,req_per_sec,errors,p50_ms,p90_ms,p99_ms,p99_9_ms,max_ms");
+            for (HopStats hop : hops) {
+                HopStats.Interval interval = hop.interval();
+                Histogram histogram = interval.getHistogram();
+                long count = histogram.getTotalCount();
+                double throughput = (double) count / seconds;
+                double[] values = new double[PERCENTILES.length + 1];
+                for (int i = 0; i < PERCENTILES.length; i++) {
+                    values[i] = histogram.getValueAtPercentile(PERCENTILES[i]) / 1000.0;
+                }
+                values[PERCENTILES.length] = histogram.getMaxValue() / 1000.0;
+                table.append(String.format("%-28s %10d %10.1f %8d %9.2f %9.2f %9.2f %9.2f %9.2f%n",
+                        hop.getName(), count, throughput, interval.getErrors(),
+                        values[0], values[1], values[2], values[3], values[4]));
+                out.printf("%s,%s,%d,%.1f,%d,%.3f,%.3f,%.3f,%.3f,%.3f%n", profile, hop.getName(), count, throughput,
+                        interval.getErrors(), values[0], values[1], values[2], values[3], values[4]);
+            }
+        }
+        System.out.print(table);
+        System.out.println("Report written to " + csv);
+    }
+}
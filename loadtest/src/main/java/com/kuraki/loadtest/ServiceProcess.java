@@ -0,0 +1,175 @@
+package com.kuraki.loadtest;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 以独立进程启动一个服务的可执行 jar，输出写到 logDir/{name}.log
+ */
+class ServiceProcess {
+
+    private static Logger logger = LoggerFactory.getLogger(ServiceProcess.class);
+
+    private final String name;
+
+    private final File dir;
+
+    private final int port;
+
+    private final int proxyPort;
+
+    private final String loaderPath;
+
+    private final boolean register;
+
+    private final List<String> args;
+
+    private Process process;
+
+    private File log;
+
+    ServiceProcess(Settings settings, String name, List<String> commonArgs) {
+        String prefix = "service." + name + ".";
+        this.name = name;
+        this.dir = new File(settings.getDir(), settings.require(prefix + "dir"));
+        this.port = Integer.parseInt(settings.require(prefix + "port"));
+        this.proxyPort = settings.getInt(prefix + "proxy-port", 0);
+        this.loaderPath = settings.get(prefix + "loader-path", "");
+        this.register = settings.getBoolean(prefix + "register", true);
+        this.args = new ArrayList<>(commonArgs);
+        this.args.addAll(settings.getArgs(prefix + "args"));
+    }
+
+    String getName() {
+        return name;
+    }
+
+    int getPort() {
+        return port;
+    }
+
+    int getProxyPort() {
+        return proxyPort;
+    }
+
+    void start(String eurekaUrl, File logDir) throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add(new File(System.getProperty("java.home"), "bin/java").getPath());
+        File jar = findJar();
+        if (loaderPath.isEmpty()) {
+            command.add("-jar");
+            command.add(jar.getPath());
+        } else {
+            // 可执行 jar 都带有 PropertiesLauncher，可以额外加入 loader.path 中的 jar
+            command.add("-Dloader.path=" + loaderPath);
+            command.add("-cp");
+            command.add(jar.getPath());
+            command.add("org.springframework.boot.loader.PropertiesLauncher");
+        }
+        command.add("--server.port=" + port);
+        command.add("--eureka.client.service-url.defaultZone=" + eurekaUrl);
+        if (proxyPort > 0) {
+            command.add("--eureka.instance.non-secure-port=" + proxyPort);
+        }
+        command.addAll(args);
+        log = new File(logDir, name + ".log");
+        logger.info("Starting {} on port {}{}", name, port, proxyPort > 0 ? " (proxied on " + proxyPort + ")" : "");
+        process = new ProcessBuilder(command)
+                .directory(dir)
+                .redirectErrorStream(true)
+                .redirectOutput(log)
+                .start();
+    }
+
+    /**
+     * 等待端口可连接，需要注册的服务再等待出现在 Eureka 中
+     */
+    void awaitReady(String eurekaUrl, long timeoutMs) throws Exception {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        while (!portOpen()) {
+            check(deadline);
+        }
+        if (register) {
+            URL app = new URL(eurekaUrl + (eurekaUrl.endsWith("/") ? "" : "/") + "apps/" + name.toUpperCase(Locale.ROOT));
+            while (status(app) != 200) {
+                check(deadline);
+            }
+        }
+        logger.info("{} is ready", name);
+    }
+
+    void stop() {
+        if (process == null) {
+            return;
+        }
+        process.destroy();
+        try {
+            if (!process.waitFor(10, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+            }
+        } catch (InterruptedException e) {
+            process.destroyForcibly();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void check(long deadline) throws InterruptedException {
+        if (!process.isAlive()) {
+            throw new IllegalStateException(name + " exited with " + process.exitValue() + ", see " + log);
+        }
+        if (System.currentTimeMillis() > deadline) {
+            throw new IllegalStateException(name + " did not become ready in time, see " + log);
+        }
+        Thread.sleep(500);
+    }
+
+    private boolean portOpen() {
+        try (Socket socket = new Socket()) {
+            socket.connect(new InetSocketAddress("127.0.0.1", port), 500);
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static int status(URL url) {
+        try {
+            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+            connection.setRequestProperty("Accept", "application/json");
+            connection.setConnectTimeout(1000);
+            connection.setReadTimeout(1000);
+            int status = connection.getResponseCode();
+            connection.disconnect();
+            return status;
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private File findJar() {
+        File target = new File(dir, "target");
+        File[] jars = target.listFiles((d, file) -> file.endsWith(".jar")
+                && !file.endsWith("-sources.jar") && !file.endsWith("-javadoc.jar"));
+        if (jars == null || jars.length == 0) {
+            throw new IllegalStateException("No executable jar in " + target + ", build " + name + " first");
+        }
+        File largest = jars[0];
+        for (File jar : jars) {
+            if (jar.length() > largest.length()) {
+                largest = jar;
+            }
+        }
+        return largest;
+    }
+}
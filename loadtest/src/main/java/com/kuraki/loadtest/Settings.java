@@ -0,0 +1,98 @@
+package com.kuraki.loadtest;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * properties 配置文件，值中的 ${xxx} 取系统属性，${loadtest.dir} 为配置文件所在目录
+ */
+class Settings {
+
+    private static final Pattern PLACEHOLDER = Pattern.compile("\\$\\{([^}]+)}");
+
+    private final Properties properties = new Properties();
+
+    private final File dir;
+
+    Settings(File file) throws IOException {
+        this.dir = file.getAbsoluteFile().getParentFile();
+        try (Reader reader = new InputStreamReader(Files.newInputStream(file.toPath()), StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        }
+    }
+
+    File getDir() {
+        return dir;
+    }
+
+    String get(String key, String defaultValue) {
+        String value = properties.getProperty(key);
+        return value == null ? defaultValue : resolve(value.trim());
+    }
+
+    String require(String key) {
+        String value = get(key, null);
+        if (value == null || value.isEmpty()) {
+            throw new IllegalArgumentException("Missing setting " + key);
+        }
+        return value;
+    }
+
+    int getInt(String key, int defaultValue) {
+        String value = get(key, null);
+        return value == null || value.isEmpty() ? defaultValue : Integer.parseInt(value);
+    }
+
+    boolean getBoolean(String key, boolean defaultValue) {
+        String value = get(key, null);
+        return value == null || value.isEmpty() ? defaultValue : Boolean.parseBoolean(value);
+    }
+
+    /**
+     * 逗号分隔的列表
+     */
+    List<String> getList(String key) {
+        String value = get(key, "");
+        if (value.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<String> items = new ArrayList<>();
+        for (String item : value.split(",")) {
+            if (!item.trim().isEmpty()) {
+                items.add(item.trim());
+            }
+        }
+        return items;
+    }
+
+    /**
+     * 空白分隔的命令行参数
+     */
+    List<String> getArgs(String key) {
+        String value = get(key, "");
+        return value.isEmpty() ? Collections.emptyList() : Arrays.asList(value.split("\\s+"));
+    }
+
+    private String resolve(String value) {
+        Matcher matcher = PLACEHOLDER.matcher(value);
+        StringBuffer resolved = new StringBuffer();
+        while (matcher.find()) {
+            String name = matcher.group(1);
+            String replacement = "loadtest.dir".equals(name) ? dir.getPath() : System.getProperty(name, "");
+            matcher.appendReplacement(resolved, Matcher.quoteReplacement(replacement));
+        }
+        matcher.appendTail(resolved);
+        return resolved.toString();
+    }
+}
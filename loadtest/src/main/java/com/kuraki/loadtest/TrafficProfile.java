@@ -0,0 +1,134 @@
+package com.kuraki.loadtest;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 流量配置。open：按 rate 固定速率发出，延迟从计划发送时间算起；closed：concurrency 个线程收到响应后立即发下一个
+ */
+class TrafficProfile {
+
+    enum Mode {
+        OPEN, CLOSED
+    }
+
+    private final String name;
+
+    private final Mode mode;
+
+    private final int rate;
+
+    private final int concurrency;
+
+    private final int warmupSeconds;
+
+    private final int durationSeconds;
+
+    private final int idRange;
+
+    private final List<Target> targets = new ArrayList<>();
+
+    private final int totalWeight;
+
+    TrafficProfile(File file) throws IOException {
+        Settings settings = new Settings(file);
+        this.name = settings.get("name", file.getName().replace(".properties", ""));
+        this.mode = Mode.valueOf(settings.get("mode", "open").toUpperCase());
+        this.rate = settings.getInt("rate", 100);
+        this.concurrency = settings.getInt("concurrency", 32);
+        this.warmupSeconds = settings.getInt("warmup-seconds", 10);
+        this.durationSeconds = settings.getInt("duration-seconds", 60);
+        this.idRange = settings.getInt("id-range", 1000);
+        int weight = 0;
+        for (String target : settings.getList("targets")) {
+            String prefix = "target." + target + ".";
+            String body = settings.get(prefix + "body", "");
+            Target t = new Target(target,
+                    settings.require(prefix + "url"),
+                    settings.get(prefix + "method", body.isEmpty() ? "GET" : "POST"),
+                    settings.get(prefix + "content-type", "application/json"),
+                    body.isEmpty() ? null : body.getBytes(StandardCharsets.UTF_8),
+                    settings.getInt(prefix + "weight", 1));
+            targets.add(t);
+            weight += t.weight;
+        }
+        if (targets.isEmpty()) {
+            throw new IllegalArgumentException("No targets in " + file);
+        }
+        this.totalWeight = weight;
+    }
+
+    String getName() {
+        return name;
+    }
+
+    Mode getMode() {
+        return mode;
+    }
+
+    int getRate() {
+        return rate;
+    }
+
+    int getConcurrency() {
+        return concurrency;
+    }
+
+    int getWarmupSeconds() {
+        return warmupSeconds;
+    }
+
+    int getDurationSeconds() {
+        return durationSeconds;
+    }
+
+    List<Target> getTargets() {
+        return targets;
+    }
+
+    /**
+     * 按权重随机选择
+     */
+    Target next() {
+        int pick = ThreadLocalRandom.current().nextInt(totalWeight);
+        for (Target target : targets) {
+            pick -= target.weight;
+            if (pick < 0) {
+                return target;
+            }
+        }
+        return targets.get(targets.size() - 1);
+    }
+
+    String url(Target target) {
+        return target.url.replace("{id}", Long.toString(ThreadLocalRandom.current().nextInt(idRange) + 1));
+    }
+
+    static class Target {
+
+        final String name;
+
+        final String url;
+
+        final String method;
+
+        final String contentType;
+
+        final byte[] body;
+
+        final int weight;
+
+        Target(String name, String url, String method, String contentType, byte[] body, int weight) {
+            this.name = name;
+            this.url = url;
+            this.method = method;
+            this.contentType = contentType;
+            this.body = body;
+            this.weight = weight;
+        }
+    }
+}